@@ -0,0 +1,306 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORVolatilityModel;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * JMH benchmarks of the steps of the valuation of a LIBOR in arrears, on the model of LiborInArrearsTest:
+ * - the creation of the volatility structure (step 4 of createLIBORMarketModel): the matrix of createVolatilityStructure
+ * (VolatilityRepresentation.MATRIX) against LIBORVolatilityModelRebonato (VolatilityRepresentation.PARAMETRIC);
+ * - the creation of the whole LIBOR market model by createLIBORMarketModel (the paths are not simulated yet), and
+ * the same creation followed by the first access to the simulation, i.e., the cost of a model ready for pricing;
+ * - the first access to the simulation, which triggers the Euler scheme for all the paths;
+ * - the valuation of one LiborInArrears by getValue on a simulated model;
+ * - the valuation of a book of LIBOR in arrears by LiborInArrearsPortfolio, against getValue trade by trade;
+ * - a tick of the forward curve with the book registered in a LIBORMarketModelWithCurveUpdate, against a cold rebuild
+ * of the model by createLIBORMarketModel and the valuation of the book;
+ * - the analytic formula of LiborInArrearsAnalyticFormula.
+ *
+ * Run them with the profile benchmark of the pom, adding the GC profiler for the allocation rate:
+ * java -jar target/benchmarks.jar LiborInArrearsBenchmark -prof gc
+ * The parameters of the model can be restricted from the command line, e.g., -p numberOfPaths=10000 -p measure=SPOT.
+ * The state of the curve tick is shared by the threads, so its benchmarks are meant for one thread (the default).
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LiborInArrearsBenchmark {
+
+	/**
+	 * The parameters of the model: the fixed ones are the ones of LiborInArrearsTest.
+	 */
+	@State(Scope.Benchmark)
+	public static class ModelParameters {
+
+		@Param({ "1000", "12000" })
+		public int numberOfPaths;
+
+		@Param({ "0.1", "0.05" })
+		public double simulationTimeStep;
+
+		@Param({ "8", "16" })
+		public double LIBORRateTimeHorizon;
+
+		@Param({ "LOGNORMAL", "NORMAL" })
+		public Dynamics dynamics;
+
+		@Param({ "TERMINAL", "SPOT" })
+		public Measure measure;
+
+		final double LIBORPeriodLength = 0.5;
+		final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+		final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+		final double correlationDecayParameter = 0.5;
+		final double a = 0.1, b = 0.1, c = 0.15, d = 0.15;
+		final int seed = 1897;
+
+		TimeDiscretization timeDiscretization;
+		TimeDiscretization LIBORPeriodDiscretization;
+
+		@Setup(Level.Trial)
+		public void createTimeDiscretizations() {
+			timeDiscretization = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+					LIBORRateTimeHorizon, simulationTimeStep);
+			LIBORPeriodDiscretization = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+					LIBORRateTimeHorizon, LIBORPeriodLength);
+		}
+
+		LIBORModelMonteCarloSimulationModel createLIBORMarketModel() throws CalculationException {
+			return LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+					numberOfPaths, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+					fixingForGivenForwards, forwardsForCurve, correlationDecayParameter, dynamics, measure,
+					a, b, c, d, seed);
+		}
+	}
+
+	/**
+	 * A model created before every invocation, whose paths have not been simulated yet.
+	 */
+	@State(Scope.Thread)
+	public static class NotSimulatedModel {
+
+		LIBORModelMonteCarloSimulationModel model;
+
+		@Setup(Level.Invocation)
+		public void createModel(ModelParameters parameters) throws CalculationException {
+			model = parameters.createLIBORMarketModel();
+		}
+	}
+
+	/**
+	 * A model created and simulated once for all the invocations, with the LIBOR in arrears starting at periodStart.
+	 */
+	@State(Scope.Benchmark)
+	public static class SimulatedModel {
+
+		@Param({ "1.0", "7.5" })
+		public double periodStart;
+
+		LIBORModelMonteCarloSimulationModel model;
+		LiborInArrears liborInArrears;
+
+		@Setup(Level.Trial)
+		public void simulateModel(ModelParameters parameters) throws CalculationException {
+			model = parameters.createLIBORMarketModel();
+			model.getLIBOR(0, 0);
+			liborInArrears = new LiborInArrears(periodStart, periodStart + parameters.LIBORPeriodLength);
+		}
+	}
+
+	/**
+	 * A book of numberOfTrades LIBOR in arrears on the simulated model, with notionals between -1000 and 1000 and
+	 * fixings on the tenor dates, so that many trades share the same period.
+	 */
+	@State(Scope.Benchmark)
+	public static class Book {
+
+		@Param({ "1000" })
+		public int numberOfTrades;
+
+		LiborInArrearsPortfolio portfolio;
+		LiborInArrears[] trades;
+		double[] notionals;
+
+		@Setup(Level.Trial)
+		public void createBook(ModelParameters parameters) {
+			final Random random = new Random(parameters.seed);
+			final int numberOfPeriods = parameters.LIBORPeriodDiscretization.getNumberOfTimeSteps();
+			notionals = new double[numberOfTrades];
+			final double[] fixings = new double[numberOfTrades];
+			final double[] periodEnds = new double[numberOfTrades];
+			trades = new LiborInArrears[numberOfTrades];
+			for(int tradeIndex = 0; tradeIndex < numberOfTrades; tradeIndex++) {
+				final int periodIndex = random.nextInt(numberOfPeriods);
+				notionals[tradeIndex] = 2000 * random.nextDouble() - 1000;
+				fixings[tradeIndex] = parameters.LIBORPeriodDiscretization.getTime(periodIndex);
+				periodEnds[tradeIndex] = parameters.LIBORPeriodDiscretization.getTime(periodIndex + 1);
+				trades[tradeIndex] = new LiborInArrears(fixings[tradeIndex], periodEnds[tradeIndex]);
+			}
+			portfolio = new LiborInArrearsPortfolio(notionals, fixings, periodEnds);
+		}
+	}
+
+	/**
+	 * The model of a LIBORMarketModelWithCurveUpdate with the book registered, and two sets of forwards, one basis
+	 * point apart, which every tick alternates so that the curve always moves. It has the scope of the book it depends on.
+	 */
+	@State(Scope.Benchmark)
+	public static class CurveTick {
+
+		LIBORMarketModelWithCurveUpdate model;
+		double[][] forwards;
+		int numberOfTicks;
+
+		@Setup(Level.Trial)
+		public void createModel(ModelParameters parameters, Book book) throws CalculationException {
+			model = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModelWithCurveUpdate(
+					parameters.numberOfPaths, parameters.simulationTimeStep, parameters.LIBORPeriodLength,
+					parameters.LIBORRateTimeHorizon, parameters.fixingForGivenForwards, parameters.forwardsForCurve,
+					parameters.correlationDecayParameter, parameters.dynamics, parameters.measure,
+					parameters.a, parameters.b, parameters.c, parameters.d, parameters.seed);
+			for(int tradeIndex = 0; tradeIndex < book.trades.length; tradeIndex++) {
+				model.registerTrade(book.trades[tradeIndex], book.notionals[tradeIndex]);
+			}
+			forwards = new double[][] { parameters.forwardsForCurve.clone(), parameters.forwardsForCurve.clone() };
+			for(int forwardIndex = 0; forwardIndex < forwards[1].length; forwardIndex++) {
+				forwards[1][forwardIndex] += 0.0001;
+			}
+		}
+
+		double[] nextForwards() {
+			return forwards[numberOfTicks++ % 2];
+		}
+	}
+
+	/**
+	 * The inputs of the analytic formula for the LIBOR in arrears starting at periodStart, from the curves of the model.
+	 */
+	@State(Scope.Benchmark)
+	public static class AnalyticFormulaInputs {
+
+		@Param({ "1.0", "7.5" })
+		public double periodStart;
+
+		final double LIBORPeriodLength = 0.5;
+		final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+		final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+		final double variance = 0.1 * 0.1; // sigma^2 of the Black model
+
+		double periodEnd, initialForward, discountFactorOfPeriodStart, discountFactorOfPeriodEnd;
+
+		@Setup(Level.Trial)
+		public void createInputs() {
+			final ForwardCurve forwardCurve = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(
+					fixingForGivenForwards, forwardsForCurve, LIBORPeriodLength);
+			final DiscountCurve discountCurve = new DiscountCurveFromForwardCurve(forwardCurve);
+			periodEnd = periodStart + LIBORPeriodLength;
+			initialForward = forwardCurve.getForward(null, periodStart);
+			discountFactorOfPeriodStart = discountCurve.getDiscountFactor(periodStart);
+			discountFactorOfPeriodEnd = discountCurve.getDiscountFactor(periodEnd);
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public double[][] createVolatilityStructure(ModelParameters parameters) {
+		return LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createVolatilityStructure(
+				parameters.a, parameters.b, parameters.c, parameters.d,
+				parameters.timeDiscretization, parameters.LIBORPeriodDiscretization, parameters.dynamics);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public LIBORVolatilityModel createVolatilityModelRebonato(ModelParameters parameters) {
+		return new LIBORVolatilityModelRebonato(parameters.timeDiscretization, parameters.LIBORPeriodDiscretization,
+				parameters.a, parameters.b, parameters.c, parameters.d,
+				parameters.dynamics == Dynamics.NORMAL ? 0.05 : 1.0);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public LIBORModelMonteCarloSimulationModel createLIBORMarketModel(ModelParameters parameters) throws CalculationException {
+		return parameters.createLIBORMarketModel();
+	}
+
+	@Benchmark
+	public RandomVariable createLIBORMarketModelAndSimulate(ModelParameters parameters) throws CalculationException {
+		return parameters.createLIBORMarketModel().getLIBOR(0, 0);
+	}
+
+	@Benchmark
+	public RandomVariable simulateOnFirstAccess(NotSimulatedModel notSimulatedModel) throws CalculationException {
+		return notSimulatedModel.model.getLIBOR(0, 0);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public RandomVariable getValueOfLiborInArrears(SimulatedModel simulatedModel) throws CalculationException {
+		return simulatedModel.liborInArrears.getValue(0.0, simulatedModel.model);
+	}
+
+	@Benchmark
+	public LiborInArrearsPortfolioValuation getValuationOfBook(SimulatedModel simulatedModel, Book book) throws CalculationException {
+		return book.portfolio.getValuation(0.0, simulatedModel.model);
+	}
+
+	@Benchmark
+	public double getValueOfBookTradeByTrade(SimulatedModel simulatedModel, Book book) throws CalculationException {
+		double value = 0.0;
+		for(int tradeIndex = 0; tradeIndex < book.trades.length; tradeIndex++) {
+			value += book.notionals[tradeIndex] * book.trades[tradeIndex].getValue(0.0, simulatedModel.model).getAverage();
+		}
+		return value;
+	}
+
+	@Benchmark
+	public LiborInArrearsPortfolioValuation updateForwardsOfBook(CurveTick curveTick) throws CalculationException {
+		return curveTick.model.updateForwards(curveTick.nextForwards());
+	}
+
+	@Benchmark
+	public LiborInArrearsPortfolioValuation rebuildAndValueBook(ModelParameters parameters, Book book, CurveTick curveTick)
+			throws CalculationException {
+		final LIBORModelMonteCarloSimulationModel model =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+						parameters.numberOfPaths, parameters.simulationTimeStep, parameters.LIBORPeriodLength,
+						parameters.LIBORRateTimeHorizon, parameters.fixingForGivenForwards, curveTick.nextForwards(),
+						parameters.correlationDecayParameter, parameters.dynamics, parameters.measure,
+						parameters.a, parameters.b, parameters.c, parameters.d, parameters.seed);
+		return book.portfolio.getValuation(0.0, model);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public double calculateAnalyticFormula(AnalyticFormulaInputs inputs) {
+		return LiborInArrearsAnalyticFormula.calculateLiborInArrearsFloaterAnalytic(inputs.initialForward,
+				inputs.variance, inputs.periodStart, inputs.periodEnd,
+				inputs.discountFactorOfPeriodEnd, inputs.discountFactorOfPeriodStart);
+	}
+}
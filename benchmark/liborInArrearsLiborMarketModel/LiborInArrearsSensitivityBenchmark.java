@@ -0,0 +1,103 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.exception.CalculationException;
+
+/**
+ * JMH benchmarks of the computation of value, bucketed deltas (one for every given forward) and vegas (a, b, c, d) of
+ * the strip of LIBOR in arrears of LiborInArrearsTest:
+ * - by adjoint algorithmic differentiation, one simulation and one backward sweep for every period, see
+ * LiborInArrearsAlgorithmicDifferentiation;
+ * - by bump and revalue with common random numbers, one simulation for the value and two for every sensitivity, see
+ * LiborInArrearsSensitivityEngine (on the common pool).
+ * The cost of bump and revalue grows with the number of given forwards, the one of algorithmic differentiation does
+ * not: numberOfForwards gives 4 or 8 given forwards on the same flat curve.
+ *
+ * Run them with the profile benchmark of the pom, adding the GC profiler for the allocation rate:
+ * java -jar target/benchmarks.jar LiborInArrearsSensitivityBenchmark -prof gc
+ * The tape of the algorithmic differentiation is kept in memory, so the forked JVM gets a larger heap.
+ *
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx6g")
+public class LiborInArrearsSensitivityBenchmark {
+
+	/**
+	 * The parameters of the model: the fixed ones are the ones of LiborInArrearsTest, with a shorter horizon.
+	 */
+	@State(Scope.Benchmark)
+	public static class ModelParameters {
+
+		@Param({ "500", "2000" })
+		public int numberOfPaths;
+
+		@Param({ "4", "8" })
+		public int numberOfForwards;
+
+		@Param({ "TERMINAL", "SPOT" })
+		public Measure measure;
+
+		final double simulationTimeStep = 0.1;
+		final double LIBORPeriodLength = 0.5;
+		final double LIBORRateTimeHorizon = 8.0;
+		final double correlationDecayParameter = 0.5;
+		final Dynamics dynamics = Dynamics.LOGNORMAL;
+		final double a = 0.1, b = 0.1, c = 0.15, d = 0.15;
+		final int seed = 1897;
+
+		double[] fixingForGivenForwards;
+		double[] forwardsForCurve;
+		LiborInArrearsStrip strip;
+
+		@Setup(Level.Trial)
+		public void createStrip() {
+			fixingForGivenForwards = numberOfForwards == 4
+					? new double[] { 0.5, 1.0, 2.0, 3.0 }
+					: new double[] { 0.5, 1.0, 1.5, 2.0, 3.0, 4.0, 5.0, 7.0 };
+			forwardsForCurve = new double[numberOfForwards];
+			Arrays.fill(forwardsForCurve, 0.05);
+			strip = new LiborInArrearsStrip(LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+					LIBORRateTimeHorizon, LIBORPeriodLength));
+		}
+	}
+
+	@Benchmark
+	public LiborInArrearsStripSensitivities getSensitivitiesByAlgorithmicDifferentiation(ModelParameters parameters)
+			throws CalculationException {
+		return LiborInArrearsAlgorithmicDifferentiation.getSensitivities(parameters.strip,
+				parameters.numberOfPaths, parameters.simulationTimeStep, parameters.LIBORPeriodLength,
+				parameters.LIBORRateTimeHorizon, parameters.fixingForGivenForwards, parameters.forwardsForCurve,
+				parameters.correlationDecayParameter, parameters.dynamics, parameters.measure,
+				parameters.a, parameters.b, parameters.c, parameters.d, parameters.seed);
+	}
+
+	@Benchmark
+	public LiborInArrearsStripSensitivities getSensitivitiesByBumpAndRevalue(ModelParameters parameters)
+			throws CalculationException {
+		return LiborInArrearsSensitivityEngine.getSensitivities(parameters.strip,
+				parameters.numberOfPaths, parameters.simulationTimeStep, parameters.LIBORPeriodLength,
+				parameters.LIBORRateTimeHorizon, parameters.fixingForGivenForwards, parameters.forwardsForCurve,
+				parameters.correlationDecayParameter, parameters.dynamics, parameters.measure,
+				parameters.a, parameters.b, parameters.c, parameters.d, parameters.seed);
+	}
+}
@@ -0,0 +1,112 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LiborInArrearsAdaptiveValuation.StandardErrorType;
+import liborInArrearsLiborMarketModel.LiborInArrearsAdaptiveValuation.StoppingReason;
+
+/**
+ * This class tests LiborInArrearsAdaptiveValuation on the model of LiborInArrearsTest, for the strip of all the periods
+ * but the first one: with an absolute and with a relative target which can be reached within the budgets, and with a
+ * target which cannot, once limited by the budget of paths and once by the budget of time. For every case it prints the
+ * reason why the valuation stopped, the number of paths and of batches, the time, and the largest standard error of a
+ * period (absolute or relative, as the target). The test fails if the valuation stops for another reason than the
+ * expected one, if a period misses a target declared as met, or if a budget is exceeded.
+ *
+ */
+public class AdaptiveValuationTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	final int seed = 1897;
+
+	public void testAdaptiveValuation() throws Exception {
+
+		System.out.println("Adaptive valuation of the strip, " + Dynamics.LOGNORMAL + " dynamics under the " + Measure.SPOT + " measure:\n");
+		System.out.println("Target:          Paths budget:  Time budget-ms:  Stopped by:              Paths:     Batches:  Time-s:    Largest error: \n");
+
+		// Targets within the budgets
+		runCase(StandardErrorType.ABSOLUTE, 2E-4, 1000000, 0, StoppingReason.TARGET_MET);
+		runCase(StandardErrorType.RELATIVE, 1E-2, 1000000, 0, StoppingReason.TARGET_MET);
+
+		// A target out of reach: the budget stops the valuation
+		runCase(StandardErrorType.ABSOLUTE, 1E-7, 5000, 0, StoppingReason.PATH_BUDGET_EXHAUSTED);
+		runCase(StandardErrorType.ABSOLUTE, 1E-7, 100000000, 2000, StoppingReason.TIME_BUDGET_EXHAUSTED);
+	}
+
+	private void runCase(StandardErrorType standardErrorType, double targetStandardError, int maximumNumberOfPaths,
+			long maximumComputationTimeMillis, StoppingReason expectedStoppingReason) throws Exception {
+
+		final long start = System.nanoTime();
+		final LiborInArrearsAdaptiveValuation adaptiveValuation = LiborInArrearsAdaptiveValuation.getValuation(getStrip(),
+				standardErrorType, targetStandardError, maximumNumberOfPaths, maximumComputationTimeMillis,
+				simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards, forwardsForCurve,
+				correlationDecayParameter, Dynamics.LOGNORMAL, Measure.SPOT, a, b, c, d, seed);
+		final long end = System.nanoTime();
+
+		final LiborInArrearsStripValuation valuation = adaptiveValuation.getValuation();
+		double largestError = 0.0;
+		boolean isTargetMet = true;
+		for(int periodIndex = 0; periodIndex < valuation.getNumberOfPeriods(); periodIndex++) {
+			final double standardError = valuation.getStandardError(periodIndex);
+			largestError = Math.max(largestError, standardErrorType == StandardErrorType.RELATIVE
+					? standardError / Math.abs(valuation.getValue(periodIndex)) : standardError);
+			isTargetMet &= adaptiveValuation.isTargetMet(periodIndex);
+		}
+
+		System.out.print(String.format("%-17s", formatterError.format(targetStandardError) + " " + standardErrorType.toString().toLowerCase()));
+		System.out.print(String.format("%-15d", maximumNumberOfPaths));
+		System.out.print(String.format("%-17s", maximumComputationTimeMillis > 0 ? String.valueOf(maximumComputationTimeMillis) : "none"));
+		System.out.print(String.format("%-25s", adaptiveValuation.getStoppingReason()));
+		System.out.print(String.format("%-11d", adaptiveValuation.getNumberOfPaths()));
+		System.out.print(String.format("%-10d", adaptiveValuation.getNumberOfBatches()));
+		System.out.print(String.format("%-11s", formatterTime.format((end - start) / 1E9)));
+		System.out.println(formatterError.format(largestError));
+
+		if(adaptiveValuation.getStoppingReason() != expectedStoppingReason) {
+			throw new AssertionError("The valuation stopped by " + adaptiveValuation.getStoppingReason()
+			+ " instead of " + expectedStoppingReason + ".");
+		}
+		if(expectedStoppingReason == StoppingReason.TARGET_MET && !isTargetMet) {
+			throw new AssertionError("The target is declared as met, but a period misses it.");
+		}
+		if(adaptiveValuation.getNumberOfPaths() > maximumNumberOfPaths) {
+			throw new AssertionError("The valuation used more paths than its budget.");
+		}
+	}
+
+	/*
+	 * The strip of all the periods of the tenure structure but the first one, which is fixed at time zero.
+	 */
+	private LiborInArrearsStrip getStrip() {
+		final int numberOfPeriods = (int) (LIBORRateTimeHorizon / LIBORTimeStep) - 1;
+		final double[] periodStarts = new double[numberOfPeriods];
+		final double[] periodEnds = new double[numberOfPeriods];
+		for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+			periodStarts[periodIndex] = (periodIndex + 1) * LIBORTimeStep;
+			periodEnds[periodIndex] = periodStarts[periodIndex] + LIBORTimeStep;
+		}
+		return new LiborInArrearsStrip(periodStarts, periodEnds);
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new AdaptiveValuationTest()).testAdaptiveValuation();
+	}
+
+}
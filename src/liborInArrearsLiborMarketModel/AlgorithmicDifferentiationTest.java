@@ -0,0 +1,118 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.ForkJoinPool;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+
+/**
+ * This class tests LiborInArrearsAlgorithmicDifferentiation against LiborInArrearsSensitivityEngine on the same seed,
+ * i.e., on the same Brownian increments: the bumped values are computed with the same random numbers as the tape, so
+ * the two methods differ only by the truncation and rounding errors of the central differences. For both dynamics and
+ * both measures it prints the time of the two methods and the largest difference of a delta and of a vega, relative to
+ * the largest delta (vega) of the same period.
+ *
+ * For normal dynamics the adjoint deltas do not contain the rescaling of the volatility by the initial forward curve,
+ * see LiborInArrearsAlgorithmicDifferentiation, so only the vegas are checked. The test fails if a checked difference
+ * is larger than the tolerance. The tape of the adjoint differentiation holds all the paths of every operation of the
+ * simulation, hence the smaller model than in LiborInArrearsTest.
+ *
+ */
+public class AlgorithmicDifferentiationTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+
+	final int	numberOfPaths	= 1000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 8;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	final int seed = 1897;
+
+	// Shifts of the central differences, for the forwards and for a, b, c, d
+	final double forwardShift = 1E-5;
+	final double volatilityParameterShift = 1E-5;
+
+	// The central differences have a truncation error of the order of the square of the shift
+	final double tolerance = 1E-6;
+
+	public void testAlgorithmicDifferentiation() throws Exception {
+
+		final LiborInArrearsStrip strip = new LiborInArrearsStrip(
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+						LIBORRateTimeHorizon, LIBORTimeStep));
+
+		System.out.println("Adjoint algorithmic differentiation against bump and revalue, " + numberOfPaths + " paths:\n");
+		System.out.println("Dynamics:      Measure:    AAD-s:     Bumps-s:   Delta difference:    Vega difference: \n");
+
+		for(final Dynamics dynamics : Dynamics.values()) {
+			for(final Measure measureType : Measure.values()) {
+				final long startAlgorithmicDifferentiation = System.nanoTime();
+				final LiborInArrearsStripSensitivities sensitivitiesAlgorithmicDifferentiation =
+						LiborInArrearsAlgorithmicDifferentiation.getSensitivities(strip, numberOfPaths, simulationTimeStep,
+								LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards, forwardsForCurve,
+								correlationDecayParameter, dynamics, measureType, a, b, c, d, seed);
+				final long endAlgorithmicDifferentiation = System.nanoTime();
+				final LiborInArrearsStripSensitivities sensitivitiesBumps =
+						LiborInArrearsSensitivityEngine.getSensitivities(strip, ForkJoinPool.commonPool(), numberOfPaths,
+								simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards, forwardsForCurve,
+								correlationDecayParameter, dynamics, measureType, a, b, c, d, seed, forwardShift,
+								volatilityParameterShift);
+				final long endBumps = System.nanoTime();
+
+				double maximumDifferenceOfDeltas = 0.0;
+				double maximumDifferenceOfVegas = 0.0;
+				for(int periodIndex = 0; periodIndex < strip.getNumberOfPeriods(); periodIndex++) {
+					double largestDelta = 0.0;
+					for(int forwardIndex = 0; forwardIndex < forwardsForCurve.length; forwardIndex++) {
+						largestDelta = Math.max(largestDelta, Math.abs(sensitivitiesBumps.getDelta(periodIndex, forwardIndex)));
+					}
+					for(int forwardIndex = 0; forwardIndex < forwardsForCurve.length && largestDelta > 0; forwardIndex++) {
+						maximumDifferenceOfDeltas = Math.max(maximumDifferenceOfDeltas,
+								Math.abs(sensitivitiesAlgorithmicDifferentiation.getDelta(periodIndex, forwardIndex)
+										- sensitivitiesBumps.getDelta(periodIndex, forwardIndex)) / largestDelta);
+					}
+					double largestVega = 0.0;
+					for(int parameterIndex = 0; parameterIndex < LiborInArrearsStripSensitivities.VOLATILITY_PARAMETER_NAMES.length; parameterIndex++) {
+						largestVega = Math.max(largestVega, Math.abs(sensitivitiesBumps.getVega(periodIndex, parameterIndex)));
+					}
+					for(int parameterIndex = 0; parameterIndex < LiborInArrearsStripSensitivities.VOLATILITY_PARAMETER_NAMES.length && largestVega > 0; parameterIndex++) {
+						maximumDifferenceOfVegas = Math.max(maximumDifferenceOfVegas,
+								Math.abs(sensitivitiesAlgorithmicDifferentiation.getVega(periodIndex, parameterIndex)
+										- sensitivitiesBumps.getVega(periodIndex, parameterIndex)) / largestVega);
+					}
+				}
+
+				System.out.print(String.format("%-15s", dynamics));
+				System.out.print(String.format("%-12s", measureType));
+				System.out.print(String.format("%-11s", formatterTime.format((endAlgorithmicDifferentiation - startAlgorithmicDifferentiation) / 1E9)));
+				System.out.print(String.format("%-11s", formatterTime.format((endBumps - endAlgorithmicDifferentiation) / 1E9)));
+				System.out.print(String.format("%-21s", formatterError.format(maximumDifferenceOfDeltas)
+						+ (dynamics == Dynamics.NORMAL ? " (*)" : "")));
+				System.out.println(formatterError.format(maximumDifferenceOfVegas));
+
+				if((dynamics == Dynamics.LOGNORMAL && maximumDifferenceOfDeltas > tolerance) || maximumDifferenceOfVegas > tolerance) {
+					throw new AssertionError("The adjoint sensitivities differ from the bumped ones by more than " + tolerance
+							+ " for " + dynamics + " dynamics under the " + measureType + " measure.");
+				}
+			}
+		}
+		System.out.println("\n(*) not checked: the adjoint deltas do not contain the rescaling of the normal volatility.");
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new AlgorithmicDifferentiationTest()).testAlgorithmicDifferentiation();
+	}
+
+}
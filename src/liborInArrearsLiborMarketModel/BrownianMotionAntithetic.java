@@ -0,0 +1,112 @@
+package liborInArrearsLiborMarketModel;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.RandomVariableFromArrayFactory;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class implements the antithetic variant of a given Brownian motion: if the given Brownian motion has n paths
+ * with increments \Delta W, this one has 2n paths, where the first n have increments \Delta W and the last n have
+ * increments -\Delta W.
+ *
+ * Note that the paths of an antithetic Brownian motion are not independent: the standard error of a Monte-Carlo
+ * estimate must be computed over the averages of the pairs (path k, path k+n), not over the single paths.
+ *
+ */
+public class BrownianMotionAntithetic implements BrownianMotion {
+
+	private final BrownianMotion					underlyingBrownianMotion;
+	private final RandomVariableFactory				randomVariableFactory;
+
+	private transient volatile RandomVariable[][]	brownianIncrements;
+	private final transient Object					brownianIncrementsLazyInitLock = new Object();
+
+	/**
+	 * @param underlyingBrownianMotion, the Brownian motion providing the first half of the paths
+	 * @param randomVariableFactory, the factory used to create the increments
+	 */
+	public BrownianMotionAntithetic(BrownianMotion underlyingBrownianMotion, RandomVariableFactory randomVariableFactory) {
+		this.underlyingBrownianMotion = underlyingBrownianMotion;
+		this.randomVariableFactory = randomVariableFactory;
+	}
+
+	/**
+	 * @param underlyingBrownianMotion, the Brownian motion providing the first half of the paths
+	 */
+	public BrownianMotionAntithetic(BrownianMotion underlyingBrownianMotion) {
+		this(underlyingBrownianMotion, new RandomVariableFromArrayFactory());
+	}
+
+	@Override
+	public RandomVariable getBrownianIncrement(int timeIndex, int factor) {
+		// Thread safe lazy initialization: all the increments are created once, then read without lock
+		if(brownianIncrements == null) {
+			synchronized(brownianIncrementsLazyInitLock) {
+				if(brownianIncrements == null) {
+					brownianIncrements = createBrownianIncrements();
+				}
+			}
+		}
+		return brownianIncrements[timeIndex][factor];
+	}
+
+	private RandomVariable[][] createBrownianIncrements() {
+		final RandomVariable[][] increments = new RandomVariable[getTimeDiscretization().getNumberOfTimeSteps()][getNumberOfFactors()];
+		for(int timeIndex = 0; timeIndex < increments.length; timeIndex++) {
+			for(int factor = 0; factor < increments[timeIndex].length; factor++) {
+				final RandomVariable increment = underlyingBrownianMotion.getBrownianIncrement(timeIndex, factor);
+				final int numberOfUnderlyingPaths = increment.size();
+				final double[] realizations = new double[2 * numberOfUnderlyingPaths];
+				for(int pathIndex = 0; pathIndex < numberOfUnderlyingPaths; pathIndex++) {
+					realizations[pathIndex] = increment.get(pathIndex);
+					realizations[pathIndex + numberOfUnderlyingPaths] = -increment.get(pathIndex);
+				}
+				increments[timeIndex][factor] = randomVariableFactory.createRandomVariable(increment.getFiltrationTime(), realizations);
+			}
+		}
+		return increments;
+	}
+
+	@Override
+	public RandomVariable getIncrement(int timeIndex, int factor) {
+		return getBrownianIncrement(timeIndex, factor);
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return underlyingBrownianMotion.getTimeDiscretization();
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return underlyingBrownianMotion.getNumberOfFactors();
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return 2 * underlyingBrownianMotion.getNumberOfPaths();
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return randomVariableFactory.createRandomVariable(value);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedSeed(int seed) {
+		return new BrownianMotionAntithetic(underlyingBrownianMotion.getCloneWithModifiedSeed(seed), randomVariableFactory);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedTimeDiscretization(TimeDiscretization newTimeDiscretization) {
+		return new BrownianMotionAntithetic(underlyingBrownianMotion.getCloneWithModifiedTimeDiscretization(newTimeDiscretization),
+				randomVariableFactory);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + "\n" + "antithetic variant of: " + underlyingBrownianMotion.toString();
+	}
+}
@@ -0,0 +1,229 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import net.finmath.functions.NormalDistribution;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.RandomVariableFromArrayFactory;
+import net.finmath.randomnumbers.MersenneTwister;
+import net.finmath.randomnumbers.SobolSequence;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class implements a multi-factor Brownian motion generated from a scrambled Sobol sequence, using a Brownian
+ * bridge for the construction of the paths.
+ *
+ * The Brownian bridge first draws the value of every factor at the last time, then the value at the middle time
+ * conditional on the two ends, then the values in the middle of the two halves and so on. In this way the first
+ * coordinates of the Sobol points, which are the best distributed ones, determine the coarse structure of the paths,
+ * which carries most of the variance. The coordinates are assigned level by level: coordinate k*numberOfFactors+f
+ * is used for the k-th point of the bridge of factor f.
+ *
+ * The Sobol sequence is scrambled by a random digital shift (a bitwise XOR of every coordinate with a random
+ * number), determined by the seed: this keeps the low discrepancy of the points, avoids the point 0 and gives
+ * independent estimates for different seeds, so that the Monte-Carlo error can be estimated by replications.
+ * The Sobol generator of the Finmath library supports at most MAXIMUM_SOBOL_DIMENSION coordinates: if the paths
+ * need more, the remaining (finest) points of the bridge are drawn from a Mersenne twister.
+ *
+ */
+public class BrownianMotionFromSobolBrownianBridge implements BrownianMotion {
+
+	/**
+	 * The maximum dimension of the Sobol sequence of the Finmath library.
+	 */
+	public static final int MAXIMUM_SOBOL_DIMENSION = 1000;
+
+	private static final double TWO_POWER_52 = 4503599627370496.0;
+
+	private final TimeDiscretization		timeDiscretization;
+	private final int						numberOfFactors;
+	private final int						numberOfPaths;
+	private final int						seed;
+	private final RandomVariableFactory		randomVariableFactory;
+
+	private transient volatile RandomVariable[][]	brownianIncrements;
+	private final transient Object					brownianIncrementsLazyInitLock = new Object();
+
+	/**
+	 * @param timeDiscretization, the time discretization of the Brownian motion
+	 * @param numberOfFactors, the number of factors
+	 * @param numberOfPaths, the number of paths
+	 * @param seed, the seed for the scrambling of the Sobol sequence (and for the padding)
+	 * @param randomVariableFactory, the factory used to create the increments
+	 */
+	public BrownianMotionFromSobolBrownianBridge(TimeDiscretization timeDiscretization, int numberOfFactors,
+			int numberOfPaths, int seed, RandomVariableFactory randomVariableFactory) {
+		this.timeDiscretization = timeDiscretization;
+		this.numberOfFactors = numberOfFactors;
+		this.numberOfPaths = numberOfPaths;
+		this.seed = seed;
+		this.randomVariableFactory = randomVariableFactory;
+	}
+
+	/**
+	 * @param timeDiscretization, the time discretization of the Brownian motion
+	 * @param numberOfFactors, the number of factors
+	 * @param numberOfPaths, the number of paths
+	 * @param seed, the seed for the scrambling of the Sobol sequence (and for the padding)
+	 */
+	public BrownianMotionFromSobolBrownianBridge(TimeDiscretization timeDiscretization, int numberOfFactors,
+			int numberOfPaths, int seed) {
+		this(timeDiscretization, numberOfFactors, numberOfPaths, seed, new RandomVariableFromArrayFactory());
+	}
+
+	@Override
+	public RandomVariable getBrownianIncrement(int timeIndex, int factor) {
+		// Thread safe lazy initialization: all the increments are created once, then read without lock
+		if(brownianIncrements == null) {
+			synchronized(brownianIncrementsLazyInitLock) {
+				if(brownianIncrements == null) {
+					brownianIncrements = createBrownianIncrements();
+				}
+			}
+		}
+		return brownianIncrements[timeIndex][factor];
+	}
+
+	@Override
+	public RandomVariable getIncrement(int timeIndex, int factor) {
+		return getBrownianIncrement(timeIndex, factor);
+	}
+
+	private RandomVariable[][] createBrownianIncrements() {
+		final int numberOfTimeSteps = timeDiscretization.getNumberOfTimeSteps();
+		final int dimension = numberOfTimeSteps * numberOfFactors;
+		final int sobolDimension = Math.min(dimension, MAXIMUM_SOBOL_DIMENSION);
+
+		/*
+		 * Construction order of the bridge: bridgeIndex[k] is the k-th time index to be drawn, conditional on the values at
+		 * bridgeLeftIndex[k] and bridgeRightIndex[k] (for k = 0, the last time, conditional on W(t_0)=0 only).
+		 */
+		final int[] bridgeIndex = new int[numberOfTimeSteps];
+		final int[] bridgeLeftIndex = new int[numberOfTimeSteps];
+		final int[] bridgeRightIndex = new int[numberOfTimeSteps];
+		bridgeIndex[0] = numberOfTimeSteps;
+		int numberOfBridgePoints = 1;
+		final Deque<int[]> intervals = new ArrayDeque<>();
+		intervals.add(new int[] { 0, numberOfTimeSteps });
+		while(!intervals.isEmpty()) {
+			final int[] interval = intervals.poll();
+			if(interval[1] - interval[0] > 1) {
+				final int middle = (interval[0] + interval[1]) / 2;
+				bridgeIndex[numberOfBridgePoints] = middle;
+				bridgeLeftIndex[numberOfBridgePoints] = interval[0];
+				bridgeRightIndex[numberOfBridgePoints] = interval[1];
+				numberOfBridgePoints++;
+				intervals.add(new int[] { interval[0], middle });
+				intervals.add(new int[] { middle, interval[1] });
+			}
+		}
+
+		// Weights and standard deviations of the conditional distributions of the bridge
+		final double[] weightLeft = new double[numberOfTimeSteps];
+		final double[] weightRight = new double[numberOfTimeSteps];
+		final double[] standardDeviation = new double[numberOfTimeSteps];
+		for(int k = 0; k < numberOfTimeSteps; k++) {
+			final double time = timeDiscretization.getTime(bridgeIndex[k]);
+			final double timeLeft = timeDiscretization.getTime(bridgeLeftIndex[k]);
+			if(k == 0) {
+				standardDeviation[k] = Math.sqrt(time - timeLeft);
+			}
+			else {
+				final double timeRight = timeDiscretization.getTime(bridgeRightIndex[k]);
+				weightLeft[k] = (timeRight - time) / (timeRight - timeLeft);
+				weightRight[k] = (time - timeLeft) / (timeRight - timeLeft);
+				standardDeviation[k] = Math.sqrt((time - timeLeft) * (timeRight - time) / (timeRight - timeLeft));
+			}
+		}
+
+		// Random digital shift of every Sobol coordinate, and padding for the coordinates beyond the Sobol dimension
+		final MersenneTwister mersenneTwister = new MersenneTwister(seed);
+		final long[] digitalShift = new long[sobolDimension];
+		for(int coordinate = 0; coordinate < sobolDimension; coordinate++) {
+			digitalShift[coordinate] = (long) (mersenneTwister.nextDouble() * TWO_POWER_52);
+		}
+		final SobolSequence sobolSequence = new SobolSequence(sobolDimension);
+
+		final double[][][] increments = new double[numberOfTimeSteps][numberOfFactors][numberOfPaths];
+		final double[] normals = new double[dimension];
+		final double[] brownianPath = new double[numberOfTimeSteps + 1];
+		for(int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+			final double[] sobolPoint = sobolSequence.getNext();
+			for(int coordinate = 0; coordinate < sobolDimension; coordinate++) {
+				final long shiftedPoint = ((long) (sobolPoint[coordinate] * TWO_POWER_52)) ^ digitalShift[coordinate];
+				normals[coordinate] = NormalDistribution.inverseCumulativeDistribution((shiftedPoint + 0.5) / TWO_POWER_52);
+			}
+			for(int coordinate = sobolDimension; coordinate < dimension; coordinate++) {
+				normals[coordinate] = NormalDistribution.inverseCumulativeDistribution(mersenneTwister.nextDouble());
+			}
+
+			for(int factor = 0; factor < numberOfFactors; factor++) {
+				brownianPath[0] = 0.0;
+				brownianPath[numberOfTimeSteps] = standardDeviation[0] * normals[factor];
+				for(int k = 1; k < numberOfTimeSteps; k++) {
+					brownianPath[bridgeIndex[k]] = weightLeft[k] * brownianPath[bridgeLeftIndex[k]]
+							+ weightRight[k] * brownianPath[bridgeRightIndex[k]]
+									+ standardDeviation[k] * normals[k * numberOfFactors + factor];
+				}
+				for(int timeIndex = 0; timeIndex < numberOfTimeSteps; timeIndex++) {
+					increments[timeIndex][factor][pathIndex] = brownianPath[timeIndex + 1] - brownianPath[timeIndex];
+				}
+			}
+		}
+
+		final RandomVariable[][] brownianIncrements = new RandomVariable[numberOfTimeSteps][numberOfFactors];
+		for(int timeIndex = 0; timeIndex < numberOfTimeSteps; timeIndex++) {
+			final double time = timeDiscretization.getTime(timeIndex + 1);
+			for(int factor = 0; factor < numberOfFactors; factor++) {
+				brownianIncrements[timeIndex][factor] = randomVariableFactory.createRandomVariable(time, increments[timeIndex][factor]);
+			}
+		}
+		return brownianIncrements;
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return timeDiscretization;
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return numberOfFactors;
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return randomVariableFactory.createRandomVariable(value);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedSeed(int seed) {
+		return new BrownianMotionFromSobolBrownianBridge(timeDiscretization, numberOfFactors, numberOfPaths, seed, randomVariableFactory);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedTimeDiscretization(TimeDiscretization newTimeDiscretization) {
+		return new BrownianMotionFromSobolBrownianBridge(newTimeDiscretization, numberOfFactors, numberOfPaths, seed, randomVariableFactory);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString()
+				+ "\n" + "timeDiscretization: " + timeDiscretization.toString()
+				+ "\n" + "numberOfFactors: " + numberOfFactors
+				+ "\n" + "numberOfPaths: " + numberOfPaths
+				+ "\n" + "seed: " + seed;
+	}
+}
@@ -0,0 +1,117 @@
+package liborInArrearsLiborMarketModel;
+
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class implements the restriction of a given Brownian motion to a coarser time discretization, whose times are
+ * all times of the time discretization of the given Brownian motion: the increment over the coarse step [s_k,s_{k+1}]
+ * is the sum of the increments of the given Brownian motion over the fine steps [t_j,t_{j+1}] with s_k <= t_j < s_{k+1}.
+ *
+ * The paths are the same paths of the given Brownian motion, observed at fewer times. Two simulations on different
+ * time discretizations, one driven by a Brownian motion and the other by its restriction, are therefore driven by the
+ * same random numbers, and the difference of their values is only due to the time discretization, with a Monte-Carlo
+ * error much smaller than the one of the values: see TimeDiscretizationTest.
+ *
+ */
+public class BrownianMotionOnCoarserTimeDiscretization implements BrownianMotion {
+
+	private final BrownianMotion		underlyingBrownianMotion;
+	private final TimeDiscretization	timeDiscretization;
+
+	// firstUnderlyingTimeIndex[k] is the index of s_k in the time discretization of the given Brownian motion
+	private final int[]					firstUnderlyingTimeIndex;
+
+	private transient volatile RandomVariable[][]	brownianIncrements;
+	private final transient Object					brownianIncrementsLazyInitLock = new Object();
+
+	/**
+	 * @param underlyingBrownianMotion, the Brownian motion on the fine time discretization
+	 * @param timeDiscretization, the coarse time discretization, whose times must be times of the fine one
+	 */
+	public BrownianMotionOnCoarserTimeDiscretization(BrownianMotion underlyingBrownianMotion,
+			TimeDiscretization timeDiscretization) {
+		this.underlyingBrownianMotion = underlyingBrownianMotion;
+		this.timeDiscretization = timeDiscretization;
+
+		firstUnderlyingTimeIndex = new int[timeDiscretization.getNumberOfTimes()];
+		for(int timeIndex = 0; timeIndex < firstUnderlyingTimeIndex.length; timeIndex++) {
+			firstUnderlyingTimeIndex[timeIndex] =
+					underlyingBrownianMotion.getTimeDiscretization().getTimeIndex(timeDiscretization.getTime(timeIndex));
+			if(firstUnderlyingTimeIndex[timeIndex] < 0) {
+				throw new IllegalArgumentException("The time " + timeDiscretization.getTime(timeIndex)
+				+ " is not a time of the time discretization of the given Brownian motion.");
+			}
+		}
+	}
+
+	@Override
+	public RandomVariable getBrownianIncrement(int timeIndex, int factor) {
+		// Thread safe lazy initialization: all the increments are created once, then read without lock
+		if(brownianIncrements == null) {
+			synchronized(brownianIncrementsLazyInitLock) {
+				if(brownianIncrements == null) {
+					brownianIncrements = createBrownianIncrements();
+				}
+			}
+		}
+		return brownianIncrements[timeIndex][factor];
+	}
+
+	private RandomVariable[][] createBrownianIncrements() {
+		final RandomVariable[][] increments = new RandomVariable[timeDiscretization.getNumberOfTimeSteps()][getNumberOfFactors()];
+		for(int timeIndex = 0; timeIndex < increments.length; timeIndex++) {
+			for(int factor = 0; factor < increments[timeIndex].length; factor++) {
+				RandomVariable increment = underlyingBrownianMotion.getBrownianIncrement(firstUnderlyingTimeIndex[timeIndex], factor);
+				for(int underlyingTimeIndex = firstUnderlyingTimeIndex[timeIndex] + 1;
+						underlyingTimeIndex < firstUnderlyingTimeIndex[timeIndex + 1]; underlyingTimeIndex++) {
+					increment = increment.add(underlyingBrownianMotion.getBrownianIncrement(underlyingTimeIndex, factor));
+				}
+				increments[timeIndex][factor] = increment;
+			}
+		}
+		return increments;
+	}
+
+	@Override
+	public RandomVariable getIncrement(int timeIndex, int factor) {
+		return getBrownianIncrement(timeIndex, factor);
+	}
+
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return timeDiscretization;
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return underlyingBrownianMotion.getNumberOfFactors();
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return underlyingBrownianMotion.getNumberOfPaths();
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return underlyingBrownianMotion.getRandomVariableForConstant(value);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedSeed(int seed) {
+		return new BrownianMotionOnCoarserTimeDiscretization(underlyingBrownianMotion.getCloneWithModifiedSeed(seed),
+				timeDiscretization);
+	}
+
+	@Override
+	public BrownianMotion getCloneWithModifiedTimeDiscretization(TimeDiscretization newTimeDiscretization) {
+		return new BrownianMotionOnCoarserTimeDiscretization(underlyingBrownianMotion, newTimeDiscretization);
+	}
+
+	@Override
+	public String toString() {
+		return super.toString() + "\n" + "restriction to a coarser time discretization of: " + underlyingBrownianMotion.toString();
+	}
+}
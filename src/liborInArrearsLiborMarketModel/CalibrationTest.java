@@ -0,0 +1,104 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LiborInArrearsCalibration.CalibrationMethod;
+
+/**
+ * This class tests LiborInArrearsCalibration on the model of LiborInArrearsTest: the target values of caplets,
+ * swaptions and LIBOR in arrears are computed in the model with the parameters of LiborInArrearsTest, and the
+ * calibration starts from other parameters. For both methods we print the calibrated parameters, which should be the
+ * ones of LiborInArrearsTest, the root mean squared error, the number of iterations and evaluations and the time.
+ *
+ * For the Monte-Carlo calibration the targets are the Monte-Carlo values on the Brownian motion of the calibration, so
+ * that the parameters can be recovered up to the accuracy of the optimizer and not only up to the Monte-Carlo error.
+ *
+ */
+public class CalibrationTest {
+
+	private final static DecimalFormat formatterParameter = new DecimalFormat("0.000000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+
+	final int	numberOfPaths	= 2000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	// the initial guess of the calibration
+	final double initialA = 0.2, initialB = 0.05, initialC = 0.3, initialD = 0.1, initialCorrelationDecayParameter = 1.0;
+
+	public void testCalibration() throws Exception {
+
+		final LiborInArrearsCalibration calibration = new LiborInArrearsCalibration(numberOfPaths, simulationTimeStep,
+				LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards, forwardsForCurve,
+				Dynamics.LOGNORMAL, Measure.SPOT, 1897 /* seed */);
+
+		System.out.println("Calibration to caplets, swaptions and LIBOR in arrears, true parameters a=" + a + " b=" + b
+				+ " c=" + c + " d=" + d + " alpha=" + correlationDecayParameter + ":\n");
+		System.out.println("Method:        a:          b:          c:          d:          alpha:      RMSE:       Iterations:   Evaluations:   Time-s: \n");
+
+		for(final CalibrationMethod calibrationMethod : CalibrationMethod.values()) {
+			final LiborInArrearsCalibrationTarget[] targets = createTargets(calibration, calibrationMethod);
+
+			final LiborInArrearsCalibrationResult result = calibration.calibrate(targets, calibrationMethod,
+					initialA, initialB, initialC, initialD, initialCorrelationDecayParameter);
+
+			System.out.print(String.format("%-15s", calibrationMethod));
+			for(final double parameter : new double[] { result.getA(), result.getB(), result.getC(), result.getD(),
+					result.getCorrelationDecayParam() }) {
+				System.out.print(formatterParameter.format(parameter) + "    ");
+			}
+			System.out.print(formatterError.format(result.getRootMeanSquaredError()) + "     ");
+			System.out.print(String.format("%-14d%-15d", result.getNumberOfIterations(), result.getNumberOfEvaluations()));
+			System.out.println(formatterTime.format(result.getComputationTime()));
+		}
+	}
+
+	/*
+	 * At-the-money caplets and LIBOR in arrears every year, and the swaptions 2x3, 4x4 and 5x5, valued with the true
+	 * parameters by the given method.
+	 */
+	private LiborInArrearsCalibrationTarget[] createTargets(LiborInArrearsCalibration calibration,
+			CalibrationMethod calibrationMethod) throws Exception {
+		final List<LiborInArrearsCalibrationTarget> targets = new ArrayList<>();
+		for(double fixing = 1.0; fixing <= 10.0; fixing += 1.0) {
+			targets.add(LiborInArrearsCalibrationTarget.createCaplet(fixing, fixing + LIBORTimeStep, 0.05, 0.0, 1.0));
+			targets.add(LiborInArrearsCalibrationTarget.createLiborInArrears(fixing, fixing + LIBORTimeStep, 0.0, 1.0));
+		}
+		for(final double[] expiryAndLength : new double[][] { { 2.0, 3.0 }, { 4.0, 4.0 }, { 5.0, 5.0 } }) {
+			final double[] swapTenor = new double[(int) (expiryAndLength[1] / LIBORTimeStep) + 1];
+			for(int dateIndex = 0; dateIndex < swapTenor.length; dateIndex++) {
+				swapTenor[dateIndex] = expiryAndLength[0] + dateIndex * LIBORTimeStep;
+			}
+			targets.add(LiborInArrearsCalibrationTarget.createSwaption(swapTenor, 0.05, 0.0, 1.0));
+		}
+
+		final LiborInArrearsCalibrationTarget[] targetsWithoutValues = targets.toArray(new LiborInArrearsCalibrationTarget[0]);
+		final double[] values = calibration.getValues(targetsWithoutValues, calibrationMethod, a, b, c, d, correlationDecayParameter);
+
+		final LiborInArrearsCalibrationTarget[] targetsWithValues = new LiborInArrearsCalibrationTarget[values.length];
+		for(int targetIndex = 0; targetIndex < values.length; targetIndex++) {
+			targetsWithValues[targetIndex] = targetsWithoutValues[targetIndex].getCloneWithModifiedTargetValue(values[targetIndex]);
+		}
+		return targetsWithValues;
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new CalibrationTest()).testCalibration();
+	}
+
+}
@@ -0,0 +1,96 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class tests LiborInArrearsStrip.getValuationWithControlVariate on the model of LiborInArrearsTest. For both
+ * dynamics and both measures it values the strip of all the periods on the same paths without and with the floater
+ * paying in advance as control variate, and prints for every period the two values, the two standard errors and the
+ * variance ratio Var(Y) / Var(Y - \beta X), i.e., the factor by which the number of paths can be reduced for the same
+ * standard error. The standard error without control variate is the one of getValuation, and the test fails if it
+ * differs from getStandardErrorWithoutControlVariate, which is computed from the same paths.
+ *
+ */
+public class ControlVariateTest {
+
+	private final static DecimalFormat formatterDouble = new DecimalFormat("0.0000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+	private final static DecimalFormat formatterRatio = new DecimalFormat("0.00");
+
+	final int	numberOfPaths	= 12000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+	final double notional = 1000;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	// The two standard errors without control variate only differ by the order of the operations
+	final double tolerance = 1E-10;
+
+	public void testControlVariate() throws Exception {
+
+		for(final Dynamics dynamics : Dynamics.values()) {
+			for(final Measure measureType : Measure.values()) {
+				final LIBORModelMonteCarloSimulationModel model =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+								numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+								forwardsForCurve, correlationDecayParameter, dynamics, measureType, a, b, c, d,
+								1897 /* seed */);
+
+				final LiborInArrearsStrip strip = new LiborInArrearsStrip(model.getLiborPeriodDiscretization());
+				final LiborInArrearsStripValuation valuation = strip.getValuation(0.0, model);
+				final LiborInArrearsStripValuationWithControlVariate valuationWithControlVariate =
+						strip.getValuationWithControlVariate(0.0, model);
+
+				System.out.println("Control variate, " + dynamics + " dynamics under the " + measureType + " measure, "
+						+ numberOfPaths + " paths:\n");
+				System.out.println("PaymentDate:     Value:        ValueCV:      StdError:     StdErrorCV:   Variance ratio: \n");
+
+				double minimumRatio = Double.POSITIVE_INFINITY;
+				double maximumRatio = 0.0;
+				for(int periodIndex = 0; periodIndex < valuation.getNumberOfPeriods(); periodIndex++) {
+					final double standardError = valuation.getStandardError(periodIndex);
+					final double standardErrorWithControlVariate = valuationWithControlVariate.getStandardError(periodIndex);
+					final double varianceRatio = valuationWithControlVariate.getVarianceReductionFactor(periodIndex);
+
+					System.out.print(String.format("%-17s", formatterDouble.format(valuation.getPeriodStart(periodIndex))));
+					System.out.print(String.format("%-14s", formatterDouble.format(notional * valuation.getValue(periodIndex))));
+					System.out.print(String.format("%-14s", formatterDouble.format(notional * valuationWithControlVariate.getValue(periodIndex))));
+					System.out.print(String.format("%-14s", formatterError.format(notional * standardError)));
+					System.out.print(String.format("%-14s", formatterError.format(notional * standardErrorWithControlVariate)));
+					System.out.println(formatterRatio.format(varianceRatio));
+
+					if(valuation.getVariance(periodIndex) > 0) {
+						minimumRatio = Math.min(minimumRatio, varianceRatio);
+						maximumRatio = Math.max(maximumRatio, varianceRatio);
+					}
+
+					final double standardErrorWithoutControlVariate = valuationWithControlVariate.getStandardErrorWithoutControlVariate(periodIndex);
+					if(Math.abs(standardErrorWithoutControlVariate - standardError) > tolerance * standardError) {
+						throw new AssertionError("The standard error without control variate of the period " + periodIndex
+								+ " differs from the one of the plain valuation on the same paths.");
+					}
+				}
+				System.out.println("\nVariance ratio between " + formatterRatio.format(minimumRatio) + " and "
+						+ formatterRatio.format(maximumRatio) + "\n");
+			}
+		}
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new ControlVariateTest()).testControlVariate();
+	}
+
+}
@@ -0,0 +1,101 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class tests LIBORMarketModelWithCurveUpdate on the model of LiborInArrearsTest, with the LIBOR in arrears of
+ * every period registered: the forwards move by a few basis points at every tick. For both dynamics it prints the
+ * average time of a tick (new curves, evolution of the paths and valuation of the trades) and of a cold rebuild by
+ * createLIBORMarketModel with the same forwards and seed, valued by the same LiborInArrearsPortfolio, and the largest
+ * difference of a trade between the two, which is zero: the update gives the simulation of the rebuild.
+ *
+ */
+public class CurveUpdateTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+
+	final int	numberOfPaths	= 12000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	final int numberOfTicks = 10;
+
+	public void testCurveUpdate() throws Exception {
+
+		System.out.println("Curve ticks against cold rebuilds, " + numberOfPaths + " paths, " + numberOfTicks + " ticks:\n");
+		System.out.println("Dynamics:      Tick-ms:    Rebuild-ms:    Largest difference: \n");
+
+		for(final Dynamics dynamics : Dynamics.values()) {
+			final LIBORMarketModelWithCurveUpdate model =
+					LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModelWithCurveUpdate(
+							numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+							forwardsForCurve, correlationDecayParameter, dynamics, Measure.SPOT, a, b, c, d,
+							1897 /* seed */);
+
+			final int numberOfPeriods = (int) (LIBORRateTimeHorizon / LIBORTimeStep) - 1;
+			final double[] notionals = new double[numberOfPeriods];
+			final double[] fixings = new double[numberOfPeriods];
+			final double[] periodEnds = new double[numberOfPeriods];
+			for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+				notionals[periodIndex] = 1.0;
+				fixings[periodIndex] = (periodIndex + 1) * LIBORTimeStep;
+				periodEnds[periodIndex] = fixings[periodIndex] + LIBORTimeStep;
+				model.registerTrade(new LiborInArrears(fixings[periodIndex], periodEnds[periodIndex]));
+			}
+			final LiborInArrearsPortfolio portfolio = new LiborInArrearsPortfolio(notionals, fixings, periodEnds);
+
+			long timeOfTicks = 0;
+			long timeOfRebuilds = 0;
+			double maximumDifference = 0.0;
+			for(int tick = 1; tick <= numberOfTicks; tick++) {
+				final double[] forwards = new double[forwardsForCurve.length];
+				for(int forwardIndex = 0; forwardIndex < forwards.length; forwardIndex++) {
+					forwards[forwardIndex] = forwardsForCurve[forwardIndex] + 0.0001 * tick * (forwardIndex + 1);
+				}
+
+				final long startTick = System.nanoTime();
+				final double[] valuesAfterTick = model.updateForwards(forwards).getValues();
+				timeOfTicks += System.nanoTime() - startTick;
+
+				final long startRebuild = System.nanoTime();
+				final LIBORModelMonteCarloSimulationModel rebuiltModel =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+								numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon,
+								fixingForGivenForwards, forwards, correlationDecayParameter, dynamics, Measure.SPOT,
+								a, b, c, d, 1897 /* seed */);
+				final double[] valuesAfterRebuild = portfolio.getValuation(0.0, rebuiltModel).getValues();
+				timeOfRebuilds += System.nanoTime() - startRebuild;
+
+				for(int tradeIndex = 0; tradeIndex < numberOfPeriods; tradeIndex++) {
+					maximumDifference = Math.max(maximumDifference,
+							Math.abs(valuesAfterTick[tradeIndex] - valuesAfterRebuild[tradeIndex]));
+				}
+			}
+
+			System.out.print(String.format("%-15s", dynamics));
+			System.out.print(String.format("%-12s", formatterTime.format(timeOfTicks / 1E6 / numberOfTicks)));
+			System.out.print(String.format("%-15s", formatterTime.format(timeOfRebuilds / 1E6 / numberOfTicks)));
+			System.out.println(formatterError.format(maximumDifference));
+		}
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new CurveUpdateTest()).testCurveUpdate();
+	}
+
+}
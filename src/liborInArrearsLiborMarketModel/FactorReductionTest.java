@@ -0,0 +1,139 @@
+package liborInArrearsLiborMarketModel;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.RandomNumberSource;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class compares the LIBOR Market Model of LiborInArrearsTest with one factor for every LIBOR to its factor
+ * reduced versions, on the strip of LIBOR in arrears.
+ *
+ * For every number of factors we print the fraction of the variance of the correlation matrix explained by the
+ * factors, the value of the strip, its difference to the full factor model (largest over the periods and for the whole
+ * strip), the standard error of the strip and the CPU time of simulation and valuation. Note that the Brownian motion
+ * of a model with less factors draws other random numbers, so the differences also contain the Monte-Carlo error:
+ * they are significant only if they are large compared to the standard error.
+ *
+ */
+public class FactorReductionTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterValue = new DecimalFormat("0.000000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+	private final static DecimalFormat formatterRatio = new DecimalFormat("0.00");
+
+	final int	numberOfPaths	= 5000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	final Measure measure = Measure.SPOT;
+
+	final double[] explainedVariances = { 0.8, 0.9, 0.95, 0.99 };
+
+	public void testFactorReduction() throws Exception {
+
+		final TimeDiscretization LIBORPeriodDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, LIBORTimeStep);
+		final int numberOfLibors = LIBORPeriodDiscretization.getNumberOfTimeSteps();
+
+		System.out.println("Factor reduction on the LIBOR in arrears strip, " + measure + " measure, " + numberOfPaths + " paths:\n");
+
+		System.out.println("Explained variance of the first factors:");
+		for(final double explainedVariance : explainedVariances) {
+			System.out.println(formatterRatio.format(100 * explainedVariance) + "%:  "
+					+ LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.getNumberOfFactorsForExplainedVariance(
+							LIBORPeriodDiscretization, correlationDecayParameter, explainedVariance) + " factors");
+		}
+		System.out.println();
+
+		System.out.println("Factors:   StripValue:   MaxPeriodError:   StripError:   StripStdError:   CPU-s:   Speedup: \n");
+
+		// Warm up the JIT on a small simulation, so that the first model is not penalized in the CPU times
+		final LIBORModelMonteCarloSimulationModel warmUpModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+						numberOfPaths / 10, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+						forwardsForCurve, correlationDecayParameter, Dynamics.LOGNORMAL, measure, a, b, c, d, 1897);
+		new LiborInArrearsStrip(warmUpModel.getLiborPeriodDiscretization()).getValuation(0.0, warmUpModel);
+
+		// The full factor model first: it is the reference
+		final int[] numbersOfFactors = { numberOfLibors, 1, 2, 3, 5, 8, 12 };
+		double[] valuesOfFullModel = null;
+		double cpuTimeOfFullModel = Double.NaN;
+		for(final int numberOfFactors : numbersOfFactors) {
+			final long cpuTimeStart = getProcessCpuTime();
+
+			final LIBORModelMonteCarloSimulationModel model =
+					LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+							numberOfPaths,
+							simulationTimeStep,
+							LIBORTimeStep,
+							LIBORRateTimeHorizon,
+							fixingForGivenForwards,
+							forwardsForCurve,
+							correlationDecayParameter,
+							Dynamics.LOGNORMAL,
+							measure,
+							a, b, c, d,
+							1897, // seed
+							RandomNumberSource.MERSENNE,
+							numberOfFactors
+							);
+
+			final LiborInArrearsStripValuation valuation =
+					new LiborInArrearsStrip(model.getLiborPeriodDiscretization()).getValuation(0.0, model);
+
+			final double cpuTime = (getProcessCpuTime() - cpuTimeStart) / 1E9;
+
+			final double[] values = valuation.getValues();
+			if(valuesOfFullModel == null) {
+				valuesOfFullModel = values;
+				cpuTimeOfFullModel = cpuTime;
+			}
+
+			double valueOfStrip = 0.0, errorOfStrip = 0.0, maximumErrorOfPeriods = 0.0;
+			for(int periodIndex = 0; periodIndex < values.length; periodIndex++) {
+				valueOfStrip += values[periodIndex];
+				errorOfStrip += values[periodIndex] - valuesOfFullModel[periodIndex];
+				maximumErrorOfPeriods = Math.max(maximumErrorOfPeriods, Math.abs(values[periodIndex] - valuesOfFullModel[periodIndex]));
+			}
+			// Standard error of the whole strip from the path-wise values of its periods
+			final double varianceOfStrip = LiborInArrearsStripValuation.getMeanAndVariance(
+					new LiborInArrearsStrip(model.getLiborPeriodDiscretization()).getValue(0.0, model))[1];
+
+			System.out.print(String.format("%-11d", numberOfFactors));
+			System.out.print(formatterValue.format(valueOfStrip) + "      ");
+			System.out.print(formatterError.format(maximumErrorOfPeriods) + "         ");
+			System.out.print(formatterError.format(Math.abs(errorOfStrip)) + "     ");
+			System.out.print(formatterError.format(Math.sqrt(varianceOfStrip / numberOfPaths)) + "       ");
+			System.out.print(formatterTime.format(cpuTime) + "    ");
+			System.out.println(formatterRatio.format(cpuTimeOfFullModel / cpuTime));
+		}
+	}
+
+	/*
+	 * CPU time of the whole process in nanoseconds (the Euler scheme of the Finmath library may use several threads).
+	 */
+	private static long getProcessCpuTime() {
+		return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new FactorReductionTest()).testFactorReduction();
+	}
+
+}
@@ -0,0 +1,221 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModel;
+import net.finmath.montecarlo.model.ProcessModel;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class is a bounded, thread-safe cache in front of
+ * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel. The simulations are kept
+ * in a least-recently-used map keyed by the full set of parameters, so that repeated requests with the same
+ * parameters do not rebuild the model. Moreover, the parts of the model which do not depend on the volatility,
+ * correlation, dynamics and measure parameters (the time discretizations, the forward curve and the Brownian
+ * motion for a given seed and number of paths) are shared among the cached models.
+ *
+ * The simulations are generated before they get published in the cache: the lazy initialization of the Euler scheme
+ * of the Finmath library is not synchronized, so two threads touching a new simulation at the same time would
+ * otherwise race on it.
+ *
+ */
+public class LIBORMarketModelCache {
+
+	private final Map<Key, LIBORModelMonteCarloSimulationModel>	models;
+	private final Map<Key, TimeDiscretization>					timeDiscretizations;
+	private final Map<Key, ForwardCurve>						forwardCurves;
+	private final Map<Key, BrownianMotion>						brownianMotions;
+
+	private final AtomicLong numberOfHits = new AtomicLong();
+	private final AtomicLong numberOfMisses = new AtomicLong();
+	private final AtomicLong numberOfEvictions = new AtomicLong();
+
+	/**
+	 * @param maximumNumberOfModels, the maximum number of simulations kept in the cache: when it is exceeded, the
+	 * least recently used simulation gets evicted. The same bound applies to the shared components.
+	 */
+	public LIBORMarketModelCache(int maximumNumberOfModels) {
+		if(maximumNumberOfModels < 1) {
+			throw new IllegalArgumentException("The maximum number of models must be positive.");
+		}
+		models = createLeastRecentlyUsedMap(maximumNumberOfModels, numberOfEvictions);
+		timeDiscretizations = createLeastRecentlyUsedMap(2 * maximumNumberOfModels, null);
+		forwardCurves = createLeastRecentlyUsedMap(maximumNumberOfModels, null);
+		brownianMotions = createLeastRecentlyUsedMap(maximumNumberOfModels, null);
+	}
+
+	/**
+	 * It returns the simulation of a LIBOR Market Model with the given parameters, taking it from the cache if a model
+	 * with exactly the same parameters has already been created. The meaning of the parameters is the same as in
+	 * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel.
+	 *
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 * @throws CalculationException
+	 */
+	public LIBORModelMonteCarloSimulationModel getLIBORMarketModel(int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed
+			) throws CalculationException {
+
+		final Key key = new Key(numberOfPaths, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+				fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType, a, b, c, d, seed);
+
+		final LIBORModelMonteCarloSimulationModel cachedModel = models.get(key);
+		if(cachedModel != null) {
+			numberOfHits.incrementAndGet();
+			return cachedModel;
+		}
+		numberOfMisses.incrementAndGet();
+
+		// The shared components, independent from volatility, correlation, dynamics and measure
+		final TimeDiscretization timeDiscretization = getOrCreate(timeDiscretizations,
+				new Key(LIBORRateTimeHorizon, simulationTimeStep),
+				() -> LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+						LIBORRateTimeHorizon, simulationTimeStep));
+
+		final TimeDiscretization LIBORPeriodDiscretization = getOrCreate(timeDiscretizations,
+				new Key(LIBORRateTimeHorizon, LIBORPeriodLength),
+				() -> LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+						LIBORRateTimeHorizon, LIBORPeriodLength));
+
+		final ForwardCurve forwardCurve = getOrCreate(forwardCurves,
+				new Key(fixingForGivenForwards, givenForwards, LIBORPeriodLength),
+				() -> LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(
+						fixingForGivenForwards, givenForwards, LIBORPeriodLength));
+
+		final int numberOfFactors = LIBORPeriodDiscretization.getNumberOfTimes()-1;
+		final BrownianMotion brownianMotion = getOrCreate(brownianMotions,
+				new Key(LIBORRateTimeHorizon, simulationTimeStep, numberOfFactors, numberOfPaths, seed),
+				() -> LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createBrownianMotion(
+						timeDiscretization, numberOfFactors, numberOfPaths, seed));
+
+		// The components specific to the model
+		final AbstractLIBORCovarianceModel covarianceModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+						timeDiscretization, LIBORPeriodDiscretization, forwardCurve,
+						correlationDecayParam, dynamics, a, b, c, d);
+
+		final ProcessModel LIBORMarketModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORModel(
+						LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType);
+
+		final LIBORModelMonteCarloSimulationModel simulation =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createSimulation(
+						LIBORMarketModel, brownianMotion);
+
+		// Generate the paths before publishing the simulation to other threads
+		simulation.getLIBOR(0, 0);
+
+		// If another thread has built the same model in the meantime, we return that one
+		final LIBORModelMonteCarloSimulationModel concurrentlyCachedModel = models.putIfAbsent(key, simulation);
+		return concurrentlyCachedModel != null ? concurrentlyCachedModel : simulation;
+	}
+
+	/**
+	 * It removes all the models and all the shared components from the cache. The counters are not reset.
+	 */
+	public void clear() {
+		models.clear();
+		timeDiscretizations.clear();
+		forwardCurves.clear();
+		brownianMotions.clear();
+	}
+
+	public int size() {
+		return models.size();
+	}
+
+	public long getNumberOfHits() {
+		return numberOfHits.get();
+	}
+
+	public long getNumberOfMisses() {
+		return numberOfMisses.get();
+	}
+
+	public long getNumberOfEvictions() {
+		return numberOfEvictions.get();
+	}
+
+	@Override
+	public String toString() {
+		return "LIBORMarketModelCache [size=" + size() + ", hits=" + getNumberOfHits() + ", misses="
+				+ getNumberOfMisses() + ", evictions=" + getNumberOfEvictions() + "]";
+	}
+
+	private static <T> T getOrCreate(Map<Key, T> map, Key key, Supplier<T> factory) {
+		final T cachedValue = map.get(key);
+		if(cachedValue != null) {
+			return cachedValue;
+		}
+		final T value = factory.get();
+		final T concurrentlyCachedValue = map.putIfAbsent(key, value);
+		return concurrentlyCachedValue != null ? concurrentlyCachedValue : value;
+	}
+
+	/*
+	 * A synchronized LinkedHashMap in access order, removing the least recently used entry when the maximum size is
+	 * exceeded.
+	 */
+	private static <T> Map<Key, T> createLeastRecentlyUsedMap(int maximumSize, AtomicLong evictionCounter) {
+		return Collections.synchronizedMap(new LinkedHashMap<Key, T>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Key, T> eldest) {
+				final boolean isEvict = size() > maximumSize;
+				if(isEvict && evictionCounter != null) {
+					evictionCounter.incrementAndGet();
+				}
+				return isEvict;
+			}
+		});
+	}
+
+	/*
+	 * Key built from an arbitrary list of parameters, with arrays compared by content.
+	 */
+	private static final class Key {
+
+		private final Object[] parameters;
+		private final int hashCode;
+
+		Key(Object... parameters) {
+			this.parameters = new Object[parameters.length];
+			for(int i = 0; i < parameters.length; i++) {
+				// defensive copy of the arrays, which the caller may modify after the call
+				this.parameters[i] = parameters[i] instanceof double[] ? ((double[]) parameters[i]).clone() : parameters[i];
+			}
+			hashCode = Arrays.deepHashCode(this.parameters);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof Key && Arrays.deepEquals(parameters, ((Key) other).parameters);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+	}
+}
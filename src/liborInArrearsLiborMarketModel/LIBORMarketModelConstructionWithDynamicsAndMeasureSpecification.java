@@ -1,9 +1,13 @@
 package liborInArrearsLiborMarketModel;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.Phase;
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.PhaseTimer;
 import net.finmath.exception.CalculationException;
+import net.finmath.functions.LinearAlgebra;
 import net.finmath.marketdata.model.curves.DiscountCurve;
 import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
 import net.finmath.marketdata.model.curves.ForwardCurve;
@@ -12,6 +16,7 @@ import net.finmath.montecarlo.BrownianMotion;
 import net.finmath.montecarlo.BrownianMotionFromMersenneRandomNumbers;
 import net.finmath.montecarlo.RandomVariableFactory;
 import net.finmath.montecarlo.RandomVariableFromArrayFactory;
+import net.finmath.montecarlo.automaticdifferentiation.RandomVariableDifferentiableFactory;
 import net.finmath.montecarlo.interestrate.CalibrationProduct;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
 import net.finmath.montecarlo.interestrate.LIBORMonteCarloSimulationFromLIBORModel;
@@ -40,6 +45,24 @@ public class LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification {
 
 	public enum Measure				{ SPOT, TERMINAL };
 	public enum Dynamics			{ NORMAL, LOGNORMAL };
+	/*
+	 * The source of the random numbers of the Brownian motion: Mersenne twister (default), scrambled Sobol sequence with
+	 * Brownian bridge construction of the paths, or Mersenne twister with antithetic paths.
+	 */
+	public enum RandomNumberSource	{ MERSENNE, SOBOL_BROWNIAN_BRIDGE, MERSENNE_ANTITHETIC };
+	/*
+	 * The discretization scheme of the simulation: Euler scheme of the LIBORs (default), Euler scheme with predictor-
+	 * corrector drift, Euler scheme of the logarithms of the LIBORs (log-Euler, only for log-normal dynamics) without or
+	 * with predictor-corrector drift. See createLIBORMarketModel with a given time discretization.
+	 */
+	public enum SimulationScheme	{ EULER, PREDICTOR_CORRECTOR, LOG_EULER, LOG_EULER_PREDICTOR_CORRECTOR };
+	/*
+	 * The representation of the Rebonato volatility structure: stored as the matrix of createVolatilityStructure in a
+	 * LIBORVolatilityModelFromGivenMatrix (default), or evaluated from its four parameters by
+	 * LIBORVolatilityModelRebonato, which needs O(N_t + N_T) memory instead of O(N_t N_T) and whose parameters can be
+	 * random variables of a differentiable factory. The two agree up to rounding, see createVolatilityStructure.
+	 */
+	public enum VolatilityRepresentation	{ PARAMETRIC, MATRIX };
 
 	/**
 	 * It specifies and creates a Rebonato volatility structure, represented by a matrix, for the LIBOR
@@ -48,7 +71,9 @@ public class LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification {
 	 * with
 	 * \sigma_i(t_j)=(a+b(T_i-t_j))\exp(-c(T_i-t_j))+d,
 	 * for t_j < T_i,
-	 * for four parameters a,b,c,d with b,c>0
+	 * for four parameters a,b,c,d with b,c>0.
+	 * The time to maturity is computed here as T_i-t_j, while LIBORVolatilityModelRebonato computes it as the lag times
+	 * the time step on a uniform time discretization: the two volatilities, and so the prices, agree up to rounding.
 	 * @param a
 	 * @param b
 	 * @param c
@@ -57,7 +82,7 @@ public class LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification {
 	 * @param tenureStructureDiscretization, the tenure structure T_0 < T_1< ...<T_n
 	 * @return the matrix that represents the volatility structure: volatility[i,j]=sigma_j(t_i)
 	 */
-	private static double[][] createVolatilityStructure(double a, double b,double c, double d,
+	public static double[][] createVolatilityStructure(double a, double b,double c, double d,
 			TimeDiscretization simulationTimeDiscretization,
 			TimeDiscretization tenureStructureDiscretization,
 			Dynamics dynamics
@@ -89,6 +114,7 @@ public class LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification {
 		}
 		return volatility;
 	}
+
 	/**
 	 * It simulates a LIBOR Market Model, by using the implementation of the Finmath library.
 	 * @param numberOfPaths: number of simulations
@@ -126,6 +152,142 @@ public class LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification {
 			int seed
 			)
 					throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+				fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType, a, b, c, d, seed,
+				RandomNumberSource.MERSENNE);
+	}
+
+	/**
+	 * It simulates a LIBOR Market Model as createLIBORMarketModel above, where the random numbers of the Brownian
+	 * motion are drawn from the given source.
+	 *
+	 * @param randomNumberSource, the source of the random numbers, see createBrownianMotion
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 * @throws CalculationException
+	 */
+	public static final LIBORModelMonteCarloSimulationModel createLIBORMarketModel(int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			RandomNumberSource randomNumberSource
+			)
+					throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+				fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType, a, b, c, d, seed,
+				randomNumberSource,
+				// one factor for every LIBOR: no factor reduction
+				createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength).getNumberOfTimeSteps());
+	}
+
+	/**
+	 * It simulates a LIBOR Market Model as createLIBORMarketModel above, with numberOfFactors factors: the correlation
+	 * model is reduced to its first numberOfFactors principal components, and the Brownian motion has only
+	 * numberOfFactors components. The cost of drift and diffusion and the number of random numbers drawn are
+	 * proportional to numberOfFactors. See getNumberOfFactorsForExplainedVariance to choose it.
+	 *
+	 * @param randomNumberSource, the source of the random numbers, see createBrownianMotion
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 * @throws CalculationException
+	 */
+	public static final LIBORModelMonteCarloSimulationModel createLIBORMarketModel(int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			RandomNumberSource randomNumberSource,
+			int numberOfFactors
+			)
+					throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+				fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType, a, b, c, d, seed,
+				randomNumberSource, numberOfFactors, new RandomVariableFromArrayFactory());
+	}
+
+	/**
+	 * It simulates a LIBOR Market Model as createLIBORMarketModel above, where the random variables of the model (the
+	 * initial LIBORs and the values of the processes) are created by the given factory. With a differentiable factory,
+	 * e.g. RandomVariableDifferentiableAADFactory, the gradient of a value computed on the simulation gives its
+	 * derivatives with respect to the initial LIBORs, whose IDs are the ones of getInitialState(null) of the LIBOR
+	 * model: see LiborInArrearsAlgorithmicDifferentiation. With a RandomVariableFloatFactory the Brownian
+	 * increments and the paths of the LIBORs are stored and evolved in single precision, which halves memory and
+	 * memory traffic; the Monte-Carlo means and variances of LiborInArrearsStripValuation, as well as the averages of
+	 * the numeraire adjustment, are still accumulated in double precision. See SinglePrecisionTest.
+	 *
+	 * The volatility structure is the matrix of createVolatilityStructure: the derivatives with respect to a, b, c, d
+	 * need the parametric volatility, see the method below.
+	 *
+	 * @param randomNumberSource, the source of the random numbers, see createBrownianMotion
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @param randomVariableFactory, the factory of the random variables of the model
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 * @throws CalculationException
+	 */
+	public static final LIBORModelMonteCarloSimulationModel createLIBORMarketModel(int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			RandomNumberSource randomNumberSource,
+			int numberOfFactors,
+			RandomVariableFactory randomVariableFactory
+			)
+					throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+				fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType, a, b, c, d, seed,
+				randomNumberSource, numberOfFactors, randomVariableFactory, VolatilityRepresentation.MATRIX);
+	}
+
+	/**
+	 * It simulates a LIBOR Market Model as createLIBORMarketModel above, with the given representation of the
+	 * volatility structure, see createCovarianceModel. With VolatilityRepresentation.PARAMETRIC and a differentiable
+	 * factory, a, b, c, d are independent variables whose IDs are the ones of getParameter() of the volatility model.
+	 *
+	 * Every step is measured by LIBORMarketModelMetrics, if enabled.
+	 *
+	 * @param randomNumberSource, the source of the random numbers, see createBrownianMotion
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @param randomVariableFactory, the factory of the random variables of the model
+	 * @param volatilityRepresentation, matrix or parametric
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 * @throws CalculationException
+	 */
+	public static final LIBORModelMonteCarloSimulationModel createLIBORMarketModel(int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			RandomNumberSource randomNumberSource,
+			int numberOfFactors,
+			RandomVariableFactory randomVariableFactory,
+			VolatilityRepresentation volatilityRepresentation
+			)
+					throws CalculationException {
 		/*
 		 In order to simulate a LIBOR market model, we need to proceed along the following steps:
 		 1) provide the time discretization for the evolution of the processes
@@ -146,63 +308,577 @@ public class LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification {
 		 8) combine steps 2, 3, 7 to create the LIBOR model, also adding the appropriate properties about dynamics and measure
 		 9) create a Euler discretization of the model we defined in step 8, specifying the model itself and
 		 a Brownian motion that uses the time discretization defined in step 1
-		 9) give the Euler scheme to the constructor of LIBORMonteCarloSimulationFromLIBORModel, to create an object of
+		 10) give the Euler scheme to the constructor of LIBORMonteCarloSimulationFromLIBORModel, to create an object of
 		 type LIBORModelMonteCarloSimulationModel
 		 */
 
 		// Step 1: create the time discretization for the simulation of the processes
-		final TimeDiscretization timeDiscretization = new TimeDiscretizationFromArray(
-				0.0, (int) (LIBORRateTimeHorizon / simulationTimeStep), simulationTimeStep);
+		PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.TIME_DISCRETIZATION);
+		final TimeDiscretization timeDiscretization = createTimeDiscretization(LIBORRateTimeHorizon, simulationTimeStep);
+		LIBORMarketModelMetrics.stop(timer);
 
 		// Step 2: create the time discretization for the tenure structure (i.e., the dates T_1,..,T_n)
-		final TimeDiscretization LIBORPeriodDiscretization = new
-				TimeDiscretizationFromArray(0.0, (int) (LIBORRateTimeHorizon /LIBORPeriodLength), LIBORPeriodLength);
+		timer = LIBORMarketModelMetrics.start(Phase.TENURE_STRUCTURE);
+		final TimeDiscretization LIBORPeriodDiscretization = createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength);
+		LIBORMarketModelMetrics.stop(timer);
+
+		// Step 3: create the forward curve (initial values for the LIBOR market model)
+		timer = LIBORMarketModelMetrics.start(Phase.FORWARD_CURVE);
+		final ForwardCurve forwardCurve = createForwardCurve(fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		LIBORMarketModelMetrics.stop(timer);
+
+		// Steps 4 to 7: create the covariance model (the steps are measured one by one inside)
+		final AbstractLIBORCovarianceModel covarianceModel = createCovarianceModel(
+				timeDiscretization, LIBORPeriodDiscretization, forwardCurve,
+				correlationDecayParam, dynamics, a, b, c, d, numberOfFactors, randomVariableFactory, volatilityRepresentation);
+
+		// Step 8: create the LIBOR model
+		timer = LIBORMarketModelMetrics.start(Phase.LIBOR_MODEL);
+		final ProcessModel LIBORMarketModel = createLIBORModel(
+				LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType, randomVariableFactory);
+		LIBORMarketModelMetrics.stop(timer);
 
 		/*
-		  Step 3 Create the forward curve (initial values for the LIBOR market model). We suppose
-		  not to have all the forwards: the others are interpolated using the specific method
-		  of the Finmath library
+		 * Step 9: create the Brownian motion, with as many factors as the covariance model. Its increments are created by
+		 * the same factory as the model (e.g. in single precision), except for a differentiable factory: the increments
+		 * are not independent variables, and keeping them off the tape saves memory.
 		 */
-		final ForwardCurve forwardCurve = ForwardCurveInterpolation.createForwardCurveFromForwards(
+		timer = LIBORMarketModelMetrics.start(Phase.BROWNIAN_MOTION);
+		final BrownianMotion brownianMotion = createBrownianMotion(
+				timeDiscretization,
+				covarianceModel.getNumberOfFactors(),
+				numberOfPaths,
+				seed,
+				randomNumberSource,
+				randomVariableFactory instanceof RandomVariableDifferentiableFactory
+				? new RandomVariableFromArrayFactory() : randomVariableFactory);
+		LIBORMarketModelMetrics.stop(timer);
+
+		// Step 10: create the simulation
+		timer = LIBORMarketModelMetrics.start(Phase.SIMULATION);
+		final LIBORModelMonteCarloSimulationModel simulation = createSimulation(LIBORMarketModel, brownianMotion);
+		LIBORMarketModelMetrics.stop(timer);
+
+		return simulateIfEager(simulation, brownianMotion);
+	}
+
+	/**
+	 * It simulates a LIBOR Market Model as createLIBORMarketModel above, on the given time discretization and with the
+	 * given discretization scheme, instead of an equidistant time discretization with the Euler scheme.
+	 *
+	 * A LIBOR in arrears only needs the LIBORs at the tenor dates, and for log-normal dynamics the logarithm of a LIBOR
+	 * has a constant diffusion over a step, so the log-Euler scheme is exact up to the drift. A time discretization
+	 * with one step from every tenor date to the next one (see createTenorAlignedTimeDiscretization) then replaces the
+	 * N_t steps of the equidistant time discretization by N_T steps, where N_T is the number of LIBORs. For the drift,
+	 * which depends on the LIBORs, the predictor-corrector scheme uses the average of the drift at the start of the step
+	 * and of the drift at the predicted end of the step. For these schemes the volatility of every step is the root mean
+	 * square of the volatility structure over the step, see LIBORVolatilityModelRebonato, so the variance of every step
+	 * is exact also on a coarse time discretization; the Euler scheme keeps the volatility at the start of the step, as
+	 * createLIBORMarketModel above. See TimeDiscretizationTest for bias and computation time against the Euler scheme
+	 * with simulationTimeStep = 0.1.
+	 *
+	 * @param timeDiscretization, the time discretization for the evolution of the processes: it must start at zero and
+	 * contain all the dates of the tenure structure
+	 * @param randomNumberSource, the source of the random numbers, see createBrownianMotion
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @param randomVariableFactory, the factory of the random variables of the model
+	 * @param simulationScheme, the discretization scheme: the log-Euler schemes require log-normal dynamics
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 * @throws CalculationException
+	 */
+	public static final LIBORModelMonteCarloSimulationModel createLIBORMarketModel(int numberOfPaths,
+			TimeDiscretization timeDiscretization,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			RandomNumberSource randomNumberSource,
+			int numberOfFactors,
+			RandomVariableFactory randomVariableFactory,
+			SimulationScheme simulationScheme
+			)
+					throws CalculationException {
+
+		// Step 2: create the time discretization for the tenure structure (i.e., the dates T_1,..,T_n)
+		PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.TENURE_STRUCTURE);
+		final TimeDiscretization LIBORPeriodDiscretization = createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength);
+		LIBORMarketModelMetrics.stop(timer);
+
+		// Step 1 is given: the LIBORs must be simulated up to every tenor date
+		checkTimeDiscretizationContainsTenorDates(timeDiscretization, LIBORPeriodDiscretization);
+
+		// Step 3: create the forward curve (initial values for the LIBOR market model)
+		timer = LIBORMarketModelMetrics.start(Phase.FORWARD_CURVE);
+		final ForwardCurve forwardCurve = createForwardCurve(fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		LIBORMarketModelMetrics.stop(timer);
+
+		// Steps 4 to 7: create the covariance model for the scheme
+		final AbstractLIBORCovarianceModel covarianceModel = createCovarianceModel(
+				timeDiscretization, LIBORPeriodDiscretization, forwardCurve,
+				correlationDecayParam, dynamics, a, b, c, d, numberOfFactors, randomVariableFactory, simulationScheme);
+
+		// Step 8: create the LIBOR model, with the state space of the scheme
+		timer = LIBORMarketModelMetrics.start(Phase.LIBOR_MODEL);
+		final ProcessModel LIBORMarketModel = createLIBORModel(
+				LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType, randomVariableFactory, simulationScheme);
+		LIBORMarketModelMetrics.stop(timer);
+
+		// Step 9: create the Brownian motion, as above
+		timer = LIBORMarketModelMetrics.start(Phase.BROWNIAN_MOTION);
+		final BrownianMotion brownianMotion = createBrownianMotion(
+				timeDiscretization,
+				covarianceModel.getNumberOfFactors(),
+				numberOfPaths,
+				seed,
+				randomNumberSource,
+				randomVariableFactory instanceof RandomVariableDifferentiableFactory
+				? new RandomVariableFromArrayFactory() : randomVariableFactory);
+		LIBORMarketModelMetrics.stop(timer);
+
+		// Step 10: create the simulation with the scheme
+		timer = LIBORMarketModelMetrics.start(Phase.SIMULATION);
+		final LIBORModelMonteCarloSimulationModel simulation = createSimulation(LIBORMarketModel, brownianMotion, simulationScheme);
+		LIBORMarketModelMetrics.stop(timer);
+
+		return simulateIfEager(simulation, brownianMotion);
+	}
+
+	/*
+	 * The Finmath library generates the Brownian increments and evolves the scheme at the first access to the simulation:
+	 * when the listener of the metrics asks for it, we trigger both here, so that they are measured as phases of their
+	 * own, see LIBORMarketModelMetrics. Otherwise the simulation stays lazy.
+	 */
+	private static LIBORModelMonteCarloSimulationModel simulateIfEager(LIBORModelMonteCarloSimulationModel simulation,
+			BrownianMotion brownianMotion) throws CalculationException {
+		if(!LIBORMarketModelMetrics.isSimulationEager()) {
+			return simulation;
+		}
+		PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.BROWNIAN_INCREMENTS);
+		brownianMotion.getBrownianIncrement(0, 0);
+		LIBORMarketModelMetrics.stop(timer);
+
+		timer = LIBORMarketModelMetrics.start(Phase.EVOLUTION);
+		simulation.getLIBOR(0, 0);
+		LIBORMarketModelMetrics.stop(timer);
+		return simulation;
+	}
+
+	/**
+	 * It simulates a LIBOR Market Model as createLIBORMarketModel above, on the given time discretization and with the
+	 * given discretization scheme, with Mersenne twister random numbers, one factor for every LIBOR and random
+	 * variables in double precision.
+	 *
+	 * @param timeDiscretization, the time discretization for the evolution of the processes: it must start at zero and
+	 * contain all the dates of the tenure structure
+	 * @param simulationScheme, the discretization scheme: the log-Euler schemes require log-normal dynamics
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 * @throws CalculationException
+	 */
+	public static final LIBORModelMonteCarloSimulationModel createLIBORMarketModel(int numberOfPaths,
+			TimeDiscretization timeDiscretization,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			SimulationScheme simulationScheme
+			)
+					throws CalculationException {
+		return createLIBORMarketModel(numberOfPaths, timeDiscretization, LIBORPeriodLength, LIBORRateTimeHorizon,
+				fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType, a, b, c, d, seed,
+				RandomNumberSource.MERSENNE,
+				// one factor for every LIBOR: no factor reduction
+				createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength).getNumberOfTimeSteps(),
+				new RandomVariableFromArrayFactory(), simulationScheme);
+	}
+
+	/**
+	 * It simulates a family of LIBOR Market Models, one for every combination of the given dynamics and measures, all
+	 * driven by the same Brownian motion: the random numbers are generated only once and the Brownian increments
+	 * are stored only once for the whole family. The time discretizations and the forward curve are shared as well,
+	 * and the covariance model is created once for every dynamics, since it does not depend on the measure.
+	 * The other parameters have the same meaning as in createLIBORMarketModel.
+	 *
+	 * @param dynamics, the dynamics of the models of the family
+	 * @param measureTypes, the measures of the models of the family
+	 * @return an object of type LIBORMarketModelFamily, exposing the simulation of every variant
+	 * @throws CalculationException
+	 */
+	public static final LIBORMarketModelFamily createLIBORMarketModelFamily(int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics[] dynamics,
+			Measure[] measureTypes,
+			double a, double b, double c, double d,
+			int seed
+			)
+					throws CalculationException {
+
+		// Steps 1 to 3 are common to all the models of the family
+		final TimeDiscretization timeDiscretization = createTimeDiscretization(LIBORRateTimeHorizon, simulationTimeStep);
+		final TimeDiscretization LIBORPeriodDiscretization = createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength);
+		final ForwardCurve forwardCurve = createForwardCurve(fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+
+		// The one Brownian motion of the family
+		final BrownianMotion brownianMotion = createBrownianMotion(
+				timeDiscretization,
+				LIBORPeriodDiscretization.getNumberOfTimes()-1,//no factor reduction for now
+				numberOfPaths,
+				seed);
+
+		final LIBORMarketModelFamily family = new LIBORMarketModelFamily(brownianMotion);
+		for(final Dynamics dynamicsOfModel : dynamics) {
+			// The covariance model depends on the dynamics but not on the measure
+			final AbstractLIBORCovarianceModel covarianceModel = createCovarianceModel(
+					timeDiscretization, LIBORPeriodDiscretization, forwardCurve,
+					correlationDecayParam, dynamicsOfModel, a, b, c, d);
+
+			for(final Measure measureType : measureTypes) {
+				final ProcessModel LIBORMarketModel = createLIBORModel(
+						LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType);
+				family.putModel(dynamicsOfModel, measureType, createSimulation(LIBORMarketModel, brownianMotion));
+			}
+		}
+		return family;
+	}
+
+	/**
+	 * It simulates a LIBOR Market Model as createLIBORMarketModel above, whose curves can then be replaced without
+	 * creating again the time discretizations, the volatility and correlation models and the Brownian increments, see
+	 * LIBORMarketModelWithCurveUpdate. After an update with the forwards givenForwards', the simulation is the one of
+	 * createLIBORMarketModel with givenForwards' and the same seed.
+	 *
+	 * @return an object of type LIBORMarketModelWithCurveUpdate, holding the simulation with the given forwards
+	 * @throws CalculationException
+	 */
+	public static final LIBORMarketModelWithCurveUpdate createLIBORMarketModelWithCurveUpdate(int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed
+			)
+					throws CalculationException {
+
+		// Steps 1 to 7, as in createLIBORMarketModel
+		final TimeDiscretization timeDiscretization = createTimeDiscretization(LIBORRateTimeHorizon, simulationTimeStep);
+		final TimeDiscretization LIBORPeriodDiscretization = createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength);
+		final ForwardCurve forwardCurve = createForwardCurve(fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		final AbstractLIBORCovarianceModel covarianceModel = createCovarianceModel(
+				timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParam, dynamics, a, b, c, d);
+
+		// Step 9: the Brownian motion kept by all the updates
+		final BrownianMotion brownianMotion = createBrownianMotion(
+				timeDiscretization, covarianceModel.getNumberOfFactors(), numberOfPaths, seed);
+
+		// Steps 8 and 10 are performed for every curve
+		return new LIBORMarketModelWithCurveUpdate(LIBORPeriodDiscretization, fixingForGivenForwards, LIBORPeriodLength,
+				covarianceModel, dynamics, measureType, new RandomVariableFromArrayFactory(), SimulationScheme.EULER,
+				brownianMotion, forwardCurve);
+	}
+
+	/**
+	 * It simulates a LIBOR Market Model as createLIBORMarketModelWithCurveUpdate above, on the given time discretization
+	 * and with the given discretization scheme, see createLIBORMarketModel with a given time discretization.
+	 *
+	 * @param timeDiscretization, the time discretization for the evolution of the processes: it must start at zero and
+	 * contain all the dates of the tenure structure
+	 * @param simulationScheme, the discretization scheme: the log-Euler schemes require log-normal dynamics
+	 * @return an object of type LIBORMarketModelWithCurveUpdate, holding the simulation with the given forwards
+	 * @throws CalculationException
+	 */
+	public static final LIBORMarketModelWithCurveUpdate createLIBORMarketModelWithCurveUpdate(int numberOfPaths,
+			TimeDiscretization timeDiscretization,
+			double LIBORPeriodLength, //T_i-T_{i-1}, we suppose it to be fixed
+			double LIBORRateTimeHorizon, //T_n
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam, // decay of the correlation between LIBOR rates
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			SimulationScheme simulationScheme
+			)
+					throws CalculationException {
+
+		// Steps 1 to 7, as in createLIBORMarketModel with a given time discretization
+		final TimeDiscretization LIBORPeriodDiscretization = createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength);
+		checkTimeDiscretizationContainsTenorDates(timeDiscretization, LIBORPeriodDiscretization);
+		final ForwardCurve forwardCurve = createForwardCurve(fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		final AbstractLIBORCovarianceModel covarianceModel = createCovarianceModel(
+				timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParam, dynamics, a, b, c, d,
+				LIBORPeriodDiscretization.getNumberOfTimeSteps(), new RandomVariableFromArrayFactory(), simulationScheme);
+
+		// Step 9: the Brownian motion kept by all the updates
+		final BrownianMotion brownianMotion = createBrownianMotion(
+				timeDiscretization, covarianceModel.getNumberOfFactors(), numberOfPaths, seed);
+
+		// Steps 8 and 10 are performed for every curve
+		return new LIBORMarketModelWithCurveUpdate(LIBORPeriodDiscretization, fixingForGivenForwards, LIBORPeriodLength,
+				covarianceModel, dynamics, measureType, new RandomVariableFromArrayFactory(), simulationScheme,
+				brownianMotion, forwardCurve);
+	}
+
+	/**
+	 * It returns the smallest number of factors whose principal components explain at least the given fraction of the
+	 * variance of the correlation matrix \rho_{i,j}=\exp(-\alpha|T_i-T_j|) of the LIBORs, i.e., the smallest k such that
+	 * (\lambda_1 + ... + \lambda_k) / (\lambda_1 + ... + \lambda_n) >= explainedVariance, where \lambda_1 >= ... >= \lambda_n are
+	 * the eigenvalues of the matrix.
+	 *
+	 * @param LIBORPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param correlationDecayParam, the parameter \alpha>0 of the correlation
+	 * @param explainedVariance, the fraction of the variance to be explained, in (0,1]
+	 * @return the number of factors
+	 */
+	public static int getNumberOfFactorsForExplainedVariance(TimeDiscretization LIBORPeriodDiscretization,
+			double correlationDecayParam, double explainedVariance) {
+		if(explainedVariance <= 0 || explainedVariance > 1) {
+			throw new IllegalArgumentException("The explained variance must be in (0,1].");
+		}
+		final int numberOfLibors = LIBORPeriodDiscretization.getNumberOfTimeSteps();
+		final double[][] correlationMatrix = new double[numberOfLibors][numberOfLibors];
+		for(int row = 0; row < numberOfLibors; row++) {
+			for(int column = 0; column < numberOfLibors; column++) {
+				correlationMatrix[row][column] = Math.exp(-correlationDecayParam
+						* Math.abs(LIBORPeriodDiscretization.getTime(row) - LIBORPeriodDiscretization.getTime(column)));
+			}
+		}
+
+		// The squared norms of the columns of the full factor matrix are the eigenvalues
+		final double[][] factorMatrix = LinearAlgebra.getFactorMatrix(correlationMatrix, numberOfLibors);
+		final double[] eigenvalues = new double[numberOfLibors];
+		for(int factorIndex = 0; factorIndex < numberOfLibors; factorIndex++) {
+			for(int liborIndex = 0; liborIndex < numberOfLibors; liborIndex++) {
+				eigenvalues[factorIndex] += factorMatrix[liborIndex][factorIndex] * factorMatrix[liborIndex][factorIndex];
+			}
+		}
+		Arrays.sort(eigenvalues);
+
+		// The trace of a correlation matrix is the number of LIBORs
+		double explainedSum = 0.0;
+		for(int numberOfFactors = 1; numberOfFactors <= numberOfLibors; numberOfFactors++) {
+			explainedSum += eigenvalues[numberOfLibors - numberOfFactors];
+			if(explainedSum >= explainedVariance * numberOfLibors * (1 - 1E-12)) {
+				return numberOfFactors;
+			}
+		}
+		return numberOfLibors;
+	}
+
+	/**
+	 * It creates an equidistant time discretization 0 = t_0 < t_1 < ... < t_n = timeHorizon with step timeStep. It is used
+	 * both for the time discretization of the simulation (step 1) and for the tenure structure (step 2).
+	 *
+	 * @param timeHorizon, the last time of the discretization
+	 * @param timeStep, the (fixed) length of the time steps
+	 * @return the time discretization
+	 */
+	public static TimeDiscretization createTimeDiscretization(double timeHorizon, double timeStep) {
+		return new TimeDiscretizationFromArray(0.0, (int) (timeHorizon / timeStep), timeStep);
+	}
+
+	/**
+	 * It creates a time discretization for the simulation of the processes (step 1) aligned to the tenure structure:
+	 * every period [T_i,T_{i+1}] is divided into numberOfStepsPerPeriod equal steps. With one step per period the
+	 * processes are simulated from every tenor date to the next one.
+	 *
+	 * @param LIBORPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param numberOfStepsPerPeriod, the number of steps of every period, at least one
+	 * @return the time discretization
+	 */
+	public static TimeDiscretization createTenorAlignedTimeDiscretization(TimeDiscretization LIBORPeriodDiscretization,
+			int numberOfStepsPerPeriod) {
+		final int[] numberOfStepsOfPeriods = new int[LIBORPeriodDiscretization.getNumberOfTimeSteps()];
+		Arrays.fill(numberOfStepsOfPeriods, numberOfStepsPerPeriod);
+		return createTenorAlignedTimeDiscretization(LIBORPeriodDiscretization, numberOfStepsOfPeriods);
+	}
+
+	/**
+	 * It creates a time discretization for the simulation of the processes (step 1) aligned to the tenure structure,
+	 * where the period [T_i,T_{i+1}] is divided into numberOfStepsOfPeriods[i] equal steps: the time discretization
+	 * can be refined only on the periods where it is needed.
+	 *
+	 * @param LIBORPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param numberOfStepsOfPeriods, the number of steps of every period, at least one
+	 * @return the time discretization
+	 */
+	public static TimeDiscretization createTenorAlignedTimeDiscretization(TimeDiscretization LIBORPeriodDiscretization,
+			int[] numberOfStepsOfPeriods) {
+		if(numberOfStepsOfPeriods.length != LIBORPeriodDiscretization.getNumberOfTimeSteps()) {
+			throw new IllegalArgumentException("The number of steps must be given for every period of the tenure structure.");
+		}
+		int numberOfTimeSteps = 0;
+		for(final int numberOfStepsOfPeriod : numberOfStepsOfPeriods) {
+			if(numberOfStepsOfPeriod < 1) {
+				throw new IllegalArgumentException("Every period must have at least one step.");
+			}
+			numberOfTimeSteps += numberOfStepsOfPeriod;
+		}
+
+		final double[] times = new double[numberOfTimeSteps + 1];
+		int timeIndex = 0;
+		for(int periodIndex = 0; periodIndex < numberOfStepsOfPeriods.length; periodIndex++) {
+			final double periodStart = LIBORPeriodDiscretization.getTime(periodIndex);
+			final double timeStep = LIBORPeriodDiscretization.getTimeStep(periodIndex) / numberOfStepsOfPeriods[periodIndex];
+			for(int stepIndex = 0; stepIndex < numberOfStepsOfPeriods[periodIndex]; stepIndex++) {
+				times[timeIndex++] = periodStart + stepIndex * timeStep;
+			}
+		}
+		times[timeIndex] = LIBORPeriodDiscretization.getTime(numberOfStepsOfPeriods.length);
+		return new TimeDiscretizationFromArray(times);
+	}
+
+	/*
+	 * The LIBOR at a tenor date, and the numeraire, are read at the time index of the date: the time discretization of
+	 * the simulation must start at zero and contain all the dates of the tenure structure.
+	 */
+	private static void checkTimeDiscretizationContainsTenorDates(TimeDiscretization timeDiscretization,
+			TimeDiscretization LIBORPeriodDiscretization) {
+		if(timeDiscretization.getTime(0) != 0.0) {
+			throw new IllegalArgumentException("The time discretization of the simulation must start at zero.");
+		}
+		for(int liborIndex = 0; liborIndex < LIBORPeriodDiscretization.getNumberOfTimes(); liborIndex++) {
+			if(timeDiscretization.getTimeIndex(LIBORPeriodDiscretization.getTime(liborIndex)) < 0) {
+				throw new IllegalArgumentException("The time discretization of the simulation does not contain the tenor date "
+						+ LIBORPeriodDiscretization.getTime(liborIndex) + ".");
+			}
+		}
+	}
+
+	/**
+	 * It creates the forward curve, i.e., the initial values for the LIBOR market model (step 3). We suppose
+	 * not to have all the forwards: the others are interpolated using the specific method of the Finmath library.
+	 *
+	 * @param fixingForGivenForwards, the times of the tenure structure where the initial forwards are given
+	 * @param givenForwards, the given initial forwards (from which the others are interpolated)
+	 * @param LIBORPeriodLength, the length of the interval between times of the tenure structure
+	 * @return the forward curve
+	 */
+	public static ForwardCurve createForwardCurve(double[] fixingForGivenForwards, double[] givenForwards,
+			double LIBORPeriodLength) {
+		return ForwardCurveInterpolation.createForwardCurveFromForwards(
 				"forwardCurve", // name of the curve
 				fixingForGivenForwards, // fixings of the forward
 				givenForwards, // the forwards we have
 				LIBORPeriodLength
 				);
+	}
 
-		final DiscountCurve discountCurve = new DiscountCurveFromForwardCurve(forwardCurve);
+	/**
+	 * It creates the covariance model of the LIBOR market model, i.e., it performs steps 4 to 7 described in
+	 * createLIBORMarketModel: Rebonato volatility structure, exponentially decaying correlation, their combination
+	 * and the blending with the forward curve which takes into account if the dynamics are normal or log-normal.
+	 *
+	 * @param timeDiscretization, the time discretization for the evolution of the processes
+	 * @param LIBORPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param forwardCurve, the initial forwards
+	 * @param correlationDecayParam, the parameter \alpha>0 of the correlation \rho_{i,j}(t)=\exp(-\alpha|T_i-T_k|)
+	 * @param dynamics, normal or log-normal
+	 * @param a, the first term for the volatility structure
+	 * @param b, the second term for the volatility structure
+	 * @param c, the third term for the volatility structure
+	 * @param d, the fourth term for the volatility structure
+	 * @return the covariance model
+	 */
+	public static AbstractLIBORCovarianceModel createCovarianceModel(
+			TimeDiscretization timeDiscretization,
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			double a, double b, double c, double d) {
+		return createCovarianceModel(timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParam,
+				dynamics, a, b, c, d,
+				LIBORPeriodDiscretization.getNumberOfTimes()-1); // one factor for every LIBOR: no factor reduction
+	}
 
-		// Step 4, the volatility model: we only have to provide the matrix
-		final double[][] volatility = createVolatilityStructure(
-				a, b, c, d,
-				timeDiscretization,
-				LIBORPeriodDiscretization, dynamics);
+	/**
+	 * It creates the covariance model as createCovarianceModel above, where the correlation model is reduced to its
+	 * first numberOfFactors principal components (the Finmath library rescales the reduced factor loadings so that
+	 * every LIBOR keeps its variance).
+	 *
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @return the covariance model
+	 */
+	public static AbstractLIBORCovarianceModel createCovarianceModel(
+			TimeDiscretization timeDiscretization,
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			double a, double b, double c, double d,
+			int numberOfFactors) {
+		return createCovarianceModel(timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParam,
+				dynamics, a, b, c, d, numberOfFactors, new RandomVariableFromArrayFactory());
+	}
 
-		final LIBORVolatilityModel volatilityModel =
-				new LIBORVolatilityModelFromGivenMatrix(timeDiscretization,
-						LIBORPeriodDiscretization, volatility);
-		/*
-		  Step 5
-		  Create a correlation model rho_{i,j} = exp(−a ∗ |T_i −T_j|)
-		 */
-		final LIBORCorrelationModel correlationModel =
-				new LIBORCorrelationModelExponentialDecay(
-						timeDiscretization,
-						LIBORPeriodDiscretization,
-						LIBORPeriodDiscretization.getNumberOfTimes()-1,//no factor reduction for now
-						correlationDecayParam);
+	/**
+	 * It creates the covariance model as createCovarianceModel above, with the volatility matrix of
+	 * createVolatilityStructure and the given factory, see the method below.
+	 *
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @param randomVariableFactory, the factory of the random variables of the covariance model
+	 * @return the covariance model
+	 */
+	public static AbstractLIBORCovarianceModel createCovarianceModel(
+			TimeDiscretization timeDiscretization,
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			double a, double b, double c, double d,
+			int numberOfFactors,
+			RandomVariableFactory randomVariableFactory) {
+		return createCovarianceModel(timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParam,
+				dynamics, a, b, c, d, numberOfFactors, randomVariableFactory, VolatilityRepresentation.MATRIX);
+	}
 
-		/*
-		 Step 6
-		 Combine volatility model and correlation model, together with the two time discretizations,
-		 to get a covariance model
-		 */
-		final LIBORCovarianceModelFromVolatilityAndCorrelation covarianceModel =
-				new LIBORCovarianceModelFromVolatilityAndCorrelation(
-						timeDiscretization,
-						LIBORPeriodDiscretization,
-						volatilityModel,
-						correlationModel);
+	/**
+	 * It creates the covariance model as createCovarianceModel above, with the given representation of the volatility
+	 * structure. With VolatilityRepresentation.PARAMETRIC the parameters a, b, c, d of the volatility structure are
+	 * random variables created by the given factory: with a differentiable factory they are the independent variables
+	 * of the vegas. With VolatilityRepresentation.MATRIX the volatility is the matrix of createVolatilityStructure and
+	 * the parameters are not random variables of the factory, so the model has no vegas.
+	 *
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @param randomVariableFactory, the factory of the parameters of the volatility structure
+	 * @param volatilityRepresentation, parametric or matrix
+	 * @return the covariance model
+	 */
+	public static AbstractLIBORCovarianceModel createCovarianceModel(
+			TimeDiscretization timeDiscretization,
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			double a, double b, double c, double d,
+			int numberOfFactors,
+			RandomVariableFactory randomVariableFactory,
+			VolatilityRepresentation volatilityRepresentation) {
+
+		// Steps 4 to 6
+		final LIBORCovarianceModelFromVolatilityAndCorrelation covarianceModel = createCovarianceModelFromVolatilityAndCorrelation(
+				timeDiscretization, LIBORPeriodDiscretization, correlationDecayParam, dynamics, a, b, c, d, numberOfFactors,
+				randomVariableFactory, volatilityRepresentation, false /* volatility at the start of the step */);
 
 		//first we check if the dynamics are log-normal
 		final boolean isLogNormal = (dynamics == Dynamics.LOGNORMAL);
@@ -221,13 +897,213 @@ public class LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification {
 
 		final double parameterForBlended = isLogNormal ? 0.0 : 1.0;
 
+		final PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.BLENDED_COVARIANCE_MODEL);
 		final AbstractLIBORCovarianceModel covarianceModelBlended = new BlendedLocalVolatilityModel(
 				covarianceModel, forwardCurve, parameterForBlended, false);
+		LIBORMarketModelMetrics.stop(timer);
 		//d\bar L = \bar L sigma dW
 
 		//final AbstractLIBORCovarianceModel covarianceModelBlended = covarianceModel;
 
-		//Step 8: we now create the model (i.e., the object of type LiborMarketModel)
+		return covarianceModelBlended;
+	}
+
+	/**
+	 * It creates the covariance model for the given discretization scheme, see createLIBORMarketModel with a given time
+	 * discretization. For the Euler scheme the volatility of every step is the one at its start, as in
+	 * createCovarianceModel above; for the other schemes it is the root mean square of the volatility structure over the
+	 * step. For the Euler schemes the covariance model is blended as in createCovarianceModel above. For the log-Euler
+	 * schemes the processes are the logarithms of the LIBORs, whose factor loadings are the ones of the volatility and
+	 * correlation model: steps 4 to 6 only, without the blending of step 7.
+	 *
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @param randomVariableFactory, the factory of the parameters of the volatility structure
+	 * @param simulationScheme, the discretization scheme: the log-Euler schemes require log-normal dynamics
+	 * @return the covariance model
+	 */
+	public static AbstractLIBORCovarianceModel createCovarianceModel(
+			TimeDiscretization timeDiscretization,
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			double a, double b, double c, double d,
+			int numberOfFactors,
+			RandomVariableFactory randomVariableFactory,
+			SimulationScheme simulationScheme) {
+
+		if(isLogEuler(simulationScheme) && dynamics != Dynamics.LOGNORMAL) {
+			throw new IllegalArgumentException("The log-Euler schemes require log-normal dynamics.");
+		}
+
+		final LIBORCovarianceModelFromVolatilityAndCorrelation covarianceModel = createCovarianceModelFromVolatilityAndCorrelation(
+				timeDiscretization, LIBORPeriodDiscretization, correlationDecayParam, dynamics, a, b, c, d, numberOfFactors,
+				randomVariableFactory, VolatilityRepresentation.PARAMETRIC,
+				simulationScheme != SimulationScheme.EULER /* volatility averaged over the step */);
+
+		if(isLogEuler(simulationScheme)) {
+			return covarianceModel;
+		}
+		final PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.BLENDED_COVARIANCE_MODEL);
+		final AbstractLIBORCovarianceModel covarianceModelBlended =
+				new BlendedLocalVolatilityModel(covarianceModel, forwardCurve, dynamics == Dynamics.LOGNORMAL ? 0.0 : 1.0, false);
+		LIBORMarketModelMetrics.stop(timer);
+		return covarianceModelBlended;
+	}
+
+	/*
+	 * Steps 4 to 6 of createLIBORMarketModel: the volatility model, the correlation model and their combination.
+	 */
+	private static LIBORCovarianceModelFromVolatilityAndCorrelation createCovarianceModelFromVolatilityAndCorrelation(
+			TimeDiscretization timeDiscretization,
+			TimeDiscretization LIBORPeriodDiscretization,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			double a, double b, double c, double d,
+			int numberOfFactors,
+			RandomVariableFactory randomVariableFactory,
+			VolatilityRepresentation volatilityRepresentation,
+			boolean isVolatilityAveragedOverTimeStep) {
+
+		if(numberOfFactors < 1 || numberOfFactors > LIBORPeriodDiscretization.getNumberOfTimeSteps()) {
+			throw new IllegalArgumentException("The number of factors must be between 1 and the number of LIBORs.");
+		}
+
+		/*
+		 Step 4, the volatility model: a Rebonato volatility structure
+		 \sigma_i(t_j)=(a+b(T_i-t_j))\exp(-c(T_i-t_j))+d,
+		 evaluated on demand from the four parameters or, if requested, stored as a matrix. For normal
+		 dynamics the volatility is rescaled.
+		 */
+		final double volatilityScalingFactor = (dynamics == Dynamics.NORMAL) ? 0.05 : 1.0;
+
+		PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.VOLATILITY_MODEL);
+		final LIBORVolatilityModel volatilityModel;
+		if(volatilityRepresentation == VolatilityRepresentation.MATRIX) {
+			if(isVolatilityAveragedOverTimeStep) {
+				throw new IllegalArgumentException("The volatility matrix gives the volatility at the start of the step only.");
+			}
+			volatilityModel = new LIBORVolatilityModelFromGivenMatrix(timeDiscretization, LIBORPeriodDiscretization,
+					createVolatilityStructure(a, b, c, d, timeDiscretization, LIBORPeriodDiscretization, dynamics));
+		}
+		else {
+			volatilityModel = new LIBORVolatilityModelRebonato(timeDiscretization,
+					LIBORPeriodDiscretization,
+					randomVariableFactory.createRandomVariable(a),
+					randomVariableFactory.createRandomVariable(b),
+					randomVariableFactory.createRandomVariable(c),
+					randomVariableFactory.createRandomVariable(d),
+					volatilityScalingFactor,
+					isVolatilityAveragedOverTimeStep);
+		}
+		LIBORMarketModelMetrics.stop(timer);
+		/*
+		  Step 5
+		  Create a correlation model rho_{i,j} = exp(−a ∗ |T_i −T_j|)
+		 */
+		timer = LIBORMarketModelMetrics.start(Phase.CORRELATION_MODEL);
+		final LIBORCorrelationModel correlationModel =
+				new LIBORCorrelationModelExponentialDecay(
+						timeDiscretization,
+						LIBORPeriodDiscretization,
+						numberOfFactors,
+						correlationDecayParam);
+		LIBORMarketModelMetrics.stop(timer);
+
+		/*
+		 Step 6
+		 Combine volatility model and correlation model, together with the two time discretizations,
+		 to get a covariance model
+		 */
+		timer = LIBORMarketModelMetrics.start(Phase.COVARIANCE_MODEL);
+		final LIBORCovarianceModelFromVolatilityAndCorrelation covarianceModel = new LIBORCovarianceModelFromVolatilityAndCorrelation(
+				timeDiscretization,
+				LIBORPeriodDiscretization,
+				volatilityModel,
+				correlationModel);
+		LIBORMarketModelMetrics.stop(timer);
+		return covarianceModel;
+	}
+
+	/**
+	 * It creates the LIBOR market model (step 8), i.e., the object of type LiborMarketModel, with the properties
+	 * about the measure.
+	 *
+	 * @param LIBORPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param forwardCurve, the initial forwards
+	 * @param covarianceModel, the covariance model, see createCovarianceModel
+	 * @param measureType, spot or terminal
+	 * @return the LIBOR market model
+	 * @throws CalculationException
+	 */
+	public static LIBORMarketModelFromCovarianceModel createLIBORModel(
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			AbstractLIBORCovarianceModel covarianceModel,
+			Measure measureType) throws CalculationException {
+		return createLIBORModel(LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType,
+				new RandomVariableFromArrayFactory());
+	}
+
+	/**
+	 * It creates the LIBOR market model as createLIBORModel above, whose random variables are created by the given
+	 * factory. For a differentiable factory the model is a LIBORMarketModelWithDifferentiableInitialState, so that the
+	 * initial LIBORs are the same independent variables in the simulation and in getInitialState(null).
+	 *
+	 * @param randomVariableFactory, the factory of the random variables of the model
+	 * @return the LIBOR market model
+	 * @throws CalculationException
+	 */
+	public static LIBORMarketModelFromCovarianceModel createLIBORModel(
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			AbstractLIBORCovarianceModel covarianceModel,
+			Measure measureType,
+			RandomVariableFactory randomVariableFactory) throws CalculationException {
+		return createLIBORModel(LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType, randomVariableFactory,
+				SimulationScheme.EULER);
+	}
+
+	/**
+	 * It creates the LIBOR market model as createLIBORModel above, for the given discretization scheme: for the log-Euler
+	 * schemes the state space is log-normal, i.e., the processes are the logarithms of the LIBORs, and the covariance
+	 * model must be the one of createCovarianceModel for the same scheme.
+	 *
+	 * @param randomVariableFactory, the factory of the random variables of the model
+	 * @param simulationScheme, the discretization scheme
+	 * @return the LIBOR market model
+	 * @throws CalculationException
+	 */
+	public static LIBORMarketModelFromCovarianceModel createLIBORModel(
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			AbstractLIBORCovarianceModel covarianceModel,
+			Measure measureType,
+			RandomVariableFactory randomVariableFactory,
+			SimulationScheme simulationScheme) throws CalculationException {
+		return createLIBORModel(LIBORPeriodDiscretization, forwardCurve, new DiscountCurveFromForwardCurve(forwardCurve),
+				covarianceModel, measureType, randomVariableFactory, simulationScheme);
+	}
+
+	/**
+	 * It creates the LIBOR market model as createLIBORModel above, with the given discount curve instead of the one
+	 * implied by the forward curve.
+	 *
+	 * @param discountCurve, the discount curve of the model
+	 * @param randomVariableFactory, the factory of the random variables of the model
+	 * @param simulationScheme, the discretization scheme
+	 * @return the LIBOR market model
+	 * @throws CalculationException
+	 */
+	public static LIBORMarketModelFromCovarianceModel createLIBORModel(
+			TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve,
+			DiscountCurve discountCurve,
+			AbstractLIBORCovarianceModel covarianceModel,
+			Measure measureType,
+			RandomVariableFactory randomVariableFactory,
+			SimulationScheme simulationScheme) throws CalculationException {
+
 		// Set model properties
 		final Map<String, String> properties = new HashMap<>();
 
@@ -263,40 +1139,145 @@ public class LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification {
 		 * (as it is the case for the log-normal DYNAMICS) and if F is specified by log-normal STATE SPACE, we would "multiply twice by L",
 		 * and simulate something like	dL_t = sigma_L L_t^2 dW_t.
 		 *	So, we have always to specify the STATE SPACE to be NORMAL when we use BlendedLocalVolatilityModel.
+		 *  The log-Euler schemes do not use it: their covariance model gives the factor loadings of the logarithms of the
+		 *  LIBORs, so there the STATE SPACE is LOGNORMAL.
 		 */
-		properties.put("stateSpace", LIBORMarketModelFromCovarianceModel.StateSpace.NORMAL.name());
+		properties.put("stateSpace", isLogEuler(simulationScheme)
+				? LIBORMarketModelFromCovarianceModel.StateSpace.LOGNORMAL.name()
+						: LIBORMarketModelFromCovarianceModel.StateSpace.NORMAL.name());
 
 		/*
-		 *  Empty array of calibration items and a RandomVariableFactory, to be given to the constructor of
-		 *  LIBORMarketModelFromCovarianceModel
+		 *  Empty array of calibration items, to be given to the constructor of LIBORMarketModelFromCovarianceModel
 		 */
 		final CalibrationProduct[] calibrationItems = new CalibrationProduct[0];
-		final RandomVariableFactory randomVariableFactory = new RandomVariableFromArrayFactory();
+
+		if(randomVariableFactory instanceof RandomVariableDifferentiableFactory) {
+			return new LIBORMarketModelWithDifferentiableInitialState(
+					LIBORPeriodDiscretization, forwardCurve, discountCurve, randomVariableFactory,
+					covarianceModel, calibrationItems, properties);
+		}
 
 		/*
 		 *  LIBORMarketModelFromCovarianceModel is another class implementing LiborMarketModel, like LIBORMarketModelStandard.
 		 *  It has the feature that you can specify some properties
 		 */
-		final ProcessModel LIBORMarketModel = new LIBORMarketModelFromCovarianceModel(
+		return new LIBORMarketModelFromCovarianceModel(
 				LIBORPeriodDiscretization, null /* analyticModel */, forwardCurve, discountCurve, randomVariableFactory,
-				covarianceModelBlended, calibrationItems, properties);
+				covarianceModel, calibrationItems, properties);
 		//d\bar L = \bar L sigma dW
 		//L=exp(\bar L)
 
 		//dL=L^2 sigma dW_t
+	}
 
-		//Step 9: create an Euler scheme of the LIBOR model defined above
-		final BrownianMotion brownianMotion = new BrownianMotionFromMersenneRandomNumbers(
-				timeDiscretization,
-				LIBORPeriodDiscretization.getNumberOfTimes()-1,//no factor reduction for now
-				numberOfPaths,
-				seed // seed
-				);
+	/**
+	 * It creates the Brownian motion driving the simulation (step 9).
+	 *
+	 * @param timeDiscretization, the time discretization for the evolution of the processes
+	 * @param numberOfFactors, the number of factors of the Brownian motion
+	 * @param numberOfPaths, number of simulations
+	 * @param seed, the seed of the random number generator
+	 * @return the Brownian motion
+	 */
+	public static BrownianMotion createBrownianMotion(TimeDiscretization timeDiscretization, int numberOfFactors,
+			int numberOfPaths, int seed) {
+		return createBrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed, RandomNumberSource.MERSENNE);
+	}
+
+	/**
+	 * It creates the Brownian motion driving the simulation (step 9), drawing the random numbers from the given source:
+	 * - MERSENNE: pseudo random numbers from a Mersenne twister;
+	 * - SOBOL_BROWNIAN_BRIDGE: a scrambled Sobol sequence, with the paths constructed by a Brownian bridge, see
+	 * BrownianMotionFromSobolBrownianBridge;
+	 * - MERSENNE_ANTITHETIC: numberOfPaths/2 paths from a Mersenne twister together with their antithetic paths, see
+	 * BrownianMotionAntithetic.
+	 *
+	 * @param timeDiscretization, the time discretization for the evolution of the processes
+	 * @param numberOfFactors, the number of factors of the Brownian motion
+	 * @param numberOfPaths, number of simulations (it must be even for MERSENNE_ANTITHETIC)
+	 * @param seed, the seed of the random number generator
+	 * @param randomNumberSource, the source of the random numbers
+	 * @return the Brownian motion
+	 */
+	public static BrownianMotion createBrownianMotion(TimeDiscretization timeDiscretization, int numberOfFactors,
+			int numberOfPaths, int seed, RandomNumberSource randomNumberSource) {
+		return createBrownianMotion(timeDiscretization, numberOfFactors, numberOfPaths, seed, randomNumberSource,
+				new RandomVariableFromArrayFactory());
+	}
+
+	/**
+	 * It creates the Brownian motion driving the simulation (step 9) as createBrownianMotion above, where the increments
+	 * are created by the given factory: with a RandomVariableFloatFactory they are stored in single precision.
+	 *
+	 * @param randomNumberSource, the source of the random numbers
+	 * @param randomVariableFactory, the factory of the increments
+	 * @return the Brownian motion
+	 */
+	public static BrownianMotion createBrownianMotion(TimeDiscretization timeDiscretization, int numberOfFactors,
+			int numberOfPaths, int seed, RandomNumberSource randomNumberSource, RandomVariableFactory randomVariableFactory) {
+		switch(randomNumberSource) {
+		case SOBOL_BROWNIAN_BRIDGE:
+			return new BrownianMotionFromSobolBrownianBridge(timeDiscretization, numberOfFactors, numberOfPaths, seed,
+					randomVariableFactory);
+		case MERSENNE_ANTITHETIC:
+			if(numberOfPaths % 2 != 0) {
+				throw new IllegalArgumentException("The number of paths must be even for antithetic paths.");
+			}
+			return new BrownianMotionAntithetic(
+					new BrownianMotionFromMersenneRandomNumbers(timeDiscretization, numberOfFactors, numberOfPaths / 2, seed,
+							randomVariableFactory),
+					randomVariableFactory);
+		case MERSENNE:
+		default:
+			return new BrownianMotionFromMersenneRandomNumbers(
+					timeDiscretization,
+					numberOfFactors,
+					numberOfPaths,
+					seed, // seed
+					randomVariableFactory
+					);
+		}
+	}
+
+	/**
+	 * It creates an Euler discretization of the given LIBOR model driven by the given Brownian motion (step 9), and
+	 * gives it to the constructor of LIBORMonteCarloSimulationFromLIBORModel (step 10).
+	 *
+	 * @param LIBORMarketModel, the LIBOR model, see createLIBORModel
+	 * @param brownianMotion, the Brownian motion, see createBrownianMotion
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 */
+	public static LIBORModelMonteCarloSimulationModel createSimulation(ProcessModel LIBORMarketModel,
+			BrownianMotion brownianMotion) {
 
 		final MonteCarloProcess process = new
 				EulerSchemeFromProcessModel(LIBORMarketModel, brownianMotion);
 
-		//Step 10: give the Euler scheme to the constructor of LIBORMonteCarloSimulationFromLIBORModel
 		return new LIBORMonteCarloSimulationFromLIBORModel(process);
 	}
+
+	/**
+	 * It creates a discretization of the given LIBOR model driven by the given Brownian motion with the given scheme
+	 * (step 9), and gives it to the constructor of LIBORMonteCarloSimulationFromLIBORModel (step 10). The log-Euler
+	 * schemes are the Euler schemes of a LIBOR model with log-normal state space, see createLIBORModel.
+	 *
+	 * @param LIBORMarketModel, the LIBOR model, see createLIBORModel
+	 * @param brownianMotion, the Brownian motion, see createBrownianMotion
+	 * @param simulationScheme, the discretization scheme
+	 * @return an object implementing LIBORModelMonteCarloSimulationModel, i.e., representing the simulation of a LMM
+	 */
+	public static LIBORModelMonteCarloSimulationModel createSimulation(ProcessModel LIBORMarketModel,
+			BrownianMotion brownianMotion, SimulationScheme simulationScheme) {
+
+		final boolean isPredictorCorrector = simulationScheme == SimulationScheme.PREDICTOR_CORRECTOR
+				|| simulationScheme == SimulationScheme.LOG_EULER_PREDICTOR_CORRECTOR;
+		final MonteCarloProcess process = new EulerSchemeFromProcessModel(LIBORMarketModel, brownianMotion,
+				isPredictorCorrector ? EulerSchemeFromProcessModel.Scheme.PREDICTOR_CORRECTOR : EulerSchemeFromProcessModel.Scheme.EULER);
+
+		return new LIBORMonteCarloSimulationFromLIBORModel(process);
+	}
+
+	private static boolean isLogEuler(SimulationScheme simulationScheme) {
+		return simulationScheme == SimulationScheme.LOG_EULER || simulationScheme == SimulationScheme.LOG_EULER_PREDICTOR_CORRECTOR;
+	}
 }
@@ -0,0 +1,64 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class represents a family of simulations of LIBOR Market Models which differ only by the dynamics
+ * (normal or log-normal) and/or the measure (spot or terminal), and which are all driven by one single
+ * BrownianMotion instance. In this way, a comparison between spot and terminal measure or between normal and
+ * log-normal dynamics costs one generation of the random numbers and one buffer of Brownian increments.
+ * The family is created by
+ * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModelFamily.
+ *
+ */
+public class LIBORMarketModelFamily {
+
+	private final BrownianMotion brownianMotion;
+	private final Map<Dynamics, Map<Measure, LIBORModelMonteCarloSimulationModel>> models = new EnumMap<>(Dynamics.class);
+
+	LIBORMarketModelFamily(BrownianMotion brownianMotion) {
+		this.brownianMotion = brownianMotion;
+	}
+
+	void putModel(Dynamics dynamics, Measure measure, LIBORModelMonteCarloSimulationModel model) {
+		models.computeIfAbsent(dynamics, key -> new EnumMap<>(Measure.class)).put(measure, model);
+	}
+
+	/**
+	 * @param dynamics, normal or log-normal
+	 * @param measure, spot or terminal
+	 * @return the simulation with the given dynamics and measure
+	 * @throws IllegalArgumentException if the variant is not part of the family
+	 */
+	public LIBORModelMonteCarloSimulationModel getModel(Dynamics dynamics, Measure measure) {
+		final Map<Measure, LIBORModelMonteCarloSimulationModel> modelsForDynamics = models.get(dynamics);
+		final LIBORModelMonteCarloSimulationModel model = modelsForDynamics != null ? modelsForDynamics.get(measure) : null;
+		if(model == null) {
+			throw new IllegalArgumentException("The family does not contain a model with dynamics " + dynamics
+					+ " and measure " + measure + ".");
+		}
+		return model;
+	}
+
+	/**
+	 * @param dynamics, normal or log-normal
+	 * @param measure, spot or terminal
+	 * @return true if the family contains the variant with the given dynamics and measure
+	 */
+	public boolean hasModel(Dynamics dynamics, Measure measure) {
+		return models.containsKey(dynamics) && models.get(dynamics).containsKey(measure);
+	}
+
+	/**
+	 * @return the Brownian motion shared by all the models of the family
+	 */
+	public BrownianMotion getBrownianMotion() {
+		return brownianMotion;
+	}
+}
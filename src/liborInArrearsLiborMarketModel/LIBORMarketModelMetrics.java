@@ -0,0 +1,296 @@
+package liborInArrearsLiborMarketModel;
+
+import java.lang.management.ManagementFactory;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.TermStructureMonteCarloSimulationModel;
+
+/**
+ * This class instruments the hot paths of the construction of a LIBOR market model and of the valuation of the LIBOR
+ * in arrears. Every numbered step of
+ * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel is a phase, whose wall-clock
+ * time and allocated bytes are measured; LiborInArrears and LiborInArrearsStrip measure the time of the valuation of
+ * every period, from which the number of paths per second follows.
+ *
+ * The measures are given to the listener set by setListener (see LIBORMarketModelMetricsRecorder) and committed as
+ * the custom Java Flight Recorder events liborInArrearsLiborMarketModel.Phase and liborInArrearsLiborMarketModel.Valuation,
+ * e.g., with java -XX:StartFlightRecording:filename=lmm.jfr. When there is no listener and no recording of the events,
+ * start and startValuation return null after reading the listener and the state of the event type, without
+ * allocating: an event is created only if its type is enabled in a running recording.
+ *
+ * The Finmath library generates the Brownian increments and evolves the Euler scheme at the first access to the
+ * simulation. To measure these two phases, createLIBORMarketModel triggers them before returning only if the listener
+ * asks for it, see LIBORMarketModelMetricsListener.isSimulationEager: the values of the simulation are the same, only
+ * the time of the simulation moves into the construction. A running recording alone never changes the laziness of
+ * the simulation, but when the valuations are measured the products evolve a lazy simulation before starting their
+ * timers (see evolveBeforeValuation), so that the time of a valuation never contains the simulation. The allocated
+ * bytes are the ones of the calling thread only.
+ *
+ */
+public final class LIBORMarketModelMetrics {
+
+	/**
+	 * The phases of createLIBORMarketModel, with the number of the step in its description.
+	 */
+	public enum Phase {
+		TIME_DISCRETIZATION(1),		// time discretization of the simulation
+		TENURE_STRUCTURE(2),		// time discretization of the tenure structure
+		FORWARD_CURVE(3),			// interpolation of the initial forwards
+		VOLATILITY_MODEL(4),		// Rebonato volatility structure
+		CORRELATION_MODEL(5),		// exponentially decaying correlation, possibly factor reduced
+		COVARIANCE_MODEL(6),		// combination of volatility and correlation
+		BLENDED_COVARIANCE_MODEL(7),	// blending for normal or log-normal dynamics
+		LIBOR_MODEL(8),				// LIBOR model with the measure
+		BROWNIAN_MOTION(9),			// creation of the Brownian motion
+		SIMULATION(10),				// creation of the discretization scheme and of the simulation
+		BROWNIAN_INCREMENTS(11),	// generation of the random numbers and of the Brownian increments
+		EVOLUTION(12);				// evolution of the discretization scheme over all the paths
+
+		private final int step;
+
+		Phase(int step) {
+			this.step = step;
+		}
+
+		public int getStep() {
+			return step;
+		}
+	}
+
+	private static volatile LIBORMarketModelMetricsListener listener;
+
+	private static final com.sun.management.ThreadMXBean threadMXBean = getThreadMXBean();
+
+	// The types of the events, whose state tells without creating an event if they are recorded
+	private static final EventType phaseEventType = EventType.getEventType(PhaseEvent.class);
+	private static final EventType valuationEventType = EventType.getEventType(ValuationEvent.class);
+
+	private LIBORMarketModelMetrics() {
+	}
+
+	/**
+	 * It sets the listener receiving the measures of all the threads.
+	 *
+	 * @param newListener, the listener, or null to remove it
+	 */
+	public static void setListener(LIBORMarketModelMetricsListener newListener) {
+		listener = newListener;
+	}
+
+	public static LIBORMarketModelMetricsListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * It returns true if there is a listener asking for the eager simulation, see
+	 * LIBORMarketModelMetricsListener.isSimulationEager. The eager phases of createLIBORMarketModel are triggered only in
+	 * this case.
+	 */
+	public static boolean isSimulationEager() {
+		final LIBORMarketModelMetricsListener currentListener = listener;
+		return currentListener != null && currentListener.isSimulationEager();
+	}
+
+	/**
+	 * It starts the measure of the given phase.
+	 *
+	 * @param phase, the phase
+	 * @return the timer of the phase, to be given to stop, or null if the metrics are disabled
+	 */
+	static PhaseTimer start(Phase phase) {
+		final LIBORMarketModelMetricsListener currentListener = listener;
+		final boolean isEventEnabled = phaseEventType.isEnabled();
+		if(currentListener == null && !isEventEnabled) {
+			return null;
+		}
+		final PhaseEvent event = isEventEnabled ? new PhaseEvent() : null;
+		if(event != null) {
+			event.begin();
+		}
+		return new PhaseTimer(phase, currentListener, event, System.nanoTime(), getAllocatedBytes());
+	}
+
+	/**
+	 * It ends the measure of a phase and reports it.
+	 *
+	 * @param timer, the timer returned by start, possibly null
+	 */
+	static void stop(PhaseTimer timer) {
+		if(timer == null) {
+			return;
+		}
+		final long elapsedNanos = System.nanoTime() - timer.startNanos;
+		final long allocatedBytes = timer.startAllocatedBytes < 0 ? -1 : getAllocatedBytes() - timer.startAllocatedBytes;
+		if(timer.listener != null) {
+			timer.listener.phaseCompleted(timer.phase, elapsedNanos, allocatedBytes);
+		}
+		final PhaseEvent event = timer.event;
+		if(event == null) {
+			return;
+		}
+		event.end();
+		if(event.shouldCommit()) {
+			event.phase = timer.phase.name();
+			event.step = timer.phase.getStep();
+			event.allocatedBytes = allocatedBytes;
+			event.commit();
+		}
+	}
+
+	/**
+	 * It evolves the paths of the given simulation, if the valuations are measured, by fetching the LIBOR of the given
+	 * period: the Finmath library generates the Brownian increments and evolves the paths at the first access to the
+	 * simulation, which would otherwise fall into the timer of the first valuation. If the simulation is already
+	 * evolved this is a lookup; if the metrics are disabled nothing is done.
+	 *
+	 * @param model, the simulation
+	 * @param periodStart, the fixing date T_i of a period valued next
+	 * @param periodEnd, the end date T_{i+1} of the period
+	 * @throws CalculationException
+	 */
+	static void evolveBeforeValuation(TermStructureMonteCarloSimulationModel model, double periodStart, double periodEnd)
+			throws CalculationException {
+		if(listener == null && !valuationEventType.isEnabled()) {
+			return;
+		}
+		model.getLIBOR(periodStart, periodStart, periodEnd);
+	}
+
+	/**
+	 * It starts the measure of the valuation of a period.
+	 *
+	 * @return the timer of the valuation, to be given to stopValuation, or null if the metrics are disabled
+	 */
+	static ValuationTimer startValuation() {
+		final LIBORMarketModelMetricsListener currentListener = listener;
+		final boolean isEventEnabled = valuationEventType.isEnabled();
+		if(currentListener == null && !isEventEnabled) {
+			return null;
+		}
+		final ValuationEvent event = isEventEnabled ? new ValuationEvent() : null;
+		if(event != null) {
+			event.begin();
+		}
+		return new ValuationTimer(currentListener, event, System.nanoTime());
+	}
+
+	/**
+	 * It ends the measure of the valuation of the period (T_i,T_{i+1}) and reports it.
+	 *
+	 * @param timer, the timer returned by startValuation, possibly null
+	 * @param periodStart, the fixing (=payment) date T_i of the period
+	 * @param periodEnd, the end date T_{i+1} of the period
+	 * @param numberOfPaths, the number of paths valued
+	 */
+	static void stopValuation(ValuationTimer timer, double periodStart, double periodEnd, int numberOfPaths) {
+		if(timer == null) {
+			return;
+		}
+		final long elapsedNanos = System.nanoTime() - timer.startNanos;
+		if(timer.listener != null) {
+			timer.listener.valuationCompleted(periodStart, periodEnd, numberOfPaths, elapsedNanos);
+		}
+		final ValuationEvent event = timer.event;
+		if(event == null) {
+			return;
+		}
+		event.end();
+		if(event.shouldCommit()) {
+			event.periodStart = periodStart;
+			event.periodEnd = periodEnd;
+			event.numberOfPaths = numberOfPaths;
+			event.pathsPerSecond = elapsedNanos > 0 ? numberOfPaths * 1E9 / elapsedNanos : Double.NaN;
+			event.commit();
+		}
+	}
+
+	/*
+	 * The bytes allocated by the current thread so far, or -1 if they are not measured.
+	 */
+	private static long getAllocatedBytes() {
+		if(threadMXBean == null || !threadMXBean.isThreadAllocatedMemoryEnabled()) {
+			return -1;
+		}
+		return threadMXBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	private static com.sun.management.ThreadMXBean getThreadMXBean() {
+		final java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean
+				&& ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+			return (com.sun.management.ThreadMXBean) bean;
+		}
+		return null;
+	}
+
+	static final class PhaseTimer {
+		private final Phase								phase;
+		private final LIBORMarketModelMetricsListener	listener;
+		private final PhaseEvent						event;				// null if the event is not recorded
+		private final long								startNanos;
+		private final long								startAllocatedBytes;
+
+		private PhaseTimer(Phase phase, LIBORMarketModelMetricsListener listener, PhaseEvent event, long startNanos,
+				long startAllocatedBytes) {
+			this.phase = phase;
+			this.listener = listener;
+			this.event = event;
+			this.startNanos = startNanos;
+			this.startAllocatedBytes = startAllocatedBytes;
+		}
+	}
+
+	static final class ValuationTimer {
+		private final LIBORMarketModelMetricsListener	listener;
+		private final ValuationEvent					event;				// null if the event is not recorded
+		private final long								startNanos;
+
+		private ValuationTimer(LIBORMarketModelMetricsListener listener, ValuationEvent event, long startNanos) {
+			this.listener = listener;
+			this.event = event;
+			this.startNanos = startNanos;
+		}
+	}
+
+	@Name("liborInArrearsLiborMarketModel.Phase")
+	@Label("LIBOR Market Model Phase")
+	@Category({ "LIBOR Market Model" })
+	@Description("A numbered step of createLIBORMarketModel")
+	static final class PhaseEvent extends Event {
+		@Label("Phase")
+		String phase;
+
+		@Label("Step")
+		int step;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocatedBytes;
+	}
+
+	@Name("liborInArrearsLiborMarketModel.Valuation")
+	@Label("LIBOR In Arrears Valuation")
+	@Category({ "LIBOR Market Model" })
+	@Description("The valuation of the LIBOR in arrears of one period")
+	static final class ValuationEvent extends Event {
+		@Label("Period Start")
+		double periodStart;
+
+		@Label("Period End")
+		double periodEnd;
+
+		@Label("Number Of Paths")
+		int numberOfPaths;
+
+		@Label("Paths Per Second")
+		double pathsPerSecond;
+	}
+
+}
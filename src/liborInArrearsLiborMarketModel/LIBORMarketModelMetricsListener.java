@@ -0,0 +1,44 @@
+package liborInArrearsLiborMarketModel;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.Phase;
+
+/**
+ * This interface is implemented by the objects receiving the timings of the construction of a LIBOR market model and
+ * of the valuation of the LIBOR in arrears, see LIBORMarketModelMetrics.setListener. The methods are called on the
+ * thread which has done the work, possibly by several threads at the same time: implementations must be thread-safe.
+ * See LIBORMarketModelMetricsRecorder for an implementation accumulating the timings.
+ *
+ */
+public interface LIBORMarketModelMetricsListener {
+
+	/**
+	 * It is called at the end of a phase of createLIBORMarketModel.
+	 *
+	 * @param phase, the phase, i.e., the numbered step of createLIBORMarketModel
+	 * @param elapsedNanos, the wall-clock time of the phase in nanoseconds
+	 * @param allocatedBytes, the bytes allocated by the calling thread during the phase, or -1 if the JVM does not
+	 * measure the allocations of the threads
+	 */
+	void phaseCompleted(Phase phase, long elapsedNanos, long allocatedBytes);
+
+	/**
+	 * It is called at the end of the valuation of the LIBOR in arrears of the period (T_i,T_{i+1}).
+	 *
+	 * @param periodStart, the fixing (=payment) date T_i of the period
+	 * @param periodEnd, the end date T_{i+1} of the period
+	 * @param numberOfPaths, the number of paths valued
+	 * @param elapsedNanos, the wall-clock time of the valuation in nanoseconds
+	 */
+	void valuationCompleted(double periodStart, double periodEnd, int numberOfPaths, long elapsedNanos);
+
+	/**
+	 * It tells if createLIBORMarketModel has to generate the Brownian increments and evolve the paths before returning,
+	 * so that the phases BROWNIAN_INCREMENTS and EVOLUTION are measured. Otherwise the simulation stays lazy, as without
+	 * metrics, and these two phases are not reported.
+	 *
+	 * @return true for the eager simulation, false (default) to keep the simulation lazy
+	 */
+	default boolean isSimulationEager() {
+		return false;
+	}
+}
@@ -0,0 +1,159 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+import java.util.concurrent.atomic.LongAdder;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.Phase;
+
+/**
+ * This class is a thread-safe LIBORMarketModelMetricsListener which accumulates, for every phase of
+ * createLIBORMarketModel, the number of times it has been run, its total time and its total allocated bytes, and, for
+ * the valuations of the LIBOR in arrears, their number, their total time and the total number of paths valued.
+ *
+ * With isSimulationEager true, createLIBORMarketModel also generates the Brownian increments and evolves the paths
+ * before returning, so that these two phases are recorded; by default the simulation stays lazy.
+ *
+ * Usage:
+ * LIBORMarketModelMetricsRecorder recorder = new LIBORMarketModelMetricsRecorder(true);
+ * LIBORMarketModelMetrics.setListener(recorder);
+ * ... create models and value products ...
+ * LIBORMarketModelMetrics.setListener(null);
+ * System.out.println(recorder);
+ *
+ */
+public class LIBORMarketModelMetricsRecorder implements LIBORMarketModelMetricsListener {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterMemory = new DecimalFormat("0.0");
+	private final static DecimalFormat formatterRate = new DecimalFormat("0");
+
+	private final LongAdder[] numberOfRunsOfPhases = createCounters(Phase.values().length);
+	private final LongAdder[] nanosOfPhases = createCounters(Phase.values().length);
+	private final LongAdder[] allocatedBytesOfPhases = createCounters(Phase.values().length);
+
+	private final LongAdder numberOfValuations = new LongAdder();
+	private final LongAdder nanosOfValuations = new LongAdder();
+	private final LongAdder numberOfPathsOfValuations = new LongAdder();
+
+	private final boolean isSimulationEager;
+
+	/**
+	 * It creates a recorder which keeps the simulation lazy.
+	 */
+	public LIBORMarketModelMetricsRecorder() {
+		this(false);
+	}
+
+	/**
+	 * @param isSimulationEager, true if createLIBORMarketModel has to generate the Brownian increments and evolve the
+	 * paths before returning, so that these phases are recorded
+	 */
+	public LIBORMarketModelMetricsRecorder(boolean isSimulationEager) {
+		this.isSimulationEager = isSimulationEager;
+	}
+
+	@Override
+	public void phaseCompleted(Phase phase, long elapsedNanos, long allocatedBytes) {
+		numberOfRunsOfPhases[phase.ordinal()].increment();
+		nanosOfPhases[phase.ordinal()].add(elapsedNanos);
+		if(allocatedBytes > 0) {
+			allocatedBytesOfPhases[phase.ordinal()].add(allocatedBytes);
+		}
+	}
+
+	@Override
+	public void valuationCompleted(double periodStart, double periodEnd, int numberOfPaths, long elapsedNanos) {
+		numberOfValuations.increment();
+		nanosOfValuations.add(elapsedNanos);
+		numberOfPathsOfValuations.add(numberOfPaths);
+	}
+
+	@Override
+	public boolean isSimulationEager() {
+		return isSimulationEager;
+	}
+
+	public long getNumberOfRuns(Phase phase) {
+		return numberOfRunsOfPhases[phase.ordinal()].sum();
+	}
+
+	/**
+	 * @param phase, the phase
+	 * @return the total time of the phase over all its runs, in seconds
+	 */
+	public double getTime(Phase phase) {
+		return nanosOfPhases[phase.ordinal()].sum() / 1E9;
+	}
+
+	/**
+	 * @param phase, the phase
+	 * @return the total bytes allocated by the phase over all its runs (on the threads running it)
+	 */
+	public long getAllocatedBytes(Phase phase) {
+		return allocatedBytesOfPhases[phase.ordinal()].sum();
+	}
+
+	public long getNumberOfValuations() {
+		return numberOfValuations.sum();
+	}
+
+	/**
+	 * @return the average time of the valuation of a period, in seconds
+	 */
+	public double getAverageValuationTime() {
+		final long valuations = numberOfValuations.sum();
+		return valuations > 0 ? nanosOfValuations.sum() / 1E9 / valuations : Double.NaN;
+	}
+
+	/**
+	 * @return the number of paths valued per second, over all the valuations
+	 */
+	public double getPathsPerSecond() {
+		final long nanos = nanosOfValuations.sum();
+		return nanos > 0 ? numberOfPathsOfValuations.sum() * 1E9 / nanos : Double.NaN;
+	}
+
+	/**
+	 * It resets all the counters.
+	 */
+	public void reset() {
+		for(int phaseIndex = 0; phaseIndex < numberOfRunsOfPhases.length; phaseIndex++) {
+			numberOfRunsOfPhases[phaseIndex].reset();
+			nanosOfPhases[phaseIndex].reset();
+			allocatedBytesOfPhases[phaseIndex].reset();
+		}
+		numberOfValuations.reset();
+		nanosOfValuations.reset();
+		numberOfPathsOfValuations.reset();
+	}
+
+	/**
+	 * It returns a table with one line for every phase which has been run (step, runs, seconds, allocated MB) and a
+	 * line for the valuations.
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder table = new StringBuilder("Step:  Phase:                      Runs:     Time-s:     Allocated-MB:\n");
+		for(final Phase phase : Phase.values()) {
+			if(getNumberOfRuns(phase) == 0) {
+				continue;
+			}
+			table.append(String.format("%-7d%-28s%-10d%-12s%s%n", phase.getStep(), phase, getNumberOfRuns(phase),
+					formatterTime.format(getTime(phase)), formatterMemory.format(getAllocatedBytes(phase) / 1E6)));
+		}
+		table.append("Valuations: " + getNumberOfValuations());
+		if(getNumberOfValuations() > 0) {
+			table.append(", average time-ms: " + formatterTime.format(getAverageValuationTime() * 1E3)
+			+ ", paths per second: " + formatterRate.format(getPathsPerSecond()));
+		}
+		return table.append("\n").toString();
+	}
+
+	private static LongAdder[] createCounters(int numberOfCounters) {
+		final LongAdder[] counters = new LongAdder[numberOfCounters];
+		for(int counterIndex = 0; counterIndex < numberOfCounters; counterIndex++) {
+			counters[counterIndex] = new LongAdder();
+		}
+		return counters;
+	}
+}
@@ -0,0 +1,255 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.SimulationScheme;
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.Phase;
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.PhaseTimer;
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModelParametric;
+import net.finmath.montecarlo.interestrate.models.covariance.BlendedLocalVolatilityModel;
+import net.finmath.montecarlo.model.ProcessModel;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class represents a simulation of a LIBOR Market Model whose forward and discount curves can be replaced, e.g.
+ * at every intraday tick of the market, while the volatility and the correlation do not move. It is created by
+ * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModelWithCurveUpdate.
+ *
+ * At an update, only what depends on the initial values is created again:
+ * - the forward curve and the discount curve (step 3 of createLIBORMarketModel);
+ * - for normal dynamics, the blending of the covariance model with the forward curve (step 7), which only wraps the
+ * same volatility, correlation and covariance models (steps 4 to 6);
+ * - the LIBOR model (step 8) and the simulation (step 10), driven by the same Brownian motion (step 9).
+ * The time discretizations, the volatility and correlation models and the Brownian increments, which are generated
+ * once at the creation, are kept. The paths are evolved again, since the drift and, for normal dynamics, the
+ * diffusion of the LIBORs depend on their initial values; after the update the simulation is the one that
+ * createLIBORMarketModel would create with the new forwards and the same seed.
+ *
+ * The LIBOR in arrears registered by registerTrade are valued together, see LiborInArrearsPortfolio, at every update.
+ * The methods are synchronized, so that a tick and a valuation never see two different curves.
+ *
+ */
+public class LIBORMarketModelWithCurveUpdate {
+
+	private final TimeDiscretization			LIBORPeriodDiscretization;
+	private final double[]						fixingForGivenForwards;
+	private final double						LIBORPeriodLength;
+	private final AbstractLIBORCovarianceModel	covarianceModel;			// the covariance model if it is not blended
+	private final AbstractLIBORCovarianceModelParametric baseCovarianceModel;	// the covariance model of steps 4 to 6 if it is blended
+	private final double						parameterForBlended;
+	private final Measure						measureType;
+	private final RandomVariableFactory			randomVariableFactory;
+	private final SimulationScheme				simulationScheme;
+	private final BrownianMotion				brownianMotion;
+
+	private final List<LiborInArrears>	trades = new ArrayList<>();
+	private final List<Double>			notionals = new ArrayList<>();
+	private LiborInArrearsPortfolio		portfolio;							// null if a trade has been registered since the last valuation
+
+	private ForwardCurve						forwardCurve;
+	private DiscountCurve						discountCurve;
+	private LIBORModelMonteCarloSimulationModel	simulation;
+	private LiborInArrearsPortfolioValuation	valuation;					// null if not valued on the current simulation
+	private long								numberOfUpdates;
+
+	/**
+	 * @param LIBORPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param fixingForGivenForwards, the times of the tenure structure where the forwards of updateForwards are given
+	 * @param LIBORPeriodLength, the length of the interval between times of the tenure structure
+	 * @param covarianceModel, the covariance model, see createCovarianceModel: if it is a BlendedLocalVolatilityModel,
+	 * its blending is created again for every forward curve
+	 * @param dynamics, normal or log-normal, which gives the parameter of the blending
+	 * @param measureType, spot or terminal
+	 * @param randomVariableFactory, the factory of the random variables of the model
+	 * @param simulationScheme, the discretization scheme
+	 * @param brownianMotion, the Brownian motion driving all the simulations
+	 * @param forwardCurve, the initial forward curve
+	 * @throws CalculationException
+	 */
+	LIBORMarketModelWithCurveUpdate(TimeDiscretization LIBORPeriodDiscretization, double[] fixingForGivenForwards,
+			double LIBORPeriodLength, AbstractLIBORCovarianceModel covarianceModel, Dynamics dynamics, Measure measureType,
+			RandomVariableFactory randomVariableFactory, SimulationScheme simulationScheme, BrownianMotion brownianMotion,
+			ForwardCurve forwardCurve) throws CalculationException {
+		this.LIBORPeriodDiscretization = LIBORPeriodDiscretization;
+		this.fixingForGivenForwards = fixingForGivenForwards.clone();
+		this.LIBORPeriodLength = LIBORPeriodLength;
+		if(covarianceModel instanceof BlendedLocalVolatilityModel) {
+			// The blending is the only part of the covariance model which depends on the forward curve
+			this.covarianceModel = null;
+			this.baseCovarianceModel = ((BlendedLocalVolatilityModel) covarianceModel).getBaseCovarianceModel();
+		}
+		else {
+			this.covarianceModel = covarianceModel;
+			this.baseCovarianceModel = null;
+		}
+		this.parameterForBlended = dynamics == Dynamics.LOGNORMAL ? 0.0 : 1.0;
+		this.measureType = measureType;
+		this.randomVariableFactory = randomVariableFactory;
+		this.simulationScheme = simulationScheme;
+		this.brownianMotion = brownianMotion;
+
+		// The Brownian increments are generated now, once for all the updates
+		final PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.BROWNIAN_INCREMENTS);
+		brownianMotion.getBrownianIncrement(0, 0);
+		LIBORMarketModelMetrics.stop(timer);
+
+		simulate(forwardCurve, new DiscountCurveFromForwardCurve(forwardCurve));
+	}
+
+	/**
+	 * It registers a LIBOR in arrears with unit notional, to be valued at every update.
+	 *
+	 * @param trade, the LIBOR in arrears
+	 * @return the index of the trade in the valuations
+	 */
+	public int registerTrade(LiborInArrears trade) {
+		return registerTrade(trade, 1.0);
+	}
+
+	/**
+	 * It registers a LIBOR in arrears with the given notional, to be valued at every update.
+	 *
+	 * @param trade, the LIBOR in arrears
+	 * @param notional, the notional of the trade
+	 * @return the index of the trade in the valuations
+	 */
+	public synchronized int registerTrade(LiborInArrears trade, double notional) {
+		trades.add(trade);
+		notionals.add(notional);
+		portfolio = null;
+		valuation = null;
+		return trades.size() - 1;
+	}
+
+	/**
+	 * It replaces the forwards, keeping the fixings given at the creation, and values the registered trades on the new
+	 * simulation. The discount curve is the one implied by the new forward curve, as in createLIBORMarketModel.
+	 *
+	 * @param givenForwards, the new initial forwards at the fixings given at the creation
+	 * @return the valuation of the registered trades on the new simulation
+	 * @throws CalculationException
+	 */
+	public synchronized LiborInArrearsPortfolioValuation updateForwards(double[] givenForwards) throws CalculationException {
+		if(givenForwards.length != fixingForGivenForwards.length) {
+			throw new IllegalArgumentException("The forwards must be given at the " + fixingForGivenForwards.length
+					+ " fixings given at the creation.");
+		}
+		final PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.FORWARD_CURVE);
+		final ForwardCurve newForwardCurve = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(
+				fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		LIBORMarketModelMetrics.stop(timer);
+		return updateCurves(newForwardCurve, new DiscountCurveFromForwardCurve(newForwardCurve));
+	}
+
+	/**
+	 * It replaces the forward and the discount curve and values the registered trades on the new simulation.
+	 *
+	 * @param newForwardCurve, the new initial forwards
+	 * @param newDiscountCurve, the new discount curve
+	 * @return the valuation of the registered trades on the new simulation
+	 * @throws CalculationException
+	 */
+	public synchronized LiborInArrearsPortfolioValuation updateCurves(ForwardCurve newForwardCurve,
+			DiscountCurve newDiscountCurve) throws CalculationException {
+		if(newForwardCurve == null || newDiscountCurve == null) {
+			throw new IllegalArgumentException("The forward and the discount curve must be given.");
+		}
+		simulate(newForwardCurve, newDiscountCurve);
+		numberOfUpdates++;
+		return getValuation();
+	}
+
+	/**
+	 * @return the valuation of the registered trades on the current simulation, computed once for every update
+	 * @throws CalculationException
+	 */
+	public synchronized LiborInArrearsPortfolioValuation getValuation() throws CalculationException {
+		if(portfolio == null) {
+			final double[] notionalsOfTrades = new double[trades.size()];
+			final double[] fixings = new double[trades.size()];
+			final double[] periodEnds = new double[trades.size()];
+			for(int tradeIndex = 0; tradeIndex < trades.size(); tradeIndex++) {
+				notionalsOfTrades[tradeIndex] = notionals.get(tradeIndex);
+				fixings[tradeIndex] = trades.get(tradeIndex).getPeriodStart();
+				periodEnds[tradeIndex] = trades.get(tradeIndex).getPeriodEnd();
+			}
+			portfolio = new LiborInArrearsPortfolio(notionalsOfTrades, fixings, periodEnds);
+		}
+		if(valuation == null) {
+			valuation = portfolio.getValuation(0.0, simulation);
+		}
+		return valuation;
+	}
+
+	/*
+	 * Steps 7, 8 and 10 of createLIBORMarketModel for the given curves, on the covariance model and the Brownian motion
+	 * of the creation. The paths are evolved here, so that the latency of an update does not move to the first valuation.
+	 */
+	private void simulate(ForwardCurve newForwardCurve, DiscountCurve newDiscountCurve) throws CalculationException {
+		PhaseTimer timer = LIBORMarketModelMetrics.start(Phase.BLENDED_COVARIANCE_MODEL);
+		final AbstractLIBORCovarianceModel covarianceModelForCurve = baseCovarianceModel == null ? covarianceModel
+				: new BlendedLocalVolatilityModel(baseCovarianceModel, newForwardCurve, parameterForBlended, false);
+		LIBORMarketModelMetrics.stop(timer);
+
+		timer = LIBORMarketModelMetrics.start(Phase.LIBOR_MODEL);
+		final ProcessModel LIBORMarketModel = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORModel(
+				LIBORPeriodDiscretization, newForwardCurve, newDiscountCurve, covarianceModelForCurve, measureType,
+				randomVariableFactory, simulationScheme);
+		LIBORMarketModelMetrics.stop(timer);
+
+		timer = LIBORMarketModelMetrics.start(Phase.SIMULATION);
+		final LIBORModelMonteCarloSimulationModel newSimulation = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createSimulation(
+				LIBORMarketModel, brownianMotion, simulationScheme);
+		LIBORMarketModelMetrics.stop(timer);
+
+		timer = LIBORMarketModelMetrics.start(Phase.EVOLUTION);
+		newSimulation.getLIBOR(0, 0);
+		LIBORMarketModelMetrics.stop(timer);
+
+		forwardCurve = newForwardCurve;
+		discountCurve = newDiscountCurve;
+		simulation = newSimulation;
+		valuation = null;
+	}
+
+	/**
+	 * @return the simulation with the current curves
+	 */
+	public synchronized LIBORModelMonteCarloSimulationModel getSimulation() {
+		return simulation;
+	}
+
+	public synchronized ForwardCurve getForwardCurve() {
+		return forwardCurve;
+	}
+
+	public synchronized DiscountCurve getDiscountCurve() {
+		return discountCurve;
+	}
+
+	/**
+	 * @return the Brownian motion shared by the simulations of all the curves
+	 */
+	public BrownianMotion getBrownianMotion() {
+		return brownianMotion;
+	}
+
+	public synchronized int getNumberOfRegisteredTrades() {
+		return trades.size();
+	}
+
+	public synchronized long getNumberOfUpdates() {
+		return numberOfUpdates;
+	}
+}
@@ -0,0 +1,66 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.Map;
+
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.interestrate.CalibrationProduct;
+import net.finmath.montecarlo.interestrate.models.LIBORMarketModelFromCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORCovarianceModel;
+import net.finmath.montecarlo.process.MonteCarloProcess;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class is a LIBORMarketModelFromCovarianceModel whose initial state is created only once. The Finmath library
+ * creates the initial values of the LIBORs with the RandomVariableFactory every time getInitialState is called: with
+ * a differentiable factory, e.g. RandomVariableDifferentiableAADFactory, every call gives new independent variables,
+ * and the ones the Euler scheme starts from cannot be found afterwards. Here getInitialState always returns the same
+ * random variables, so their IDs identify the derivatives with respect to the initial forwards in the gradient of a
+ * value computed on the simulation.
+ *
+ * The initial state only depends on the forward curve and on the factory, so with a non differentiable factory the
+ * model is the same as LIBORMarketModelFromCovarianceModel. The same holds for a version of the library which keeps
+ * the initial state itself: the behaviour above is the one of finmath-lib 5.1.2-SNAPSHOT, the version of the pom.
+ *
+ */
+public class LIBORMarketModelWithDifferentiableInitialState extends LIBORMarketModelFromCovarianceModel {
+
+	private static final long serialVersionUID = 1L;
+
+	private transient RandomVariable[] initialState;
+
+	/**
+	 * The arguments are the ones of the constructor of LIBORMarketModelFromCovarianceModel, without analytic model.
+	 *
+	 * @param liborPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param forwardRateCurve, the initial forwards
+	 * @param discountCurve, the discount curve used for the numeraire adjustment
+	 * @param randomVariableFactory, the factory creating the initial state and the constants of the model
+	 * @param covarianceModel, the covariance model
+	 * @param calibrationItems, the calibration products (may be empty)
+	 * @param properties, the properties of the model (measure, state space, ...)
+	 * @throws CalculationException
+	 */
+	public LIBORMarketModelWithDifferentiableInitialState(TimeDiscretization liborPeriodDiscretization,
+			ForwardCurve forwardRateCurve, DiscountCurve discountCurve, RandomVariableFactory randomVariableFactory,
+			LIBORCovarianceModel covarianceModel, CalibrationProduct[] calibrationItems, Map<String, ?> properties)
+					throws CalculationException {
+		super(liborPeriodDiscretization, null /* analyticModel */, forwardRateCurve, discountCurve, randomVariableFactory,
+				covarianceModel, calibrationItems, properties);
+	}
+
+	/**
+	 * It returns the initial state of the model, created at the first call. The process is not used, so the initial
+	 * state can also be requested with process null, e.g., to get the IDs of the initial forwards.
+	 */
+	@Override
+	public synchronized RandomVariable[] getInitialState(MonteCarloProcess process) {
+		if(initialState == null) {
+			initialState = super.getInitialState(process);
+		}
+		return initialState.clone();
+	}
+}
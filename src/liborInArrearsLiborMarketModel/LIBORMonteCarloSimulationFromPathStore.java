@@ -0,0 +1,492 @@
+package liborInArrearsLiborMarketModel;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.RandomNumberSource;
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveInterpolation;
+import net.finmath.montecarlo.MonteCarloSimulationModel;
+import net.finmath.montecarlo.RandomVariableFromDoubleArray;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.TermStructureModel;
+import net.finmath.montecarlo.process.MonteCarloProcess;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+import net.finmath.time.TimeDiscretizationFromArray;
+
+/**
+ * This class implements a read-only simulation of a LIBOR market model whose paths are read from a file, the path
+ * store, written by writePaths from a model created by
+ * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel. The same simulated scenario
+ * set can then be valued by several products and processes: open maps the file into memory, so a process valuing
+ * e.g. a LiborInArrears or a LiborInArrearsStrip on the store has no simulation cost, and its heap only holds the random
+ * variables requested by the products, one column at a time.
+ *
+ * The store keeps the paths at the dates of the tenure structure T_0 < T_1 < ... < T_n, which are the times of its time
+ * discretization: at T_j the numeraire N(T_j) and the LIBORs L_i(T_j) which are not fixed yet, i.e., i >= j. A fixed
+ * LIBOR keeps the value at its fixing, L_i(T_j) = L_i(T_i) for i < j, as in the simulation. The values are the ones
+ * of the simulation (the numeraire is the one of getNumeraire, i.e., with the adjustment to the discount curve), so a
+ * product valued on the store gives exactly the value it has on the simulation. The store also keeps the discount
+ * factors P(T_j) of the discount curve of the model, see getDiscountCurve, which can be given to the valuations with
+ * control variate of LiborInArrears and LiborInArrearsStrip on the store.
+ *
+ * The file consists of a header and of one block for every date of the tenure structure, all in little endian byte
+ * order. The header holds the parameters given to createLIBORMarketModel (with the seed), the simulation time
+ * discretization and the tenure structure:
+ * long magic number, int version, numberOfPaths, numberOfLibors, numberOfFactors, seed, dynamics, measure,
+ * randomNumberSource (the last three as ordinals of the enums), numberOfGivenForwards, numberOfSimulationTimes,
+ * double LIBORPeriodLength, LIBORRateTimeHorizon, correlationDecayParam, a, b, c, d,
+ * double[] fixingForGivenForwards, givenForwards, simulation times, tenure structure times, discount factors P(T_j).
+ * The block of T_j is columnar: the column of the numeraire followed by the columns of the LIBORs j, ..., n-1, every
+ * column being the numberOfPaths doubles of one random variable.
+ *
+ * Every block is mapped by one single mapping, which Java limits to Integer.MAX_VALUE bytes: the block of T_0, the
+ * largest, has (n + 1) numberOfPaths doubles, so e.g. 32 LIBORs allow at most 8 million paths. writePaths rejects
+ * larger stores before simulating.
+ *
+ */
+public class LIBORMonteCarloSimulationFromPathStore implements LIBORModelMonteCarloSimulationModel {
+
+	private static final long	MAGIC_NUMBER	= 0x4C49415041544853L; // "LIAPATHS"
+	private static final int	VERSION			= 2;
+
+	// Length of the fixed part of the header: long, 10 int, 7 double
+	private static final int	FIXED_HEADER_LENGTH = Long.BYTES + 10 * Integer.BYTES + 7 * Double.BYTES;
+
+	private final int					numberOfPaths;
+	private final int					numberOfFactors;
+	private final int					seed;
+	private final Dynamics				dynamics;
+	private final Measure				measure;
+	private final RandomNumberSource	randomNumberSource;
+	private final double				correlationDecayParam;
+	private final double[]				volatilityParameters;
+	private final double[]				fixingForGivenForwards;
+	private final double[]				givenForwards;
+	private final TimeDiscretization	simulationTimeDiscretization;
+	private final TimeDiscretization	LIBORPeriodDiscretization;
+	private final double[]				discountFactors;	// P(T_j) of the discount curve of the model
+
+	// blocks[j] is the block of the tenor date T_j, mapped read-only
+	private final ByteBuffer[]			blocks;
+
+	private LIBORMonteCarloSimulationFromPathStore(int numberOfPaths, int numberOfFactors, int seed, Dynamics dynamics,
+			Measure measure, RandomNumberSource randomNumberSource, double correlationDecayParam,
+			double[] volatilityParameters, double[] fixingForGivenForwards, double[] givenForwards,
+			TimeDiscretization simulationTimeDiscretization, TimeDiscretization LIBORPeriodDiscretization,
+			double[] discountFactors, ByteBuffer[] blocks) {
+		this.numberOfPaths = numberOfPaths;
+		this.numberOfFactors = numberOfFactors;
+		this.seed = seed;
+		this.dynamics = dynamics;
+		this.measure = measure;
+		this.randomNumberSource = randomNumberSource;
+		this.correlationDecayParam = correlationDecayParam;
+		this.volatilityParameters = volatilityParameters;
+		this.fixingForGivenForwards = fixingForGivenForwards;
+		this.givenForwards = givenForwards;
+		this.simulationTimeDiscretization = simulationTimeDiscretization;
+		this.LIBORPeriodDiscretization = LIBORPeriodDiscretization;
+		this.discountFactors = discountFactors;
+		this.blocks = blocks;
+	}
+
+	/**
+	 * It creates a LIBOR market model with createLIBORMarketModel and writes its paths at the dates of the tenure
+	 * structure to the given file, together with the parameters of the model. The other parameters have the same
+	 * meaning as in createLIBORMarketModel.
+	 *
+	 * @param file, the file of the path store: it is overwritten if it exists
+	 * @param randomNumberSource, the source of the random numbers, see createBrownianMotion
+	 * @param numberOfFactors, the number of factors, between 1 and the number of LIBORs
+	 * @return the simulation whose paths have been written, which can be valued as well
+	 * @throws CalculationException
+	 * @throws IOException
+	 * @throws IllegalArgumentException if a block of the store would exceed Integer.MAX_VALUE bytes
+	 */
+	public static LIBORModelMonteCarloSimulationModel writePaths(Path file,
+			int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			RandomNumberSource randomNumberSource,
+			int numberOfFactors
+			) throws CalculationException, IOException {
+
+		// The block of T_0 is the largest one: check it before simulating
+		final int numberOfTenorDates = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+				LIBORRateTimeHorizon, LIBORPeriodLength).getNumberOfTimes();
+		if((long) numberOfTenorDates * numberOfPaths * Double.BYTES > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("A path store with " + numberOfPaths + " paths and " + (numberOfTenorDates - 1)
+					+ " LIBORs would have blocks larger than " + Integer.MAX_VALUE + " bytes, which cannot be mapped.");
+		}
+
+		final LIBORModelMonteCarloSimulationModel model =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(numberOfPaths,
+						simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon, fixingForGivenForwards, givenForwards,
+						correlationDecayParam, dynamics, measureType, a, b, c, d, seed, randomNumberSource, numberOfFactors);
+
+		final TimeDiscretization simulationTimeDiscretization = model.getTimeDiscretization();
+		final TimeDiscretization LIBORPeriodDiscretization = model.getLiborPeriodDiscretization();
+		final int numberOfLibors = model.getNumberOfLibors();
+
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			final ByteBuffer header = ByteBuffer.allocate(getHeaderLength(fixingForGivenForwards.length,
+					simulationTimeDiscretization.getNumberOfTimes(), numberOfLibors)).order(ByteOrder.LITTLE_ENDIAN);
+			header.putLong(MAGIC_NUMBER).putInt(VERSION)
+			.putInt(numberOfPaths).putInt(numberOfLibors).putInt(numberOfFactors).putInt(seed)
+			.putInt(dynamics.ordinal()).putInt(measureType.ordinal()).putInt(randomNumberSource.ordinal())
+			.putInt(fixingForGivenForwards.length).putInt(simulationTimeDiscretization.getNumberOfTimes())
+			.putDouble(LIBORPeriodLength).putDouble(LIBORRateTimeHorizon).putDouble(correlationDecayParam)
+			.putDouble(a).putDouble(b).putDouble(c).putDouble(d);
+			putDoubles(header, fixingForGivenForwards);
+			putDoubles(header, givenForwards);
+			putDoubles(header, simulationTimeDiscretization.getAsDoubleArray());
+			putDoubles(header, LIBORPeriodDiscretization.getAsDoubleArray());
+			final DiscountCurve discountCurve = model.getModel().getDiscountCurve();
+			for(int tenorIndex = 0; tenorIndex <= numberOfLibors; tenorIndex++) {
+				header.putDouble(discountCurve.getDiscountFactor(LIBORPeriodDiscretization.getTime(tenorIndex)));
+			}
+			writeFully(channel, (ByteBuffer) header.flip());
+
+			// One column at a time, through one direct buffer
+			final ByteBuffer column = ByteBuffer.allocateDirect(numberOfPaths * Double.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+			for(int tenorIndex = 0; tenorIndex <= numberOfLibors; tenorIndex++) {
+				final double tenorDate = LIBORPeriodDiscretization.getTime(tenorIndex);
+				final int timeIndex = model.getTimeIndex(tenorDate);
+				writeColumn(channel, column, model.getNumeraire(tenorDate));
+				for(int liborIndex = tenorIndex; liborIndex < numberOfLibors; liborIndex++) {
+					writeColumn(channel, column, model.getLIBOR(timeIndex, liborIndex));
+				}
+			}
+		}
+		return model;
+	}
+
+	/**
+	 * It opens the path store in the given file as a read-only simulation: the blocks of the paths are mapped into
+	 * memory, not read, and the file is closed (the mappings stay valid).
+	 *
+	 * @param file, the file of the path store, written by writePaths
+	 * @return the read-only simulation
+	 * @throws IOException
+	 */
+	public static LIBORMonteCarloSimulationFromPathStore open(Path file) throws IOException {
+		try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			final ByteBuffer fixedHeader = channel.map(FileChannel.MapMode.READ_ONLY, 0, FIXED_HEADER_LENGTH)
+					.order(ByteOrder.LITTLE_ENDIAN);
+			if(fixedHeader.getLong() != MAGIC_NUMBER || fixedHeader.getInt() != VERSION) {
+				throw new IOException("The file " + file + " is not a path store of version " + VERSION + ".");
+			}
+			final int numberOfPaths = fixedHeader.getInt();
+			final int numberOfLibors = fixedHeader.getInt();
+			final int numberOfFactors = fixedHeader.getInt();
+			final int seed = fixedHeader.getInt();
+			final Dynamics dynamics = getEnumConstant(Dynamics.values(), fixedHeader.getInt(), file);
+			final Measure measure = getEnumConstant(Measure.values(), fixedHeader.getInt(), file);
+			final RandomNumberSource randomNumberSource = getEnumConstant(RandomNumberSource.values(), fixedHeader.getInt(), file);
+			final int numberOfGivenForwards = fixedHeader.getInt();
+			final int numberOfSimulationTimes = fixedHeader.getInt();
+			if(numberOfPaths < 1 || numberOfLibors < 1 || numberOfGivenForwards < 0 || numberOfSimulationTimes < 1
+					|| (long) (numberOfLibors + 1) * numberOfPaths * Double.BYTES > Integer.MAX_VALUE) {
+				throw new IOException("The header of the path store " + file + " is corrupted.");
+			}
+			fixedHeader.getDouble(); // LIBORPeriodLength and LIBORRateTimeHorizon are given by the tenure structure
+			fixedHeader.getDouble();
+			final double correlationDecayParam = fixedHeader.getDouble();
+			final double[] volatilityParameters = getDoubles(fixedHeader, 4);
+
+			final int headerLength = getHeaderLength(numberOfGivenForwards, numberOfSimulationTimes, numberOfLibors);
+			final ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, FIXED_HEADER_LENGTH,
+					headerLength - FIXED_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+			final double[] fixingForGivenForwards = getDoubles(header, numberOfGivenForwards);
+			final double[] givenForwards = getDoubles(header, numberOfGivenForwards);
+			final TimeDiscretization simulationTimeDiscretization =
+					new TimeDiscretizationFromArray(getDoubles(header, numberOfSimulationTimes));
+			final TimeDiscretization LIBORPeriodDiscretization =
+					new TimeDiscretizationFromArray(getDoubles(header, numberOfLibors + 1));
+			final double[] discountFactors = getDoubles(header, numberOfLibors + 1);
+
+			final ByteBuffer[] blocks = new ByteBuffer[numberOfLibors + 1];
+			long position = headerLength;
+			for(int tenorIndex = 0; tenorIndex <= numberOfLibors; tenorIndex++) {
+				final long blockLength = (long) (numberOfLibors - tenorIndex + 1) * numberOfPaths * Double.BYTES;
+				blocks[tenorIndex] = channel.map(FileChannel.MapMode.READ_ONLY, position, blockLength)
+						.order(ByteOrder.LITTLE_ENDIAN);
+				position += blockLength;
+			}
+			if(position != channel.size()) {
+				throw new IOException("The size of the path store " + file + " does not match its header.");
+			}
+
+			return new LIBORMonteCarloSimulationFromPathStore(numberOfPaths, numberOfFactors, seed, dynamics, measure,
+					randomNumberSource, correlationDecayParam, volatilityParameters, fixingForGivenForwards, givenForwards,
+					simulationTimeDiscretization, LIBORPeriodDiscretization, discountFactors, blocks);
+		}
+	}
+
+	private static int getHeaderLength(int numberOfGivenForwards, int numberOfSimulationTimes, int numberOfLibors) {
+		return FIXED_HEADER_LENGTH + (2 * numberOfGivenForwards + numberOfSimulationTimes + 2 * (numberOfLibors + 1)) * Double.BYTES;
+	}
+
+	private static <E extends Enum<E>> E getEnumConstant(E[] values, int ordinal, Path file) throws IOException {
+		if(ordinal < 0 || ordinal >= values.length) {
+			throw new IOException("The header of the path store " + file + " is corrupted: " + ordinal
+					+ " is not a valid " + values[0].getDeclaringClass().getSimpleName() + ".");
+		}
+		return values[ordinal];
+	}
+
+	private static void putDoubles(ByteBuffer buffer, double[] values) {
+		for(final double value : values) {
+			buffer.putDouble(value);
+		}
+	}
+
+	private static double[] getDoubles(ByteBuffer buffer, int numberOfValues) {
+		final double[] values = new double[numberOfValues];
+		buffer.asDoubleBuffer().get(values);
+		buffer.position(buffer.position() + numberOfValues * Double.BYTES);
+		return values;
+	}
+
+	private static void writeColumn(FileChannel channel, ByteBuffer column, RandomVariable randomVariable) throws IOException {
+		column.clear();
+		for(int pathIndex = 0; pathIndex < column.capacity() / Double.BYTES; pathIndex++) {
+			column.putDouble(randomVariable.get(pathIndex));
+		}
+		writeFully(channel, (ByteBuffer) column.flip());
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+	}
+
+	/*
+	 * The random variable in the given column of the block of the given tenor date, copied from the mapping: the
+	 * column 0 is the numeraire, the column 1 + liborIndex - tenorIndex the LIBOR liborIndex.
+	 */
+	private RandomVariable getColumn(int tenorIndex, int columnIndex) {
+		final double[] realizations = new double[numberOfPaths];
+		final DoubleBuffer column = blocks[tenorIndex].duplicate().order(ByteOrder.LITTLE_ENDIAN)
+				.position(columnIndex * numberOfPaths * Double.BYTES).asDoubleBuffer();
+		column.get(realizations);
+		return new RandomVariableFromDoubleArray(LIBORPeriodDiscretization.getTime(tenorIndex), realizations);
+	}
+
+	private int getTenorIndex(int timeIndex) {
+		if(timeIndex < 0 || timeIndex > getNumberOfLibors()) {
+			throw new IllegalArgumentException("The path store only contains the dates of the tenure structure.");
+		}
+		return timeIndex;
+	}
+
+	@Override
+	public RandomVariable getLIBOR(int timeIndex, int liborIndex) throws CalculationException {
+		final int tenorIndex = getTenorIndex(timeIndex);
+		// A fixed LIBOR keeps the value at its fixing
+		return liborIndex < tenorIndex ? getColumn(liborIndex, 1) : getColumn(tenorIndex, 1 + liborIndex - tenorIndex);
+	}
+
+	@Override
+	public RandomVariable[] getLIBORs(int timeIndex) throws CalculationException {
+		final RandomVariable[] libors = new RandomVariable[getNumberOfLibors()];
+		for(int liborIndex = 0; liborIndex < libors.length; liborIndex++) {
+			libors[liborIndex] = getLIBOR(timeIndex, liborIndex);
+		}
+		return libors;
+	}
+
+	/**
+	 * It returns the forward rate for the period (periodStart, periodEnd) at the given time (at most periodStart), as
+	 * the LIBOR market model of the Finmath library: a LIBOR of the tenure structure, or the rate from the product of
+	 * the LIBORs of the period. The time and the ends of the period must be dates of the tenure structure.
+	 */
+	@Override
+	public RandomVariable getForwardRate(double time, double periodStart, double periodEnd) throws CalculationException {
+		final int timeIndex = getTimeIndex(Math.min(time, periodStart));
+		final int periodStartIndex = getLiborPeriodIndex(periodStart);
+		final int periodEndIndex = getLiborPeriodIndex(periodEnd);
+		if(timeIndex < 0 || periodStartIndex < 0 || periodEndIndex < 0) {
+			throw new IllegalArgumentException("The path store only contains the dates of the tenure structure.");
+		}
+
+		if(periodEndIndex == periodStartIndex + 1) {
+			return getLIBOR(timeIndex, periodStartIndex);
+		}
+		RandomVariable accrualAccount = getRandomVariableForConstant(1.0);
+		for(int liborIndex = periodStartIndex; liborIndex < periodEndIndex; liborIndex++) {
+			accrualAccount = accrualAccount.accrue(getLIBOR(timeIndex, liborIndex), getLiborPeriodDiscretization().getTimeStep(liborIndex));
+		}
+		return accrualAccount.sub(1.0).div(periodEnd - periodStart);
+	}
+
+	@Override
+	public RandomVariable getNumeraire(double time) throws CalculationException {
+		return getColumn(getTenorIndex(getTimeIndex(time)), 0);
+	}
+
+	@Override
+	public int getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	/**
+	 * @return the dates of the tenure structure, which are the times of the paths in the store
+	 */
+	@Override
+	public TimeDiscretization getTimeDiscretization() {
+		return LIBORPeriodDiscretization;
+	}
+
+	@Override
+	public double getTime(int timeIndex) {
+		return LIBORPeriodDiscretization.getTime(timeIndex);
+	}
+
+	@Override
+	public int getTimeIndex(double time) {
+		return LIBORPeriodDiscretization.getTimeIndex(time);
+	}
+
+	@Override
+	public RandomVariable getRandomVariableForConstant(double value) {
+		return new RandomVariableFromDoubleArray(value);
+	}
+
+	@Override
+	public RandomVariable getMonteCarloWeights(int timeIndex) {
+		return new RandomVariableFromDoubleArray(1.0 / numberOfPaths);
+	}
+
+	@Override
+	public RandomVariable getMonteCarloWeights(double time) {
+		return getMonteCarloWeights(getTimeIndex(time));
+	}
+
+	@Override
+	public TimeDiscretization getLiborPeriodDiscretization() {
+		return LIBORPeriodDiscretization;
+	}
+
+	@Override
+	public int getNumberOfLibors() {
+		return LIBORPeriodDiscretization.getNumberOfTimeSteps();
+	}
+
+	@Override
+	public double getLiborPeriod(int timeIndex) {
+		return LIBORPeriodDiscretization.getTime(timeIndex);
+	}
+
+	@Override
+	public int getLiborPeriodIndex(double time) {
+		return LIBORPeriodDiscretization.getTimeIndex(time);
+	}
+
+	@Override
+	public int getNumberOfFactors() {
+		return numberOfFactors;
+	}
+
+	/**
+	 * @return the time discretization of the simulation whose paths are in the store
+	 */
+	public TimeDiscretization getSimulationTimeDiscretization() {
+		return simulationTimeDiscretization;
+	}
+
+	public int getSeed() {
+		return seed;
+	}
+
+	public Dynamics getDynamics() {
+		return dynamics;
+	}
+
+	public Measure getMeasure() {
+		return measure;
+	}
+
+	public RandomNumberSource getRandomNumberSource() {
+		return randomNumberSource;
+	}
+
+	public double getCorrelationDecayParam() {
+		return correlationDecayParam;
+	}
+
+	/**
+	 * @return the parameters a, b, c, d of the volatility structure
+	 */
+	public double[] getVolatilityParameters() {
+		return volatilityParameters.clone();
+	}
+
+	public double[] getFixingForGivenForwards() {
+		return fixingForGivenForwards.clone();
+	}
+
+	public double[] getGivenForwards() {
+		return givenForwards.clone();
+	}
+
+	/**
+	 * @return the discount factors P(T_j) of the discount curve of the model, at the dates of the tenure structure
+	 */
+	public double[] getDiscountFactors() {
+		return discountFactors.clone();
+	}
+
+	/**
+	 * @return the discount curve of the model, interpolating the discount factors at the dates of the tenure structure
+	 */
+	public DiscountCurve getDiscountCurve() {
+		return DiscountCurveInterpolation.createDiscountCurveFromDiscountFactors("discountCurve",
+				LIBORPeriodDiscretization.getAsDoubleArray(), discountFactors);
+	}
+
+	/**
+	 * The store only contains paths: there is no model, process or Brownian motion to create new ones. The discount
+	 * curve of the model is given by getDiscountCurve.
+	 */
+	@Override
+	public TermStructureModel getModel() {
+		throw new UnsupportedOperationException("A path store is read-only: it has no model. Use getDiscountCurve for the discount curve.");
+	}
+
+	@Override
+	public MonteCarloProcess getProcess() {
+		throw new UnsupportedOperationException("A path store is read-only: it has no process.");
+	}
+
+	@Override
+	public Object getCloneWithModifiedSeed(int seed) {
+		throw new UnsupportedOperationException("A path store is read-only: it cannot be simulated with another seed.");
+	}
+
+	@Override
+	public MonteCarloSimulationModel getCloneWithModifiedData(Map<String, Object> dataModified) {
+		throw new UnsupportedOperationException("A path store is read-only: it cannot be simulated with other data.");
+	}
+}
@@ -0,0 +1,266 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.Map;
+
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORVolatilityModel;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.stochastic.Scalar;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class implements a Rebonato volatility structure for the LIBOR Market Model which is evaluated on demand from
+ * its four parameters, instead of being stored as a [simulationTimes x tenureStructureTimes] matrix. In particular,
+ * we have
+ * dL_i(t_j)=\sigma_i(t_j)L_i(t_j)dW_i(t_j)
+ * with
+ * \sigma_i(t_j)=(a+b(T_i-t_j))\exp(-c(T_i-t_j))+d,
+ * for t_j < T_i, and \sigma_i(t_j)=0 otherwise, for four parameters a,b,c,d with b,c>0. The volatility can be
+ * multiplied by a constant scaling factor, as it is done for normal dynamics.
+ *
+ * The volatility only depends on the time to maturity T_i-t_j. If the simulation time discretization is uniform
+ * with step \Delta t and every T_i lies on it, then T_i-t_j = (k_i-j)\Delta t with T_i=k_i\Delta t, so the volatilities
+ * are computed once for every lag k_i-j and stored in a cache whose size is the number of simulation times up to
+ * T_n: memory is O(N_t + N_T) instead of O(N_t N_T), and the exponential is evaluated once for every lag. For other
+ * time discretizations the volatility is computed when requested.
+ *
+ * On a coarse time discretization, e.g. one step from a tenor date to the next, the volatility at the start of the step
+ * is a poor approximation of the volatility over the step. The model can therefore give, for every step, the root mean
+ * square of the volatility over the step,
+ * \bar\sigma_i(t_j)=\sqrt{\frac{1}{t_{j+1}-t_j}\int_{t_j}^{t_{j+1}}\sigma_i(t)^2 dt},
+ * so that \bar\sigma_i(t_j)^2(t_{j+1}-t_j) is the exact variance of the step. The integral is computed by a four point
+ * Gauss-Legendre quadrature, which is accurate to about 1E-9 relative for steps of half a year.
+ *
+ * If a matrix is really needed, getVolatilityMatrix returns it as one flat, contiguous array.
+ *
+ */
+public class LIBORVolatilityModelRebonato extends LIBORVolatilityModel {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final Scalar ZERO = new Scalar(0.0);
+
+	// Nodes on [-1,1] and weights of the four point Gauss-Legendre quadrature
+	private static final double[] QUADRATURE_NODES = { -0.8611363115940526, -0.3399810435848563, 0.3399810435848563, 0.8611363115940526 };
+	private static final double[] QUADRATURE_WEIGHTS = { 0.3478548451374538, 0.6521451548625461, 0.6521451548625461, 0.3478548451374538 };
+
+	private final RandomVariable a;
+	private final RandomVariable b;
+	private final RandomVariable c;
+	private final RandomVariable d;
+	private final double scalingFactor;
+	private final boolean isAveragedOverTimeStep;
+
+	/*
+	 * Cache for uniform time discretizations: volatilityForLag[k_i-j] = \sigma_i(t_j), liborIndexToLag[i] = k_i.
+	 * Both are null if the time discretization does not allow it.
+	 */
+	private final RandomVariable[]	volatilityForLag;
+	private final int[]				liborIndexToLag;
+
+	/**
+	 * @param timeDiscretization, the time discretization for the evolution of the processes
+	 * @param liborPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param a, the first term for the volatility structure
+	 * @param b, the second term for the volatility structure
+	 * @param c, the third term for the volatility structure
+	 * @param d, the fourth term for the volatility structure
+	 * @param scalingFactor, constant factor multiplying the volatility (for example 0.05 for normal dynamics)
+	 * @param isAveragedOverTimeStep, if true the volatility of a step is its root mean square over the step, otherwise
+	 * its value at the start of the step
+	 */
+	public LIBORVolatilityModelRebonato(TimeDiscretization timeDiscretization, TimeDiscretization liborPeriodDiscretization,
+			RandomVariable a, RandomVariable b, RandomVariable c, RandomVariable d, double scalingFactor,
+			boolean isAveragedOverTimeStep) {
+		super(timeDiscretization, liborPeriodDiscretization);
+		this.a = a;
+		this.b = b;
+		this.c = c;
+		this.d = d;
+		this.scalingFactor = scalingFactor;
+		this.isAveragedOverTimeStep = isAveragedOverTimeStep;
+
+		liborIndexToLag = getLiborIndexToLag(timeDiscretization, liborPeriodDiscretization);
+		if(liborIndexToLag != null) {
+			final double timeStep = timeDiscretization.getTimeStep(0);
+			final int maximumLag = liborIndexToLag[liborIndexToLag.length-1];
+			volatilityForLag = new RandomVariable[maximumLag + 1];
+			for(int lag = 0; lag <= maximumLag; lag++) {
+				volatilityForLag[lag] = isAveragedOverTimeStep
+						? getVolatilityAveragedOverTimeStep(lag * timeStep, timeStep)
+								: getVolatilityForTimeToMaturity(lag * timeStep);
+			}
+		}
+		else {
+			volatilityForLag = null;
+		}
+	}
+
+	/**
+	 * It creates the volatility model where the volatility of a step is its value at the start of the step.
+	 *
+	 * @param timeDiscretization, the time discretization for the evolution of the processes
+	 * @param liborPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param a, the first term for the volatility structure
+	 * @param b, the second term for the volatility structure
+	 * @param c, the third term for the volatility structure
+	 * @param d, the fourth term for the volatility structure
+	 * @param scalingFactor, constant factor multiplying the volatility (for example 0.05 for normal dynamics)
+	 */
+	public LIBORVolatilityModelRebonato(TimeDiscretization timeDiscretization, TimeDiscretization liborPeriodDiscretization,
+			RandomVariable a, RandomVariable b, RandomVariable c, RandomVariable d, double scalingFactor) {
+		this(timeDiscretization, liborPeriodDiscretization, a, b, c, d, scalingFactor, false);
+	}
+
+	/**
+	 * @param timeDiscretization, the time discretization for the evolution of the processes
+	 * @param liborPeriodDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 * @param a, the first term for the volatility structure
+	 * @param b, the second term for the volatility structure
+	 * @param c, the third term for the volatility structure
+	 * @param d, the fourth term for the volatility structure
+	 * @param scalingFactor, constant factor multiplying the volatility (for example 0.05 for normal dynamics)
+	 */
+	public LIBORVolatilityModelRebonato(TimeDiscretization timeDiscretization, TimeDiscretization liborPeriodDiscretization,
+			double a, double b, double c, double d, double scalingFactor) {
+		this(timeDiscretization, liborPeriodDiscretization, new Scalar(a), new Scalar(b), new Scalar(c), new Scalar(d),
+				scalingFactor);
+	}
+
+	/*
+	 * It returns k_i such that T_i=k_i\Delta t for every i, if the simulation time discretization is uniform and the
+	 * tenure structure lies on it, null otherwise.
+	 */
+	private static int[] getLiborIndexToLag(TimeDiscretization timeDiscretization, TimeDiscretization liborPeriodDiscretization) {
+		final double timeStep = timeDiscretization.getTimeStep(0);
+		final double tolerance = 1E-10 * timeStep;
+		for(int timeIndex = 0; timeIndex < timeDiscretization.getNumberOfTimes(); timeIndex++) {
+			if(Math.abs(timeDiscretization.getTime(timeIndex) - timeIndex * timeStep) > tolerance) {
+				return null;
+			}
+		}
+		final int[] liborIndexToLag = new int[liborPeriodDiscretization.getNumberOfTimes()];
+		for(int liborIndex = 0; liborIndex < liborIndexToLag.length; liborIndex++) {
+			final double lag = liborPeriodDiscretization.getTime(liborIndex) / timeStep;
+			liborIndexToLag[liborIndex] = (int) Math.round(lag);
+			if(liborIndexToLag[liborIndex] < 0 || Math.abs(lag - liborIndexToLag[liborIndex]) * timeStep > tolerance) {
+				return null;
+			}
+		}
+		return liborIndexToLag;
+	}
+
+	/*
+	 * \sigma(\tau)=((a+b\tau)\exp(-c\tau)+d) * scalingFactor for \tau>0, 0 otherwise
+	 */
+	private RandomVariable getVolatilityForTimeToMaturity(double timeToMaturity) {
+		if(timeToMaturity <= 0) {
+			return ZERO; // This forward rate is already fixed, no volatility
+		}
+		return b.mult(timeToMaturity).add(a).mult(c.mult(-timeToMaturity).exp()).add(d).mult(scalingFactor);
+	}
+
+	/*
+	 * The root mean square of \sigma(\tau) over the step from time to maturity \tau to \tau-timeStep: the volatility
+	 * is zero after the fixing, i.e., for negative times to maturity.
+	 */
+	private RandomVariable getVolatilityAveragedOverTimeStep(double timeToMaturity, double timeStep) {
+		if(timeToMaturity <= 0) {
+			return ZERO; // This forward rate is already fixed, no volatility
+		}
+		final double lowerTimeToMaturity = Math.max(timeToMaturity - timeStep, 0.0);
+		final double halfLength = (timeToMaturity - lowerTimeToMaturity) / 2;
+		final double midpoint = (timeToMaturity + lowerTimeToMaturity) / 2;
+		RandomVariable integratedVariance = ZERO;
+		for(int nodeIndex = 0; nodeIndex < QUADRATURE_NODES.length; nodeIndex++) {
+			final RandomVariable volatility =
+					getVolatilityForTimeToMaturity(midpoint + halfLength * QUADRATURE_NODES[nodeIndex]);
+			integratedVariance = integratedVariance.add(volatility.squared().mult(QUADRATURE_WEIGHTS[nodeIndex] * halfLength));
+		}
+		return integratedVariance.div(timeStep).sqrt();
+	}
+
+	@Override
+	public RandomVariable getVolatility(int timeIndex, int liborIndex) {
+		if(volatilityForLag != null) {
+			final int lag = liborIndexToLag[liborIndex] - timeIndex;
+			return lag > 0 ? volatilityForLag[lag] : ZERO;
+		}
+		final double timeToMaturity = getLiborPeriodDiscretization().getTime(liborIndex) - getTimeDiscretization().getTime(timeIndex);
+		if(isAveragedOverTimeStep && timeIndex < getTimeDiscretization().getNumberOfTimeSteps()) {
+			return getVolatilityAveragedOverTimeStep(timeToMaturity, getTimeDiscretization().getTimeStep(timeIndex));
+		}
+		return getVolatilityForTimeToMaturity(timeToMaturity);
+	}
+
+	/**
+	 * It returns the volatility structure as one flat, contiguous array in row-major order, i.e.,
+	 * volatility[timeIndex * numberOfLibors + liborIndex] = \sigma_{liborIndex}(t_{timeIndex}), where the time index runs
+	 * over the time steps of the simulation and the LIBOR index over the periods of the tenure structure. The
+	 * parameters are taken by their double value.
+	 *
+	 * @return the volatility matrix as a flat array of length numberOfTimeSteps * numberOfLibors
+	 */
+	public double[] getVolatilityMatrix() {
+		final int numberOfSimulationTimes = getTimeDiscretization().getNumberOfTimeSteps();
+		final int numberOfLibors = getLiborPeriodDiscretization().getNumberOfTimeSteps();
+		final double[] volatility = new double[numberOfSimulationTimes * numberOfLibors];
+		for(int timeIndex = 0; timeIndex < numberOfSimulationTimes; timeIndex++) {
+			final int offset = timeIndex * numberOfLibors;
+			for(int liborIndex = 0; liborIndex < numberOfLibors; liborIndex++) {
+				volatility[offset + liborIndex] = getVolatility(timeIndex, liborIndex).doubleValue();
+			}
+		}
+		return volatility;
+	}
+
+	public double getScalingFactor() {
+		return scalingFactor;
+	}
+
+	public boolean isAveragedOverTimeStep() {
+		return isAveragedOverTimeStep;
+	}
+
+	@Override
+	public RandomVariable[] getParameter() {
+		return new RandomVariable[] { a, b, c, d };
+	}
+
+	@Override
+	public LIBORVolatilityModelRebonato getCloneWithModifiedParameter(RandomVariable[] parameters) {
+		return new LIBORVolatilityModelRebonato(getTimeDiscretization(), getLiborPeriodDiscretization(),
+				parameters[0], parameters[1], parameters[2], parameters[3], scalingFactor, isAveragedOverTimeStep);
+	}
+
+	@Override
+	public Object clone() {
+		return new LIBORVolatilityModelRebonato(getTimeDiscretization(), getLiborPeriodDiscretization(),
+				a, b, c, d, scalingFactor, isAveragedOverTimeStep);
+	}
+
+	/**
+	 * It returns a clone of this model where the data given in the map replaces the current one. Supported keys are
+	 * "timeDiscretization", "liborPeriodDiscretization", "a", "b", "c", "d" (as Double or RandomVariable) and
+	 * "scalingFactor".
+	 */
+	@Override
+	public LIBORVolatilityModelRebonato getCloneWithModifiedData(Map<String, Object> dataModified) {
+		final TimeDiscretization timeDiscretization = (TimeDiscretization) dataModified.getOrDefault("timeDiscretization", getTimeDiscretization());
+		final TimeDiscretization liborPeriodDiscretization = (TimeDiscretization) dataModified.getOrDefault("liborPeriodDiscretization", getLiborPeriodDiscretization());
+		final double newScalingFactor = ((Number) dataModified.getOrDefault("scalingFactor", scalingFactor)).doubleValue();
+		return new LIBORVolatilityModelRebonato(timeDiscretization, liborPeriodDiscretization,
+				getParameterOrDefault(dataModified, "a", a),
+				getParameterOrDefault(dataModified, "b", b),
+				getParameterOrDefault(dataModified, "c", c),
+				getParameterOrDefault(dataModified, "d", d),
+				newScalingFactor, isAveragedOverTimeStep);
+	}
+
+	private static RandomVariable getParameterOrDefault(Map<String, Object> dataModified, String key, RandomVariable defaultValue) {
+		final Object value = dataModified.get(key);
+		if(value == null) {
+			return defaultValue;
+		}
+		return value instanceof RandomVariable ? (RandomVariable) value : new Scalar(((Number) value).doubleValue());
+	}
+}
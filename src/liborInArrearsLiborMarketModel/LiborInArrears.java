@@ -1,6 +1,8 @@
 package liborInArrearsLiborMarketModel;
 
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.ValuationTimer;
 import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurve;
 import net.finmath.montecarlo.interestrate.TermStructureMonteCarloSimulationModel;
 import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.stochastic.RandomVariable;
@@ -20,12 +22,16 @@ public class LiborInArrears extends AbstractLIBORMonteCarloProduct {
 
 	/** This small implementation can take a Monte-Carlo Process Model (mostly Libor Monte-Carlo Process) and return the Value of a
 	 * Floater in Arrears (mostly Libor in Arrears). It erbs the method getValue(TermStructureMonteCarloSimulationModel model).
+	 * Its time is measured by LIBORMarketModelMetrics, if enabled.
 	 *
 	 */
 	@Override
 	public RandomVariable getValue(double evaluationTime, TermStructureMonteCarloSimulationModel model)
 			throws CalculationException {
 
+		LIBORMarketModelMetrics.evolveBeforeValuation(model, periodStartLibor, periodEndLibor);
+		final ValuationTimer timer = LIBORMarketModelMetrics.startValuation();
+
 		// Get the value of the first LIBOR L_i at T_i: L(T_i,T_{i+1};T_i) -> we need only this libor!
 		final RandomVariable	Libor = model.getLIBOR(periodStartLibor, periodStartLibor,
 				periodEndLibor);
@@ -45,7 +51,48 @@ public class LiborInArrears extends AbstractLIBORMonteCarloProduct {
 
 		values = values.mult(numeraireAtEvaluationTime);
 
+		LIBORMarketModelMetrics.stopValuation(timer, periodStartLibor, periodEndLibor, model.getNumberOfPaths());
+
 		return values;
 	}
 
+	/**
+	 * It values the LIBOR in arrears with the floater paying in advance as control variate, see
+	 * LiborInArrearsStrip.getValuationWithControlVariate.
+	 *
+	 * @param evaluationTime, the time at which the product is valued: it must be 0
+	 * @param model, the simulation of the LIBOR market model
+	 * @return the control variate estimator, its standard error, the coefficient and the variance reduction factor
+	 * @throws CalculationException
+	 */
+	public LiborInArrearsStripValuationWithControlVariate getValueWithControlVariate(double evaluationTime,
+			TermStructureMonteCarloSimulationModel model) throws CalculationException {
+		return new LiborInArrearsStrip(new double[] { periodStartLibor }, new double[] { periodEndLibor })
+				.getValuationWithControlVariate(evaluationTime, model);
+	}
+
+	/**
+	 * It values the LIBOR in arrears with the floater paying in advance as control variate, whose closed form is taken
+	 * from the given discount curve, see LiborInArrearsStrip.getValuationWithControlVariate.
+	 *
+	 * @param evaluationTime, the time at which the product is valued: it must be 0
+	 * @param model, the simulation of the LIBOR market model, e.g., a LIBORMonteCarloSimulationFromPathStore
+	 * @param discountCurve, the discount curve of the model of the simulation
+	 * @return the control variate estimator, its standard error, the coefficient and the variance reduction factor
+	 * @throws CalculationException
+	 */
+	public LiborInArrearsStripValuationWithControlVariate getValueWithControlVariate(double evaluationTime,
+			TermStructureMonteCarloSimulationModel model, DiscountCurve discountCurve) throws CalculationException {
+		return new LiborInArrearsStrip(new double[] { periodStartLibor }, new double[] { periodEndLibor })
+				.getValuationWithControlVariate(evaluationTime, model, discountCurve);
+	}
+
+	public double getPeriodStart() {
+		return periodStartLibor;
+	}
+
+	public double getPeriodEnd() {
+		return periodEndLibor;
+	}
+
 }
@@ -0,0 +1,240 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.concurrent.ForkJoinPool;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.RandomNumberSource;
+import net.finmath.exception.CalculationException;
+
+/**
+ * This class values a strip of LIBOR in arrears with as many paths as needed to reach a target standard error for every
+ * period, instead of a fixed number of paths. The target is absolute, i.e., the standard error of every period must be
+ * at most the target, or relative, i.e., at most the target times the absolute value of the period.
+ *
+ * The paths are simulated in batches of increasing size, every batch with its own seed derived from the seed of the user
+ * by LiborInArrearsParallelValuation.getSeedOfChunk, so the batches are independent. Every batch is valued by
+ * LiborInArrearsParallelValuation and merged into the valuation of the previous ones. After every batch the number of
+ * paths needed by the slowest period is estimated from its standard error, which decreases as 1/sqrt(n): the next batch
+ * has the missing paths, at least initialNumberOfPaths and at most as many paths as simulated so far (so that a noisy
+ * estimate of the first batches cannot start a huge batch). The valuation stops when every period meets the target, when
+ * the budget of paths is exhausted or when the budget of time is exhausted; in the last case no batch is started that is
+ * not expected to end within the budget, based on the time per path of the previous batches.
+ *
+ * For given seed and parameters, and if the time budget is not reached, the result is reproducible: it does not depend
+ * on the number of threads of the pool.
+ *
+ * The stopping rule uses the variance of the discounted payoff over the paths, i.e., it assumes that the paths are
+ * independent. Antithetic paths are not (the standard error would have to be computed over the averages of the pairs,
+ * see BrownianMotionAntithetic), and neither are the points of a scrambled Sobol sequence, whose error decreases faster
+ * than 1/sqrt(n) and is not estimated by this variance (it would need independent randomizations of the sequence):
+ * only the source MERSENNE is accepted.
+ *
+ */
+public class LiborInArrearsAdaptiveValuation {
+
+	public enum StandardErrorType	{ ABSOLUTE, RELATIVE };
+	public enum StoppingReason		{ TARGET_MET, PATH_BUDGET_EXHAUSTED, TIME_BUDGET_EXHAUSTED };
+
+	private final LiborInArrearsStripValuation	valuation;
+	private final StandardErrorType				standardErrorType;
+	private final double						targetStandardError;
+	private final int							numberOfBatches;
+	private final StoppingReason				stoppingReason;
+
+	private LiborInArrearsAdaptiveValuation(LiborInArrearsStripValuation valuation, StandardErrorType standardErrorType,
+			double targetStandardError, int numberOfBatches, StoppingReason stoppingReason) {
+		this.valuation = valuation;
+		this.standardErrorType = standardErrorType;
+		this.targetStandardError = targetStandardError;
+		this.numberOfBatches = numberOfBatches;
+		this.stoppingReason = stoppingReason;
+	}
+
+	/**
+	 * It values the given strip with a number of paths chosen to reach the target standard error for every period. The
+	 * model parameters have the same meaning as in
+	 * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel.
+	 *
+	 * @param strip, the strip of LIBOR in arrears to be valued: only its periods have to meet the target
+	 * @param pool, the pool where the chunks of every batch are simulated and valued
+	 * @param standardErrorType, absolute or relative standard error
+	 * @param targetStandardError, the target for the standard error of every period
+	 * @param initialNumberOfPaths, the number of paths of the first batch, and the minimum size of the others
+	 * @param maximumNumberOfPaths, the budget of paths
+	 * @param maximumComputationTimeMillis, the budget of time in milliseconds, or a non positive value for no budget
+	 * @param numberOfPathsPerChunk, the number of paths of the chunks of every batch, see LiborInArrearsParallelValuation
+	 * @param randomNumberSource, the source of the random numbers: only MERSENNE gives independent paths
+	 * @return the adaptive valuation, with the valuation of the strip on all the paths and the reason why it stopped
+	 * @throws CalculationException
+	 */
+	public static LiborInArrearsAdaptiveValuation getValuation(LiborInArrearsStrip strip,
+			ForkJoinPool pool,
+			StandardErrorType standardErrorType,
+			double targetStandardError,
+			int initialNumberOfPaths,
+			int maximumNumberOfPaths,
+			long maximumComputationTimeMillis,
+			int numberOfPathsPerChunk,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			RandomNumberSource randomNumberSource
+			) throws CalculationException {
+
+		if(!(targetStandardError > 0)) {
+			throw new IllegalArgumentException("The target standard error must be positive.");
+		}
+		if(initialNumberOfPaths < 2 || maximumNumberOfPaths < initialNumberOfPaths) {
+			throw new IllegalArgumentException("The initial number of paths must be at least 2 and at most the maximum number of paths.");
+		}
+		if(numberOfPathsPerChunk < 1) {
+			throw new IllegalArgumentException("The number of paths per chunk must be positive.");
+		}
+		if(randomNumberSource == RandomNumberSource.MERSENNE_ANTITHETIC) {
+			throw new IllegalArgumentException("The adaptive valuation requires independent paths: antithetic paths are not supported.");
+		}
+		if(randomNumberSource == RandomNumberSource.SOBOL_BROWNIAN_BRIDGE) {
+			throw new IllegalArgumentException("The adaptive valuation requires independent paths: Sobol sequences are not supported.");
+		}
+
+		final long startTime = System.nanoTime();
+		final long maximumComputationTimeNanos = maximumComputationTimeMillis > 0 ? maximumComputationTimeMillis * 1000000L : Long.MAX_VALUE;
+
+		LiborInArrearsStripValuation valuation = null;
+		int numberOfBatches = 0;
+		int numberOfPathsOfBatch = initialNumberOfPaths;
+		StoppingReason stoppingReason;
+		while(true) {
+			final LiborInArrearsStripValuation valuationOfBatch = LiborInArrearsParallelValuation.getValuation(strip, pool,
+					numberOfPathsOfBatch, numberOfPathsPerChunk, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+					fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType, a, b, c, d,
+					LiborInArrearsParallelValuation.getSeedOfChunk(seed, numberOfBatches), randomNumberSource);
+			valuation = valuation == null ? valuationOfBatch : valuation.merge(valuationOfBatch);
+			numberOfBatches++;
+
+			final long numberOfPaths = valuation.getNumberOfPaths();
+			final double requiredNumberOfPaths = getRequiredNumberOfPaths(valuation, standardErrorType, targetStandardError);
+			if(requiredNumberOfPaths <= numberOfPaths) {
+				stoppingReason = StoppingReason.TARGET_MET;
+				break;
+			}
+			if(numberOfPaths >= maximumNumberOfPaths) {
+				stoppingReason = StoppingReason.PATH_BUDGET_EXHAUSTED;
+				break;
+			}
+
+			// The missing paths, at least initialNumberOfPaths and at most doubling the paths
+			long nextNumberOfPaths = (long) Math.ceil(requiredNumberOfPaths - numberOfPaths);
+			nextNumberOfPaths = Math.max(nextNumberOfPaths, initialNumberOfPaths);
+			nextNumberOfPaths = Math.min(nextNumberOfPaths, numberOfPaths);
+
+			// ... within the budget of paths and within the budget of time, at the time per path of the previous batches
+			final long remainingNumberOfPaths = maximumNumberOfPaths - numberOfPaths;
+			final long elapsedTime = System.nanoTime() - startTime;
+			final double timePerPath = (double) elapsedTime / numberOfPaths;
+			final long affordableNumberOfPaths = (long) ((maximumComputationTimeNanos - (double) elapsedTime) / timePerPath);
+			if(Math.min(nextNumberOfPaths, remainingNumberOfPaths) < 2) {
+				stoppingReason = StoppingReason.PATH_BUDGET_EXHAUSTED;
+				break;
+			}
+			if(Math.min(nextNumberOfPaths, affordableNumberOfPaths) < 2) {
+				stoppingReason = StoppingReason.TIME_BUDGET_EXHAUSTED;
+				break;
+			}
+			nextNumberOfPaths = Math.min(nextNumberOfPaths, Math.min(remainingNumberOfPaths, affordableNumberOfPaths));
+			numberOfPathsOfBatch = (int) nextNumberOfPaths;
+		}
+
+		return new LiborInArrearsAdaptiveValuation(valuation, standardErrorType, targetStandardError, numberOfBatches,
+				stoppingReason);
+	}
+
+	/**
+	 * It values the given strip as above, on the common pool of the JVM, with Mersenne twister random numbers, starting
+	 * with 1000 paths in chunks of 1000 paths.
+	 */
+	public static LiborInArrearsAdaptiveValuation getValuation(LiborInArrearsStrip strip,
+			StandardErrorType standardErrorType,
+			double targetStandardError,
+			int maximumNumberOfPaths,
+			long maximumComputationTimeMillis,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed
+			) throws CalculationException {
+		final int initialNumberOfPaths = Math.min(1000, maximumNumberOfPaths);
+		return getValuation(strip, ForkJoinPool.commonPool(), standardErrorType, targetStandardError, initialNumberOfPaths,
+				maximumNumberOfPaths, maximumComputationTimeMillis, 1000, simulationTimeStep, LIBORPeriodLength,
+				LIBORRateTimeHorizon, fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType,
+				a, b, c, d, seed, RandomNumberSource.MERSENNE);
+	}
+
+	/*
+	 * The number of paths for which the standard error sqrt(variance / n) of every period meets its target.
+	 */
+	private static double getRequiredNumberOfPaths(LiborInArrearsStripValuation valuation,
+			StandardErrorType standardErrorType, double targetStandardError) {
+		double requiredNumberOfPaths = 0.0;
+		for(int periodIndex = 0; periodIndex < valuation.getNumberOfPeriods(); periodIndex++) {
+			// A period fixed at time zero has no variance: it always meets the target
+			if(valuation.getVariance(periodIndex) == 0.0) {
+				continue;
+			}
+			final double target = getTargetOfPeriod(valuation, periodIndex, standardErrorType, targetStandardError);
+			requiredNumberOfPaths = Math.max(requiredNumberOfPaths, valuation.getVariance(periodIndex) / (target * target));
+		}
+		return requiredNumberOfPaths;
+	}
+
+	private static double getTargetOfPeriod(LiborInArrearsStripValuation valuation, int periodIndex,
+			StandardErrorType standardErrorType, double targetStandardError) {
+		return standardErrorType == StandardErrorType.RELATIVE
+				? targetStandardError * Math.abs(valuation.getValue(periodIndex)) : targetStandardError;
+	}
+
+	/**
+	 * @return the valuation of the strip on all the paths of all the batches
+	 */
+	public LiborInArrearsStripValuation getValuation() {
+		return valuation;
+	}
+
+	/**
+	 * @return the number of paths used
+	 */
+	public long getNumberOfPaths() {
+		return valuation.getNumberOfPaths();
+	}
+
+	public int getNumberOfBatches() {
+		return numberOfBatches;
+	}
+
+	public StoppingReason getStoppingReason() {
+		return stoppingReason;
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return true if the standard error of the period meets the target
+	 */
+	public boolean isTargetMet(int periodIndex) {
+		return valuation.getStandardError(periodIndex)
+				<= getTargetOfPeriod(valuation, periodIndex, standardErrorType, targetStandardError);
+	}
+}
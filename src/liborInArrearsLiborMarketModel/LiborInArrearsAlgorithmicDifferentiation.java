@@ -0,0 +1,197 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.Map;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.VolatilityRepresentation;
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.automaticdifferentiation.RandomVariableDifferentiable;
+import net.finmath.montecarlo.automaticdifferentiation.backward.RandomVariableDifferentiableAADFactory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.models.LIBORMarketModelFromCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.BlendedLocalVolatilityModel;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORCovarianceModelFromVolatilityAndCorrelation;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class computes the sensitivities of a strip of LIBOR in arrears by adjoint algorithmic differentiation: the
+ * model is simulated once with a RandomVariableDifferentiableAADFactory, and one backward sweep from the value of every
+ * period gives its derivatives with respect to all the initial LIBORs and to the parameters a, b, c, d of the
+ * volatility structure. The result has the same form as the one of LiborInArrearsSensitivityEngine, which computes the
+ * same derivatives by bump and revalue.
+ *
+ * The value of the period (T_i,T_{i+1}) is computed as
+ * E[\delta L_i(T_i) / N(T_i)] P(T_i) / E[1 / N(T_i)],
+ * which is the value given by LiborInArrears, since the Finmath library adjusts the numeraire so that
+ * E[1 / N(T_i)] = P(T_i) / N(0). The library computes this adjustment as a double, so it would be a constant for the
+ * differentiation: here the denominator is a random variable, and the gradient also contains the effect of the initial
+ * LIBORs and of the volatility on the adjustment. The discount factor P(T_i) is taken from the forward curve and is a
+ * double as well: its derivative with respect to the given forwards is computed by bumping the curve only (no
+ * simulation) and added to the deltas. The derivatives with respect to the initial LIBORs are mapped to the given
+ * forwards by the derivatives of the interpolation of the forward curve, computed in the same way.
+ *
+ * For normal dynamics the volatility is rescaled by the initial forward curve in BlendedLocalVolatilityModel, as a
+ * double: this dependence is not differentiated, so the deltas do not contain it, while the bumped deltas do.
+ *
+ * The backward sweep needs the whole tape of the simulation in memory, i.e., a random variable of numberOfPaths
+ * doubles for every operation of the Euler scheme: O(N_t N_T F) random variables, where N_t is the number of simulation
+ * times, N_T the number of LIBORs and F the number of factors.
+ *
+ */
+public class LiborInArrearsAlgorithmicDifferentiation {
+
+	private LiborInArrearsAlgorithmicDifferentiation() {
+	}
+
+	/**
+	 * It computes value, bucketed deltas and vegas of the given strip by adjoint algorithmic differentiation. The model
+	 * parameters have the same meaning as in LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel,
+	 * and the Brownian motion is the same as the one of createLIBORMarketModel with the same seed.
+	 *
+	 * @param strip, the strip of LIBOR in arrears
+	 * @return an object of type LiborInArrearsStripSensitivities with value, deltas and vegas of every period
+	 * @throws CalculationException
+	 */
+	public static LiborInArrearsStripSensitivities getSensitivities(LiborInArrearsStrip strip,
+			int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed
+			) throws CalculationException {
+
+		final RandomVariableDifferentiableAADFactory randomVariableFactory = new RandomVariableDifferentiableAADFactory();
+
+		final TimeDiscretization timeDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, simulationTimeStep);
+		final TimeDiscretization LIBORPeriodDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength);
+		final ForwardCurve forwardCurve =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		final AbstractLIBORCovarianceModel covarianceModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+						timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParam, dynamics, a, b, c, d,
+						LIBORPeriodDiscretization.getNumberOfTimeSteps(), randomVariableFactory,
+						VolatilityRepresentation.PARAMETRIC);
+		final LIBORMarketModelFromCovarianceModel LIBORMarketModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORModel(
+						LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType, randomVariableFactory);
+		final BrownianMotion brownianMotion =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createBrownianMotion(
+						timeDiscretization, covarianceModel.getNumberOfFactors(), numberOfPaths, seed);
+		final LIBORModelMonteCarloSimulationModel model =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createSimulation(LIBORMarketModel, brownianMotion);
+
+		// The independent variables: the initial LIBORs and the parameters of the volatility structure
+		final RandomVariable[] initialLIBORs = LIBORMarketModel.getInitialState(null);
+		final RandomVariable[] volatilityParameters = getVolatilityParameters(covarianceModel);
+
+		final double[] periodStarts = strip.getPeriodStarts();
+		final double[] periodEnds = strip.getPeriodEnds();
+		final int numberOfPeriods = periodStarts.length;
+
+		// Derivatives of the initial LIBORs and of the discount factors of the strip with respect to the given forwards
+		final double forwardShift = 1E-4;
+		final double[][] derivativesOfInitialLIBORs = new double[initialLIBORs.length][givenForwards.length];
+		final double[][] derivativesOfLogDiscountFactors = new double[numberOfPeriods][givenForwards.length];
+		for(int forwardIndex = 0; forwardIndex < givenForwards.length; forwardIndex++) {
+			final ForwardCurve[] bumpedForwardCurves = new ForwardCurve[2];
+			for(int bumpIndex = 0; bumpIndex < 2; bumpIndex++) {
+				final double[] bumpedForwards = givenForwards.clone();
+				bumpedForwards[forwardIndex] += bumpIndex == 0 ? forwardShift : -forwardShift;
+				bumpedForwardCurves[bumpIndex] =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(fixingForGivenForwards, bumpedForwards, LIBORPeriodLength);
+			}
+			for(int liborIndex = 0; liborIndex < initialLIBORs.length; liborIndex++) {
+				final double fixing = LIBORPeriodDiscretization.getTime(liborIndex);
+				final double periodLength = LIBORPeriodDiscretization.getTimeStep(liborIndex);
+				derivativesOfInitialLIBORs[liborIndex][forwardIndex] =
+						(bumpedForwardCurves[0].getForward(null, fixing, periodLength)
+								- bumpedForwardCurves[1].getForward(null, fixing, periodLength)) / (2 * forwardShift);
+			}
+			final DiscountCurve discountCurveUp = new DiscountCurveFromForwardCurve(bumpedForwardCurves[0]);
+			final DiscountCurve discountCurveDown = new DiscountCurveFromForwardCurve(bumpedForwardCurves[1]);
+			for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+				final double paymentDate = periodStarts[periodIndex];
+				derivativesOfLogDiscountFactors[periodIndex][forwardIndex] =
+						(Math.log(discountCurveUp.getDiscountFactor(paymentDate))
+								- Math.log(discountCurveDown.getDiscountFactor(paymentDate))) / (2 * forwardShift);
+			}
+		}
+
+		final DiscountCurve discountCurve = LIBORMarketModel.getDiscountCurve();
+
+		final double[] values = new double[numberOfPeriods];
+		final double[][] deltas = new double[numberOfPeriods][givenForwards.length];
+		final double[][] vegas = new double[numberOfPeriods][volatilityParameters.length];
+		for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+			final double periodStart = periodStarts[periodIndex];
+			final double periodEnd = periodEnds[periodIndex];
+
+			final RandomVariable libor = model.getLIBOR(periodStart, periodStart, periodEnd);
+			final RandomVariable inverseNumeraire = model.getNumeraire(periodStart).invert();
+			final RandomVariable value = libor.mult(periodEnd - periodStart).mult(inverseNumeraire).average()
+					.div(inverseNumeraire.average())
+					.mult(discountCurve.getDiscountFactor(periodStart));
+
+			// One backward sweep for all the derivatives of the period
+			final Map<Long, RandomVariable> gradient = ((RandomVariableDifferentiable) value).getGradient();
+
+			values[periodIndex] = value.getAverage();
+			for(int forwardIndex = 0; forwardIndex < givenForwards.length; forwardIndex++) {
+				double delta = values[periodIndex] * derivativesOfLogDiscountFactors[periodIndex][forwardIndex];
+				for(int liborIndex = 0; liborIndex < initialLIBORs.length; liborIndex++) {
+					delta += getDerivative(gradient, initialLIBORs[liborIndex]) * derivativesOfInitialLIBORs[liborIndex][forwardIndex];
+				}
+				deltas[periodIndex][forwardIndex] = delta;
+			}
+			for(int parameterIndex = 0; parameterIndex < volatilityParameters.length; parameterIndex++) {
+				vegas[periodIndex][parameterIndex] = getDerivative(gradient, volatilityParameters[parameterIndex]);
+			}
+		}
+
+		return new LiborInArrearsStripSensitivities(periodStarts, periodEnds, values, deltas, vegas);
+	}
+
+	/*
+	 * The parameters of the volatility model inside the covariance model created by createCovarianceModel: the blending
+	 * of a covariance model from volatility and correlation.
+	 */
+	private static RandomVariable[] getVolatilityParameters(LIBORCovarianceModel covarianceModel) {
+		final LIBORCovarianceModel baseCovarianceModel = covarianceModel instanceof BlendedLocalVolatilityModel
+				? ((BlendedLocalVolatilityModel) covarianceModel).getBaseCovarianceModel() : covarianceModel;
+		if(!(baseCovarianceModel instanceof LIBORCovarianceModelFromVolatilityAndCorrelation)) {
+			throw new IllegalArgumentException("The covariance model must be built from a volatility and a correlation model: "
+					+ baseCovarianceModel.getClass().getSimpleName() + " is not supported.");
+		}
+		final RandomVariable[] volatilityParameters =
+				((LIBORCovarianceModelFromVolatilityAndCorrelation) baseCovarianceModel).getVolatilityModel().getParameter();
+		if(volatilityParameters == null) {
+			throw new IllegalArgumentException("The volatility model has no parameters to differentiate.");
+		}
+		return volatilityParameters;
+	}
+
+	/*
+	 * The derivative with respect to the given independent variable: the gradient is path-wise and the variable does not
+	 * depend on the path, so it is the average. Variables the value does not depend on are not in the gradient.
+	 */
+	private static double getDerivative(Map<Long, RandomVariable> gradient, RandomVariable independentVariable) {
+		final RandomVariable derivative = gradient.get(((RandomVariableDifferentiable) independentVariable).getID());
+		return derivative != null ? derivative.getAverage() : 0.0;
+	}
+}
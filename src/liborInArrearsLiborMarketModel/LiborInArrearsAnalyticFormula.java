@@ -1,7 +1,13 @@
 package liborInArrearsLiborMarketModel;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 public class LiborInArrearsAnalyticFormula {
 
+	// Below this length the cost of a task is larger than the one of valuing the slice
+	public static final int DEFAULT_MINIMUM_SLICE_LENGTH = 8192;
+
 	/**
 	 * This method calculates and returns the value of a floater in Arrears
 	 * model as an double assuming lognormal dynamics of the libor's
@@ -34,6 +40,146 @@ public class LiborInArrearsAnalyticFormula {
 		return firstPart + convexityAdjustedPart ;
 	}
 
+	/**
+	 * This method calculates the values of a batch of floaters in arrears with the formula above, from inputs given as
+	 * one array for every argument (structure of arrays): the element k of every array refers to the floater k. The
+	 * values are written into the array given by the caller, and nothing is allocated, so that the method can be called
+	 * repeatedly, e.g., for every curve scenario, on the same arrays.
+	 *
+	 * @param initialForwardLibors,				the initial LIBORs L(T_i,T_i+1;0) of the floaters
+	 * @param liborVariances,					the inputs liborVolatility of the formula above, i.e., the Black variances
+	 * 											of the LIBORs (see LiborInArrearsIntegratedVariance)
+	 * @param fixingPaymentDates,				the fixing (=payment) dates T_i
+	 * @param endOfLiborPeriods,				the ends of the periods T_i+1
+	 * @param endOfLiborDiscountFactors,		the discount factors P(T_i+1;0)
+	 * @param fixingPaymentDiscountFactors,		the discount factors P(T_i;0)
+	 * @param values,							the array where the values are written, as long as the inputs
+	 */
+	public static void calculateLiborInArrearsFloaterAnalytic(double[] initialForwardLibors, double[] liborVariances,
+			double[] fixingPaymentDates, double[] endOfLiborPeriods, double[] endOfLiborDiscountFactors,
+			double[] fixingPaymentDiscountFactors, double[] values) {
+		calculateLiborInArrearsFloaterAnalytic(initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods,
+				endOfLiborDiscountFactors, fixingPaymentDiscountFactors, values, 0, initialForwardLibors.length);
+	}
+
+	/**
+	 * This method calculates the values of the floaters fromIndex (inclusive) to toIndex (exclusive) of a batch, see
+	 * the method above.
+	 */
+	public static void calculateLiborInArrearsFloaterAnalytic(double[] initialForwardLibors, double[] liborVariances,
+			double[] fixingPaymentDates, double[] endOfLiborPeriods, double[] endOfLiborDiscountFactors,
+			double[] fixingPaymentDiscountFactors, double[] values, int fromIndex, int toIndex) {
+		checkBatch(initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods, endOfLiborDiscountFactors,
+				fixingPaymentDiscountFactors, values, fromIndex, toIndex);
+		calculateSlice(initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods,
+				endOfLiborDiscountFactors, fixingPaymentDiscountFactors, values, fromIndex, toIndex);
+	}
+
+	/**
+	 * This method calculates the values of a batch of floaters in arrears as the method above, splitting the batch in
+	 * slices of at least minimumSliceLength floaters which are valued in parallel on the given pool. Every value is
+	 * computed exactly as in the sequential method, so the results are the same bits.
+	 *
+	 * @param pool,					the pool where the slices are valued
+	 * @param minimumSliceLength,	the length below which a slice is not split further
+	 */
+	public static void calculateLiborInArrearsFloaterAnalyticParallel(double[] initialForwardLibors, double[] liborVariances,
+			double[] fixingPaymentDates, double[] endOfLiborPeriods, double[] endOfLiborDiscountFactors,
+			double[] fixingPaymentDiscountFactors, double[] values, ForkJoinPool pool, int minimumSliceLength) {
+		if(minimumSliceLength < 1) {
+			throw new IllegalArgumentException("The minimum slice length must be positive.");
+		}
+		checkBatch(initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods, endOfLiborDiscountFactors,
+				fixingPaymentDiscountFactors, values, 0, initialForwardLibors.length);
+		pool.invoke(new BatchSlice(initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods,
+				endOfLiborDiscountFactors, fixingPaymentDiscountFactors, values, 0, initialForwardLibors.length, minimumSliceLength));
+	}
+
+	/**
+	 * This method calculates the values of a batch of floaters in arrears in parallel, on the common pool of the JVM,
+	 * with slices of DEFAULT_MINIMUM_SLICE_LENGTH floaters.
+	 */
+	public static void calculateLiborInArrearsFloaterAnalyticParallel(double[] initialForwardLibors, double[] liborVariances,
+			double[] fixingPaymentDates, double[] endOfLiborPeriods, double[] endOfLiborDiscountFactors,
+			double[] fixingPaymentDiscountFactors, double[] values) {
+		calculateLiborInArrearsFloaterAnalyticParallel(initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods,
+				endOfLiborDiscountFactors, fixingPaymentDiscountFactors, values, ForkJoinPool.commonPool(), DEFAULT_MINIMUM_SLICE_LENGTH);
+	}
+
+	/*
+	 * The checks of the public entry points: the slices below them index the arrays without further checks.
+	 */
+	private static void checkBatch(double[] initialForwardLibors, double[] liborVariances, double[] fixingPaymentDates,
+			double[] endOfLiborPeriods, double[] endOfLiborDiscountFactors, double[] fixingPaymentDiscountFactors,
+			double[] values, int fromIndex, int toIndex) {
+		final int numberOfFloaters = initialForwardLibors.length;
+		if(liborVariances.length != numberOfFloaters || fixingPaymentDates.length != numberOfFloaters
+				|| endOfLiborPeriods.length != numberOfFloaters || endOfLiborDiscountFactors.length != numberOfFloaters
+				|| fixingPaymentDiscountFactors.length != numberOfFloaters || values.length != numberOfFloaters) {
+			throw new IllegalArgumentException("The inputs and the values of a batch must have the same length.");
+		}
+		if(fromIndex < 0 || toIndex > numberOfFloaters || fromIndex > toIndex) {
+			throw new IndexOutOfBoundsException("The range [" + fromIndex + ", " + toIndex + ") is not inside a batch of "
+					+ numberOfFloaters + " floaters.");
+		}
+	}
 
+	private static void calculateSlice(double[] initialForwardLibors, double[] liborVariances,
+			double[] fixingPaymentDates, double[] endOfLiborPeriods, double[] endOfLiborDiscountFactors,
+			double[] fixingPaymentDiscountFactors, double[] values, int fromIndex, int toIndex) {
+		for(int index = fromIndex; index < toIndex; index++) {
+			final double fixingPaymentDate = fixingPaymentDates[index];
+			final double periodLength = endOfLiborPeriods[index] - fixingPaymentDate;
+			final double initialForwardLibor = initialForwardLibors[index];
+			final double endOfLibordiscountfactor = endOfLiborDiscountFactors[index];
 
+			// The same operations, in the same order, as in the formula for one floater
+			final double firstPart = fixingPaymentDiscountFactors[index] - endOfLibordiscountfactor;
+			final double convexityAdjustedPart = endOfLibordiscountfactor * periodLength *
+					periodLength * initialForwardLibor * initialForwardLibor * Math.exp(fixingPaymentDate * liborVariances[index]);
+			values[index] = firstPart + convexityAdjustedPart;
+		}
+	}
+
+	/*
+	 * A slice of a batch: it is split in two halves as long as it is longer than twice the minimum slice length.
+	 */
+	private static class BatchSlice extends RecursiveAction {
+
+		private static final long serialVersionUID = 1L;
+
+		private final double[] initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods,
+		endOfLiborDiscountFactors, fixingPaymentDiscountFactors, values;
+		private final int fromIndex, toIndex, minimumSliceLength;
+
+		BatchSlice(double[] initialForwardLibors, double[] liborVariances, double[] fixingPaymentDates,
+				double[] endOfLiborPeriods, double[] endOfLiborDiscountFactors, double[] fixingPaymentDiscountFactors,
+				double[] values, int fromIndex, int toIndex, int minimumSliceLength) {
+			this.initialForwardLibors = initialForwardLibors;
+			this.liborVariances = liborVariances;
+			this.fixingPaymentDates = fixingPaymentDates;
+			this.endOfLiborPeriods = endOfLiborPeriods;
+			this.endOfLiborDiscountFactors = endOfLiborDiscountFactors;
+			this.fixingPaymentDiscountFactors = fixingPaymentDiscountFactors;
+			this.values = values;
+			this.fromIndex = fromIndex;
+			this.toIndex = toIndex;
+			this.minimumSliceLength = minimumSliceLength;
+		}
+
+		@Override
+		protected void compute() {
+			if(toIndex - fromIndex < 2 * minimumSliceLength) {
+				calculateSlice(initialForwardLibors, liborVariances, fixingPaymentDates,
+						endOfLiborPeriods, endOfLiborDiscountFactors, fixingPaymentDiscountFactors, values, fromIndex, toIndex);
+				return;
+			}
+			final int middleIndex = (fromIndex + toIndex) >>> 1;
+			invokeAll(
+					new BatchSlice(initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods,
+							endOfLiborDiscountFactors, fixingPaymentDiscountFactors, values, fromIndex, middleIndex, minimumSliceLength),
+					new BatchSlice(initialForwardLibors, liborVariances, fixingPaymentDates, endOfLiborPeriods,
+							endOfLiborDiscountFactors, fixingPaymentDiscountFactors, values, middleIndex, toIndex, minimumSliceLength));
+		}
+	}
 }
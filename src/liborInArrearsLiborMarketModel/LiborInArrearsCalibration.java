@@ -0,0 +1,449 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LiborInArrearsCalibrationTarget.ProductType;
+import net.finmath.exception.CalculationException;
+import net.finmath.functions.AnalyticFormulas;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.BlendedLocalVolatilityModel;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORCorrelationModel;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORCorrelationModelExponentialDecay;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORCovarianceModelFromVolatilityAndCorrelation;
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.optimizer.LevenbergMarquardt;
+import net.finmath.optimizer.SolverException;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class calibrates the parameters a, b, c, d of the Rebonato volatility structure and the decay \alpha of the
+ * correlation of the LIBOR Market Model of LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification to the
+ * market values of LIBOR in arrears, caplets and swaptions, see LiborInArrearsCalibrationTarget. The weighted squared
+ * errors are minimized by the Levenberg-Marquardt optimizer of the Finmath library, which evaluates the columns of the
+ * finite difference Jacobian on numberOfThreads threads. The objective function is one of:
+ * - ANALYTIC: the closed forms of the model, i.e., the formula of LiborInArrearsAnalyticFormula, the Black (log-normal
+ * dynamics) or Bachelier (normal dynamics) formula for the caplets, with the integrated variance of the volatility
+ * model, and for the swaptions the approximation of Rebonato, where the swap rate is a combination of the LIBORs with
+ * frozen weights w_j = \delta_j P(T_{j+1}) / A and
+ * \sigma_S^2 T_0 = \sum_{j,k} w_j w_k L_j(0) L_k(0) \int_0^{T_0} \rho_{j,k}(t) \sigma_j(t) \sigma_k(t) dt / S(0)^2
+ * (without the factors L_j(0) L_k(0) / S(0)^2 for normal dynamics);
+ * - MONTE_CARLO: the Monte-Carlo values of the products on a simulation of the model, where all the simulations of the
+ * calibration are driven by one Brownian motion (common random numbers), so that the objective is a smooth function
+ * of the parameters and its finite differences contain no Monte-Carlo noise.
+ *
+ * The components which do not depend on the parameters are created once, with the calibration: the time
+ * discretizations, the forward and discount curves and, for MONTE_CARLO, the Brownian motion, whose random numbers are
+ * generated before the optimizer starts. The correlation model, whose factor decomposition is the most expensive
+ * part of the covariance model, is cached by \alpha: if \alpha is not calibrated it is created only once.
+ *
+ * The decay of the correlation is only identified by the swaptions: it is calibrated only if there is a swaption among
+ * the targets, and kept at its initial value otherwise. The parameters c and \alpha are optimized through their
+ * logarithms, so that they stay positive.
+ *
+ */
+public class LiborInArrearsCalibration {
+
+	public enum CalibrationMethod { ANALYTIC, MONTE_CARLO };
+
+	private static final int MAXIMUM_NUMBER_OF_CACHED_CORRELATION_MODELS = 64;
+
+	private final int			numberOfPaths;
+	private final double		simulationTimeStep;
+	private final double		LIBORPeriodLength;
+	private final double		LIBORRateTimeHorizon;
+	private final double[]		fixingForGivenForwards;
+	private final double[]		givenForwards;
+	private final Dynamics		dynamics;
+	private final Measure		measureType;
+	private final int			seed;
+
+	// The components which do not depend on the parameters
+	private final TimeDiscretization	timeDiscretization;
+	private final TimeDiscretization	LIBORPeriodDiscretization;
+	private final ForwardCurve			forwardCurve;
+	private final DiscountCurve			discountCurve;
+	private final double				volatilityScalingFactor;
+	private BrownianMotion				brownianMotion;	// created on the first Monte-Carlo calibration
+
+	private final ConcurrentMap<Double, LIBORCorrelationModel> correlationModels = new ConcurrentHashMap<>();
+
+	/**
+	 * It creates the calibration of the LIBOR Market Model with the given parameters, which have the same meaning as in
+	 * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel. The number of paths
+	 * and the seed are the ones of the Monte-Carlo calibration and of the calibrated model.
+	 */
+	public LiborInArrearsCalibration(int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			Dynamics dynamics,
+			Measure measureType,
+			int seed) {
+		this.numberOfPaths = numberOfPaths;
+		this.simulationTimeStep = simulationTimeStep;
+		this.LIBORPeriodLength = LIBORPeriodLength;
+		this.LIBORRateTimeHorizon = LIBORRateTimeHorizon;
+		this.fixingForGivenForwards = fixingForGivenForwards.clone();
+		this.givenForwards = givenForwards.clone();
+		this.dynamics = dynamics;
+		this.measureType = measureType;
+		this.seed = seed;
+
+		timeDiscretization = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+				LIBORRateTimeHorizon, simulationTimeStep);
+		LIBORPeriodDiscretization = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+				LIBORRateTimeHorizon, LIBORPeriodLength);
+		forwardCurve = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(
+				fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		discountCurve = new DiscountCurveFromForwardCurve(forwardCurve);
+		// As in step 4 of createLIBORMarketModel
+		volatilityScalingFactor = (dynamics == Dynamics.NORMAL) ? 0.05 : 1.0;
+	}
+
+	/**
+	 * It calibrates the parameters to the given targets, starting from the given parameters.
+	 *
+	 * @param targets, the calibration targets: their dates must be on the tenure structure
+	 * @param calibrationMethod, the objective function, analytic or Monte-Carlo with common random numbers
+	 * @param a, b, c, d, the initial parameters of the volatility structure, with c > 0
+	 * @param correlationDecayParam, the initial decay of the correlation, positive
+	 * @param numberOfThreads, the number of threads evaluating the objective function
+	 * @param maximumNumberOfIterations, the maximum number of iterations of the optimizer
+	 * @param errorTolerance, the optimizer stops when the root mean squared error changes by less than this
+	 * @return the calibrated parameters and the values of the targets in the calibrated model
+	 * @throws CalculationException
+	 */
+	public LiborInArrearsCalibrationResult calibrate(LiborInArrearsCalibrationTarget[] targets,
+			CalibrationMethod calibrationMethod,
+			double a, double b, double c, double d,
+			double correlationDecayParam,
+			int numberOfThreads,
+			int maximumNumberOfIterations,
+			double errorTolerance) throws CalculationException {
+
+		if(c <= 0 || correlationDecayParam <= 0) {
+			throw new IllegalArgumentException("The parameter c and the decay of the correlation must be positive.");
+		}
+		checkTargets(targets);
+
+		final long startTime = System.nanoTime();
+
+		boolean isCorrelationCalibrated = false;
+		final double[] targetValues = new double[targets.length];
+		final double[] weights = new double[targets.length];
+		final AbstractLIBORMonteCarloProduct[] products = new AbstractLIBORMonteCarloProduct[targets.length];
+		for(int targetIndex = 0; targetIndex < targets.length; targetIndex++) {
+			targetValues[targetIndex] = targets[targetIndex].getTargetValue();
+			weights[targetIndex] = targets[targetIndex].getWeight();
+			products[targetIndex] = targets[targetIndex].getProduct();
+			isCorrelationCalibrated |= targets[targetIndex].getProductType() == ProductType.SWAPTION;
+		}
+
+		if(calibrationMethod == CalibrationMethod.MONTE_CARLO) {
+			// Generate the random numbers once, before the threads of the optimizer share the Brownian motion
+			getBrownianMotion().getBrownianIncrement(0, 0);
+		}
+
+		final double[] initialParameters = isCorrelationCalibrated
+				? new double[] { a, b, Math.log(c), d, Math.log(correlationDecayParam) }
+				: new double[] { a, b, Math.log(c), d };
+
+		final boolean isCorrelationCalibratedFinal = isCorrelationCalibrated;
+		final AtomicLong numberOfEvaluations = new AtomicLong();
+		final LevenbergMarquardt optimizer = new LevenbergMarquardt(initialParameters, targetValues,
+				maximumNumberOfIterations, numberOfThreads) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void setValues(double[] parameters, double[] values) throws SolverException {
+				numberOfEvaluations.incrementAndGet();
+				try {
+					final double[] valuesOfTargets = getValues(targets, products, calibrationMethod,
+							parameters[0], parameters[1], Math.exp(parameters[2]), parameters[3],
+							isCorrelationCalibratedFinal ? Math.exp(parameters[4]) : correlationDecayParam);
+					System.arraycopy(valuesOfTargets, 0, values, 0, values.length);
+				}
+				catch(final CalculationException e) {
+					throw new SolverException(e);
+				}
+			}
+		};
+		optimizer.setWeights(weights);
+		optimizer.setErrorTolerance(errorTolerance);
+
+		try {
+			optimizer.run();
+		}
+		catch(final SolverException e) {
+			final Throwable cause = e.getCause() != null ? e.getCause() : e;
+			if(cause instanceof CalculationException) {
+				throw (CalculationException) cause;
+			}
+			throw new CalculationException(cause);
+		}
+
+		final double[] bestFitParameters = optimizer.getBestFitParameters();
+		final double calibratedCorrelationDecayParam = isCorrelationCalibrated ? Math.exp(bestFitParameters[4]) : correlationDecayParam;
+		final double[] calibratedValues = getValues(targets, products, calibrationMethod,
+				bestFitParameters[0], bestFitParameters[1], Math.exp(bestFitParameters[2]), bestFitParameters[3],
+				calibratedCorrelationDecayParam);
+
+		return new LiborInArrearsCalibrationResult(
+				bestFitParameters[0], bestFitParameters[1], Math.exp(bestFitParameters[2]), bestFitParameters[3],
+				calibratedCorrelationDecayParam, targetValues, calibratedValues, optimizer.getRootMeanSquaredError(),
+				optimizer.getIterations(), numberOfEvaluations.get(), (System.nanoTime() - startTime) / 1E9);
+	}
+
+	/**
+	 * It calibrates the parameters as above, on one thread for every processor, with at most 100 iterations and an
+	 * error tolerance of 1E-10.
+	 */
+	public LiborInArrearsCalibrationResult calibrate(LiborInArrearsCalibrationTarget[] targets,
+			CalibrationMethod calibrationMethod,
+			double a, double b, double c, double d,
+			double correlationDecayParam) throws CalculationException {
+		return calibrate(targets, calibrationMethod, a, b, c, d, correlationDecayParam,
+				Runtime.getRuntime().availableProcessors(), 100, 1E-10);
+	}
+
+	/**
+	 * It returns the values of the given targets in the model with the given parameters, by the given method. For
+	 * MONTE_CARLO the simulation is driven by the Brownian motion of the calibration.
+	 *
+	 * @param targets, the calibration targets: their dates must be on the tenure structure
+	 * @param calibrationMethod, analytic or Monte-Carlo
+	 * @return the values of the targets
+	 * @throws CalculationException
+	 */
+	public double[] getValues(LiborInArrearsCalibrationTarget[] targets, CalibrationMethod calibrationMethod,
+			double a, double b, double c, double d, double correlationDecayParam) throws CalculationException {
+		checkTargets(targets);
+		final AbstractLIBORMonteCarloProduct[] products = new AbstractLIBORMonteCarloProduct[targets.length];
+		for(int targetIndex = 0; targetIndex < targets.length; targetIndex++) {
+			products[targetIndex] = targets[targetIndex].getProduct();
+		}
+		return getValues(targets, products, calibrationMethod, a, b, c, d, correlationDecayParam);
+	}
+
+	/**
+	 * It creates the simulation of the LIBOR Market Model with the calibrated parameters, by createLIBORMarketModel.
+	 * With the number of paths and the seed of the calibration, the Monte-Carlo values of the targets on it are the
+	 * calibrated values of a MONTE_CARLO calibration.
+	 *
+	 * @param calibrationResult, the result of calibrate
+	 * @return the simulation of the calibrated model
+	 * @throws CalculationException
+	 */
+	public LIBORModelMonteCarloSimulationModel createCalibratedModel(LiborInArrearsCalibrationResult calibrationResult)
+			throws CalculationException {
+		return LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+				numberOfPaths, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+				fixingForGivenForwards, givenForwards, calibrationResult.getCorrelationDecayParam(), dynamics, measureType,
+				calibrationResult.getA(), calibrationResult.getB(), calibrationResult.getC(), calibrationResult.getD(), seed);
+	}
+
+	private double[] getValues(LiborInArrearsCalibrationTarget[] targets, AbstractLIBORMonteCarloProduct[] products,
+			CalibrationMethod calibrationMethod, double a, double b, double c, double d, double correlationDecayParam)
+					throws CalculationException {
+		if(calibrationMethod == CalibrationMethod.MONTE_CARLO) {
+			return getMonteCarloValues(products, a, b, c, d, correlationDecayParam);
+		}
+		return getAnalyticValues(targets, a, b, c, d, correlationDecayParam);
+	}
+
+	/*
+	 * The Monte-Carlo values of the products on the model with the given parameters, driven by the shared Brownian motion.
+	 */
+	private double[] getMonteCarloValues(AbstractLIBORMonteCarloProduct[] products,
+			double a, double b, double c, double d, double correlationDecayParam) throws CalculationException {
+
+		// Steps 4 to 7 of createLIBORMarketModel, with the cached correlation model
+		final LIBORVolatilityModelRebonato volatilityModel = new LIBORVolatilityModelRebonato(timeDiscretization,
+				LIBORPeriodDiscretization, a, b, c, d, volatilityScalingFactor);
+		final AbstractLIBORCovarianceModel covarianceModel = new BlendedLocalVolatilityModel(
+				new LIBORCovarianceModelFromVolatilityAndCorrelation(timeDiscretization, LIBORPeriodDiscretization,
+						volatilityModel, getCorrelationModel(correlationDecayParam)),
+				forwardCurve, dynamics == Dynamics.LOGNORMAL ? 0.0 : 1.0, false);
+
+		// Steps 8 to 10, with the Brownian motion of the calibration
+		final LIBORModelMonteCarloSimulationModel model = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createSimulation(
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORModel(
+						LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType),
+				getBrownianMotion());
+
+		final double[] values = new double[products.length];
+		for(int productIndex = 0; productIndex < products.length; productIndex++) {
+			values[productIndex] = products[productIndex].getValue(model);
+		}
+		return values;
+	}
+
+	/*
+	 * The values of the targets by the closed forms of the model with the given parameters.
+	 */
+	private double[] getAnalyticValues(LiborInArrearsCalibrationTarget[] targets,
+			double a, double b, double c, double d, double correlationDecayParam) {
+
+		final LIBORVolatilityModelRebonato volatilityModel = new LIBORVolatilityModelRebonato(timeDiscretization,
+				LIBORPeriodDiscretization, a, b, c, d, volatilityScalingFactor);
+		final LIBORCorrelationModel correlationModel = getCorrelationModel(correlationDecayParam);
+
+		final double[] values = new double[targets.length];
+		for(int targetIndex = 0; targetIndex < targets.length; targetIndex++) {
+			final LiborInArrearsCalibrationTarget target = targets[targetIndex];
+			final double[] tenor = target.getTenor();
+			final double optionMaturity = tenor[0];
+
+			if(target.getProductType() == ProductType.SWAPTION) {
+				values[targetIndex] = getAnalyticValueOfSwaption(tenor, target.getStrike(), volatilityModel, correlationModel);
+				continue;
+			}
+
+			final int liborIndex = LIBORPeriodDiscretization.getTimeIndex(optionMaturity);
+			final double periodLength = tenor[1] - tenor[0];
+			final double initialForward = forwardCurve.getForward(null, optionMaturity);
+			final double discountFactorOfPeriodStart = discountCurve.getDiscountFactor(optionMaturity);
+			final double discountFactorOfPeriodEnd = discountCurve.getDiscountFactor(tenor[1]);
+			final double integratedVariance = getIntegratedCovariance(volatilityModel, correlationModel,
+					liborIndex, liborIndex, optionMaturity);
+
+			if(target.getProductType() == ProductType.CAPLET) {
+				final double volatility = optionMaturity > 0 ? Math.sqrt(integratedVariance / optionMaturity) : 0.0;
+				values[targetIndex] = dynamics == Dynamics.LOGNORMAL
+						? AnalyticFormulas.blackModelCapletValue(initialForward, volatility, optionMaturity, target.getStrike(),
+								periodLength, discountFactorOfPeriodEnd)
+								: AnalyticFormulas.bachelierOptionValue(initialForward, volatility, optionMaturity, target.getStrike(),
+										periodLength * discountFactorOfPeriodEnd);
+			}
+			else if(dynamics == Dynamics.LOGNORMAL) {
+				final double variance = optionMaturity > 0 ? integratedVariance / optionMaturity : 0.0;
+				values[targetIndex] = LiborInArrearsAnalyticFormula.calculateLiborInArrearsFloaterAnalytic(initialForward,
+						variance, optionMaturity, tenor[1], discountFactorOfPeriodEnd, discountFactorOfPeriodStart);
+			}
+			else {
+				// For normal dynamics E[L(T_i)^2] = L(0)^2 + the integrated (absolute) variance
+				values[targetIndex] = discountFactorOfPeriodStart - discountFactorOfPeriodEnd
+						+ discountFactorOfPeriodEnd * periodLength * periodLength * (initialForward * initialForward + integratedVariance);
+			}
+		}
+		return values;
+	}
+
+	/*
+	 * The payer swaption by the approximation of Rebonato, see the description of the class.
+	 */
+	private double getAnalyticValueOfSwaption(double[] swapTenor, double swapRate, LIBORVolatilityModelRebonato volatilityModel,
+			LIBORCorrelationModel correlationModel) {
+		final int numberOfPeriods = swapTenor.length - 1;
+		final double optionMaturity = swapTenor[0];
+
+		double annuity = 0.0;
+		final double[] weights = new double[numberOfPeriods];
+		final double[] initialForwards = new double[numberOfPeriods];
+		final int[] liborIndices = new int[numberOfPeriods];
+		for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+			weights[periodIndex] = (swapTenor[periodIndex + 1] - swapTenor[periodIndex]) * discountCurve.getDiscountFactor(swapTenor[periodIndex + 1]);
+			annuity += weights[periodIndex];
+			initialForwards[periodIndex] = forwardCurve.getForward(null, swapTenor[periodIndex]);
+			liborIndices[periodIndex] = LIBORPeriodDiscretization.getTimeIndex(swapTenor[periodIndex]);
+		}
+		final double initialSwapRate = (discountCurve.getDiscountFactor(optionMaturity)
+				- discountCurve.getDiscountFactor(swapTenor[numberOfPeriods])) / annuity;
+
+		double integratedVariance = 0.0;
+		for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+			for(int otherPeriodIndex = 0; otherPeriodIndex < numberOfPeriods; otherPeriodIndex++) {
+				double weightsProduct = weights[periodIndex] * weights[otherPeriodIndex] / (annuity * annuity);
+				if(dynamics == Dynamics.LOGNORMAL) {
+					weightsProduct *= initialForwards[periodIndex] * initialForwards[otherPeriodIndex] / (initialSwapRate * initialSwapRate);
+				}
+				integratedVariance += weightsProduct * getIntegratedCovariance(volatilityModel, correlationModel,
+						liborIndices[periodIndex], liborIndices[otherPeriodIndex], optionMaturity);
+			}
+		}
+		final double volatility = optionMaturity > 0 ? Math.sqrt(integratedVariance / optionMaturity) : 0.0;
+
+		return dynamics == Dynamics.LOGNORMAL
+				? AnalyticFormulas.blackScholesGeneralizedOptionValue(initialSwapRate, volatility, optionMaturity, swapRate, annuity)
+						: AnalyticFormulas.bachelierOptionValue(initialSwapRate, volatility, optionMaturity, swapRate, annuity);
+	}
+
+	/*
+	 * \int_0^T \rho_{i,j}(t) \sigma_i(t) \sigma_j(t) dt on the time discretization of the simulation, with the volatilities
+	 * of the Euler scheme (at the start of every step). For normal dynamics the volatilities are the ones of the blended
+	 * covariance model, i.e., multiplied by the initial LIBORs.
+	 */
+	private double getIntegratedCovariance(LIBORVolatilityModelRebonato volatilityModel, LIBORCorrelationModel correlationModel,
+			int liborIndex, int otherLiborIndex, double maturity) {
+		double integratedCovariance = 0.0;
+		for(int timeIndex = 0; timeIndex < timeDiscretization.getNumberOfTimeSteps()
+				&& timeDiscretization.getTime(timeIndex + 1) <= maturity; timeIndex++) {
+			final double correlation = liborIndex == otherLiborIndex
+					? 1.0 : correlationModel.getCorrelation(timeIndex, liborIndex, otherLiborIndex);
+			integratedCovariance += correlation
+					* volatilityModel.getVolatility(timeIndex, liborIndex).doubleValue()
+					* volatilityModel.getVolatility(timeIndex, otherLiborIndex).doubleValue()
+					* timeDiscretization.getTimeStep(timeIndex);
+		}
+		if(dynamics == Dynamics.NORMAL) {
+			integratedCovariance *= forwardCurve.getForward(null, LIBORPeriodDiscretization.getTime(liborIndex))
+					* forwardCurve.getForward(null, LIBORPeriodDiscretization.getTime(otherLiborIndex));
+		}
+		return integratedCovariance;
+	}
+
+	/*
+	 * The correlation model (step 5 of createLIBORMarketModel) with one factor for every LIBOR, cached by its decay. The
+	 * model is created outside of any lock: two threads missing the same decay both create it, and the first one put
+	 * in the cache is used by both. When the cache is full an arbitrary entry is removed, so that its size stays
+	 * bounded (up to the number of threads adding at the same time).
+	 */
+	private LIBORCorrelationModel getCorrelationModel(double correlationDecayParam) {
+		final LIBORCorrelationModel cachedCorrelationModel = correlationModels.get(correlationDecayParam);
+		if(cachedCorrelationModel != null) {
+			return cachedCorrelationModel;
+		}
+
+		final LIBORCorrelationModel correlationModel = new LIBORCorrelationModelExponentialDecay(timeDiscretization,
+				LIBORPeriodDiscretization, LIBORPeriodDiscretization.getNumberOfTimeSteps(), correlationDecayParam);
+
+		final Iterator<Double> decays = correlationModels.keySet().iterator();
+		while(correlationModels.size() >= MAXIMUM_NUMBER_OF_CACHED_CORRELATION_MODELS && decays.hasNext()) {
+			decays.next();
+			decays.remove();
+		}
+		final LIBORCorrelationModel previousCorrelationModel = correlationModels.putIfAbsent(correlationDecayParam, correlationModel);
+		return previousCorrelationModel != null ? previousCorrelationModel : correlationModel;
+	}
+
+	private synchronized BrownianMotion getBrownianMotion() {
+		if(brownianMotion == null) {
+			brownianMotion = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createBrownianMotion(
+					timeDiscretization, LIBORPeriodDiscretization.getNumberOfTimeSteps(), numberOfPaths, seed);
+		}
+		return brownianMotion;
+	}
+
+	private void checkTargets(LiborInArrearsCalibrationTarget[] targets) {
+		for(final LiborInArrearsCalibrationTarget target : targets) {
+			for(final double date : target.getTenor()) {
+				if(LIBORPeriodDiscretization.getTimeIndex(date) < 0) {
+					throw new IllegalArgumentException("The date " + date + " of the calibration target " + target
+							+ " is not on the tenure structure.");
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,101 @@
+package liborInArrearsLiborMarketModel;
+
+/**
+ * This class collects the result of a calibration of the LIBOR Market Model, see LiborInArrearsCalibration: the
+ * calibrated parameters a, b, c, d of the Rebonato volatility structure and the decay of the correlation, the values of
+ * the calibration targets in the calibrated model, the root mean squared (weighted) error and the cost of the
+ * calibration.
+ *
+ */
+public class LiborInArrearsCalibrationResult {
+
+	private final double	a, b, c, d;
+	private final double	correlationDecayParam;
+	private final double[]	targetValues;
+	private final double[]	calibratedValues;
+	private final double	rootMeanSquaredError;
+	private final int		numberOfIterations;
+	private final long		numberOfEvaluations;
+	private final double	computationTime;	// seconds
+
+	/**
+	 * @param a, b, c, d, the calibrated parameters of the volatility structure
+	 * @param correlationDecayParam, the calibrated (or, if not calibrated, the initial) decay of the correlation
+	 * @param targetValues, the target values of the calibration targets
+	 * @param calibratedValues, the values of the calibration targets in the calibrated model
+	 * @param rootMeanSquaredError, the root mean squared weighted error of the optimizer
+	 * @param numberOfIterations, the number of iterations of the optimizer
+	 * @param numberOfEvaluations, the number of evaluations of the objective function
+	 * @param computationTime, the time of the calibration in seconds
+	 */
+	public LiborInArrearsCalibrationResult(double a, double b, double c, double d, double correlationDecayParam,
+			double[] targetValues, double[] calibratedValues, double rootMeanSquaredError, int numberOfIterations,
+			long numberOfEvaluations, double computationTime) {
+		this.a = a;
+		this.b = b;
+		this.c = c;
+		this.d = d;
+		this.correlationDecayParam = correlationDecayParam;
+		this.targetValues = targetValues;
+		this.calibratedValues = calibratedValues;
+		this.rootMeanSquaredError = rootMeanSquaredError;
+		this.numberOfIterations = numberOfIterations;
+		this.numberOfEvaluations = numberOfEvaluations;
+		this.computationTime = computationTime;
+	}
+
+	public double getA() {
+		return a;
+	}
+
+	public double getB() {
+		return b;
+	}
+
+	public double getC() {
+		return c;
+	}
+
+	public double getD() {
+		return d;
+	}
+
+	public double getCorrelationDecayParam() {
+		return correlationDecayParam;
+	}
+
+	public double[] getTargetValues() {
+		return targetValues.clone();
+	}
+
+	public double[] getCalibratedValues() {
+		return calibratedValues.clone();
+	}
+
+	public double getRootMeanSquaredError() {
+		return rootMeanSquaredError;
+	}
+
+	public int getNumberOfIterations() {
+		return numberOfIterations;
+	}
+
+	public long getNumberOfEvaluations() {
+		return numberOfEvaluations;
+	}
+
+	/**
+	 * @return the time of the calibration in seconds
+	 */
+	public double getComputationTime() {
+		return computationTime;
+	}
+
+	@Override
+	public String toString() {
+		return "LiborInArrearsCalibrationResult [a=" + a + ", b=" + b + ", c=" + c + ", d=" + d
+				+ ", correlationDecayParam=" + correlationDecayParam + ", rootMeanSquaredError=" + rootMeanSquaredError
+				+ ", iterations=" + numberOfIterations + ", evaluations=" + numberOfEvaluations
+				+ ", computationTime=" + computationTime + "]";
+	}
+}
@@ -0,0 +1,145 @@
+package liborInArrearsLiborMarketModel;
+
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.montecarlo.interestrate.products.Caplet;
+import net.finmath.montecarlo.interestrate.products.Swaption;
+
+/**
+ * This class represents a market price to which the parameters of the LIBOR Market Model are calibrated, see
+ * LiborInArrearsCalibration: a LIBOR in arrears, a caplet or a payer swaption, on dates of the tenure structure, with
+ * its target value and the weight of its error in the objective function.
+ *
+ */
+public class LiborInArrearsCalibrationTarget {
+
+	public enum ProductType { LIBOR_IN_ARREARS, CAPLET, SWAPTION };
+
+	private final ProductType	productType;
+	private final double[]		tenor;			// T_i, T_{i+1} or, for a swaption, T_0 < T_1 < ... < T_m
+	private final double		strike;			// cap rate or swap rate, NaN for the LIBOR in arrears
+	private final double		targetValue;
+	private final double		weight;
+
+	private LiborInArrearsCalibrationTarget(ProductType productType, double[] tenor, double strike, double targetValue,
+			double weight) {
+		if(tenor.length < 2) {
+			throw new IllegalArgumentException("The tenor of a calibration target must have at least two dates.");
+		}
+		for(int dateIndex = 1; dateIndex < tenor.length; dateIndex++) {
+			if(tenor[dateIndex] <= tenor[dateIndex-1]) {
+				throw new IllegalArgumentException("The dates of the tenor must be increasing.");
+			}
+		}
+		if(weight <= 0) {
+			throw new IllegalArgumentException("The weight of a calibration target must be positive.");
+		}
+		this.productType = productType;
+		this.tenor = tenor.clone();
+		this.strike = strike;
+		this.targetValue = targetValue;
+		this.weight = weight;
+	}
+
+	/**
+	 * @param periodStart, the fixing (=payment) date T_i
+	 * @param periodEnd, the end of the period T_{i+1}
+	 * @param targetValue, the market value of the LIBOR in arrears
+	 * @param weight, the weight of the error in the objective function
+	 * @return the calibration target
+	 */
+	public static LiborInArrearsCalibrationTarget createLiborInArrears(double periodStart, double periodEnd,
+			double targetValue, double weight) {
+		return new LiborInArrearsCalibrationTarget(ProductType.LIBOR_IN_ARREARS, new double[] { periodStart, periodEnd },
+				Double.NaN, targetValue, weight);
+	}
+
+	/**
+	 * @param periodStart, the fixing date T_i of the caplet
+	 * @param periodEnd, the payment date T_{i+1} of the caplet
+	 * @param strike, the cap rate
+	 * @param targetValue, the market value of the caplet
+	 * @param weight, the weight of the error in the objective function
+	 * @return the calibration target
+	 */
+	public static LiborInArrearsCalibrationTarget createCaplet(double periodStart, double periodEnd, double strike,
+			double targetValue, double weight) {
+		return new LiborInArrearsCalibrationTarget(ProductType.CAPLET, new double[] { periodStart, periodEnd },
+				strike, targetValue, weight);
+	}
+
+	/**
+	 * @param swapTenor, the dates T_0 < T_1 < ... < T_m of the swap: T_0 is the exercise date, T_0,...,T_{m-1} the fixing
+	 * dates and T_1,...,T_m the payment dates
+	 * @param swapRate, the fixed rate of the payer swap
+	 * @param targetValue, the market value of the swaption
+	 * @param weight, the weight of the error in the objective function
+	 * @return the calibration target
+	 */
+	public static LiborInArrearsCalibrationTarget createSwaption(double[] swapTenor, double swapRate,
+			double targetValue, double weight) {
+		return new LiborInArrearsCalibrationTarget(ProductType.SWAPTION, swapTenor, swapRate, targetValue, weight);
+	}
+
+	/**
+	 * It returns the product of the target, to be valued by Monte-Carlo on a simulation of the LIBOR Market Model.
+	 *
+	 * @return the product
+	 */
+	public AbstractLIBORMonteCarloProduct getProduct() {
+		switch(productType) {
+		case CAPLET:
+			return new Caplet(tenor[0], tenor[1] - tenor[0], strike);
+		case SWAPTION:
+			final int numberOfPeriods = tenor.length - 1;
+			final double[] fixingDates = new double[numberOfPeriods];
+			final double[] paymentDates = new double[numberOfPeriods];
+			final double[] swapRates = new double[numberOfPeriods];
+			for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+				fixingDates[periodIndex] = tenor[periodIndex];
+				paymentDates[periodIndex] = tenor[periodIndex + 1];
+				swapRates[periodIndex] = strike;
+			}
+			return new Swaption(tenor[0], fixingDates, paymentDates, swapRates);
+		case LIBOR_IN_ARREARS:
+		default:
+			return new LiborInArrears(tenor[0], tenor[1]);
+		}
+	}
+
+	/**
+	 * @param newTargetValue, the new target value
+	 * @return a copy of this target with the given target value
+	 */
+	public LiborInArrearsCalibrationTarget getCloneWithModifiedTargetValue(double newTargetValue) {
+		return new LiborInArrearsCalibrationTarget(productType, tenor, strike, newTargetValue, weight);
+	}
+
+	public ProductType getProductType() {
+		return productType;
+	}
+
+	public double[] getTenor() {
+		return tenor.clone();
+	}
+
+	/**
+	 * @return the cap rate or the swap rate, NaN for the LIBOR in arrears
+	 */
+	public double getStrike() {
+		return strike;
+	}
+
+	public double getTargetValue() {
+		return targetValue;
+	}
+
+	public double getWeight() {
+		return weight;
+	}
+
+	@Override
+	public String toString() {
+		return productType + " [" + tenor[0] + ", " + tenor[tenor.length-1] + "]"
+				+ (Double.isNaN(strike) ? "" : " strike " + strike) + ", target " + targetValue;
+	}
+}
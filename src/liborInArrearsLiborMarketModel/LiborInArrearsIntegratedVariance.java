@@ -0,0 +1,92 @@
+package liborInArrearsLiborMarketModel;
+
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.BlendedLocalVolatilityModel;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORCovarianceModelFromVolatilityAndCorrelation;
+import net.finmath.montecarlo.interestrate.models.covariance.LIBORVolatilityModel;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class computes the integrated variance of every LIBOR up to its own fixing date,
+ * \int_0^{T_i} \sigma_i(t)^2 dt ~ \sum_{t_j < T_i} \sigma_i(t_j)^2 (t_{j+1}-t_j),
+ * which divided by T_i is the Black variance to be given to LiborInArrearsAnalyticFormula.
+ *
+ * It gives the same numbers as the diagonal entries [timeIndex(T_i)][i][i] of getIntegratedLIBORCovariance of the
+ * LIBOR market model, but it does not create the whole cube double[time][libor][libor]: when the volatility model is
+ * available it takes O(N_t N_T) time and O(N_T) memory, where N_t is the number of simulation times and N_T the number
+ * of LIBORs.
+ *
+ */
+public class LiborInArrearsIntegratedVariance {
+
+	private LiborInArrearsIntegratedVariance() {
+	}
+
+	/**
+	 * It returns the integrated variances of the LIBORs of the given volatility model up to their fixing dates. The
+	 * correlation of a LIBOR with itself is one, so they depend only on the volatilities.
+	 *
+	 * @param volatilityModel, the volatility model, giving \sigma_i(t_j)
+	 * @return the array of the integrated variances, one for every LIBOR
+	 */
+	public static double[] getIntegratedVariancesToFixing(LIBORVolatilityModel volatilityModel) {
+		final TimeDiscretization timeDiscretization = volatilityModel.getTimeDiscretization();
+		final TimeDiscretization LIBORPeriodDiscretization = volatilityModel.getLiborPeriodDiscretization();
+
+		final double[] integratedVariances = new double[LIBORPeriodDiscretization.getNumberOfTimeSteps()];
+		for(int liborIndex = 0; liborIndex < integratedVariances.length; liborIndex++) {
+			final double fixingDate = LIBORPeriodDiscretization.getTime(liborIndex);
+			double integratedVariance = 0.0;
+			for(int timeIndex = 0; timeIndex < timeDiscretization.getNumberOfTimeSteps()
+					&& timeDiscretization.getTime(timeIndex + 1) <= fixingDate; timeIndex++) {
+				final double volatility = volatilityModel.getVolatility(timeIndex, liborIndex).doubleValue();
+				integratedVariance += volatility * volatility * timeDiscretization.getTimeStep(timeIndex);
+			}
+			integratedVariances[liborIndex] = integratedVariance;
+		}
+		return integratedVariances;
+	}
+
+	/**
+	 * It returns the integrated variances of the LIBORs of the given covariance model up to their fixing dates. For the
+	 * covariance models of LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification, i.e., a volatility and a
+	 * correlation model possibly wrapped in a BlendedLocalVolatilityModel, they are computed from the volatility model.
+	 * Otherwise they are computed from the squares of the factor loadings, in O(N_t N_T F) time and O(F) memory, where
+	 * F is the number of factors. As in getIntegratedLIBORCovariance, the local volatility of a BlendedLocalVolatilityModel
+	 * is not taken into account.
+	 *
+	 * @param covarianceModel, the covariance model of the LIBOR market model
+	 * @return the array of the integrated variances, one for every LIBOR
+	 */
+	public static double[] getIntegratedVariancesToFixing(LIBORCovarianceModel covarianceModel) {
+		final LIBORCovarianceModel baseCovarianceModel = covarianceModel instanceof BlendedLocalVolatilityModel
+				? ((BlendedLocalVolatilityModel) covarianceModel).getBaseCovarianceModel() : covarianceModel;
+		if(baseCovarianceModel instanceof LIBORCovarianceModelFromVolatilityAndCorrelation) {
+			return getIntegratedVariancesToFixing(((LIBORCovarianceModelFromVolatilityAndCorrelation) baseCovarianceModel).getVolatilityModel());
+		}
+
+		final AbstractLIBORCovarianceModel abstractCovarianceModel = (AbstractLIBORCovarianceModel) covarianceModel;
+		final TimeDiscretization timeDiscretization = abstractCovarianceModel.getTimeDiscretization();
+		final TimeDiscretization LIBORPeriodDiscretization = abstractCovarianceModel.getLiborPeriodDiscretization();
+
+		final double[] integratedVariances = new double[LIBORPeriodDiscretization.getNumberOfTimeSteps()];
+		for(int liborIndex = 0; liborIndex < integratedVariances.length; liborIndex++) {
+			final double fixingDate = LIBORPeriodDiscretization.getTime(liborIndex);
+			double integratedVariance = 0.0;
+			for(int timeIndex = 0; timeIndex < timeDiscretization.getNumberOfTimeSteps()
+					&& timeDiscretization.getTime(timeIndex + 1) <= fixingDate; timeIndex++) {
+				final RandomVariable[] factorLoading = abstractCovarianceModel.getFactorLoading(timeIndex, liborIndex, null);
+				double variance = 0.0;
+				for(final RandomVariable factorLoadingOfFactor : factorLoading) {
+					final double value = factorLoadingOfFactor.doubleValue();
+					variance += value * value;
+				}
+				integratedVariance += variance * timeDiscretization.getTimeStep(timeIndex);
+			}
+			integratedVariances[liborIndex] = integratedVariance;
+		}
+		return integratedVariances;
+	}
+}
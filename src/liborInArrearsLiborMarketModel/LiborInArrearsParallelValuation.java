@@ -0,0 +1,151 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.RandomNumberSource;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class values a strip of LIBOR in arrears on a LIBOR Market Model simulated in parallel: the paths are split in
+ * chunks of a given size, every chunk is an independent simulation with its own seed, the chunks run as tasks of a
+ * ForkJoinPool and their valuations are merged with the exact combination of mean and variance, see
+ * LiborInArrearsStripValuation.merge.
+ *
+ * The seed of the chunk k is derived from the seed of the user and from k only, and the valuations of the chunks are
+ * merged in the order of the chunks, not in the order of completion: for given seed and chunk size the result is
+ * bit-identical whatever the number of threads of the pool. Note that changing the chunk size changes the paths, and
+ * thus the result (within the Monte-Carlo error).
+ *
+ * Every task returns only the mean, the variance and the number of paths of every period, without the path-wise
+ * values: the simulation of a chunk can be collected as soon as the chunk is valued, so at most the simulations of the
+ * chunks being valued at the same time (one for every thread of the pool) are in memory. The statistics of the chunks
+ * valued before a slower chunk earlier in the order wait for the merge, but their size does not depend on the number of
+ * paths.
+ *
+ */
+public class LiborInArrearsParallelValuation {
+
+	private LiborInArrearsParallelValuation() {
+	}
+
+	/**
+	 * It returns the seed of the chunk with the given index, derived from the seed of the user by a SplitMix64 mix, so
+	 * that the random number streams of the chunks are reproducible and (practically) independent.
+	 *
+	 * @param seed, the seed of the user
+	 * @param chunkIndex, the index of the chunk
+	 * @return the seed of the chunk
+	 */
+	public static int getSeedOfChunk(int seed, int chunkIndex) {
+		long z = seed * 0x9E3779B97F4A7C15L + (chunkIndex + 1) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		z = z ^ (z >>> 31);
+		return (int) (z ^ (z >>> 32));
+	}
+
+	/**
+	 * It values the given strip on a LIBOR Market Model with numberOfPaths paths, simulated in chunks of at most
+	 * numberOfPathsPerChunk paths in parallel on the given pool. The model parameters have the same meaning as in
+	 * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel.
+	 *
+	 * @param strip, the strip of LIBOR in arrears to be valued
+	 * @param pool, the pool where the chunks are simulated and valued
+	 * @param numberOfPaths, the total number of paths
+	 * @param numberOfPathsPerChunk, the number of paths of every chunk (the last chunk may have less)
+	 * @param randomNumberSource, the source of the random numbers: MERSENNE or SOBOL_BROWNIAN_BRIDGE. Antithetic paths
+	 * 			are not independent, so the standard errors computed from the path-wise variance would be wrong
+	 * @return the valuation of the strip, without the path-wise values
+	 * @throws CalculationException
+	 */
+	public static LiborInArrearsStripValuation getValuation(LiborInArrearsStrip strip,
+			ForkJoinPool pool,
+			int numberOfPaths,
+			int numberOfPathsPerChunk,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			RandomNumberSource randomNumberSource
+			) throws CalculationException {
+
+		if(numberOfPathsPerChunk < 1) {
+			throw new IllegalArgumentException("The number of paths per chunk must be positive.");
+		}
+		if(randomNumberSource == RandomNumberSource.MERSENNE_ANTITHETIC) {
+			throw new IllegalArgumentException("The parallel valuation requires independent paths: antithetic paths are not supported.");
+		}
+
+		final int numberOfChunks = (numberOfPaths + numberOfPathsPerChunk - 1) / numberOfPathsPerChunk;
+		final List<ForkJoinTask<LiborInArrearsStripValuation>> tasks = new ArrayList<>(numberOfChunks);
+		for(int chunkIndex = 0; chunkIndex < numberOfChunks; chunkIndex++) {
+			final int numberOfPathsOfChunk = Math.min(numberOfPathsPerChunk, numberOfPaths - chunkIndex * numberOfPathsPerChunk);
+			final int seedOfChunk = getSeedOfChunk(seed, chunkIndex);
+			tasks.add(pool.submit(() -> {
+				final LIBORModelMonteCarloSimulationModel model =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+								numberOfPathsOfChunk, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+								fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType,
+								a, b, c, d, seedOfChunk, randomNumberSource);
+				return strip.getValuation(0.0, model).getValuationWithoutPathValues();
+			}));
+		}
+
+		// Merge in the order of the chunks, so that the result does not depend on the scheduling
+		LiborInArrearsStripValuation valuation = new LiborInArrearsStripValuation(strip.getPeriodStarts(), strip.getPeriodEnds(),
+				0, new double[strip.getNumberOfPeriods()], new double[strip.getNumberOfPeriods()], null);
+		try {
+			for(final ForkJoinTask<LiborInArrearsStripValuation> task : tasks) {
+				valuation = valuation.merge(task.get());
+			}
+		}
+		catch(final Exception e) {
+			for(final ForkJoinTask<LiborInArrearsStripValuation> task : tasks) {
+				task.cancel(true);
+			}
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			final Throwable cause = e.getCause() != null ? e.getCause() : e;
+			if(cause instanceof CalculationException) {
+				throw (CalculationException) cause;
+			}
+			throw new CalculationException(cause);
+		}
+		return valuation;
+	}
+
+	/**
+	 * It values the given strip as above, on the common pool of the JVM, with Mersenne twister random numbers.
+	 */
+	public static LiborInArrearsStripValuation getValuation(LiborInArrearsStrip strip,
+			int numberOfPaths,
+			int numberOfPathsPerChunk,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed
+			) throws CalculationException {
+		return getValuation(strip, ForkJoinPool.commonPool(), numberOfPaths, numberOfPathsPerChunk, simulationTimeStep,
+				LIBORPeriodLength, LIBORRateTimeHorizon, fixingForGivenForwards, givenForwards, correlationDecayParam,
+				dynamics, measureType, a, b, c, d, seed, RandomNumberSource.MERSENNE);
+	}
+}
@@ -0,0 +1,217 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.Arrays;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.ValuationTimer;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.TermStructureMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class represents a book of LIBOR in arrears floaters: trade k pays notional_k L(T_k,E_k;T_k) (E_k-T_k) at its
+ * fixing (=payment) date T_k, where E_k is the end of its period. The trades may have any notionals and overlapping or
+ * equal periods.
+ *
+ * Calling LiborInArrears.getValue for every trade queries the model for every trade. Here the trades are grouped, once
+ * in the constructor, by their fixing index (the index of T_k among the distinct fixing dates) and, inside a fixing,
+ * by their period. The valuation fetches the numeraire at evaluation time once, the numeraire N(T) once for every
+ * distinct fixing and the LIBOR once for every distinct period. The discounted payoff of every distinct period is
+ * computed once, and the notional-weighted payoffs are accumulated into the path-wise value of the portfolio, so the
+ * cost grows with the number of distinct periods and not with the number of trades. The accumulation is done on the
+ * random variables of the model, so the portfolio keeps their type: e.g., single precision or differentiable, see
+ * LiborInArrearsAlgorithmicDifferentiation.
+ *
+ * The trades of the same period have the same discounted payoff up to their notional, so their values and standard
+ * errors follow from the statistics of that payoff. The value and standard error of the portfolio come from its
+ * path-wise vector, so they take into account the correlation among the trades.
+ *
+ */
+public class LiborInArrearsPortfolio extends AbstractLIBORMonteCarloProduct {
+
+	private final double[]	notionals;
+	private final double[]	fixings;		// T_k
+	private final double[]	periodEnds;		// E_k
+
+	// The grouping of the trades
+	private final double[]	distinctFixings;				// increasing
+	private final int[][]	periodIndicesOfFixings;			// [fixing index][] -> indices of the distinct periods fixing there
+	private final double[]	periodStartsOfDistinctPeriods;
+	private final double[]	periodEndsOfDistinctPeriods;
+	private final int[]		periodIndexOfTrades;			// [trade index] -> index of its distinct period
+	private final double[]	notionalsOfDistinctPeriods;		// sum of the notionals of the trades of the period
+
+	/**
+	 * @param notionals, the notionals of the trades
+	 * @param fixings, the fixing (=payment) dates T_k of the trades
+	 * @param periodEnds, the end dates E_k of the periods of the trades
+	 */
+	public LiborInArrearsPortfolio(double[] notionals, double[] fixings, double[] periodEnds) {
+		super();
+		if(notionals.length != fixings.length || fixings.length != periodEnds.length) {
+			throw new IllegalArgumentException("Notionals, fixings and period ends must have the same length.");
+		}
+		for(int tradeIndex = 0; tradeIndex < fixings.length; tradeIndex++) {
+			if(periodEnds[tradeIndex] <= fixings[tradeIndex]) {
+				throw new IllegalArgumentException("The period of the trade " + tradeIndex + " must end after its fixing.");
+			}
+		}
+		this.notionals = notionals.clone();
+		this.fixings = fixings.clone();
+		this.periodEnds = periodEnds.clone();
+
+		// The trades sorted by fixing and then by period end: the trades of the same period are then adjacent
+		final Integer[] sortedTradeIndices = new Integer[fixings.length];
+		for(int tradeIndex = 0; tradeIndex < fixings.length; tradeIndex++) {
+			sortedTradeIndices[tradeIndex] = tradeIndex;
+		}
+		Arrays.sort(sortedTradeIndices, (tradeIndex, otherTradeIndex) -> fixings[tradeIndex] != fixings[otherTradeIndex]
+				? Double.compare(fixings[tradeIndex], fixings[otherTradeIndex])
+						: Double.compare(periodEnds[tradeIndex], periodEnds[otherTradeIndex]));
+
+		// The distinct periods (T,E) and the distinct fixings T, in increasing order
+		periodIndexOfTrades = new int[fixings.length];
+		final double[] periodStarts = new double[fixings.length];
+		final double[] periodEndsOfPeriods = new double[fixings.length];
+		final double[] notionalsOfPeriods = new double[fixings.length];
+		final int[] fixingIndexOfPeriods = new int[fixings.length];
+		final double[] fixingDates = new double[fixings.length];
+		int numberOfPeriods = 0;
+		int numberOfFixings = 0;
+		for(final int tradeIndex : sortedTradeIndices) {
+			final boolean isNewFixing = numberOfPeriods == 0 || fixings[tradeIndex] != periodStarts[numberOfPeriods-1];
+			if(isNewFixing || periodEnds[tradeIndex] != periodEndsOfPeriods[numberOfPeriods-1]) {
+				if(isNewFixing) {
+					fixingDates[numberOfFixings++] = fixings[tradeIndex];
+				}
+				periodStarts[numberOfPeriods] = fixings[tradeIndex];
+				periodEndsOfPeriods[numberOfPeriods] = periodEnds[tradeIndex];
+				fixingIndexOfPeriods[numberOfPeriods] = numberOfFixings - 1;
+				numberOfPeriods++;
+			}
+			periodIndexOfTrades[tradeIndex] = numberOfPeriods - 1;
+			notionalsOfPeriods[numberOfPeriods-1] += notionals[tradeIndex];
+		}
+		periodStartsOfDistinctPeriods = Arrays.copyOf(periodStarts, numberOfPeriods);
+		periodEndsOfDistinctPeriods = Arrays.copyOf(periodEndsOfPeriods, numberOfPeriods);
+		notionalsOfDistinctPeriods = Arrays.copyOf(notionalsOfPeriods, numberOfPeriods);
+		distinctFixings = Arrays.copyOf(fixingDates, numberOfFixings);
+
+		// The periods of every fixing are adjacent
+		periodIndicesOfFixings = new int[numberOfFixings][];
+		for(int periodIndex = 0; periodIndex < numberOfPeriods;) {
+			final int fixingIndex = fixingIndexOfPeriods[periodIndex];
+			final int firstPeriodIndex = periodIndex;
+			while(periodIndex < numberOfPeriods && fixingIndexOfPeriods[periodIndex] == fixingIndex) {
+				periodIndex++;
+			}
+			periodIndicesOfFixings[fixingIndex] = new int[periodIndex - firstPeriodIndex];
+			for(int index = 0; index < periodIndicesOfFixings[fixingIndex].length; index++) {
+				periodIndicesOfFixings[fixingIndex][index] = firstPeriodIndex + index;
+			}
+		}
+	}
+
+	/**
+	 * It values all the trades and the portfolio in one pass over the distinct fixings of the model.
+	 *
+	 * @param evaluationTime, the time t at which the portfolio is valued
+	 * @param model, the simulation of the LIBOR market model
+	 * @return an object of type LiborInArrearsPortfolioValuation with the statistics of the trades and of the portfolio
+	 * @throws CalculationException
+	 */
+	public LiborInArrearsPortfolioValuation getValuation(double evaluationTime, TermStructureMonteCarloSimulationModel model)
+			throws CalculationException {
+
+		final int numberOfPaths = model.getNumberOfPaths();
+
+		// Get numeraire at evaluation time once for all the trades: you multiply by N(0)
+		final RandomVariable numeraireAtEvaluationTime = model.getNumeraire(evaluationTime);
+
+		if(periodStartsOfDistinctPeriods.length > 0) {
+			LIBORMarketModelMetrics.evolveBeforeValuation(model, periodStartsOfDistinctPeriods[0], periodEndsOfDistinctPeriods[0]);
+		}
+
+		final double[] unitValues = new double[periodStartsOfDistinctPeriods.length];
+		final double[] unitVariances = new double[periodStartsOfDistinctPeriods.length];
+		RandomVariable portfolioValue = model.getRandomVariableForConstant(0.0);
+		for(int fixingIndex = 0; fixingIndex < distinctFixings.length; fixingIndex++) {
+			final double fixing = distinctFixings[fixingIndex];
+
+			// N(T) is fetched only once for all the trades fixing at T
+			final RandomVariable numeraire = model.getNumeraire(fixing);
+			final RandomVariable discountFactor = numeraireAtEvaluationTime.div(numeraire);
+
+			for(final int periodIndex : periodIndicesOfFixings[fixingIndex]) {
+				final double periodEnd = periodEndsOfDistinctPeriods[periodIndex];
+				final ValuationTimer timer = LIBORMarketModelMetrics.startValuation();
+
+				// L(T,E;T) is fetched only once for all the trades of the period
+				final RandomVariable libor = model.getLIBOR(fixing, fixing, periodEnd);
+				final RandomVariable unitPayoff = libor.mult(periodEnd - fixing).mult(discountFactor);
+
+				final double[] meanAndVariance = LiborInArrearsStripValuation.getMeanAndVariance(unitPayoff);
+				unitValues[periodIndex] = meanAndVariance[0];
+				unitVariances[periodIndex] = meanAndVariance[1];
+
+				// Accumulate the notional-weighted payoff of the trades of the period into the portfolio
+				portfolioValue = portfolioValue.addProduct(unitPayoff, notionalsOfDistinctPeriods[periodIndex]);
+				LIBORMarketModelMetrics.stopValuation(timer, fixing, periodEnd, numberOfPaths);
+			}
+		}
+
+		final double[] values = new double[notionals.length];
+		final double[] variances = new double[notionals.length];
+		for(int tradeIndex = 0; tradeIndex < notionals.length; tradeIndex++) {
+			final int periodIndex = periodIndexOfTrades[tradeIndex];
+			values[tradeIndex] = notionals[tradeIndex] * unitValues[periodIndex];
+			variances[tradeIndex] = notionals[tradeIndex] * notionals[tradeIndex] * unitVariances[periodIndex];
+		}
+
+		final double[] meanAndVarianceOfPortfolio = LiborInArrearsStripValuation.getMeanAndVariance(portfolioValue);
+
+		return new LiborInArrearsPortfolioValuation(numberOfPaths, values, variances,
+				meanAndVarianceOfPortfolio[0], meanAndVarianceOfPortfolio[1], portfolioValue,
+				distinctFixings.length, periodStartsOfDistinctPeriods.length);
+	}
+
+	/**
+	 * It returns the path-wise value of the whole portfolio, i.e., the sum of the notional-weighted discounted payoffs
+	 * of all the trades.
+	 */
+	@Override
+	public RandomVariable getValue(double evaluationTime, TermStructureMonteCarloSimulationModel model)
+			throws CalculationException {
+		return getValuation(evaluationTime, model).getPortfolioPathValues();
+	}
+
+	public int getNumberOfTrades() {
+		return notionals.length;
+	}
+
+	/**
+	 * @return the number of distinct fixing dates, i.e., of numeraires fetched by the valuation
+	 */
+	public int getNumberOfDistinctFixings() {
+		return distinctFixings.length;
+	}
+
+	/**
+	 * @return the number of distinct periods, i.e., of LIBORs fetched by the valuation
+	 */
+	public int getNumberOfDistinctPeriods() {
+		return periodStartsOfDistinctPeriods.length;
+	}
+
+	public double[] getNotionals() {
+		return notionals.clone();
+	}
+
+	public double[] getFixings() {
+		return fixings.clone();
+	}
+
+	public double[] getPeriodEnds() {
+		return periodEnds.clone();
+	}
+}
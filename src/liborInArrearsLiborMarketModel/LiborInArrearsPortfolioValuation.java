@@ -0,0 +1,109 @@
+package liborInArrearsLiborMarketModel;
+
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class collects the result of the valuation of a book of LIBOR in arrears, see LiborInArrearsPortfolio: the
+ * Monte-Carlo mean and the variance of the notional-weighted discounted payoff of every trade, the same statistics for
+ * the whole portfolio and its path-wise value.
+ *
+ */
+public class LiborInArrearsPortfolioValuation {
+
+	private final long				numberOfPaths;
+	private final double[]			values;				// mean of the discounted payoff of every trade
+	private final double[]			variances;			// (population) variance of the discounted payoff of every trade
+	private final double			portfolioValue;
+	private final double			portfolioVariance;
+	private final RandomVariable	portfolioPathValues;
+	private final int				numberOfDistinctFixings;
+	private final int				numberOfDistinctPeriods;
+
+	/**
+	 * @param numberOfPaths, the number of paths the statistics refer to
+	 * @param values, the Monte-Carlo means of the trades
+	 * @param variances, the variances of the discounted payoffs of the trades
+	 * @param portfolioValue, the Monte-Carlo mean of the portfolio
+	 * @param portfolioVariance, the variance of the discounted payoff of the portfolio
+	 * @param portfolioPathValues, the path-wise discounted payoff of the portfolio
+	 * @param numberOfDistinctFixings, the number of numeraires fetched by the valuation
+	 * @param numberOfDistinctPeriods, the number of LIBORs fetched by the valuation
+	 */
+	public LiborInArrearsPortfolioValuation(long numberOfPaths, double[] values, double[] variances,
+			double portfolioValue, double portfolioVariance, RandomVariable portfolioPathValues,
+			int numberOfDistinctFixings, int numberOfDistinctPeriods) {
+		this.numberOfPaths = numberOfPaths;
+		this.values = values;
+		this.variances = variances;
+		this.portfolioValue = portfolioValue;
+		this.portfolioVariance = portfolioVariance;
+		this.portfolioPathValues = portfolioPathValues;
+		this.numberOfDistinctFixings = numberOfDistinctFixings;
+		this.numberOfDistinctPeriods = numberOfDistinctPeriods;
+	}
+
+	public int getNumberOfTrades() {
+		return values.length;
+	}
+
+	public long getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	/**
+	 * @param tradeIndex, the index of the trade in the portfolio
+	 * @return the Monte-Carlo value of the trade, including its notional
+	 */
+	public double getValue(int tradeIndex) {
+		return values[tradeIndex];
+	}
+
+	/**
+	 * @param tradeIndex, the index of the trade in the portfolio
+	 * @return the Monte-Carlo standard error of the value of the trade, i.e., sqrt(variance / numberOfPaths)
+	 */
+	public double getStandardError(int tradeIndex) {
+		return Math.sqrt(variances[tradeIndex] / numberOfPaths);
+	}
+
+	public double[] getValues() {
+		return values.clone();
+	}
+
+	public double[] getStandardErrors() {
+		final double[] standardErrors = new double[values.length];
+		for(int tradeIndex = 0; tradeIndex < values.length; tradeIndex++) {
+			standardErrors[tradeIndex] = getStandardError(tradeIndex);
+		}
+		return standardErrors;
+	}
+
+	/**
+	 * @return the Monte-Carlo value of the portfolio, i.e., the sum of the values of the trades
+	 */
+	public double getPortfolioValue() {
+		return portfolioValue;
+	}
+
+	/**
+	 * @return the Monte-Carlo standard error of the value of the portfolio, from its path-wise value
+	 */
+	public double getPortfolioStandardError() {
+		return Math.sqrt(portfolioVariance / numberOfPaths);
+	}
+
+	/**
+	 * @return the path-wise discounted payoff of the portfolio
+	 */
+	public RandomVariable getPortfolioPathValues() {
+		return portfolioPathValues;
+	}
+
+	public int getNumberOfDistinctFixings() {
+		return numberOfDistinctFixings;
+	}
+
+	public int getNumberOfDistinctPeriods() {
+		return numberOfDistinctPeriods;
+	}
+}
@@ -0,0 +1,350 @@
+package liborInArrearsLiborMarketModel;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.exception.CalculationException;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class values a strip of LIBOR in arrears over a grid of scenarios, i.e., of combinations of the parameters
+ * (a, b, c, d, correlationDecayParam, dynamics, measure) of
+ * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel, and writes the result of
+ * every scenario to a sink as soon as it is available.
+ *
+ * Every scenario is a task of a bounded executor, which creates the model and values the strip. The simulations are
+ * the memory-heavy part: a semaphore limits how many of them are kept in memory at the same time, independently of
+ * the number of threads, and the simulation of a scenario is released before its result is written. See
+ * getMaximumNumberOfConcurrentSimulations to choose the limit from the heap.
+ *
+ * The results are written in the order of completion, each with the index of its scenario in the grid, in CSV (one
+ * header line and one line for every scenario) or in JSON lines (one JSON object for every scenario), and the sink is
+ * flushed after every scenario. All the scenarios are simulated with the same seed, so they share the random numbers
+ * and the differences between the scenarios are not blurred by the Monte-Carlo error.
+ *
+ */
+public class LiborInArrearsScenarioSweep {
+
+	public enum OutputFormat	{ CSV, JSON_LINES };
+
+	/**
+	 * A point of the grid of scenarios: the parameters of the model which change from one scenario to the other.
+	 */
+	public static class Scenario {
+
+		private final int		index;
+		private final double	a, b, c, d;
+		private final double	correlationDecayParam;
+		private final Dynamics	dynamics;
+		private final Measure	measureType;
+
+		/**
+		 * @param index, the index of the scenario in the grid, written with its result
+		 * @param a, the first term for the volatility structure
+		 * @param b, the second term for the volatility structure
+		 * @param c, the third term for the volatility structure
+		 * @param d, the fourth term for the volatility structure
+		 * @param correlationDecayParam, the parameter \alpha>0 of the correlation
+		 * @param dynamics, normal or log-normal
+		 * @param measureType, spot or terminal
+		 */
+		public Scenario(int index, double a, double b, double c, double d, double correlationDecayParam,
+				Dynamics dynamics, Measure measureType) {
+			this.index = index;
+			this.a = a;
+			this.b = b;
+			this.c = c;
+			this.d = d;
+			this.correlationDecayParam = correlationDecayParam;
+			this.dynamics = dynamics;
+			this.measureType = measureType;
+		}
+
+		public int getIndex() {
+			return index;
+		}
+
+		public double getA() {
+			return a;
+		}
+
+		public double getB() {
+			return b;
+		}
+
+		public double getC() {
+			return c;
+		}
+
+		public double getD() {
+			return d;
+		}
+
+		public double getCorrelationDecayParam() {
+			return correlationDecayParam;
+		}
+
+		public Dynamics getDynamics() {
+			return dynamics;
+		}
+
+		public Measure getMeasureType() {
+			return measureType;
+		}
+	}
+
+	private LiborInArrearsScenarioSweep() {
+	}
+
+	/**
+	 * It creates the grid of all the combinations of the given values of the parameters, indexed in lexicographic order
+	 * (the measure changes fastest).
+	 *
+	 * @return the list of the scenarios
+	 */
+	public static List<Scenario> createScenarioGrid(double[] a, double[] b, double[] c, double[] d,
+			double[] correlationDecayParams, Dynamics[] dynamics, Measure[] measureTypes) {
+		final List<Scenario> scenarios = new ArrayList<>();
+		for(final double aOfScenario : a) {
+			for(final double bOfScenario : b) {
+				for(final double cOfScenario : c) {
+					for(final double dOfScenario : d) {
+						for(final double correlationDecayParam : correlationDecayParams) {
+							for(final Dynamics dynamicsOfScenario : dynamics) {
+								for(final Measure measureType : measureTypes) {
+									scenarios.add(new Scenario(scenarios.size(), aOfScenario, bOfScenario, cOfScenario,
+											dOfScenario, correlationDecayParam, dynamicsOfScenario, measureType));
+								}
+							}
+						}
+					}
+				}
+			}
+		}
+		return scenarios;
+	}
+
+	/**
+	 * It returns how many simulations with the given parameters fit in 80% of the maximum heap of the JVM, at least one.
+	 * The memory of a simulation is estimated from its largest parts, the Brownian increments and the paths of the
+	 * LIBORs: (N_t F + (N_t + 1) N_T) numberOfPaths doubles, where N_t is the number of time steps, F the number of
+	 * factors and N_T the number of LIBORs.
+	 *
+	 * @param numberOfPaths, number of simulations
+	 * @param simulationTimeStep, the time step for the simulation of the LIBOR processes
+	 * @param LIBORPeriodLength, the length of the interval between times of the tenure structure
+	 * @param LIBORRateTimeHorizon, final LIBOR maturity
+	 * @param numberOfFactors, the number of factors
+	 * @return the maximum number of simulations to be kept in memory at the same time
+	 */
+	public static int getMaximumNumberOfConcurrentSimulations(int numberOfPaths, double simulationTimeStep,
+			double LIBORPeriodLength, double LIBORRateTimeHorizon, int numberOfFactors) {
+		final long numberOfTimeSteps = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+				LIBORRateTimeHorizon, simulationTimeStep).getNumberOfTimeSteps();
+		final long numberOfLibors = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+				LIBORRateTimeHorizon, LIBORPeriodLength).getNumberOfTimeSteps();
+		final double bytesPerSimulation = (double) (numberOfTimeSteps * numberOfFactors + (numberOfTimeSteps + 1) * numberOfLibors)
+				* numberOfPaths * Double.BYTES;
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, 0.8 * Runtime.getRuntime().maxMemory() / bytesPerSimulation));
+	}
+
+	/**
+	 * It values the given strip for every scenario on the given executor, with at most maximumNumberOfConcurrentSimulations
+	 * simulations in memory at the same time, and writes the results to the given writer as they complete. The other
+	 * parameters of the model, common to all the scenarios, have the same meaning as in createLIBORMarketModel.
+	 *
+	 * Every result contains the index and the parameters of the scenario, the value of the strip and its standard error,
+	 * the computation time of the scenario in seconds and the values of the periods. If a scenario fails, the
+	 * scenarios not yet completed are cancelled and the exception is thrown; the results already written stay.
+	 *
+	 * @param scenarios, the scenarios, see createScenarioGrid
+	 * @param strip, the strip of LIBOR in arrears to be valued
+	 * @param executor, the executor running the scenarios: its threads bound the parallelism
+	 * @param maximumNumberOfConcurrentSimulations, the maximum number of simulations in memory at the same time
+	 * @param writer, the sink of the results: it is flushed after every result, not closed
+	 * @param outputFormat, CSV or JSON lines
+	 * @throws CalculationException
+	 * @throws IOException
+	 */
+	public static void run(List<Scenario> scenarios,
+			LiborInArrearsStrip strip,
+			ExecutorService executor,
+			int maximumNumberOfConcurrentSimulations,
+			int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			int seed,
+			Writer writer,
+			OutputFormat outputFormat
+			) throws CalculationException, IOException {
+
+		if(maximumNumberOfConcurrentSimulations < 1) {
+			throw new IllegalArgumentException("At least one simulation must be allowed.");
+		}
+
+		if(outputFormat == OutputFormat.CSV) {
+			writer.write(getHeaderOfCSV(strip.getNumberOfPeriods()));
+			writer.flush();
+		}
+
+		final Semaphore simulationPermits = new Semaphore(maximumNumberOfConcurrentSimulations);
+		final List<Future<?>> tasks = new ArrayList<>(scenarios.size());
+		for(final Scenario scenario : scenarios) {
+			tasks.add(executor.submit(() -> {
+				final LiborInArrearsStripValuation valuation;
+				simulationPermits.acquire();
+				final long startTime = System.nanoTime(); // not counting the wait for the permit
+				try {
+					final LIBORModelMonteCarloSimulationModel model =
+							LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+									numberOfPaths, simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon,
+									fixingForGivenForwards, givenForwards, scenario.getCorrelationDecayParam(),
+									scenario.getDynamics(), scenario.getMeasureType(),
+									scenario.getA(), scenario.getB(), scenario.getC(), scenario.getD(), seed);
+					valuation = strip.getValuation(0.0, model);
+				}
+				finally {
+					simulationPermits.release();
+				}
+				final String result = getResult(scenario, valuation, (System.nanoTime() - startTime) / 1E9, outputFormat);
+				synchronized(writer) {
+					writer.write(result);
+					writer.flush();
+				}
+				return null;
+			}));
+		}
+
+		try {
+			for(final Future<?> task : tasks) {
+				task.get();
+			}
+		}
+		catch(final Exception e) {
+			for(final Future<?> task : tasks) {
+				task.cancel(true);
+			}
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			final Throwable cause = e.getCause() != null ? e.getCause() : e;
+			if(cause instanceof IOException) {
+				throw (IOException) cause;
+			}
+			if(cause instanceof CalculationException) {
+				throw (CalculationException) cause;
+			}
+			throw new CalculationException(cause);
+		}
+	}
+
+	/**
+	 * It values the given strip for every scenario as above, on a pool with one thread for every processor, with as
+	 * many simulations in memory as fit in the heap (see getMaximumNumberOfConcurrentSimulations), one factor for every
+	 * LIBOR.
+	 */
+	public static void run(List<Scenario> scenarios,
+			LiborInArrearsStrip strip,
+			int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			int seed,
+			Writer writer,
+			OutputFormat outputFormat
+			) throws CalculationException, IOException {
+		// One factor for every LIBOR, as in createLIBORMarketModel
+		final int numberOfFactors = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+				LIBORRateTimeHorizon, LIBORPeriodLength).getNumberOfTimeSteps();
+		final int maximumNumberOfConcurrentSimulations = getMaximumNumberOfConcurrentSimulations(numberOfPaths,
+				simulationTimeStep, LIBORPeriodLength, LIBORRateTimeHorizon, numberOfFactors);
+		final ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			run(scenarios, strip, executor, maximumNumberOfConcurrentSimulations, numberOfPaths, simulationTimeStep,
+					LIBORPeriodLength, LIBORRateTimeHorizon, fixingForGivenForwards, givenForwards, seed, writer, outputFormat);
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private static String getHeaderOfCSV(int numberOfPeriods) {
+		final StringBuilder header = new StringBuilder(
+				"scenario,a,b,c,d,correlationDecayParam,dynamics,measure,stripValue,stripStandardError,computationTime");
+		for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+			header.append(",value").append(periodIndex);
+		}
+		return header.append('\n').toString();
+	}
+
+	/*
+	 * The result of a scenario, as one line of CSV or one JSON object. The standard error of the strip is the one of the
+	 * sum of the path-wise values of the periods, which are correlated.
+	 */
+	private static String getResult(Scenario scenario, LiborInArrearsStripValuation valuation, double computationTime,
+			OutputFormat outputFormat) {
+		RandomVariable valuesOfStrip = valuation.getPathValues(0);
+		for(int periodIndex = 1; periodIndex < valuation.getNumberOfPeriods(); periodIndex++) {
+			valuesOfStrip = valuesOfStrip.add(valuation.getPathValues(periodIndex));
+		}
+		final double[] meanAndVariance = LiborInArrearsStripValuation.getMeanAndVariance(valuesOfStrip);
+		final double standardErrorOfStrip = Math.sqrt(meanAndVariance[1] / valuation.getNumberOfPaths());
+
+		final StringBuilder result = new StringBuilder();
+		if(outputFormat == OutputFormat.CSV) {
+			result.append(scenario.getIndex()).append(',').append(scenario.getA()).append(',').append(scenario.getB())
+			.append(',').append(scenario.getC()).append(',').append(scenario.getD())
+			.append(',').append(scenario.getCorrelationDecayParam()).append(',').append(scenario.getDynamics())
+			.append(',').append(scenario.getMeasureType()).append(',').append(meanAndVariance[0])
+			.append(',').append(standardErrorOfStrip).append(',').append(computationTime);
+			for(final double value : valuation.getValues()) {
+				result.append(',').append(value);
+			}
+		}
+		else {
+			result.append("{\"scenario\":").append(scenario.getIndex());
+			appendJSONNumber(result.append(",\"a\":"), scenario.getA());
+			appendJSONNumber(result.append(",\"b\":"), scenario.getB());
+			appendJSONNumber(result.append(",\"c\":"), scenario.getC());
+			appendJSONNumber(result.append(",\"d\":"), scenario.getD());
+			appendJSONNumber(result.append(",\"correlationDecayParam\":"), scenario.getCorrelationDecayParam());
+			result.append(",\"dynamics\":\"").append(scenario.getDynamics()).append("\",\"measure\":\"").append(scenario.getMeasureType()).append('"');
+			appendJSONNumber(result.append(",\"stripValue\":"), meanAndVariance[0]);
+			appendJSONNumber(result.append(",\"stripStandardError\":"), standardErrorOfStrip);
+			appendJSONNumber(result.append(",\"computationTime\":"), computationTime);
+			result.append(",\"values\":[");
+			final double[] values = valuation.getValues();
+			for(int periodIndex = 0; periodIndex < values.length; periodIndex++) {
+				appendJSONNumber(result.append(periodIndex > 0 ? "," : ""), values[periodIndex]);
+			}
+			result.append("]}");
+		}
+		return result.append('\n').toString();
+	}
+
+	/*
+	 * JSON has no NaN or infinity: a value which is not finite, e.g., the value of a diverging scenario, is written as null.
+	 */
+	private static void appendJSONNumber(StringBuilder result, double value) {
+		if(Double.isFinite(value)) {
+			result.append(value);
+		}
+		else {
+			result.append("null");
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModel;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class computes the sensitivities of a strip of LIBOR in arrears by finite differences with common random
+ * numbers: the deltas with respect to the given initial forwards (one bucket for every forward) and the vegas with
+ * respect to the parameters a, b, c, d of the Rebonato volatility structure.
+ *
+ * All the bumped models are driven by one Brownian motion, whose random numbers are generated once, so the difference
+ * of the values of two bumped models contains no independent Monte-Carlo noise. For every bump only the affected
+ * components are created again: for a bump of a forward the forward curve (and the covariance model only for normal
+ * dynamics, where the volatility is scaled by the initial forwards), for a bump of a volatility parameter the
+ * covariance model. The time discretizations, the Brownian motion and the unaffected components are shared.
+ *
+ * The derivatives are central differences (V(x+h) - V(x-h)) / 2h. The bumped models are simulated and valued as tasks
+ * of a ForkJoinPool: every task keeps its own simulation in memory until the strip is valued.
+ *
+ */
+public class LiborInArrearsSensitivityEngine {
+
+	private LiborInArrearsSensitivityEngine() {
+	}
+
+	/**
+	 * It computes value, bucketed deltas and vegas of the given strip. The model parameters have the same meaning as
+	 * in LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel.
+	 *
+	 * @param strip, the strip of LIBOR in arrears
+	 * @param pool, the pool where the bumped models are simulated and valued
+	 * @param forwardShift, the (absolute) shift h of the given forwards
+	 * @param volatilityParameterShift, the (absolute) shift h of the parameters a, b, c, d
+	 * @return an object of type LiborInArrearsStripSensitivities with value, deltas and vegas of every period
+	 * @throws CalculationException
+	 */
+	public static LiborInArrearsStripSensitivities getSensitivities(LiborInArrearsStrip strip,
+			ForkJoinPool pool,
+			int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed,
+			double forwardShift,
+			double volatilityParameterShift
+			) throws CalculationException {
+
+		// The components shared by all the bumped models
+		final TimeDiscretization timeDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, simulationTimeStep);
+		final TimeDiscretization LIBORPeriodDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength);
+		final ForwardCurve forwardCurve =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		final AbstractLIBORCovarianceModel covarianceModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+						timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParam, dynamics, a, b, c, d);
+		final BrownianMotion brownianMotion =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createBrownianMotion(
+						timeDiscretization, covarianceModel.getNumberOfFactors(), numberOfPaths, seed);
+
+		// Generate the random numbers once, before the tasks share the Brownian motion
+		brownianMotion.getBrownianIncrement(0, 0);
+
+		final List<ForkJoinTask<double[]>> tasks = new ArrayList<>();
+
+		// The unbumped model
+		tasks.add(pool.submit(getValuesOfPeriods(strip, LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType, brownianMotion)));
+
+		// Up and down bumps of every given forward
+		for(int forwardIndex = 0; forwardIndex < givenForwards.length; forwardIndex++) {
+			for(final double shift : new double[] { forwardShift, -forwardShift }) {
+				final double[] bumpedForwards = givenForwards.clone();
+				bumpedForwards[forwardIndex] += shift;
+				final ForwardCurve bumpedForwardCurve =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(fixingForGivenForwards, bumpedForwards, LIBORPeriodLength);
+				// Under normal dynamics the volatility is scaled by the initial forwards, so it depends on the curve
+				final AbstractLIBORCovarianceModel covarianceModelOfBump = dynamics == Dynamics.NORMAL
+						? LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+								timeDiscretization, LIBORPeriodDiscretization, bumpedForwardCurve, correlationDecayParam, dynamics, a, b, c, d)
+						: covarianceModel;
+				tasks.add(pool.submit(getValuesOfPeriods(strip, LIBORPeriodDiscretization, bumpedForwardCurve, covarianceModelOfBump,
+						measureType, brownianMotion)));
+			}
+		}
+
+		// Up and down bumps of every volatility parameter
+		final double[] volatilityParameters = { a, b, c, d };
+		for(int parameterIndex = 0; parameterIndex < volatilityParameters.length; parameterIndex++) {
+			for(final double shift : new double[] { volatilityParameterShift, -volatilityParameterShift }) {
+				final double[] bumpedParameters = volatilityParameters.clone();
+				bumpedParameters[parameterIndex] += shift;
+				final AbstractLIBORCovarianceModel bumpedCovarianceModel =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+								timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParam, dynamics,
+								bumpedParameters[0], bumpedParameters[1], bumpedParameters[2], bumpedParameters[3]);
+				tasks.add(pool.submit(getValuesOfPeriods(strip, LIBORPeriodDiscretization, forwardCurve, bumpedCovarianceModel,
+						measureType, brownianMotion)));
+			}
+		}
+
+		final List<double[]> valuesOfScenarios = new ArrayList<>(tasks.size());
+		try {
+			for(final ForkJoinTask<double[]> task : tasks) {
+				valuesOfScenarios.add(task.get());
+			}
+		}
+		catch(final Exception e) {
+			for(final ForkJoinTask<double[]> task : tasks) {
+				task.cancel(true);
+			}
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			final Throwable cause = e.getCause() != null ? e.getCause() : e;
+			if(cause instanceof CalculationException) {
+				throw (CalculationException) cause;
+			}
+			throw new CalculationException(cause);
+		}
+
+		// Central differences, in the order in which the scenarios have been submitted
+		final int numberOfPeriods = strip.getNumberOfPeriods();
+		final double[][] deltas = new double[numberOfPeriods][givenForwards.length];
+		final double[][] vegas = new double[numberOfPeriods][volatilityParameters.length];
+		int scenarioIndex = 1;
+		for(int forwardIndex = 0; forwardIndex < givenForwards.length; forwardIndex++, scenarioIndex += 2) {
+			for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+				deltas[periodIndex][forwardIndex] = (valuesOfScenarios.get(scenarioIndex)[periodIndex]
+						- valuesOfScenarios.get(scenarioIndex + 1)[periodIndex]) / (2 * forwardShift);
+			}
+		}
+		for(int parameterIndex = 0; parameterIndex < volatilityParameters.length; parameterIndex++, scenarioIndex += 2) {
+			for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+				vegas[periodIndex][parameterIndex] = (valuesOfScenarios.get(scenarioIndex)[periodIndex]
+						- valuesOfScenarios.get(scenarioIndex + 1)[periodIndex]) / (2 * volatilityParameterShift);
+			}
+		}
+
+		return new LiborInArrearsStripSensitivities(strip.getPeriodStarts(), strip.getPeriodEnds(), valuesOfScenarios.get(0),
+				deltas, vegas);
+	}
+
+	/**
+	 * It computes the sensitivities as above, on the common pool of the JVM, with shifts of one basis point for the
+	 * forwards and of 0.0001 for the volatility parameters.
+	 */
+	public static LiborInArrearsStripSensitivities getSensitivities(LiborInArrearsStrip strip,
+			int numberOfPaths,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed
+			) throws CalculationException {
+		return getSensitivities(strip, ForkJoinPool.commonPool(), numberOfPaths, simulationTimeStep, LIBORPeriodLength,
+				LIBORRateTimeHorizon, fixingForGivenForwards, givenForwards, correlationDecayParam, dynamics, measureType,
+				a, b, c, d, seed, 1E-4, 1E-4);
+	}
+
+	/*
+	 * The task creating the LIBOR model from the given components, simulating it with the shared Brownian motion and
+	 * valuing the periods of the strip.
+	 */
+	private static Callable<double[]> getValuesOfPeriods(LiborInArrearsStrip strip, TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve, AbstractLIBORCovarianceModel covarianceModel, Measure measureType, BrownianMotion brownianMotion) {
+		return () -> {
+			final LIBORModelMonteCarloSimulationModel model = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createSimulation(
+					LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORModel(
+							LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType),
+					brownianMotion);
+			return strip.getValuation(0.0, model).getValues();
+		};
+	}
+}
@@ -0,0 +1,513 @@
+package liborInArrearsLiborMarketModel;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.exception.CalculationException;
+import net.finmath.functions.NormalDistribution;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.interestrate.models.LIBORMarketModelFromCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModel;
+import net.finmath.randomnumbers.MersenneTwister;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.stochastic.Scalar;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class values a strip of LIBOR in arrears on a LIBOR Market Model without storing the simulation: the paths are
+ * evolved one after the other by an Euler scheme, and when a path passes a fixing date T_i the payoff of the periods
+ * fixing at T_i is computed and added to running sums. Neither the LIBORs at the simulation times nor the path-wise
+ * payoffs are kept, so the memory does not depend on the number of paths: it is of the order of the number of LIBORs
+ * for every path being evolved, plus the tables of the factor loadings, which are shared by all the paths. These have
+ * one row for every LIBOR and one scaling for every number of time steps to a fixing, i.e., O(N_T F + N_t) doubles
+ * with N_T LIBORs, F factors and N_t time steps: the factor loadings of the model depend on the time only through
+ * the time to the fixing (Rebonato volatility structure and constant correlation), which is checked when the tables
+ * are created.
+ *
+ * The paths are grouped in blocks of a given size. Every block has its own Mersenne twister, with the seed of the chunk
+ * of the same index of LiborInArrearsParallelValuation, and its paths are the ones that the Finmath library would
+ * simulate with that seed: the random numbers are drawn path by path, time step by time step, factor by factor. The
+ * blocks run as tasks of a ForkJoinPool and their running sums are merged in the order of the blocks, so the result
+ * does not depend on the number of threads.
+ *
+ * The model is the one of LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel
+ * (Euler scheme of the LIBORs in normal state space, spot or terminal measure, Mersenne twister random numbers). Also
+ * the numeraire is the one of the Finmath library, i.e., it is adjusted so that E[N(0)/N(T_i)] = P(T_i;0): the
+ * adjustment depends on all the paths, so it is applied at the end, to the running sums of all the blocks. With one
+ * block the values agree with the ones of LiborInArrearsStrip.getValuation on the simulation with the same seed up to
+ * rounding errors: StreamingValuationTest checks it for both dynamics and both measures.
+ *
+ * The fixing dates and the ends of the periods of the strip have to be dates of the tenure structure, and the dates of
+ * the tenure structure have to be times of the simulation time discretization.
+ *
+ */
+public class LiborInArrearsStreamingValuation {
+
+	private LiborInArrearsStreamingValuation() {
+	}
+
+	/**
+	 * It values the given strip on a LIBOR Market Model with numberOfPaths paths, evolved in blocks of at most
+	 * numberOfPathsPerBlock paths in parallel on the given pool, keeping only running sums. The model parameters have
+	 * the same meaning as in LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel.
+	 *
+	 * @param strip, the strip of LIBOR in arrears to be valued
+	 * @param pool, the pool where the blocks are evolved
+	 * @param numberOfPaths, the total number of paths
+	 * @param numberOfPathsPerBlock, the number of paths of every block (the last block may have less)
+	 * @return the valuation of the strip, without the path-wise values
+	 * @throws CalculationException
+	 */
+	public static LiborInArrearsStripValuation getValuation(LiborInArrearsStrip strip,
+			ForkJoinPool pool,
+			int numberOfPaths,
+			int numberOfPathsPerBlock,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed
+			) throws CalculationException {
+
+		if(numberOfPathsPerBlock < 1) {
+			throw new IllegalArgumentException("The number of paths per block must be positive.");
+		}
+
+		// The same objects as in createLIBORMarketModel, but no Brownian motion and no simulation
+		final TimeDiscretization timeDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, simulationTimeStep);
+		final TimeDiscretization LIBORPeriodDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, LIBORPeriodLength);
+		final ForwardCurve forwardCurve =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(fixingForGivenForwards, givenForwards, LIBORPeriodLength);
+		final AbstractLIBORCovarianceModel covarianceModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+						timeDiscretization, LIBORPeriodDiscretization, forwardCurve,
+						correlationDecayParam, dynamics, a, b, c, d);
+		final LIBORMarketModelFromCovarianceModel LIBORMarketModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORModel(
+						LIBORPeriodDiscretization, forwardCurve, covarianceModel, measureType);
+
+		final PathEvolution pathEvolution = new PathEvolution(strip, timeDiscretization, LIBORPeriodDiscretization,
+				covarianceModel, LIBORMarketModel, measureType);
+
+		final int numberOfBlocks = (numberOfPaths + numberOfPathsPerBlock - 1) / numberOfPathsPerBlock;
+		final List<ForkJoinTask<RunningSums>> tasks = new ArrayList<>(numberOfBlocks);
+		for(int blockIndex = 0; blockIndex < numberOfBlocks; blockIndex++) {
+			final int numberOfPathsOfBlock = Math.min(numberOfPathsPerBlock, numberOfPaths - blockIndex * numberOfPathsPerBlock);
+			final int seedOfBlock = LiborInArrearsParallelValuation.getSeedOfChunk(seed, blockIndex);
+			tasks.add(pool.submit(() -> pathEvolution.getRunningSums(numberOfPathsOfBlock, seedOfBlock)));
+		}
+
+		// Merge in the order of the blocks, so that the result does not depend on the scheduling
+		RunningSums runningSums = new RunningSums(strip.getNumberOfPeriods());
+		try {
+			for(final ForkJoinTask<RunningSums> task : tasks) {
+				runningSums = runningSums.merge(task.get());
+			}
+		}
+		catch(final Exception e) {
+			for(final ForkJoinTask<RunningSums> task : tasks) {
+				task.cancel(true);
+			}
+			if(e instanceof InterruptedException) {
+				Thread.currentThread().interrupt();
+			}
+			final Throwable cause = e.getCause() != null ? e.getCause() : e;
+			if(cause instanceof CalculationException) {
+				throw (CalculationException) cause;
+			}
+			throw new CalculationException(cause);
+		}
+
+		return pathEvolution.getValuation(runningSums);
+	}
+
+	/**
+	 * It values the given strip as above, on the common pool of the JVM.
+	 */
+	public static LiborInArrearsStripValuation getValuation(LiborInArrearsStrip strip,
+			int numberOfPaths,
+			int numberOfPathsPerBlock,
+			double simulationTimeStep,
+			double LIBORPeriodLength,
+			double LIBORRateTimeHorizon,
+			double[] fixingForGivenForwards,
+			double[] givenForwards,
+			double correlationDecayParam,
+			Dynamics dynamics,
+			Measure measureType,
+			double a, double b, double c, double d,
+			int seed
+			) throws CalculationException {
+		return getValuation(strip, ForkJoinPool.commonPool(), numberOfPaths, numberOfPathsPerBlock, simulationTimeStep,
+				LIBORPeriodLength, LIBORRateTimeHorizon, fixingForGivenForwards, givenForwards, correlationDecayParam,
+				dynamics, measureType, a, b, c, d, seed);
+	}
+
+	/*
+	 * The running sums of a set of paths: for every period, mean and sum of squared deviations (Welford) of
+	 * \delta L / N(T_i) and mean of 1 / N(T_i), with the numeraire N not yet adjusted.
+	 */
+	private static class RunningSums {
+
+		private long			numberOfPaths;
+		private final double[]	meansOfPayoff;
+		private final double[]	sumsOfSquaredDeviationsOfPayoff;
+		private final double[]	meansOfInverseNumeraire;
+
+		RunningSums(int numberOfPeriods) {
+			meansOfPayoff = new double[numberOfPeriods];
+			sumsOfSquaredDeviationsOfPayoff = new double[numberOfPeriods];
+			meansOfInverseNumeraire = new double[numberOfPeriods];
+		}
+
+		void addPath(int periodIndex, double payoff, double inverseNumeraire) {
+			final double deviation = payoff - meansOfPayoff[periodIndex];
+			meansOfPayoff[periodIndex] += deviation / numberOfPaths;
+			sumsOfSquaredDeviationsOfPayoff[periodIndex] += deviation * (payoff - meansOfPayoff[periodIndex]);
+			meansOfInverseNumeraire[periodIndex] += (inverseNumeraire - meansOfInverseNumeraire[periodIndex]) / numberOfPaths;
+		}
+
+		/*
+		 * Exact combination of the statistics, see LiborInArrearsStripValuation.merge.
+		 */
+		RunningSums merge(RunningSums other) {
+			final RunningSums merged = new RunningSums(meansOfPayoff.length);
+			merged.numberOfPaths = numberOfPaths + other.numberOfPaths;
+			if(merged.numberOfPaths == 0) {
+				return merged;
+			}
+			final double weightOfOther = (double) other.numberOfPaths / merged.numberOfPaths;
+			for(int periodIndex = 0; periodIndex < meansOfPayoff.length; periodIndex++) {
+				final double delta = other.meansOfPayoff[periodIndex] - meansOfPayoff[periodIndex];
+				merged.meansOfPayoff[periodIndex] = meansOfPayoff[periodIndex] + delta * weightOfOther;
+				merged.sumsOfSquaredDeviationsOfPayoff[periodIndex] = sumsOfSquaredDeviationsOfPayoff[periodIndex]
+						+ other.sumsOfSquaredDeviationsOfPayoff[periodIndex] + delta * delta * numberOfPaths * weightOfOther;
+				merged.meansOfInverseNumeraire[periodIndex] = meansOfInverseNumeraire[periodIndex]
+						+ (other.meansOfInverseNumeraire[periodIndex] - meansOfInverseNumeraire[periodIndex]) * weightOfOther;
+			}
+			return merged;
+		}
+	}
+
+	/*
+	 * The Euler scheme of the LIBOR Market Model for one path at a time. It holds only read-only data, so it is shared
+	 * by all the blocks.
+	 */
+	private static class PathEvolution {
+
+		private final LiborInArrearsStrip	strip;
+		private final TimeDiscretization	timeDiscretization;
+		private final double[]				periodLengths;				// \delta_k = T_{k+1}-T_k
+		private final double[]				initialValues;				// L_k(0)
+		private final boolean				isSpotMeasure;
+		private final int					numberOfFactors;
+
+		/*
+		 * The factor loadings of the covariance model are affine in the LIBOR (displaced diffusion) and depend on the
+		 * time only through the number of time steps T_k - t_j = (i_k - j) \Delta t to the fixing, i.e.,
+		 * F_kf(t_j) = (unitFactorLoadingsConstant[k*F+f] + unitFactorLoadingsSlope[k*F+f] * L_k(t_j)) * scalingOfLag[i_k - j].
+		 */
+		private final double[]				unitFactorLoadingsConstant;
+		private final double[]				unitFactorLoadingsSlope;
+		private final double[]				scalingOfLag;
+		private final int[]					timeIndexOfLibor;			// i_k such that t_{i_k} = T_k
+		private final int[]					firstAliveLiborIndex;		// index of the first T_k > t_j
+
+		private final int[]					liborIndexOfTimeIndex;		// k if t_j = T_k, -1 otherwise
+		private final int[]					startLiborIndexOfPeriod;
+		private final int[]					endLiborIndexOfPeriod;
+		private final double[]				discountFactorsOfPeriods;	// P(T_i;0) of the fixing dates
+
+		PathEvolution(LiborInArrearsStrip strip, TimeDiscretization timeDiscretization, TimeDiscretization LIBORPeriodDiscretization,
+				AbstractLIBORCovarianceModel covarianceModel, LIBORMarketModelFromCovarianceModel LIBORMarketModel,
+				Measure measureType) {
+			this.strip = strip;
+			this.timeDiscretization = timeDiscretization;
+			isSpotMeasure = measureType == Measure.SPOT;
+			numberOfFactors = covarianceModel.getNumberOfFactors();
+
+			final int numberOfLibors = LIBORPeriodDiscretization.getNumberOfTimeSteps();
+			periodLengths = new double[numberOfLibors];
+			initialValues = new double[numberOfLibors];
+			final RandomVariable[] initialState = LIBORMarketModel.getInitialState(null);
+			for(int liborIndex = 0; liborIndex < numberOfLibors; liborIndex++) {
+				periodLengths[liborIndex] = LIBORPeriodDiscretization.getTimeStep(liborIndex);
+				initialValues[liborIndex] = initialState[liborIndex].doubleValue();
+			}
+
+			liborIndexOfTimeIndex = new int[timeDiscretization.getNumberOfTimes()];
+			Arrays.fill(liborIndexOfTimeIndex, -1);
+			for(int liborIndex = 0; liborIndex < LIBORPeriodDiscretization.getNumberOfTimes(); liborIndex++) {
+				final int timeIndex = timeDiscretization.getTimeIndex(LIBORPeriodDiscretization.getTime(liborIndex));
+				if(timeIndex < 0) {
+					throw new IllegalArgumentException("The dates of the tenure structure must be times of the simulation.");
+				}
+				liborIndexOfTimeIndex[timeIndex] = liborIndex;
+			}
+
+			final DiscountCurve discountCurve = LIBORMarketModel.getDiscountCurve();
+			startLiborIndexOfPeriod = new int[strip.getNumberOfPeriods()];
+			endLiborIndexOfPeriod = new int[strip.getNumberOfPeriods()];
+			discountFactorsOfPeriods = new double[strip.getNumberOfPeriods()];
+			for(int periodIndex = 0; periodIndex < strip.getNumberOfPeriods(); periodIndex++) {
+				startLiborIndexOfPeriod[periodIndex] = LIBORPeriodDiscretization.getTimeIndex(strip.getPeriodStarts()[periodIndex]);
+				endLiborIndexOfPeriod[periodIndex] = LIBORPeriodDiscretization.getTimeIndex(strip.getPeriodEnds()[periodIndex]);
+				if(startLiborIndexOfPeriod[periodIndex] < 0 || endLiborIndexOfPeriod[periodIndex] <= startLiborIndexOfPeriod[periodIndex]) {
+					throw new IllegalArgumentException("The periods of the strip must be periods of the tenure structure.");
+				}
+				discountFactorsOfPeriods[periodIndex] = discountCurve.getDiscountFactor(strip.getPeriodStarts()[periodIndex]);
+			}
+
+			final int numberOfTimeSteps = timeDiscretization.getNumberOfTimeSteps();
+			for(int timeIndex = 1; timeIndex < numberOfTimeSteps; timeIndex++) {
+				if(Math.abs(timeDiscretization.getTimeStep(timeIndex) - timeDiscretization.getTimeStep(0)) > 1E-10 * timeDiscretization.getTimeStep(0)) {
+					throw new IllegalArgumentException("The simulation time discretization must be uniform.");
+				}
+			}
+			firstAliveLiborIndex = new int[numberOfTimeSteps];
+			for(int timeIndex = 0; timeIndex < numberOfTimeSteps; timeIndex++) {
+				final int liborPeriodIndex = LIBORPeriodDiscretization.getTimeIndex(timeDiscretization.getTime(timeIndex));
+				firstAliveLiborIndex[timeIndex] = liborPeriodIndex >= 0 ? liborPeriodIndex + 1 : -liborPeriodIndex - 1;
+			}
+			timeIndexOfLibor = new int[numberOfLibors];
+			for(int liborIndex = 0; liborIndex < numberOfLibors; liborIndex++) {
+				timeIndexOfLibor[liborIndex] = timeDiscretization.getTimeIndex(LIBORPeriodDiscretization.getTime(liborIndex));
+			}
+
+			/*
+			 * The scaling of every lag is the largest loading of the last LIBOR, whose fixing is the farthest one, when
+			 * its fixing is lag time steps ahead. The unit loadings of every LIBOR are its loadings at time zero,
+			 * evaluated at L = 0 and L = 1, divided by the scaling of its lag at time zero.
+			 */
+			final int lastLiborIndex = numberOfLibors - 1;
+			final int maximumLag = timeIndexOfLibor[lastLiborIndex];
+			final double[][] factorLoadingsOfLastLibor = getFactorLoadings(covarianceModel, 0, lastLiborIndex, numberOfLibors);
+			int referenceIndex = 0;
+			for(int index = 1; index < 2 * numberOfFactors; index++) {
+				if(Math.abs(factorLoadingsOfLastLibor[index / numberOfFactors][index % numberOfFactors])
+						> Math.abs(factorLoadingsOfLastLibor[referenceIndex / numberOfFactors][referenceIndex % numberOfFactors])) {
+					referenceIndex = index;
+				}
+			}
+			scalingOfLag = new double[maximumLag + 1];
+			for(int lag = 1; lag <= maximumLag; lag++) {
+				scalingOfLag[lag] = getFactorLoadings(covarianceModel, maximumLag - lag, lastLiborIndex, numberOfLibors)
+						[referenceIndex / numberOfFactors][referenceIndex % numberOfFactors];
+			}
+
+			unitFactorLoadingsConstant = new double[numberOfLibors * numberOfFactors];
+			unitFactorLoadingsSlope = new double[numberOfLibors * numberOfFactors];
+			for(int liborIndex = firstAliveLiborIndex[0]; liborIndex < numberOfLibors; liborIndex++) {
+				final double scaling = scalingOfLag[timeIndexOfLibor[liborIndex]];
+				if(scaling == 0.0) {
+					throw new IllegalArgumentException("The factor loadings of the covariance model must not vanish before the fixing.");
+				}
+				final double[][] factorLoadings = getFactorLoadings(covarianceModel, 0, liborIndex, numberOfLibors);
+				for(int factorIndex = 0; factorIndex < numberOfFactors; factorIndex++) {
+					unitFactorLoadingsConstant[liborIndex * numberOfFactors + factorIndex] = factorLoadings[0][factorIndex] / scaling;
+					unitFactorLoadingsSlope[liborIndex * numberOfFactors + factorIndex] = factorLoadings[1][factorIndex] / scaling;
+				}
+			}
+
+			/*
+			 * Check the tables against the covariance model: one time step before every fixing, and at L = 2, so that a
+			 * covariance model which is not of this form is rejected instead of being simulated with wrong loadings.
+			 */
+			final RandomVariable[] twos = new RandomVariable[numberOfLibors];
+			Arrays.fill(twos, new Scalar(2.0));
+			for(int liborIndex = firstAliveLiborIndex[0]; liborIndex < numberOfLibors; liborIndex++) {
+				final int timeIndex = timeIndexOfLibor[liborIndex] - 1;
+				final RandomVariable[] factorLoadingsAtTwo = covarianceModel.getFactorLoading(timeIndex, liborIndex, twos);
+				for(int factorIndex = 0; factorIndex < numberOfFactors; factorIndex++) {
+					final int index = liborIndex * numberOfFactors + factorIndex;
+					final double factorLoading = (unitFactorLoadingsConstant[index] + unitFactorLoadingsSlope[index] * 2.0) * scalingOfLag[1];
+					final double expectedFactorLoading = factorLoadingsAtTwo[factorIndex].doubleValue();
+					if(Math.abs(factorLoading - expectedFactorLoading) > 1E-12 * (1.0 + Math.abs(expectedFactorLoading))) {
+						throw new IllegalArgumentException("The factor loadings of the covariance model must be affine in the LIBOR "
+								+ "and depend on the time only through the time to the fixing.");
+					}
+				}
+			}
+		}
+
+		/*
+		 * The factor loadings of the given LIBOR at the given time index as {constant, slope} in the LIBOR, evaluating
+		 * the covariance model at L = 0 and L = 1.
+		 */
+		private static double[][] getFactorLoadings(AbstractLIBORCovarianceModel covarianceModel, int timeIndex, int liborIndex,
+				int numberOfLibors) {
+			final RandomVariable[] zeros = new RandomVariable[numberOfLibors];
+			final RandomVariable[] ones = new RandomVariable[numberOfLibors];
+			Arrays.fill(zeros, new Scalar(0.0));
+			Arrays.fill(ones, new Scalar(1.0));
+			final RandomVariable[] factorLoadingAtZero = covarianceModel.getFactorLoading(timeIndex, liborIndex, zeros);
+			final RandomVariable[] factorLoadingAtOne = covarianceModel.getFactorLoading(timeIndex, liborIndex, ones);
+			final double[][] factorLoadings = new double[2][factorLoadingAtZero.length];
+			for(int factorIndex = 0; factorIndex < factorLoadingAtZero.length; factorIndex++) {
+				factorLoadings[0][factorIndex] = factorLoadingAtZero[factorIndex].doubleValue();
+				factorLoadings[1][factorIndex] = factorLoadingAtOne[factorIndex].doubleValue() - factorLoadings[0][factorIndex];
+			}
+			return factorLoadings;
+		}
+
+		/*
+		 * It evolves numberOfPaths paths with the random numbers of a Mersenne twister with the given seed and returns
+		 * their running sums.
+		 */
+		RunningSums getRunningSums(int numberOfPaths, int seed) {
+			final int numberOfLibors = initialValues.length;
+			final int numberOfTimeSteps = timeDiscretization.getNumberOfTimeSteps();
+			final MersenneTwister mersenneTwister = new MersenneTwister(seed);
+
+			final double[] squareRootsOfTimeSteps = new double[numberOfTimeSteps];
+			for(int timeIndex = 0; timeIndex < numberOfTimeSteps; timeIndex++) {
+				squareRootsOfTimeSteps[timeIndex] = Math.sqrt(timeDiscretization.getTimeStep(timeIndex));
+			}
+
+			// The state of one path: this is all the memory needed by the simulation
+			final double[] libors = new double[numberOfLibors];
+			final double[] factorLoadings = new double[numberOfLibors * numberOfFactors];
+			final double[] drift = new double[numberOfLibors];
+			final double[] covarianceFactorSums = new double[numberOfFactors];
+			final double[] brownianIncrements = new double[numberOfFactors];
+
+			final RunningSums runningSums = new RunningSums(strip.getNumberOfPeriods());
+			for(int pathIndex = 0; pathIndex < numberOfPaths; pathIndex++) {
+				runningSums.numberOfPaths++;
+				System.arraycopy(initialValues, 0, libors, 0, numberOfLibors);
+				double numeraireOfSpotMeasure = 1.0; // \prod_{k<i} (1 + \delta_k L_k(T_k))
+
+				for(int timeIndex = 0; ; timeIndex++) {
+					// Fixing: value the periods starting at this time and roll the numeraire of the spot measure
+					final int liborIndex = liborIndexOfTimeIndex[timeIndex];
+					if(liborIndex >= 0) {
+						final double numeraire = isSpotMeasure ? numeraireOfSpotMeasure : getNumeraireOfTerminalMeasure(libors, liborIndex);
+						addPeriodsFixingAt(runningSums, liborIndex, libors, numeraire);
+						if(liborIndex < numberOfLibors) {
+							numeraireOfSpotMeasure *= 1.0 + periodLengths[liborIndex] * libors[liborIndex];
+						}
+					}
+					if(timeIndex == numberOfTimeSteps) {
+						break;
+					}
+
+					// Euler step from t_j to t_{j+1}
+					final int firstLiborIndex = firstAliveLiborIndex[timeIndex];
+					for(int componentIndex = firstLiborIndex; componentIndex < numberOfLibors; componentIndex++) {
+						final double scaling = scalingOfLag[timeIndexOfLibor[componentIndex] - timeIndex];
+						for(int factorIndex = 0; factorIndex < numberOfFactors; factorIndex++) {
+							final int index = componentIndex * numberOfFactors + factorIndex;
+							factorLoadings[index] = (unitFactorLoadingsConstant[index] + unitFactorLoadingsSlope[index] * libors[componentIndex]) * scaling;
+						}
+					}
+					getDrift(firstLiborIndex, libors, factorLoadings, drift, covarianceFactorSums);
+
+					for(int factorIndex = 0; factorIndex < numberOfFactors; factorIndex++) {
+						brownianIncrements[factorIndex] = squareRootsOfTimeSteps[timeIndex]
+								* NormalDistribution.inverseCumulativeDistribution(mersenneTwister.nextDoubleFast());
+					}
+					final double timeStep = timeDiscretization.getTimeStep(timeIndex);
+					for(int componentIndex = firstLiborIndex; componentIndex < numberOfLibors; componentIndex++) {
+						double increment = drift[componentIndex] * timeStep;
+						for(int factorIndex = 0; factorIndex < numberOfFactors; factorIndex++) {
+							increment += factorLoadings[componentIndex * numberOfFactors + factorIndex] * brownianIncrements[factorIndex];
+						}
+						libors[componentIndex] += increment;
+					}
+				}
+			}
+			return runningSums;
+		}
+
+		/*
+		 * The drift of the LIBORs in normal state space, as in LIBORMarketModelFromCovarianceModel.getDrift:
+		 * spot measure:		\mu_i = \sum_f F_if \sum_{k=first}^{i} \delta_k F_kf / (1 + \delta_k L_k)
+		 * terminal measure:	\mu_i = - \sum_f F_if \sum_{k>i} \delta_k F_kf / (1 + \delta_k L_k)
+		 */
+		private void getDrift(int firstLiborIndex, double[] libors, double[] factorLoadings, double[] drift, double[] covarianceFactorSums) {
+			final int numberOfLibors = libors.length;
+			Arrays.fill(covarianceFactorSums, 0.0);
+			if(isSpotMeasure) {
+				for(int componentIndex = firstLiborIndex; componentIndex < numberOfLibors; componentIndex++) {
+					final double discountedPeriodLength = periodLengths[componentIndex] / (1.0 + periodLengths[componentIndex] * libors[componentIndex]);
+					double driftOfComponent = 0.0;
+					for(int factorIndex = 0; factorIndex < numberOfFactors; factorIndex++) {
+						final double factorLoading = factorLoadings[componentIndex * numberOfFactors + factorIndex];
+						covarianceFactorSums[factorIndex] += discountedPeriodLength * factorLoading;
+						driftOfComponent += covarianceFactorSums[factorIndex] * factorLoading;
+					}
+					drift[componentIndex] = driftOfComponent;
+				}
+			}
+			else {
+				for(int componentIndex = numberOfLibors - 1; componentIndex >= firstLiborIndex; componentIndex--) {
+					final double discountedPeriodLength = periodLengths[componentIndex] / (1.0 + periodLengths[componentIndex] * libors[componentIndex]);
+					double driftOfComponent = 0.0;
+					for(int factorIndex = 0; factorIndex < numberOfFactors; factorIndex++) {
+						final double factorLoading = factorLoadings[componentIndex * numberOfFactors + factorIndex];
+						driftOfComponent += covarianceFactorSums[factorIndex] * factorLoading;
+						covarianceFactorSums[factorIndex] -= discountedPeriodLength * factorLoading;
+					}
+					drift[componentIndex] = driftOfComponent;
+				}
+			}
+		}
+
+		/*
+		 * The (not adjusted) numeraire of the terminal measure at T_i, i.e., \prod_{k>=i} 1 / (1 + \delta_k L_k(T_i)).
+		 */
+		private double getNumeraireOfTerminalMeasure(double[] libors, int liborIndex) {
+			double numeraire = 1.0;
+			for(int componentIndex = liborIndex; componentIndex < libors.length; componentIndex++) {
+				numeraire /= 1.0 + periodLengths[componentIndex] * libors[componentIndex];
+			}
+			return numeraire;
+		}
+
+		private void addPeriodsFixingAt(RunningSums runningSums, int liborIndex, double[] libors, double numeraire) {
+			for(int periodIndex = 0; periodIndex < startLiborIndexOfPeriod.length; periodIndex++) {
+				if(startLiborIndexOfPeriod[periodIndex] != liborIndex) {
+					continue;
+				}
+				// (1 + (T_e - T_s) L(T_s,T_e;T_s)) = \prod_{k=s}^{e-1} (1 + \delta_k L_k(T_s))
+				double accrualFactor = 1.0;
+				for(int componentIndex = liborIndex; componentIndex < endLiborIndexOfPeriod[periodIndex]; componentIndex++) {
+					accrualFactor *= 1.0 + periodLengths[componentIndex] * libors[componentIndex];
+				}
+				runningSums.addPath(periodIndex, (accrualFactor - 1.0) / numeraire, 1.0 / numeraire);
+			}
+		}
+
+		/*
+		 * It applies the adjustment of the numeraire of the Finmath library, N(T_i) = N'(T_i) E[N'(0)/N'(T_i)] / P(T_i;0)
+		 * with N' the numeraire above, to the running sums of all the paths. Since the payoff is multiplied by N(0) = N'(0),
+		 * the discounted payoff is \delta L / N'(T_i) P(T_i;0) / E[1/N'(T_i)].
+		 */
+		LiborInArrearsStripValuation getValuation(RunningSums runningSums) {
+			final int numberOfPeriods = strip.getNumberOfPeriods();
+			final double[] values = new double[numberOfPeriods];
+			final double[] variances = new double[numberOfPeriods];
+			for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+				final double adjustment = discountFactorsOfPeriods[periodIndex] / runningSums.meansOfInverseNumeraire[periodIndex];
+				values[periodIndex] = runningSums.meansOfPayoff[periodIndex] * adjustment;
+				variances[periodIndex] = runningSums.sumsOfSquaredDeviationsOfPayoff[periodIndex] / runningSums.numberOfPaths
+						* adjustment * adjustment;
+			}
+			return new LiborInArrearsStripValuation(strip.getPeriodStarts(), strip.getPeriodEnds(), runningSums.numberOfPaths,
+					values, variances, null);
+		}
+	}
+}
@@ -0,0 +1,257 @@
+package liborInArrearsLiborMarketModel;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelMetrics.ValuationTimer;
+import net.finmath.exception.CalculationException;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.montecarlo.interestrate.TermStructureMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
+import net.finmath.stochastic.RandomVariable;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class represents a strip of LIBOR in arrears floaters, i.e., the collection of the products LiborInArrears for
+ * the periods (T_i,T_{i+1}) of a tenure structure. Its value is the sum of the values of the single periods, but the
+ * main point is the method getValuation, which values all the periods in one pass over the model: the numeraire
+ * at evaluation time is fetched only once, the numeraire at every T_i and the LIBOR L(T_i,T_{i+1};T_i) only once per
+ * period, and value and standard error come from the same reduction of the path-wise payoff.
+ *
+ */
+public class LiborInArrearsStrip extends AbstractLIBORMonteCarloProduct {
+
+	private final double[]	periodStarts; // T_i
+	private final double[]	periodEnds; // T_{i+1}
+
+	/**
+	 * @param periodStarts, the fixing (=payment) dates T_i of the periods
+	 * @param periodEnds, the end dates T_{i+1} of the periods
+	 */
+	public LiborInArrearsStrip(double[] periodStarts, double[] periodEnds) {
+		super();
+		if(periodStarts.length != periodEnds.length) {
+			throw new IllegalArgumentException("Period starts and period ends must have the same length.");
+		}
+		this.periodStarts = periodStarts.clone();
+		this.periodEnds = periodEnds.clone();
+	}
+
+	/**
+	 * It creates the strip of all the periods (T_i,T_{i+1}) of the given tenure structure.
+	 *
+	 * @param tenureStructureDiscretization, the tenure structure T_0 < T_1< ...<T_n
+	 */
+	public LiborInArrearsStrip(TimeDiscretization tenureStructureDiscretization) {
+		this(getPeriodStarts(tenureStructureDiscretization), getPeriodEnds(tenureStructureDiscretization));
+	}
+
+	private static double[] getPeriodStarts(TimeDiscretization tenureStructureDiscretization) {
+		final double[] periodStarts = new double[tenureStructureDiscretization.getNumberOfTimeSteps()];
+		for(int periodIndex = 0; periodIndex < periodStarts.length; periodIndex++) {
+			periodStarts[periodIndex] = tenureStructureDiscretization.getTime(periodIndex);
+		}
+		return periodStarts;
+	}
+
+	private static double[] getPeriodEnds(TimeDiscretization tenureStructureDiscretization) {
+		final double[] periodEnds = new double[tenureStructureDiscretization.getNumberOfTimeSteps()];
+		for(int periodIndex = 0; periodIndex < periodEnds.length; periodIndex++) {
+			periodEnds[periodIndex] = tenureStructureDiscretization.getTime(periodIndex + 1);
+		}
+		return periodEnds;
+	}
+
+	/**
+	 * It returns the path-wise discounted payoffs of all the periods, i.e., for every i the random variable
+	 * L(T_i,T_{i+1};T_i) (T_{i+1}-T_i) N(t) / N(T_i), where t is the evaluation time. The numeraire N(t) is fetched once
+	 * and shared among all the periods. The time of every period is measured by LIBORMarketModelMetrics, if enabled.
+	 *
+	 * @param evaluationTime, the time t at which the strip is valued
+	 * @param model, the simulation of the LIBOR market model
+	 * @return the array of the path-wise values, one for every period
+	 * @throws CalculationException
+	 */
+	public RandomVariable[] getValuesOfPeriods(double evaluationTime, TermStructureMonteCarloSimulationModel model)
+			throws CalculationException {
+
+		// Get numeraire at evaluation time once for all the periods: you multiply by N(0)
+		final RandomVariable numeraireAtEvaluationTime = model.getNumeraire(evaluationTime);
+
+		if(periodStarts.length > 0) {
+			LIBORMarketModelMetrics.evolveBeforeValuation(model, periodStarts[0], periodEnds[0]);
+		}
+
+		final RandomVariable[] values = new RandomVariable[periodStarts.length];
+		for(int periodIndex = 0; periodIndex < periodStarts.length; periodIndex++) {
+			final double periodStart = periodStarts[periodIndex];
+			final double periodEnd = periodEnds[periodIndex];
+			final ValuationTimer timer = LIBORMarketModelMetrics.startValuation();
+
+			// L(T_i,T_{i+1};T_i) and N(T_i) are fetched only once for the period
+			final RandomVariable libor = model.getLIBOR(periodStart, periodStart, periodEnd);
+			final RandomVariable numeraire = model.getNumeraire(periodStart);
+
+			values[periodIndex] = libor.mult(periodEnd - periodStart).div(numeraire).mult(numeraireAtEvaluationTime);
+			LIBORMarketModelMetrics.stopValuation(timer, periodStart, periodEnd, model.getNumberOfPaths());
+		}
+		return values;
+	}
+
+	/**
+	 * It values all the periods of the strip in one pass over the model and returns, for every period, mean,
+	 * standard error and the path-wise values.
+	 *
+	 * @param evaluationTime, the time t at which the strip is valued
+	 * @param model, the simulation of the LIBOR market model
+	 * @return an object of type LiborInArrearsStripValuation with the statistics of all the periods
+	 * @throws CalculationException
+	 */
+	public LiborInArrearsStripValuation getValuation(double evaluationTime, TermStructureMonteCarloSimulationModel model)
+			throws CalculationException {
+
+		final RandomVariable[] pathValues = getValuesOfPeriods(evaluationTime, model);
+
+		final double[] values = new double[pathValues.length];
+		final double[] variances = new double[pathValues.length];
+		for(int periodIndex = 0; periodIndex < pathValues.length; periodIndex++) {
+			final double[] meanAndVariance = LiborInArrearsStripValuation.getMeanAndVariance(pathValues[periodIndex]);
+			values[periodIndex] = meanAndVariance[0];
+			variances[periodIndex] = meanAndVariance[1];
+		}
+
+		return new LiborInArrearsStripValuation(periodStarts, periodEnds, model.getNumberOfPaths(),
+				values, variances, pathValues);
+	}
+
+	/**
+	 * It values all the periods of the strip with a control variate. For the period (T_i,T_{i+1}) with \delta=T_{i+1}-T_i,
+	 * the discounted payoff is Y = \delta L N(0) / N(T_i) with L = L(T_i,T_{i+1};T_i), and the control is the floater paying in
+	 * advance, i.e., the payoff \delta L / (1 + \delta L) = 1 - P(T_i,T_{i+1}) at T_i, which is X = Y / (1 + \delta L) and has the
+	 * closed form E[X] = P(T_i) - P(T_{i+1}) in every model consistent with the discount curve. The estimator is
+	 * mean(Y) - \beta (mean(X) - E[X]) where the optimal coefficient \beta = Cov(Y,X)/Var(X) is estimated from the same paths.
+	 *
+	 * Note that Y - X = \delta^2 L^2 / (1 + \delta L) N(0) / N(T_i) is exactly the convexity term of
+	 * LiborInArrearsAnalyticFormula: using its (log-normal) closed form as a second control would make the estimator
+	 * collapse to the analytic formula, so only the model-independent floater in advance is used.
+	 *
+	 * The closed form E[X] is taken from the discount curve of the model: for a simulation without model, e.g., a
+	 * LIBORMonteCarloSimulationFromPathStore, give the discount curve to the method below.
+	 *
+	 * @param evaluationTime, the time at which the strip is valued: it must be 0, since the closed forms are given at 0
+	 * @param model, the simulation of the LIBOR market model
+	 * @return an object of type LiborInArrearsStripValuationWithControlVariate with the statistics of all the periods
+	 * @throws CalculationException
+	 */
+	public LiborInArrearsStripValuationWithControlVariate getValuationWithControlVariate(double evaluationTime,
+			TermStructureMonteCarloSimulationModel model) throws CalculationException {
+		return getValuationWithControlVariate(evaluationTime, model, model.getModel().getDiscountCurve());
+	}
+
+	/**
+	 * It values all the periods of the strip with a control variate as above, where the closed form
+	 * E[X] = P(T_i) - P(T_{i+1}) of the control is taken from the given discount curve, which has to be the one the
+	 * numeraire of the simulation is adjusted to.
+	 *
+	 * @param evaluationTime, the time at which the strip is valued: it must be 0, since the closed forms are given at 0
+	 * @param model, the simulation of the LIBOR market model, e.g., a LIBORMonteCarloSimulationFromPathStore
+	 * @param discountCurve, the discount curve of the model of the simulation
+	 * @return an object of type LiborInArrearsStripValuationWithControlVariate with the statistics of all the periods
+	 * @throws CalculationException
+	 */
+	public LiborInArrearsStripValuationWithControlVariate getValuationWithControlVariate(double evaluationTime,
+			TermStructureMonteCarloSimulationModel model, DiscountCurve discountCurve) throws CalculationException {
+		if(evaluationTime != 0.0) {
+			throw new IllegalArgumentException("The control variate is only available for evaluation time 0.");
+		}
+
+		final RandomVariable numeraireAtEvaluationTime = model.getNumeraire(evaluationTime);
+
+		final int numberOfPeriods = periodStarts.length;
+		final double[] values = new double[numberOfPeriods];
+		final double[] variances = new double[numberOfPeriods];
+		final double[] variancesWithoutControlVariate = new double[numberOfPeriods];
+		final double[] controlVariateCoefficients = new double[numberOfPeriods];
+		final RandomVariable[] pathValues = new RandomVariable[numberOfPeriods];
+		for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+			final double periodStart = periodStarts[periodIndex];
+			final double periodEnd = periodEnds[periodIndex];
+			final double periodLength = periodEnd - periodStart;
+
+			final RandomVariable libor = model.getLIBOR(periodStart, periodStart, periodEnd);
+			final RandomVariable numeraire = model.getNumeraire(periodStart);
+
+			final RandomVariable payoff = libor.mult(periodLength).div(numeraire).mult(numeraireAtEvaluationTime);
+			final RandomVariable control = payoff.div(libor.mult(periodLength).add(1.0));
+			final double expectationOfControl = discountCurve.getDiscountFactor(periodStart) - discountCurve.getDiscountFactor(periodEnd);
+
+			// Means, variances and covariance of payoff and control in one pass
+			final double[] moments = getMeansVariancesAndCovariance(payoff, control);
+			final double meanOfPayoff = moments[0];
+			final double meanOfControl = moments[1];
+			final double varianceOfPayoff = moments[2];
+			final double varianceOfControl = moments[3];
+			final double covariance = moments[4];
+
+			final double coefficient = varianceOfControl > 0 ? covariance / varianceOfControl : 0.0;
+
+			controlVariateCoefficients[periodIndex] = coefficient;
+			values[periodIndex] = meanOfPayoff - coefficient * (meanOfControl - expectationOfControl);
+			variances[periodIndex] = Math.max(varianceOfPayoff - coefficient * covariance, 0.0);
+			variancesWithoutControlVariate[periodIndex] = varianceOfPayoff;
+			pathValues[periodIndex] = payoff.sub(control.sub(expectationOfControl).mult(coefficient));
+		}
+
+		return new LiborInArrearsStripValuationWithControlVariate(periodStarts, periodEnds, model.getNumberOfPaths(),
+				values, variances, pathValues, controlVariateCoefficients, variancesWithoutControlVariate);
+	}
+
+	/*
+	 * It returns {mean(Y), mean(X), Var(Y), Var(X), Cov(Y,X)} in one pass, with the update of Welford.
+	 */
+	private static double[] getMeansVariancesAndCovariance(RandomVariable y, RandomVariable x) {
+		final int numberOfRealizations = Math.max(y.size(), x.size());
+		double meanY = 0.0, meanX = 0.0;
+		double sumOfSquaredDeviationsY = 0.0, sumOfSquaredDeviationsX = 0.0, sumOfCrossDeviations = 0.0;
+		for(int pathIndex = 0; pathIndex < numberOfRealizations; pathIndex++) {
+			final double valueY = y.get(pathIndex);
+			final double valueX = x.get(pathIndex);
+			final double deviationY = valueY - meanY;
+			final double deviationX = valueX - meanX;
+			meanY += deviationY / (pathIndex + 1);
+			meanX += deviationX / (pathIndex + 1);
+			sumOfSquaredDeviationsY += deviationY * (valueY - meanY);
+			sumOfSquaredDeviationsX += deviationX * (valueX - meanX);
+			sumOfCrossDeviations += deviationY * (valueX - meanX);
+		}
+		return new double[] { meanY, meanX,
+				sumOfSquaredDeviationsY / numberOfRealizations,
+				sumOfSquaredDeviationsX / numberOfRealizations,
+				sumOfCrossDeviations / numberOfRealizations };
+	}
+
+	/**
+	 * It returns the value of the whole strip, i.e., the sum of the values of the LIBOR in arrears of all the periods.
+	 */
+	@Override
+	public RandomVariable getValue(double evaluationTime, TermStructureMonteCarloSimulationModel model)
+			throws CalculationException {
+
+		final RandomVariable[] valuesOfPeriods = getValuesOfPeriods(evaluationTime, model);
+
+		RandomVariable values = model.getRandomVariableForConstant(0.0);
+		for(final RandomVariable valueOfPeriod : valuesOfPeriods) {
+			values = values.add(valueOfPeriod);
+		}
+		return values;
+	}
+
+	public int getNumberOfPeriods() {
+		return periodStarts.length;
+	}
+
+	public double[] getPeriodStarts() {
+		return periodStarts.clone();
+	}
+
+	public double[] getPeriodEnds() {
+		return periodEnds.clone();
+	}
+}
@@ -0,0 +1,112 @@
+package liborInArrearsLiborMarketModel;
+
+/**
+ * This class collects the sensitivities of a strip of LIBOR in arrears floaters, see LiborInArrearsSensitivityEngine:
+ * for every period (T_i,T_{i+1}) of the strip it stores the value, the deltas with respect to every given initial
+ * forward (bucketed deltas) and the vegas with respect to the parameters a, b, c, d of the Rebonato volatility
+ * structure.
+ *
+ */
+public class LiborInArrearsStripSensitivities {
+
+	public static final String[] VOLATILITY_PARAMETER_NAMES = { "a", "b", "c", "d" };
+
+	private final double[]		periodStarts;	// T_i
+	private final double[]		periodEnds;		// T_{i+1}
+	private final double[]		values;
+	private final double[][]	deltas;			// [period][given forward]
+	private final double[][]	vegas;			// [period][volatility parameter]
+
+	/**
+	 * @param periodStarts, the fixing (=payment) dates T_i of the periods
+	 * @param periodEnds, the end dates T_{i+1} of the periods
+	 * @param values, the values of the periods
+	 * @param deltas, for every period the derivatives of its value with respect to the given forwards
+	 * @param vegas, for every period the derivatives of its value with respect to a, b, c, d
+	 */
+	public LiborInArrearsStripSensitivities(double[] periodStarts, double[] periodEnds, double[] values,
+			double[][] deltas, double[][] vegas) {
+		this.periodStarts = periodStarts;
+		this.periodEnds = periodEnds;
+		this.values = values;
+		this.deltas = deltas;
+		this.vegas = vegas;
+	}
+
+	public int getNumberOfPeriods() {
+		return values.length;
+	}
+
+	public int getNumberOfForwards() {
+		return deltas.length > 0 ? deltas[0].length : 0;
+	}
+
+	public double getPeriodStart(int periodIndex) {
+		return periodStarts[periodIndex];
+	}
+
+	public double getPeriodEnd(int periodIndex) {
+		return periodEnds[periodIndex];
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return the Monte-Carlo value of the LIBOR in arrears of the period, on the unbumped model
+	 */
+	public double getValue(int periodIndex) {
+		return values[periodIndex];
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @param forwardIndex, the index of the given forward
+	 * @return the derivative of the value of the period with respect to the given forward
+	 */
+	public double getDelta(int periodIndex, int forwardIndex) {
+		return deltas[periodIndex][forwardIndex];
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @param parameterIndex, the index of the parameter, 0 to 3 for a, b, c, d
+	 * @return the derivative of the value of the period with respect to the volatility parameter
+	 */
+	public double getVega(int periodIndex, int parameterIndex) {
+		return vegas[periodIndex][parameterIndex];
+	}
+
+	/**
+	 * @return the value of the whole strip
+	 */
+	public double getValueOfStrip() {
+		double valueOfStrip = 0.0;
+		for(final double value : values) {
+			valueOfStrip += value;
+		}
+		return valueOfStrip;
+	}
+
+	/**
+	 * @return the bucketed deltas of the whole strip, one for every given forward
+	 */
+	public double[] getDeltasOfStrip() {
+		return getSumOverPeriods(deltas, getNumberOfForwards());
+	}
+
+	/**
+	 * @return the vegas of the whole strip, one for every parameter a, b, c, d
+	 */
+	public double[] getVegasOfStrip() {
+		return getSumOverPeriods(vegas, VOLATILITY_PARAMETER_NAMES.length);
+	}
+
+	private static double[] getSumOverPeriods(double[][] sensitivities, int numberOfInputs) {
+		final double[] sum = new double[numberOfInputs];
+		for(final double[] sensitivitiesOfPeriod : sensitivities) {
+			for(int inputIndex = 0; inputIndex < numberOfInputs; inputIndex++) {
+				sum[inputIndex] += sensitivitiesOfPeriod[inputIndex];
+			}
+		}
+		return sum;
+	}
+}
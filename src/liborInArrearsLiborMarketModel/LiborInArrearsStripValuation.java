@@ -0,0 +1,155 @@
+package liborInArrearsLiborMarketModel;
+
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class collects the result of the valuation of a strip of LIBOR in arrears floaters, see LiborInArrearsStrip:
+ * for every period (T_i,T_{i+1}) it stores the Monte-Carlo mean, the variance of the discounted payoff and, if
+ * available, the vector of the path-wise values. Mean and variance of every period come from the same pass over
+ * the realizations, so that value and standard error are always consistent with each other.
+ *
+ */
+public class LiborInArrearsStripValuation {
+
+	private final double[]			periodStarts;	// T_i
+	private final double[]			periodEnds;		// T_{i+1}
+	private final long				numberOfPaths;
+	private final double[]			values;			// mean of the discounted payoff
+	private final double[]			variances;		// (population) variance of the discounted payoff
+	private final RandomVariable[]	pathValues;		// may be null if the path values are not kept
+
+	/**
+	 * @param periodStarts, the fixing (=payment) dates T_i of the periods
+	 * @param periodEnds, the end dates T_{i+1} of the periods
+	 * @param numberOfPaths, the number of paths the statistics refer to
+	 * @param values, the Monte-Carlo means of the periods
+	 * @param variances, the variances of the discounted payoffs of the periods
+	 * @param pathValues, the path-wise discounted payoffs of the periods, or null if they are not available
+	 */
+	public LiborInArrearsStripValuation(double[] periodStarts, double[] periodEnds, long numberOfPaths,
+			double[] values, double[] variances, RandomVariable[] pathValues) {
+		this.periodStarts = periodStarts;
+		this.periodEnds = periodEnds;
+		this.numberOfPaths = numberOfPaths;
+		this.values = values;
+		this.variances = variances;
+		this.pathValues = pathValues;
+	}
+
+	/**
+	 * It computes mean and (population) variance of the given random variable in one single pass over its
+	 * realizations, using the update of Welford.
+	 *
+	 * @param randomVariable, the random variable
+	 * @return an array {mean, variance}
+	 */
+	static double[] getMeanAndVariance(RandomVariable randomVariable) {
+		if(randomVariable.isDeterministic()) {
+			return new double[] { randomVariable.doubleValue(), 0.0 };
+		}
+		final int numberOfRealizations = randomVariable.size();
+		double mean = 0.0;
+		double sumOfSquaredDeviations = 0.0;
+		for(int pathIndex = 0; pathIndex < numberOfRealizations; pathIndex++) {
+			final double value = randomVariable.get(pathIndex);
+			final double deviation = value - mean;
+			mean += deviation / (pathIndex + 1);
+			sumOfSquaredDeviations += deviation * (value - mean);
+		}
+		return new double[] { mean, sumOfSquaredDeviations / numberOfRealizations };
+	}
+
+	/**
+	 * It combines the statistics of this valuation with the ones of a valuation of the same strip on independent paths,
+	 * as if all the paths had been valued together: for every period, with n = n_1 + n_2 and \delta = m_2 - m_1,
+	 * mean = m_1 + \delta n_2 / n and n variance = n_1 v_1 + n_2 v_2 + \delta^2 n_1 n_2 / n.
+	 * The path-wise values are not kept. The result only depends on the order of the operands, so merging the same
+	 * valuations in the same order always gives the same bits.
+	 *
+	 * @param other, the valuation of the same strip on other paths
+	 * @return the valuation on the union of the paths
+	 */
+	public LiborInArrearsStripValuation merge(LiborInArrearsStripValuation other) {
+		if(other.getNumberOfPeriods() != getNumberOfPeriods()) {
+			throw new IllegalArgumentException("Only valuations of the same strip can be merged.");
+		}
+		final long mergedNumberOfPaths = numberOfPaths + other.numberOfPaths;
+		final double weightOfOther = (double) other.numberOfPaths / mergedNumberOfPaths;
+		final double[] mergedValues = new double[values.length];
+		final double[] mergedVariances = new double[values.length];
+		for(int periodIndex = 0; periodIndex < values.length; periodIndex++) {
+			final double delta = other.values[periodIndex] - values[periodIndex];
+			mergedValues[periodIndex] = values[periodIndex] + delta * weightOfOther;
+			mergedVariances[periodIndex] = (numberOfPaths * variances[periodIndex] + other.numberOfPaths * other.variances[periodIndex]
+					+ delta * delta * numberOfPaths * weightOfOther) / mergedNumberOfPaths;
+		}
+		return new LiborInArrearsStripValuation(periodStarts, periodEnds, mergedNumberOfPaths, mergedValues, mergedVariances, null);
+	}
+
+	/**
+	 * @return this valuation without the path-wise values, so that they can be collected while the statistics are kept
+	 */
+	public LiborInArrearsStripValuation getValuationWithoutPathValues() {
+		return new LiborInArrearsStripValuation(periodStarts, periodEnds, numberOfPaths, values, variances, null);
+	}
+
+	public int getNumberOfPeriods() {
+		return values.length;
+	}
+
+	public double getPeriodStart(int periodIndex) {
+		return periodStarts[periodIndex];
+	}
+
+	public double getPeriodEnd(int periodIndex) {
+		return periodEnds[periodIndex];
+	}
+
+	public long getNumberOfPaths() {
+		return numberOfPaths;
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return the Monte-Carlo value of the LIBOR in arrears paying at the start of the period
+	 */
+	public double getValue(int periodIndex) {
+		return values[periodIndex];
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return the variance of the discounted payoff of the period
+	 */
+	public double getVariance(int periodIndex) {
+		return variances[periodIndex];
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return the Monte-Carlo standard error of the value of the period, i.e., sqrt(variance / numberOfPaths)
+	 */
+	public double getStandardError(int periodIndex) {
+		return Math.sqrt(variances[periodIndex] / numberOfPaths);
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return the path-wise discounted payoff of the period, or null if the path values have not been kept
+	 */
+	public RandomVariable getPathValues(int periodIndex) {
+		return pathValues != null ? pathValues[periodIndex] : null;
+	}
+
+	public double[] getValues() {
+		return values.clone();
+	}
+
+	public double[] getStandardErrors() {
+		final double[] standardErrors = new double[values.length];
+		for(int periodIndex = 0; periodIndex < values.length; periodIndex++) {
+			standardErrors[periodIndex] = getStandardError(periodIndex);
+		}
+		return standardErrors;
+	}
+}
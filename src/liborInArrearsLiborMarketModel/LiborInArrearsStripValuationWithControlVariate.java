@@ -0,0 +1,60 @@
+package liborInArrearsLiborMarketModel;
+
+import net.finmath.stochastic.RandomVariable;
+
+/**
+ * This class collects the result of the valuation of a strip of LIBOR in arrears floaters with a control variate, see
+ * LiborInArrearsStrip.getValuationWithControlVariate. The values are the control variate estimators and the variances
+ * are the variances of the residuals Y - \beta X, where Y is the discounted payoff and X the control. In addition to
+ * the results of LiborInArrearsStripValuation, for every period it gives the estimated coefficient \beta and the
+ * variance reduction factor Var(Y) / Var(Y - \beta X), i.e., the factor by which the number of paths can be reduced
+ * for the same standard error.
+ *
+ */
+public class LiborInArrearsStripValuationWithControlVariate extends LiborInArrearsStripValuation {
+
+	private final double[] controlVariateCoefficients;
+	private final double[] variancesWithoutControlVariate;
+
+	/**
+	 * @param periodStarts, the fixing (=payment) dates T_i of the periods
+	 * @param periodEnds, the end dates T_{i+1} of the periods
+	 * @param numberOfPaths, the number of paths the statistics refer to
+	 * @param values, the control variate estimators of the values of the periods
+	 * @param variances, the variances of the residuals Y - \beta X of the periods
+	 * @param pathValues, the path-wise residuals Y - \beta (X - E[X]) of the periods, or null if they are not available
+	 * @param controlVariateCoefficients, the coefficients \beta of the periods
+	 * @param variancesWithoutControlVariate, the variances of the discounted payoffs Y of the periods
+	 */
+	public LiborInArrearsStripValuationWithControlVariate(double[] periodStarts, double[] periodEnds, long numberOfPaths,
+			double[] values, double[] variances, RandomVariable[] pathValues,
+			double[] controlVariateCoefficients, double[] variancesWithoutControlVariate) {
+		super(periodStarts, periodEnds, numberOfPaths, values, variances, pathValues);
+		this.controlVariateCoefficients = controlVariateCoefficients;
+		this.variancesWithoutControlVariate = variancesWithoutControlVariate;
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return the coefficient \beta = Cov(Y,X)/Var(X), estimated from the same paths
+	 */
+	public double getControlVariateCoefficient(int periodIndex) {
+		return controlVariateCoefficients[periodIndex];
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return the standard error the plain Monte-Carlo estimator would have on the same paths
+	 */
+	public double getStandardErrorWithoutControlVariate(int periodIndex) {
+		return Math.sqrt(variancesWithoutControlVariate[periodIndex] / getNumberOfPaths());
+	}
+
+	/**
+	 * @param periodIndex, the index of the period in the strip
+	 * @return Var(Y) / Var(Y - \beta X), or 1 if the payoff is deterministic
+	 */
+	public double getVarianceReductionFactor(int periodIndex) {
+		return getVariance(periodIndex) > 0 ? variancesWithoutControlVariate[periodIndex] / getVariance(periodIndex) : 1.0;
+	}
+}
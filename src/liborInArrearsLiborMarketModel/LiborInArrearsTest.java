@@ -11,10 +11,8 @@ import net.finmath.marketdata.model.curves.ForwardCurve;
 import net.finmath.montecarlo.interestrate.LIBORMarketModel;
 import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
 import net.finmath.montecarlo.interestrate.TermStructureModel;
-import net.finmath.montecarlo.interestrate.products.AbstractLIBORMonteCarloProduct;
 import net.finmath.plots.Plot;
 import net.finmath.plots.Plots;
-import net.finmath.time.TimeDiscretization;
 
 
 
@@ -44,8 +42,9 @@ public class LiborInArrearsTest {
 		// We test it for a lognormal model, i.e we will use the analytical value within the Black Model to have a Benchmark value for the error
 		Dynamics dynamics = Dynamics.LOGNORMAL;
 
-		final   LIBORModelMonteCarloSimulationModel myLiborModelMonteCarloTerminal =
-				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+		// Terminal and spot model are driven by the same Brownian motion: the random numbers are generated only once
+		final LIBORMarketModelFamily myLiborModelMonteCarloFamily =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModelFamily(
 						numberOfPaths,
 						simulationTimeStep,
 						LIBORTimeStep, //T_i-T_{i-1}, we suppose it to be fixed
@@ -53,35 +52,24 @@ public class LiborInArrearsTest {
 						fixingForGivenForwards,
 						forwardsForCurve,
 						correlationDecayParameter, // decay of the correlation between LIBOR rates
-						dynamics,
-						Measure.TERMINAL, // first terminal
+						new Dynamics[] { dynamics },
+						new Measure[] { Measure.TERMINAL, Measure.SPOT },
 						a, b, c, d,
 						1897 // seed
 						);
 
-		final   LIBORModelMonteCarloSimulationModel myLiborModelMonteCarloSpot =
-				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
-						numberOfPaths,
-						simulationTimeStep,
-						LIBORTimeStep, //T_i-T_{i-1}, we suppose it to be fixed
-						LIBORRateTimeHorizon, //T_n
-						fixingForGivenForwards,
-						forwardsForCurve,
-						correlationDecayParameter, // decay of the correlation between LIBOR rates
-						dynamics,
-						Measure.SPOT, // then spot
-						a, b, c, d,
-						1897 //seed
-						);
+		final   LIBORModelMonteCarloSimulationModel myLiborModelMonteCarloTerminal =
+				myLiborModelMonteCarloFamily.getModel(dynamics, Measure.TERMINAL);
 
-		// This one is only for extracting the variance of the model for the analytic formula to be used for get the variance
-		final TimeDiscretization simulationTimeDiscretization =  myLiborModelMonteCarloTerminal.getBrownianMotion().getTimeDiscretization();
+		final   LIBORModelMonteCarloSimulationModel myLiborModelMonteCarloSpot =
+				myLiborModelMonteCarloFamily.getModel(dynamics, Measure.SPOT);
 
 		final TermStructureModel liborModel = myLiborModelMonteCarloTerminal.getModel();
 
-		//	getIntegratedLIBORCovariance() is defined in LIBORMarketModel: we need to downcast
-		final double[][][] integratedVarianceMatrix = ((LIBORMarketModel) liborModel).
-				getIntegratedLIBORCovariance(simulationTimeDiscretization);
+		// The integrated variance of every LIBOR up to its fixing, for the analytic formula: only the diagonal is needed,
+		// so we do not create the whole integrated covariance cube. getCovarianceModel() is defined in LIBORMarketModel
+		final double[] integratedVariances = LiborInArrearsIntegratedVariance.getIntegratedVariancesToFixing(
+				((LIBORMarketModel) liborModel).getCovarianceModel());
 		//
 		//		extract the discount curve (i.e., the zero coupon bonds curve) in order to get the analytical price
 		final DiscountCurve discountFactors = liborModel.getDiscountCurve();
@@ -94,6 +82,11 @@ public class LiborInArrearsTest {
 		List<Double> errorsSpot = new ArrayList<Double>();
 
 
+		// Value all the periods of the strip in one pass over each model: value and standard error come from the same reduction
+		final LiborInArrearsStrip liborInArrearsStrip = new LiborInArrearsStrip(myLiborModelMonteCarloTerminal.getLiborPeriodDiscretization());
+		final LiborInArrearsStripValuation valuationTerminal = liborInArrearsStrip.getValuation(0.0, myLiborModelMonteCarloTerminal);
+		final LiborInArrearsStripValuation valuationSpot = liborInArrearsStrip.getValuation(0.0, myLiborModelMonteCarloSpot);
+
 		System.out.println("Price of Libor Rate in Arrears:\n");
 
 		System.out.println("PaymentDate:     SimuTerminal:     SimuSpot:    Analytic:     RelDifTerminal:       RelDifSpot:        StdErrorTerminal:       StdErrorSpot: \n");
@@ -108,20 +101,15 @@ public class LiborInArrearsTest {
 			final double liborPeriodTiPlusOne = myLiborModelMonteCarloTerminal.getLiborPeriod(periodStart + 1); // T_i+1
 			System.out.print(formatterDouble.format(liborPeriodTi ) + "            ");
 
-			// Create Product
-			final AbstractLIBORMonteCarloProduct liborInArrears = new LiborInArrears(liborPeriodTi, liborPeriodTiPlusOne);
-
 			// Value under Monte-Carlo Simulation with Terminal and Spot Measure
-			final double valueSimulationTerminal = notional * liborInArrears.getValue(myLiborModelMonteCarloTerminal);
-			final double valueSimulationSpot = notional * liborInArrears.getValue(myLiborModelMonteCarloSpot);
+			final double valueSimulationTerminal = notional * valuationTerminal.getValue(periodStart);
+			final double valueSimulationSpot = notional * valuationSpot.getValue(periodStart);
 
 			System.out.print(formatterDouble.format(valueSimulationTerminal) + "          ");
 			System.out.print(formatterDouble.format(valueSimulationSpot) + "       ");
 
 			//	Input for our formula : Variance, Bond in Fixing Time T_i, Bond in PeriodEnd T_i+1 , Initial Libor
-			final int maturityIndexInTheSimulationDiscretization = myLiborModelMonteCarloTerminal.getTimeIndex(liborPeriodTi);
-			final double integratedVariance = integratedVarianceMatrix
-					[maturityIndexInTheSimulationDiscretization][periodStart][periodStart];
+			final double integratedVariance = integratedVariances[periodStart];
 			final double variance = integratedVariance/liborPeriodTi ; // extract case T_0 = 0 -> divide by zero
 			//		final double standardDeviation = Math.sqrt(variance); // No need since we directly put in the variance, i.e sigma^2
 
@@ -151,10 +139,10 @@ public class LiborInArrearsTest {
 			System.out.print(formatterDeviation.format(relativeDifferenceSpot) + "               ");
 
 			// Standard Error to see MC-Error
-			final double valueSimulationTerminalStandardError =  liborInArrears.getValue(0.0, myLiborModelMonteCarloTerminal).getStandardError();
+			final double valueSimulationTerminalStandardError =  valuationTerminal.getStandardError(periodStart);
 			System.out.print(formatterDouble.format(valueSimulationTerminalStandardError) + "              "   );
 
-			final double valueSimulationSpotStandardError =  liborInArrears.getValue(0.0, myLiborModelMonteCarloSpot).getStandardError();
+			final double valueSimulationSpotStandardError =  valuationSpot.getStandardError(periodStart);
 			System.out.println(formatterDouble.format(valueSimulationSpotStandardError) );
 
 			fixings.add(liborPeriodTi);
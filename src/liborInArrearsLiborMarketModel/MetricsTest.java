@@ -0,0 +1,70 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class runs the model of LiborInArrearsTest with a LIBORMarketModelMetricsRecorder as listener of
+ * LIBORMarketModelMetrics, once with the eager simulation and once with the lazy one, and values the strip of all the
+ * periods on it. For both it prints the table of the recorder, i.e., the time and the allocated memory of every phase
+ * of createLIBORMarketModel and the time of the valuations, and the wall-clock time of the valuation of the strip.
+ *
+ * With the eager simulation the Brownian increments and the evolution of the paths are the phases 11 and 12; with the
+ * lazy one they are not reported, and the strip evolves the paths before starting the timers of its periods, so that
+ * in both cases the average time of a valuation only contains the valuation.
+ *
+ */
+public class MetricsTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+
+	final int	numberOfPaths	= 12000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	public void testMetrics() throws Exception {
+
+		for(final boolean isSimulationEager : new boolean[] { true, false }) {
+			final LIBORMarketModelMetricsRecorder recorder = new LIBORMarketModelMetricsRecorder(isSimulationEager);
+			LIBORMarketModelMetrics.setListener(recorder);
+			try {
+				final LIBORModelMonteCarloSimulationModel model =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+								numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+								forwardsForCurve, correlationDecayParameter, Dynamics.LOGNORMAL, Measure.SPOT, a, b, c, d,
+								1897 /* seed */);
+
+				final LiborInArrearsStrip strip = new LiborInArrearsStrip(model.getLiborPeriodDiscretization());
+				final long startValuation = System.nanoTime();
+				strip.getValuation(0.0, model);
+				final long endValuation = System.nanoTime();
+
+				System.out.println((isSimulationEager ? "Eager" : "Lazy") + " simulation, " + numberOfPaths + " paths:\n");
+				System.out.println(recorder);
+				System.out.println("Valuation of the strip (simulation included if lazy)-s: "
+						+ formatterTime.format((endValuation - startValuation) / 1E9) + "\n");
+			}
+			finally {
+				LIBORMarketModelMetrics.setListener(null);
+			}
+		}
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new MetricsTest()).testMetrics();
+	}
+
+}
@@ -0,0 +1,144 @@
+package liborInArrearsLiborMarketModel;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.RandomNumberSource;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class writes the paths of the LIBOR Market Model of LiborInArrearsTest to a path store (see
+ * LIBORMonteCarloSimulationFromPathStore) and values the strip of LIBOR in arrears on it in a second JVM with a small
+ * heap (-Xmx64m), which only opens the store. It prints the time to simulate, value and write the paths in this JVM,
+ * the size of the file, the time to open the store and value the strip in the second JVM with its heap after the
+ * valuation, and the largest difference of a period between the two valuations, which is zero: the store gives the
+ * values of the simulation. The same holds for the valuation with control variate, which uses the discount factors of
+ * the store.
+ *
+ * Run with the path of a store as argument, it only opens the store and prints the values of the periods.
+ *
+ */
+public class PathStoreTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterValue = new DecimalFormat("0.000000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+
+	final int	numberOfPaths	= 12000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	public void testPathStore() throws Exception {
+
+		final Path file = Files.createTempFile("liborInArrears", ".paths");
+		try {
+			System.out.println("Path store of the LIBOR in arrears model, " + numberOfPaths + " paths:\n");
+
+			final long startWrite = System.nanoTime();
+			final LIBORModelMonteCarloSimulationModel model = LIBORMonteCarloSimulationFromPathStore.writePaths(file,
+					numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+					forwardsForCurve, correlationDecayParameter, Dynamics.LOGNORMAL, Measure.SPOT, a, b, c, d,
+					1897, // seed
+					RandomNumberSource.MERSENNE,
+					// one factor for every LIBOR
+					LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+							LIBORRateTimeHorizon, LIBORTimeStep).getNumberOfTimeSteps());
+			final double[] values = new LiborInArrearsStrip(model.getLiborPeriodDiscretization()).getValuation(0.0, model).getValues();
+			final double timeToWrite = (System.nanoTime() - startWrite) / 1E9;
+
+			System.out.println("Simulation, valuation and writing:       " + formatterTime.format(timeToWrite) + " s");
+			System.out.println("Size of the store:                       " + formatterTime.format(Files.size(file) / 1E6) + " MB");
+
+			// The second JVM, with the class path of this one
+			final String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+			final Process process = new ProcessBuilder(java, "-Xmx64m", "-cp", System.getProperty("java.class.path"),
+					PathStoreTest.class.getName(), file.toString()).redirectErrorStream(true).start();
+			final List<String> output = new ArrayList<>();
+			try(BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+				String line;
+				while((line = reader.readLine()) != null) {
+					output.add(line);
+				}
+			}
+			if(process.waitFor() != 0) {
+				throw new IllegalStateException("The valuation on the store failed:\n" + String.join("\n", output));
+			}
+
+			// The second JVM prints time and heap, then one value per line
+			double maximumDifference = 0.0;
+			double valueOfStrip = 0.0;
+			for(int periodIndex = 0; periodIndex < values.length; periodIndex++) {
+				final double valueOnStore = Double.parseDouble(output.get(2 + periodIndex));
+				maximumDifference = Math.max(maximumDifference, Math.abs(valueOnStore - values[periodIndex]));
+				valueOfStrip += valueOnStore;
+			}
+			System.out.println("Opening and valuation in a second JVM:   " + output.get(0) + " s");
+			System.out.println("Heap of the second JVM (-Xmx64m):        " + output.get(1) + " MB");
+			System.out.println("Strip value on the store:                " + formatterValue.format(valueOfStrip));
+			System.out.println("Largest difference of a period:          " + formatterError.format(maximumDifference));
+
+			// The control variate needs the discount curve, which the store keeps at the tenor dates
+			final LiborInArrearsStrip strip = new LiborInArrearsStrip(model.getLiborPeriodDiscretization());
+			final double[] valuesWithControlVariate = strip.getValuationWithControlVariate(0.0, model).getValues();
+			final LIBORMonteCarloSimulationFromPathStore store = LIBORMonteCarloSimulationFromPathStore.open(file);
+			final double[] valuesWithControlVariateOnStore = strip.getValuationWithControlVariate(0.0,
+					store, store.getDiscountCurve()).getValues();
+			double maximumDifferenceWithControlVariate = 0.0;
+			for(int periodIndex = 0; periodIndex < valuesWithControlVariate.length; periodIndex++) {
+				maximumDifferenceWithControlVariate = Math.max(maximumDifferenceWithControlVariate,
+						Math.abs(valuesWithControlVariateOnStore[periodIndex] - valuesWithControlVariate[periodIndex]));
+			}
+			System.out.println("Largest difference with control variate: " + formatterError.format(maximumDifferenceWithControlVariate));
+		}
+		finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+	/*
+	 * The valuation in the second JVM: it prints the time to open the store and value the strip, the heap used after the
+	 * valuation and the values of the periods.
+	 */
+	private static void valueStrip(Path file) throws Exception {
+		final long start = System.nanoTime();
+		final LIBORMonteCarloSimulationFromPathStore store = LIBORMonteCarloSimulationFromPathStore.open(file);
+		final double[] values = new LiborInArrearsStrip(store.getLiborPeriodDiscretization()).getValuation(0.0, store).getValues();
+		final double time = (System.nanoTime() - start) / 1E9;
+
+		System.out.println(formatterTime.format(time));
+		System.out.println(formatterTime.format(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed() / 1E6));
+		for(final double value : values) {
+			System.out.println(value);
+		}
+	}
+
+	public static void main(String[] args)  throws Exception {
+		if(args.length > 0) {
+			valueStrip(new File(args[0]).toPath());
+		}
+		else {
+			(new PathStoreTest()).testPathStore();
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class tests LiborInArrearsPortfolio on the model of LiborInArrearsTest: a book of trades with random notionals
+ * and periods, several of them sharing the same fixing or the same period, is valued at once and every trade is
+ * compared with notional * LiborInArrears.getValue of the same period on the same paths. For both dynamics it prints
+ * the time of the two valuations and the largest relative difference of a trade, which is of the order of the machine
+ * precision: the portfolio only changes the order of the operations.
+ *
+ */
+public class PortfolioTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+
+	final int	numberOfPaths	= 12000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	final int numberOfTrades = 200;
+
+	public void testPortfolio() throws Exception {
+
+		// The book: fixings on the tenor dates, periods of one or two tenor steps, notionals of both signs
+		final Random random = new Random(3141);
+		final int numberOfPeriods = (int) (LIBORRateTimeHorizon / LIBORTimeStep) - 2;
+		final double[] notionals = new double[numberOfTrades];
+		final double[] fixings = new double[numberOfTrades];
+		final double[] periodEnds = new double[numberOfTrades];
+		for(int tradeIndex = 0; tradeIndex < numberOfTrades; tradeIndex++) {
+			notionals[tradeIndex] = 1000.0 * (random.nextDouble() - 0.25);
+			fixings[tradeIndex] = (random.nextInt(numberOfPeriods) + 1) * LIBORTimeStep;
+			periodEnds[tradeIndex] = fixings[tradeIndex] + (random.nextInt(2) + 1) * LIBORTimeStep;
+		}
+		final LiborInArrearsPortfolio portfolio = new LiborInArrearsPortfolio(notionals, fixings, periodEnds);
+
+		System.out.println("Portfolio of " + numberOfTrades + " trades (" + portfolio.getNumberOfDistinctPeriods()
+		+ " distinct periods) against the single trades, " + numberOfPaths + " paths:\n");
+		System.out.println("Dynamics:      Portfolio-ms:    Trades-ms:    Largest relative difference: \n");
+
+		for(final Dynamics dynamics : Dynamics.values()) {
+			final LIBORModelMonteCarloSimulationModel model =
+					LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+							numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+							forwardsForCurve, correlationDecayParameter, dynamics, Measure.SPOT, a, b, c, d,
+							1897 /* seed */);
+
+			// Evolve the paths first, so that both timings only measure the valuation
+			model.getLIBOR(0, 0);
+
+			final long startPortfolio = System.nanoTime();
+			final LiborInArrearsPortfolioValuation valuation = portfolio.getValuation(0.0, model);
+			final long endPortfolio = System.nanoTime();
+
+			final double[] valuesOfTrades = new double[numberOfTrades];
+			for(int tradeIndex = 0; tradeIndex < numberOfTrades; tradeIndex++) {
+				valuesOfTrades[tradeIndex] = notionals[tradeIndex]
+						* new LiborInArrears(fixings[tradeIndex], periodEnds[tradeIndex]).getValue(0.0, model).getAverage();
+			}
+			final long endTrades = System.nanoTime();
+
+			double maximumDifference = 0.0;
+			for(int tradeIndex = 0; tradeIndex < numberOfTrades; tradeIndex++) {
+				maximumDifference = Math.max(maximumDifference,
+						Math.abs(valuation.getValue(tradeIndex) - valuesOfTrades[tradeIndex]) / Math.abs(valuesOfTrades[tradeIndex]));
+			}
+
+			System.out.print(String.format("%-15s", dynamics));
+			System.out.print(String.format("%-17s", formatterTime.format((endPortfolio - startPortfolio) / 1E6)));
+			System.out.print(String.format("%-14s", formatterTime.format((endTrades - endPortfolio) / 1E6)));
+			System.out.println(formatterError.format(maximumDifference));
+		}
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new PortfolioTest()).testPortfolio();
+	}
+
+}
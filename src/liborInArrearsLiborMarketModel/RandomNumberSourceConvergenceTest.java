@@ -0,0 +1,139 @@
+package liborInArrearsLiborMarketModel;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.RandomNumberSource;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class compares the random number sources of
+ * LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification on the strip of LIBOR in arrears of
+ * LiborInArrearsTest.
+ *
+ * For every source we simulate the model numberOfReplications times with different seeds and value the strip. The
+ * standard error of one run is estimated by the standard deviation of the values over the replications: this is the
+ * only meaningful estimate for the Sobol sequence and for antithetic paths, whose paths are not independent. The
+ * efficiency of a source is 1 / (standardError^2 * cpuSeconds), i.e., the inverse of the CPU time needed to reach a
+ * standard error of one: the higher, the better.
+ *
+ */
+public class RandomNumberSourceConvergenceTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+	private final static DecimalFormat formatterRatio = new DecimalFormat("0.00");
+
+	final int	numberOfPaths	= 4000;
+	final int	numberOfReplications = 8;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	// Under the terminal measure the in arrears payoffs of the early periods are heavy tailed: the comparison is cleaner under spot
+	final Measure measure = Measure.SPOT;
+
+	public void testConvergenceOfRandomNumberSources() throws Exception {
+
+		System.out.println("Standard error per CPU-second of the LIBOR in arrears strip, " + measure + " measure, "
+				+ numberOfPaths + " paths, " + numberOfReplications + " replications:\n");
+
+		System.out.println("Source:                  CPU-s/run:   AvgStdError:   StripStdError:   Efficiency:   vs Mersenne: \n");
+
+		double efficiencyMersenne = Double.NaN;
+		for(final RandomNumberSource randomNumberSource : RandomNumberSource.values()) {
+
+			double[][] values = null;
+			double cpuTime = 0.0;
+			for(int replication = 0; replication < numberOfReplications; replication++) {
+				final long cpuTimeStart = getProcessCpuTime();
+
+				final LIBORModelMonteCarloSimulationModel model =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+								numberOfPaths,
+								simulationTimeStep,
+								LIBORTimeStep,
+								LIBORRateTimeHorizon,
+								fixingForGivenForwards,
+								forwardsForCurve,
+								correlationDecayParameter,
+								Dynamics.LOGNORMAL,
+								measure,
+								a, b, c, d,
+								1897 + 7919 * replication, // seed
+								randomNumberSource
+								);
+
+				final LiborInArrearsStripValuation valuation =
+						new LiborInArrearsStrip(model.getLiborPeriodDiscretization()).getValuation(0.0, model);
+
+				cpuTime += (getProcessCpuTime() - cpuTimeStart) / 1E9;
+
+				if(values == null) {
+					values = new double[valuation.getNumberOfPeriods()][numberOfReplications];
+				}
+				for(int periodIndex = 0; periodIndex < valuation.getNumberOfPeriods(); periodIndex++) {
+					values[periodIndex][replication] = valuation.getValue(periodIndex);
+				}
+			}
+
+			// Standard error of a single run, per period and for the whole strip
+			final double[] valuesOfStrip = new double[numberOfReplications];
+			double averageStandardError = 0.0;
+			for(int periodIndex = 0; periodIndex < values.length; periodIndex++) {
+				averageStandardError += getStandardDeviation(values[periodIndex]) / values.length;
+				for(int replication = 0; replication < numberOfReplications; replication++) {
+					valuesOfStrip[replication] += values[periodIndex][replication];
+				}
+			}
+			final double standardErrorOfStrip = getStandardDeviation(valuesOfStrip);
+			final double cpuTimePerRun = cpuTime / numberOfReplications;
+			final double efficiency = 1.0 / (standardErrorOfStrip * standardErrorOfStrip * cpuTimePerRun);
+			if(randomNumberSource == RandomNumberSource.MERSENNE) {
+				efficiencyMersenne = efficiency;
+			}
+
+			System.out.print(String.format("%-25s", randomNumberSource));
+			System.out.print(formatterTime.format(cpuTimePerRun) + "        ");
+			System.out.print(formatterError.format(averageStandardError) + "      ");
+			System.out.print(formatterError.format(standardErrorOfStrip) + "        ");
+			System.out.print(formatterError.format(efficiency) + "     ");
+			System.out.println(formatterRatio.format(efficiency / efficiencyMersenne));
+		}
+	}
+
+	private static double getStandardDeviation(double[] values) {
+		double mean = 0.0;
+		for(final double value : values) {
+			mean += value / values.length;
+		}
+		double sumOfSquaredDeviations = 0.0;
+		for(final double value : values) {
+			sumOfSquaredDeviations += (value - mean) * (value - mean);
+		}
+		return Math.sqrt(sumOfSquaredDeviations / (values.length - 1));
+	}
+
+	/*
+	 * CPU time of the whole process in nanoseconds (the Euler scheme of the Finmath library may use several threads).
+	 */
+	private static long getProcessCpuTime() {
+		return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new RandomNumberSourceConvergenceTest()).testConvergenceOfRandomNumberSources();
+	}
+
+}
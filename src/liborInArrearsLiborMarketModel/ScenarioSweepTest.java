@@ -0,0 +1,60 @@
+package liborInArrearsLiborMarketModel;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LiborInArrearsScenarioSweep.OutputFormat;
+import liborInArrearsLiborMarketModel.LiborInArrearsScenarioSweep.Scenario;
+
+/**
+ * This class runs LiborInArrearsScenarioSweep on a small grid of scenarios around the model of LiborInArrearsTest, two
+ * values of a, two correlation decays and both dynamics under the spot measure, and writes the results once in CSV and
+ * once in JSON lines. It prints both outputs and checks that every scenario has written one line in every format.
+ *
+ */
+public class ScenarioSweepTest {
+
+	final int	numberOfPaths	= 2000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	//the grid of scenarios
+	final double[] a = { 0.1, 0.2 }, b = { 0.1 }, c = { 0.15 }, d = { 0.15 };
+	final double[] correlationDecayParams = { 0.1, 0.5 };
+
+	public void testScenarioSweep() throws Exception {
+
+		final List<Scenario> scenarios = LiborInArrearsScenarioSweep.createScenarioGrid(a, b, c, d, correlationDecayParams,
+				Dynamics.values(), new Measure[] { Measure.SPOT });
+
+		final LiborInArrearsStrip strip = new LiborInArrearsStrip(
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+						LIBORRateTimeHorizon, LIBORTimeStep));
+
+		for(final OutputFormat outputFormat : OutputFormat.values()) {
+			final StringWriter writer = new StringWriter();
+			LiborInArrearsScenarioSweep.run(scenarios, strip, numberOfPaths, simulationTimeStep, LIBORTimeStep,
+					LIBORRateTimeHorizon, fixingForGivenForwards, forwardsForCurve, 1897 /* seed */, writer, outputFormat);
+
+			final String[] lines = writer.toString().split("\n");
+			final int numberOfHeaderLines = outputFormat == OutputFormat.CSV ? 1 : 0;
+			System.out.println(outputFormat + ", " + scenarios.size() + " scenarios:\n");
+			System.out.println(writer);
+			System.out.println("Lines of results: " + (lines.length - numberOfHeaderLines)
+					+ (lines.length - numberOfHeaderLines == scenarios.size() ? " (one for every scenario)" : " (WRONG)") + "\n");
+		}
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new ScenarioSweepTest()).testScenarioSweep();
+	}
+
+}
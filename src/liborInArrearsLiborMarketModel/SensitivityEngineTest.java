@@ -0,0 +1,187 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class tests LiborInArrearsSensitivityEngine against the analytic formula in the log-normal case, on the model
+ * of LiborInArrearsTest: the derivatives of LiborInArrearsAnalyticFormula with respect to the given forwards and to the
+ * parameters a, b, c, d are computed by central differences of the formula, which has no Monte-Carlo error, with the
+ * Black variances of LiborInArrearsIntegratedVariance and the discount factors of the forward curve, as in
+ * LiborInArrearsTest. For both measures it prints, for every period, the largest difference of a delta and of a vega
+ * relative to the largest analytic delta (vega) of the period.
+ *
+ * The differences are the Monte-Carlo and discretization errors of the simulated sensitivities: the test fails if one
+ * of them is larger than the tolerance.
+ *
+ */
+public class SensitivityEngineTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterDouble = new DecimalFormat("0.0000");
+	private final static DecimalFormat formatterDeviation = new DecimalFormat("0.000%;");
+
+	final int	numberOfPaths	= 12000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	final int seed = 1897;
+
+	// Shift of the central differences of the analytic formula
+	final double shift = 1E-5;
+
+	// Monte-Carlo error of the simulated sensitivities, relative to the largest sensitivity of the period
+	final double tolerance = 5E-2;
+
+	public void testSensitivityEngine() throws Exception {
+
+		final LiborInArrearsStrip strip = getStrip();
+
+		final double[] volatilityParameters = { a, b, c, d };
+		final double[][] analyticDeltas = new double[strip.getNumberOfPeriods()][forwardsForCurve.length];
+		final double[][] analyticVegas = new double[strip.getNumberOfPeriods()][volatilityParameters.length];
+		for(int forwardIndex = 0; forwardIndex < forwardsForCurve.length; forwardIndex++) {
+			final double[] forwardsUp = forwardsForCurve.clone();
+			final double[] forwardsDown = forwardsForCurve.clone();
+			forwardsUp[forwardIndex] += shift;
+			forwardsDown[forwardIndex] -= shift;
+			final double[] valuesUp = getAnalyticValues(strip, forwardsUp, volatilityParameters);
+			final double[] valuesDown = getAnalyticValues(strip, forwardsDown, volatilityParameters);
+			for(int periodIndex = 0; periodIndex < strip.getNumberOfPeriods(); periodIndex++) {
+				analyticDeltas[periodIndex][forwardIndex] = (valuesUp[periodIndex] - valuesDown[periodIndex]) / (2 * shift);
+			}
+		}
+		for(int parameterIndex = 0; parameterIndex < volatilityParameters.length; parameterIndex++) {
+			final double[] parametersUp = volatilityParameters.clone();
+			final double[] parametersDown = volatilityParameters.clone();
+			parametersUp[parameterIndex] += shift;
+			parametersDown[parameterIndex] -= shift;
+			final double[] valuesUp = getAnalyticValues(strip, forwardsForCurve, parametersUp);
+			final double[] valuesDown = getAnalyticValues(strip, forwardsForCurve, parametersDown);
+			for(int periodIndex = 0; periodIndex < strip.getNumberOfPeriods(); periodIndex++) {
+				analyticVegas[periodIndex][parameterIndex] = (valuesUp[periodIndex] - valuesDown[periodIndex]) / (2 * shift);
+			}
+		}
+		final double[] analyticValues = getAnalyticValues(strip, forwardsForCurve, volatilityParameters);
+
+		for(final Measure measureType : Measure.values()) {
+			final long start = System.nanoTime();
+			final LiborInArrearsStripSensitivities sensitivities = LiborInArrearsSensitivityEngine.getSensitivities(strip,
+					numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+					forwardsForCurve, correlationDecayParameter, Dynamics.LOGNORMAL, measureType, a, b, c, d, seed);
+			final long end = System.nanoTime();
+
+			System.out.println("Bumped sensitivities against the analytic formula, " + Dynamics.LOGNORMAL + " dynamics under the "
+					+ measureType + " measure, " + numberOfPaths + " paths (" + formatterTime.format((end - start) / 1E9) + "s):\n");
+			System.out.println("PaymentDate:     Analytic:     Simulation:    Delta difference:    Vega difference: \n");
+
+			double maximumDifference = 0.0;
+			for(int periodIndex = 0; periodIndex < strip.getNumberOfPeriods(); periodIndex++) {
+				final double differenceOfDeltas = getLargestRelativeDifference(analyticDeltas[periodIndex], sensitivities,
+						periodIndex, true);
+				final double differenceOfVegas = getLargestRelativeDifference(analyticVegas[periodIndex], sensitivities,
+						periodIndex, false);
+				maximumDifference = Math.max(maximumDifference, Math.max(differenceOfDeltas, differenceOfVegas));
+
+				System.out.print(String.format("%-17s", formatterDouble.format(sensitivities.getPeriodStart(periodIndex))));
+				System.out.print(String.format("%-14s", formatterDouble.format(analyticValues[periodIndex])));
+				System.out.print(String.format("%-15s", formatterDouble.format(sensitivities.getValue(periodIndex))));
+				System.out.print(String.format("%-21s", formatterDeviation.format(differenceOfDeltas)));
+				System.out.println(formatterDeviation.format(differenceOfVegas));
+			}
+			System.out.println();
+
+			if(maximumDifference > tolerance) {
+				throw new AssertionError("The bumped sensitivities differ from the analytic ones by more than " + tolerance
+						+ " under the " + measureType + " measure.");
+			}
+		}
+	}
+
+	/*
+	 * The values of the periods of the strip by the analytic formula, for the given forwards and volatility parameters.
+	 */
+	private double[] getAnalyticValues(LiborInArrearsStrip strip, double[] givenForwards, double[] volatilityParameters) {
+		final TimeDiscretization timeDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, simulationTimeStep);
+		final TimeDiscretization LIBORPeriodDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, LIBORTimeStep);
+		final ForwardCurve forwardCurve =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(fixingForGivenForwards, givenForwards, LIBORTimeStep);
+		final DiscountCurve discountCurve = new DiscountCurveFromForwardCurve(forwardCurve);
+		final double[] integratedVariances = LiborInArrearsIntegratedVariance.getIntegratedVariancesToFixing(
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+						timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParameter, Dynamics.LOGNORMAL,
+						volatilityParameters[0], volatilityParameters[1], volatilityParameters[2], volatilityParameters[3]));
+
+		final double[] periodStarts = strip.getPeriodStarts();
+		final double[] periodEnds = strip.getPeriodEnds();
+		final double[] values = new double[periodStarts.length];
+		for(int periodIndex = 0; periodIndex < values.length; periodIndex++) {
+			final double periodStart = periodStarts[periodIndex];
+			final double periodEnd = periodEnds[periodIndex];
+			final int liborIndex = LIBORPeriodDiscretization.getTimeIndex(periodStart);
+			values[periodIndex] = LiborInArrearsAnalyticFormula.calculateLiborInArrearsFloaterAnalytic(
+					forwardCurve.getForward(null, periodStart), integratedVariances[liborIndex] / periodStart, periodStart,
+					periodEnd, discountCurve.getDiscountFactor(periodEnd), discountCurve.getDiscountFactor(periodStart));
+		}
+		return values;
+	}
+
+	/*
+	 * The largest difference between the given analytic deltas (vegas) of a period and the simulated ones, relative to
+	 * the largest analytic delta (vega) of the period.
+	 */
+	private static double getLargestRelativeDifference(double[] analyticSensitivities,
+			LiborInArrearsStripSensitivities sensitivities, int periodIndex, boolean isDelta) {
+		double largestSensitivity = 0.0;
+		for(final double analyticSensitivity : analyticSensitivities) {
+			largestSensitivity = Math.max(largestSensitivity, Math.abs(analyticSensitivity));
+		}
+		if(largestSensitivity == 0.0) {
+			return 0.0;
+		}
+		double largestDifference = 0.0;
+		for(int index = 0; index < analyticSensitivities.length; index++) {
+			final double simulatedSensitivity = isDelta
+					? sensitivities.getDelta(periodIndex, index) : sensitivities.getVega(periodIndex, index);
+			largestDifference = Math.max(largestDifference, Math.abs(simulatedSensitivity - analyticSensitivities[index]));
+		}
+		return largestDifference / largestSensitivity;
+	}
+
+	/*
+	 * The strip of all the periods of the tenure structure but the first one, which is fixed at time zero.
+	 */
+	private LiborInArrearsStrip getStrip() {
+		final int numberOfPeriods = (int) (LIBORRateTimeHorizon / LIBORTimeStep) - 1;
+		final double[] periodStarts = new double[numberOfPeriods];
+		final double[] periodEnds = new double[numberOfPeriods];
+		for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+			periodStarts[periodIndex] = (periodIndex + 1) * LIBORTimeStep;
+			periodEnds[periodIndex] = periodStarts[periodIndex] + LIBORTimeStep;
+		}
+		return new LiborInArrearsStrip(periodStarts, periodEnds);
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new SensitivityEngineTest()).testSensitivityEngine();
+	}
+
+}
@@ -0,0 +1,155 @@
+package liborInArrearsLiborMarketModel;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.RandomNumberSource;
+import net.finmath.montecarlo.RandomVariableFactory;
+import net.finmath.montecarlo.RandomVariableFloatFactory;
+import net.finmath.montecarlo.RandomVariableFromArrayFactory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class compares the LIBOR Market Model of LiborInArrearsTest simulated in single precision (RandomVariableFloatFactory)
+ * to the same model in double precision, on the strip of LIBOR in arrears, for all the dynamics and measures.
+ *
+ * Both simulations use the same random numbers (the float increments are the double ones rounded), so the differences
+ * of the values are only due to the precision. For every model we print the value of the strip, the largest difference
+ * of a period to the double precision run in absolute terms and relative to the standard error of that period, the
+ * memory retained by the simulation (heap used after a garbage collection, with the model still referenced), the CPU
+ * time of simulation and valuation, and the ratios of memory and time of double and single precision.
+ *
+ */
+public class SinglePrecisionTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterValue = new DecimalFormat("0.000000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+	private final static DecimalFormat formatterRatio = new DecimalFormat("0.00");
+
+	final int	numberOfPaths	= 12000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	public void testSinglePrecision() throws Exception {
+
+		System.out.println("Single against double precision on the LIBOR in arrears strip, " + numberOfPaths + " paths:\n");
+
+		// Warm up the JIT in both precisions on a small simulation, so that the first model is not penalized
+		for(final RandomVariableFactory randomVariableFactory : new RandomVariableFactory[] {
+				new RandomVariableFromArrayFactory(), new RandomVariableFloatFactory() }) {
+			final LIBORModelMonteCarloSimulationModel warmUpModel = createLIBORMarketModel(numberOfPaths / 10,
+					Dynamics.LOGNORMAL, Measure.SPOT, randomVariableFactory);
+			new LiborInArrearsStrip(warmUpModel.getLiborPeriodDiscretization()).getValuation(0.0, warmUpModel);
+		}
+
+		System.out.println("Dynamics:   Measure:    Precision:  StripValue:   MaxPeriodError:   MaxError/StdError:   Memory-MB:   CPU-s:   MemoryRatio:   Speedup: \n");
+
+		for(final Dynamics dynamics : Dynamics.values()) {
+			for(final Measure measure : Measure.values()) {
+				double[] valuesInDoublePrecision = null;
+				double memoryInDoublePrecision = Double.NaN;
+				double cpuTimeInDoublePrecision = Double.NaN;
+				for(final RandomVariableFactory randomVariableFactory : new RandomVariableFactory[] {
+						new RandomVariableFromArrayFactory(), new RandomVariableFloatFactory() }) {
+					final boolean isFloat = randomVariableFactory instanceof RandomVariableFloatFactory;
+
+					final double memoryBefore = getUsedHeapAfterGarbageCollection();
+					final long cpuTimeStart = getProcessCpuTime();
+
+					final LIBORModelMonteCarloSimulationModel model =
+							createLIBORMarketModel(numberOfPaths, dynamics, measure, randomVariableFactory);
+					final LiborInArrearsStripValuation valuation =
+							new LiborInArrearsStrip(model.getLiborPeriodDiscretization()).getValuation(0.0, model);
+
+					final double cpuTime = (getProcessCpuTime() - cpuTimeStart) / 1E9;
+					final double memory = (getUsedHeapAfterGarbageCollection() - memoryBefore) / 1E6;
+					// Keep the simulation reachable until its memory has been measured
+					model.getLIBOR(0, 0);
+
+					final double[] values = valuation.getValues();
+					if(valuesInDoublePrecision == null) {
+						valuesInDoublePrecision = values;
+						memoryInDoublePrecision = memory;
+						cpuTimeInDoublePrecision = cpuTime;
+					}
+
+					double valueOfStrip = 0.0, maximumError = 0.0, maximumErrorOverStandardError = 0.0;
+					for(int periodIndex = 0; periodIndex < values.length; periodIndex++) {
+						final double error = Math.abs(values[periodIndex] - valuesInDoublePrecision[periodIndex]);
+						valueOfStrip += values[periodIndex];
+						maximumError = Math.max(maximumError, error);
+						// The first LIBOR is fixed at time zero: its standard error is zero
+						if(valuation.getStandardError(periodIndex) > 0) {
+							maximumErrorOverStandardError = Math.max(maximumErrorOverStandardError,
+									error / valuation.getStandardError(periodIndex));
+						}
+					}
+
+					System.out.print(String.format("%-12s%-12s%-12s", dynamics, measure, isFloat ? "float" : "double"));
+					System.out.print(formatterValue.format(valueOfStrip) + "      ");
+					System.out.print(formatterError.format(maximumError) + "         ");
+					System.out.print(formatterError.format(maximumErrorOverStandardError) + "            ");
+					System.out.print(String.format("%-13s", formatterTime.format(memory)));
+					System.out.print(formatterTime.format(cpuTime) + "   ");
+					System.out.print(String.format("%-15s", formatterRatio.format(memoryInDoublePrecision / memory)));
+					System.out.println(formatterRatio.format(cpuTimeInDoublePrecision / cpuTime));
+				}
+			}
+		}
+	}
+
+	private LIBORModelMonteCarloSimulationModel createLIBORMarketModel(int numberOfPaths, Dynamics dynamics, Measure measure,
+			RandomVariableFactory randomVariableFactory) throws Exception {
+		return LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+				numberOfPaths,
+				simulationTimeStep,
+				LIBORTimeStep,
+				LIBORRateTimeHorizon,
+				fixingForGivenForwards,
+				forwardsForCurve,
+				correlationDecayParameter,
+				dynamics,
+				measure,
+				a, b, c, d,
+				1897, // seed
+				RandomNumberSource.MERSENNE,
+				// one factor for every LIBOR
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(
+						LIBORRateTimeHorizon, LIBORTimeStep).getNumberOfTimeSteps(),
+				randomVariableFactory
+				);
+	}
+
+	/*
+	 * Heap used in bytes after a garbage collection.
+	 */
+	private static double getUsedHeapAfterGarbageCollection() {
+		System.gc();
+		return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+	}
+
+	/*
+	 * CPU time of the whole process in nanoseconds (the Euler scheme of the Finmath library may use several threads).
+	 */
+	private static long getProcessCpuTime() {
+		return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new SinglePrecisionTest()).testSinglePrecision();
+	}
+
+}
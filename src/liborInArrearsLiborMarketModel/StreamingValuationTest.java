@@ -0,0 +1,109 @@
+package liborInArrearsLiborMarketModel;
+
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+
+/**
+ * This class tests LiborInArrearsStreamingValuation against LiborInArrearsStrip on the model of LiborInArrearsTest. With
+ * one block, the streaming valuation evolves the paths of the simulation created by createLIBORMarketModel with the
+ * seed of the first chunk, see LiborInArrearsParallelValuation.getSeedOfChunk: for both dynamics and both measures it
+ * prints the time of the two valuations and the largest relative difference of a period, in value and in standard
+ * error, which are of the order of the rounding errors. The test fails if one of them is larger than the tolerance.
+ *
+ */
+public class StreamingValuationTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterError = new DecimalFormat("0.000E00");
+
+	final int	numberOfPaths	= 12000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	final int seed = 1897;
+
+	// The two valuations only differ by the order of the operations
+	final double tolerance = 1E-10;
+
+	public void testStreamingValuation() throws Exception {
+
+		System.out.println("Streaming valuation (one block) against the strip on the simulation, " + numberOfPaths + " paths:\n");
+		System.out.println("Dynamics:      Measure:    Streaming-s:    Simulation-s:    Value difference:    Error difference: \n");
+
+		for(final Dynamics dynamics : Dynamics.values()) {
+			for(final Measure measureType : Measure.values()) {
+				final long startStreaming = System.nanoTime();
+				final LiborInArrearsStripValuation streamingValuation = LiborInArrearsStreamingValuation.getValuation(
+						getStrip(), numberOfPaths, numberOfPaths /* one block */, simulationTimeStep, LIBORTimeStep,
+						LIBORRateTimeHorizon, fixingForGivenForwards, forwardsForCurve, correlationDecayParameter,
+						dynamics, measureType, a, b, c, d, seed);
+				final long endStreaming = System.nanoTime();
+
+				final LIBORModelMonteCarloSimulationModel model =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+								numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+								forwardsForCurve, correlationDecayParameter, dynamics, measureType, a, b, c, d,
+								LiborInArrearsParallelValuation.getSeedOfChunk(seed, 0));
+				final LiborInArrearsStripValuation valuation = getStrip().getValuation(0.0, model);
+				final long endSimulation = System.nanoTime();
+
+				double maximumDifferenceOfValues = 0.0;
+				double maximumDifferenceOfErrors = 0.0;
+				for(int periodIndex = 0; periodIndex < valuation.getNumberOfPeriods(); periodIndex++) {
+					maximumDifferenceOfValues = Math.max(maximumDifferenceOfValues, getRelativeDifference(
+							streamingValuation.getValue(periodIndex), valuation.getValue(periodIndex)));
+					maximumDifferenceOfErrors = Math.max(maximumDifferenceOfErrors, getRelativeDifference(
+							streamingValuation.getStandardError(periodIndex), valuation.getStandardError(periodIndex)));
+				}
+
+				System.out.print(String.format("%-15s", dynamics));
+				System.out.print(String.format("%-12s", measureType));
+				System.out.print(String.format("%-16s", formatterTime.format((endStreaming - startStreaming) / 1E9)));
+				System.out.print(String.format("%-17s", formatterTime.format((endSimulation - endStreaming) / 1E9)));
+				System.out.print(String.format("%-21s", formatterError.format(maximumDifferenceOfValues)));
+				System.out.println(formatterError.format(maximumDifferenceOfErrors));
+
+				if(maximumDifferenceOfValues > tolerance || maximumDifferenceOfErrors > tolerance) {
+					throw new AssertionError("The streaming valuation differs from the strip by more than " + tolerance
+							+ " for " + dynamics + " dynamics under the " + measureType + " measure.");
+				}
+			}
+		}
+	}
+
+	/*
+	 * The strip of all the periods of the tenure structure but the first one, which is fixed at time zero.
+	 */
+	private LiborInArrearsStrip getStrip() {
+		final int numberOfPeriods = (int) (LIBORRateTimeHorizon / LIBORTimeStep) - 1;
+		final double[] periodStarts = new double[numberOfPeriods];
+		final double[] periodEnds = new double[numberOfPeriods];
+		for(int periodIndex = 0; periodIndex < numberOfPeriods; periodIndex++) {
+			periodStarts[periodIndex] = (periodIndex + 1) * LIBORTimeStep;
+			periodEnds[periodIndex] = periodStarts[periodIndex] + LIBORTimeStep;
+		}
+		return new LiborInArrearsStrip(periodStarts, periodEnds);
+	}
+
+	private static double getRelativeDifference(double value, double otherValue) {
+		return value == otherValue ? 0.0 : Math.abs(value - otherValue) / Math.max(Math.abs(value), Math.abs(otherValue));
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new StreamingValuationTest()).testStreamingValuation();
+	}
+
+}
@@ -0,0 +1,259 @@
+package liborInArrearsLiborMarketModel;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Dynamics;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.Measure;
+import liborInArrearsLiborMarketModel.LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.SimulationScheme;
+import net.finmath.marketdata.model.curves.DiscountCurve;
+import net.finmath.marketdata.model.curves.DiscountCurveFromForwardCurve;
+import net.finmath.marketdata.model.curves.ForwardCurve;
+import net.finmath.montecarlo.BrownianMotion;
+import net.finmath.montecarlo.RandomVariableFromArrayFactory;
+import net.finmath.montecarlo.interestrate.LIBORModelMonteCarloSimulationModel;
+import net.finmath.montecarlo.interestrate.models.LIBORMarketModelFromCovarianceModel;
+import net.finmath.montecarlo.interestrate.models.covariance.AbstractLIBORCovarianceModel;
+import net.finmath.time.TimeDiscretization;
+
+/**
+ * This class compares the simulation schemes of LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification on
+ * coarse time discretizations aligned to the tenure structure to the Euler scheme with simulationTimeStep = 0.1, on
+ * the strip of LIBOR in arrears of LiborInArrearsTest (log-normal dynamics, both measures).
+ *
+ * All the simulations are driven by the same paths of one Brownian motion on the time discretization with step 0.1,
+ * restricted to the coarser time discretizations by BrownianMotionOnCoarserTimeDiscretization, so the differences of
+ * their values are due to the time discretization only. The reference is the baseline, i.e., the Euler scheme with
+ * simulationTimeStep = 0.1 and the volatility at the start of the steps, on the same paths. For every scheme we print
+ * the value of the strip, its bias, i.e., the difference to the baseline, the largest bias of a period in absolute
+ * terms and relative to the standard error of that period, and the difference of the strip to the analytic value with
+ * the exact integrated variance, which also contains the Monte-Carlo error common to all the schemes and, for the
+ * baseline, its own discretization error.
+ *
+ * The CPU time is measured on separate simulations, each with its own Brownian motion on its own time discretization
+ * (as created by createLIBORMarketModel), including the valuation of the strip; the speedup is relative to the Euler
+ * scheme with simulationTimeStep = 0.1.
+ *
+ */
+public class TimeDiscretizationTest {
+
+	private final static DecimalFormat formatterTime = new DecimalFormat("0.000");
+	private final static DecimalFormat formatterValue = new DecimalFormat("0.000000");
+	private final static DecimalFormat formatterError = new DecimalFormat(" 0.000E00;-0.000E00");
+	private final static DecimalFormat formatterRatio = new DecimalFormat("0.00");
+
+	final int	numberOfPaths	= 10000;
+	//parameters for the two time discretizations
+	final double simulationTimeStep = 0.1;
+	final double LIBORTimeStep = 0.5;
+	final int LIBORRateTimeHorizon = 16;
+
+	//fixing times for the forwards: the forwards corresponding to other fixing times will be interpolated
+	final double[] fixingForGivenForwards = { 0.5, 1.0, 2.0, 3.0};
+	final double[] forwardsForCurve = { 0.05, 0.05, 0.05, 0.05};
+
+	final double correlationDecayParameter = 0.5;
+
+	final double a = 0.1, b = 0.1, c = 0.15, d = 0.15; //volatility structure
+
+	final int seed = 1897;
+
+	final Dynamics dynamics = Dynamics.LOGNORMAL;
+
+	/*
+	 * The time discretizations of the schemes: number of steps of every period of the tenure structure. They must be
+	 * coarser than the one of the baseline: five steps per period is the step 0.1 of the baseline, where the Euler scheme
+	 * is the baseline and the other schemes differ from it by the drift and by the volatility averaged over the steps.
+	 */
+	final int[] numberOfStepsPerPeriod = { 1, 5 };
+
+	public void testTimeDiscretization() throws Exception {
+
+		final TimeDiscretization timeDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, simulationTimeStep);
+		final TimeDiscretization LIBORPeriodDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, LIBORTimeStep);
+		final ForwardCurve forwardCurve =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createForwardCurve(fixingForGivenForwards, forwardsForCurve, LIBORTimeStep);
+		final int numberOfFactors = LIBORPeriodDiscretization.getNumberOfTimeSteps(); // one factor for every LIBOR
+		final LiborInArrearsStrip strip = new LiborInArrearsStrip(LIBORPeriodDiscretization);
+
+		// The paths driving all the simulations of the bias
+		final BrownianMotion brownianMotion = LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createBrownianMotion(
+				timeDiscretization, numberOfFactors, numberOfPaths, seed);
+
+		System.out.println("Simulation schemes on the LIBOR in arrears strip, " + numberOfPaths + " paths, log-normal dynamics:\n");
+
+		warmUp();
+
+		for(final Measure measure : Measure.values()) {
+			// The baseline and reference of the bias: Euler scheme with step 0.1, volatility at the start of the steps
+			final AbstractLIBORCovarianceModel baselineCovarianceModel =
+					LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+							timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParameter, dynamics,
+							a, b, c, d);
+			final LIBORModelMonteCarloSimulationModel baselineModel =
+					LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createSimulation(
+							LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORModel(
+									LIBORPeriodDiscretization, forwardCurve, baselineCovarianceModel, measure),
+							brownianMotion);
+			final LiborInArrearsStripValuation referenceValuation = strip.getValuation(0.0, baselineModel);
+			final double exactValueOfStrip = getAnalyticValueOfStrip(timeDiscretization, LIBORPeriodDiscretization, forwardCurve);
+
+			System.out.println("Measure " + measure + ", baseline strip value " + formatterValue.format(sum(referenceValuation.getValues()))
+			+ ", analytic strip value " + formatterValue.format(exactValueOfStrip) + "\n");
+			System.out.println("Steps/Period:  Scheme:                         StripValue:   StripBias:    MaxPeriodBias:   MaxBias/StdError:   AnalyticError:   CPU-s:   Speedup: \n");
+
+			final double baselineCpuTime = getCpuTimeOfBaseline(measure, strip);
+			printRow("0.1 step", SimulationScheme.EULER, referenceValuation, referenceValuation,
+					exactValueOfStrip, baselineCpuTime, baselineCpuTime);
+
+			for(final int numberOfSteps : numberOfStepsPerPeriod) {
+				final TimeDiscretization coarseTimeDiscretization =
+						LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTenorAlignedTimeDiscretization(
+								LIBORPeriodDiscretization, numberOfSteps);
+				final BrownianMotion coarseBrownianMotion =
+						new BrownianMotionOnCoarserTimeDiscretization(brownianMotion, coarseTimeDiscretization);
+				for(final SimulationScheme simulationScheme : SimulationScheme.values()) {
+					final LiborInArrearsStripValuation valuation = strip.getValuation(0.0, createSimulation(
+							coarseTimeDiscretization, LIBORPeriodDiscretization, forwardCurve, measure, coarseBrownianMotion,
+							simulationScheme));
+					final double cpuTime = getCpuTime(coarseTimeDiscretization, measure, simulationScheme, strip);
+					printRow(String.valueOf(numberOfSteps), simulationScheme, valuation, referenceValuation, exactValueOfStrip,
+							cpuTime, baselineCpuTime);
+				}
+			}
+			System.out.println();
+		}
+	}
+
+	private LIBORModelMonteCarloSimulationModel createSimulation(TimeDiscretization timeDiscretization,
+			TimeDiscretization LIBORPeriodDiscretization, ForwardCurve forwardCurve, Measure measure,
+			BrownianMotion brownianMotion, SimulationScheme simulationScheme) throws Exception {
+		final AbstractLIBORCovarianceModel covarianceModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+						timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParameter, dynamics,
+						a, b, c, d, brownianMotion.getNumberOfFactors(), new RandomVariableFromArrayFactory(), simulationScheme);
+		final LIBORMarketModelFromCovarianceModel LIBORMarketModel =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORModel(
+						LIBORPeriodDiscretization, forwardCurve, covarianceModel, measure, new RandomVariableFromArrayFactory(),
+						simulationScheme);
+		return LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createSimulation(
+				LIBORMarketModel, brownianMotion, simulationScheme);
+	}
+
+	/*
+	 * The analytic value of the strip with the exact integrated variances: the volatility averaged over the steps gives
+	 * them on any time discretization containing the tenor dates.
+	 */
+	private double getAnalyticValueOfStrip(TimeDiscretization timeDiscretization, TimeDiscretization LIBORPeriodDiscretization,
+			ForwardCurve forwardCurve) {
+		final double[] integratedVariances = LiborInArrearsIntegratedVariance.getIntegratedVariancesToFixing(
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createCovarianceModel(
+						timeDiscretization, LIBORPeriodDiscretization, forwardCurve, correlationDecayParameter, dynamics,
+						a, b, c, d, LIBORPeriodDiscretization.getNumberOfTimeSteps(), new RandomVariableFromArrayFactory(),
+						SimulationScheme.LOG_EULER));
+		final DiscountCurve discountCurve = new DiscountCurveFromForwardCurve(forwardCurve);
+
+		double valueOfStrip = 0.0;
+		for(int periodIndex = 0; periodIndex < LIBORPeriodDiscretization.getNumberOfTimeSteps(); periodIndex++) {
+			final double periodStart = LIBORPeriodDiscretization.getTime(periodIndex);
+			final double periodEnd = LIBORPeriodDiscretization.getTime(periodIndex + 1);
+			final double initialForwardLibor = forwardCurve.getForward(null, periodStart);
+			if(periodStart == 0) {
+				valueOfStrip += (periodEnd - periodStart) * initialForwardLibor;
+			}
+			else {
+				valueOfStrip += LiborInArrearsAnalyticFormula.calculateLiborInArrearsFloaterAnalytic(initialForwardLibor,
+						integratedVariances[periodIndex] / periodStart, periodStart, periodEnd,
+						discountCurve.getDiscountFactor(periodEnd), discountCurve.getDiscountFactor(periodStart));
+			}
+		}
+		return valueOfStrip;
+	}
+
+	private void printRow(String steps, SimulationScheme simulationScheme, LiborInArrearsStripValuation valuation,
+			LiborInArrearsStripValuation referenceValuation, double exactValueOfStrip, double cpuTime, double baselineCpuTime) {
+		double valueOfStrip = 0.0, biasOfStrip = 0.0, maximumBias = 0.0, maximumBiasOverStandardError = 0.0;
+		for(int periodIndex = 0; periodIndex < valuation.getNumberOfPeriods(); periodIndex++) {
+			final double bias = valuation.getValue(periodIndex) - referenceValuation.getValue(periodIndex);
+			valueOfStrip += valuation.getValue(periodIndex);
+			biasOfStrip += bias;
+			maximumBias = Math.max(maximumBias, Math.abs(bias));
+			// The first LIBOR is fixed at time zero: its standard error is zero
+			if(valuation.getStandardError(periodIndex) > 0) {
+				maximumBiasOverStandardError = Math.max(maximumBiasOverStandardError,
+						Math.abs(bias) / valuation.getStandardError(periodIndex));
+			}
+		}
+
+		System.out.print(String.format("%-15s%-32s", steps, simulationScheme));
+		System.out.print(formatterValue.format(valueOfStrip) + "      ");
+		System.out.print(formatterError.format(biasOfStrip) + "     ");
+		System.out.print(formatterError.format(maximumBias) + "       ");
+		System.out.print(String.format("%-20s", formatterError.format(maximumBiasOverStandardError)));
+		System.out.print(formatterError.format(valueOfStrip - exactValueOfStrip) + "       ");
+		System.out.print(formatterTime.format(cpuTime) + "    ");
+		System.out.println(formatterRatio.format(baselineCpuTime / cpuTime));
+	}
+
+	private double getCpuTimeOfBaseline(Measure measure, LiborInArrearsStrip strip) throws Exception {
+		final long cpuTimeStart = getProcessCpuTime();
+		final LIBORModelMonteCarloSimulationModel model =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+						numberOfPaths, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+						forwardsForCurve, correlationDecayParameter, dynamics, measure, a, b, c, d, seed);
+		strip.getValuation(0.0, model);
+		return (getProcessCpuTime() - cpuTimeStart) / 1E9;
+	}
+
+	private double getCpuTime(TimeDiscretization timeDiscretization, Measure measure, SimulationScheme simulationScheme,
+			LiborInArrearsStrip strip) throws Exception {
+		final long cpuTimeStart = getProcessCpuTime();
+		final LIBORModelMonteCarloSimulationModel model =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+						numberOfPaths, timeDiscretization, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+						forwardsForCurve, correlationDecayParameter, dynamics, measure, a, b, c, d, seed, simulationScheme);
+		strip.getValuation(0.0, model);
+		return (getProcessCpuTime() - cpuTimeStart) / 1E9;
+	}
+
+	/*
+	 * Warm up the JIT on small simulations with every scheme, so that the first timed model is not penalized.
+	 */
+	private void warmUp() throws Exception {
+		final TimeDiscretization LIBORPeriodDiscretization =
+				LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTimeDiscretization(LIBORRateTimeHorizon, LIBORTimeStep);
+		final LiborInArrearsStrip strip = new LiborInArrearsStrip(LIBORPeriodDiscretization);
+		strip.getValuation(0.0, LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+				numberOfPaths / 10, simulationTimeStep, LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards,
+				forwardsForCurve, correlationDecayParameter, dynamics, Measure.SPOT, a, b, c, d, seed));
+		for(final SimulationScheme simulationScheme : SimulationScheme.values()) {
+			strip.getValuation(0.0, LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createLIBORMarketModel(
+					numberOfPaths / 10,
+					LIBORMarketModelConstructionWithDynamicsAndMeasureSpecification.createTenorAlignedTimeDiscretization(LIBORPeriodDiscretization, 1),
+					LIBORTimeStep, LIBORRateTimeHorizon, fixingForGivenForwards, forwardsForCurve, correlationDecayParameter,
+					dynamics, Measure.SPOT, a, b, c, d, seed, simulationScheme));
+		}
+	}
+
+	private static double sum(double[] values) {
+		double sum = 0.0;
+		for(final double value : values) {
+			sum += value;
+		}
+		return sum;
+	}
+
+	/*
+	 * CPU time of the whole process in nanoseconds (the Euler scheme of the Finmath library may use several threads).
+	 */
+	private static long getProcessCpuTime() {
+		return ((com.sun.management.OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean()).getProcessCpuTime();
+	}
+
+	public static void main(String[] args)  throws Exception {
+		(new TimeDiscretizationTest()).testTimeDiscretization();
+	}
+
+}